@@ -1,17 +1,34 @@
 import calendar.command.CommandParser;
+import calendar.controller.CommandServer;
 import calendar.controller.Controller;
 import calendar.controller.ControllerInterface;
+import calendar.controller.HttpCalendarServer;
+import calendar.controller.PipelinedController;
 import calendar.model.CalendarManager;
+import calendar.persistence.Journal;
+import calendar.persistence.MappedStoreDirectory;
+import calendar.persistence.Snapshot;
+import calendar.persistence.SyncPolicy;
+import calendar.view.AsyncConsoleOutput;
 import calendar.view.ConsoleView;
 import calendar.view.ViewInterface;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Main entry point for the calendar application.
- * Supports three execution modes: GUI (default), interactive, and headless.
+ * Supports five execution modes: GUI (default), interactive, headless, server, and
+ * HTTP.
  *
  * <p>IMPROVEMENTS:
  * - Better error messages with usage examples
@@ -20,6 +37,16 @@ import java.io.Reader;
  * - Clear mode selection logic
  */
 public class CalendarRunner {
+  private static final int DEFAULT_SERVER_PORT = 7070;
+  private static final int DEFAULT_HTTP_PORT = 8080;
+
+  private static String journalPath;
+  private static String snapshotPath;
+  private static String storePath;
+  private static SyncPolicy syncPolicy = SyncPolicy.BATCH;
+  private static Journal journal;
+  private static MappedStoreDirectory store;
+
   /**
    * Main method to run the calendar application.
    *
@@ -28,6 +55,12 @@ public class CalendarRunner {
   public static void main(String[] args) {
     try {
 
+      args = extractJournalOptions(args);
+      if (args == null) {
+        printUsageAndExit();
+        return;
+      }
+
       if (args.length == 0) {
         launchGui();
         return;
@@ -52,6 +85,12 @@ public class CalendarRunner {
           }
           launchHeadless(args[2]);
           break;
+        case "server":
+          launchServer((args.length < 3) ? DEFAULT_SERVER_PORT : parsePort(args[2]));
+          break;
+        case "http":
+          launchHttp((args.length < 3) ? DEFAULT_HTTP_PORT : parsePort(args[2]));
+          break;
         default:
           System.err.println("ERROR: Invalid mode '" + mode + "'.\n");
           printUsageAndExit();
@@ -68,6 +107,119 @@ public class CalendarRunner {
     }
   }
 
+  /**
+   * Removes the persistence options ({@code --journal <file>},
+   * {@code --sync always|batch|never}, {@code --snapshot <file>} and
+   * {@code --store <directory>}) from the arguments and records them.
+   *
+   * @param args command line arguments
+   * @return the remaining arguments, or null if an option is malformed
+   */
+  private static String[] extractJournalOptions(String[] args) {
+    List<String> remaining = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equalsIgnoreCase("--journal") || args[i].equalsIgnoreCase("--sync")
+          || args[i].equalsIgnoreCase("--snapshot") || args[i].equalsIgnoreCase("--store")) {
+        if (i + 1 >= args.length) {
+          System.err.println("ERROR: " + args[i] + " requires a value.\n");
+          return null;
+        }
+        String value = args[++i];
+        if (args[i - 1].equalsIgnoreCase("--journal")) {
+          journalPath = value;
+        } else if (args[i - 1].equalsIgnoreCase("--snapshot")) {
+          snapshotPath = value;
+        } else if (args[i - 1].equalsIgnoreCase("--store")) {
+          storePath = value;
+        } else {
+          try {
+            syncPolicy = SyncPolicy.valueOf(value.toUpperCase());
+          } catch (IllegalArgumentException e) {
+            System.err.println("ERROR: Invalid sync policy '" + value + "'.\n");
+            return null;
+          }
+        }
+      } else {
+        remaining.add(args[i]);
+      }
+    }
+    if (storePath != null && (journalPath != null || snapshotPath != null)) {
+      System.err.println("ERROR: --store cannot be combined with --journal or --snapshot.\n");
+      return null;
+    }
+    return remaining.toArray(new String[0]);
+  }
+
+  /**
+   * Creates the calendar manager. With {@code --snapshot}, the snapshot is loaded
+   * if it exists. With {@code --journal}, the journal is replayed on top of it and
+   * records every later change; the journal is then checkpointed into the snapshot
+   * file periodically. With {@code --store}, each calendar keeps its events in a
+   * memory-mapped store file in the directory, and the stores are merged and closed
+   * on exit.
+   *
+   * @return the calendar manager
+   * @throws IOException if the snapshot or journal cannot be opened or read
+   */
+  private static CalendarManager createManager() throws IOException {
+    if (storePath != null) {
+      store = MappedStoreDirectory.open(Paths.get(storePath));
+      CalendarManager manager = new CalendarManager(store.calendarFactory());
+      int loaded = store.load(manager);
+      System.out.println("Opened " + loaded + " calendar(s) from " + storePath);
+      Runtime.getRuntime().addShutdownHook(new Thread(CalendarRunner::closeStore));
+      return manager;
+    }
+    if (journalPath == null) {
+      CalendarManager manager = new CalendarManager();
+      if (snapshotPath != null && Files.exists(Paths.get(snapshotPath))) {
+        int loaded = Snapshot.load(Paths.get(snapshotPath), manager);
+        System.out.println("Loaded " + loaded + " calendar(s) from " + snapshotPath);
+      }
+      return manager;
+    }
+    journal = Journal.open(Paths.get(journalPath), syncPolicy);
+    CalendarManager manager = new CalendarManager(journal.calendarFactory());
+    int replayed;
+    if (snapshotPath == null) {
+      replayed = journal.replay(manager);
+    } else {
+      Path snapshot = Paths.get(snapshotPath);
+      replayed = journal.recover(manager, snapshot, Journal.DEFAULT_CHECKPOINT_RECORDS);
+    }
+    System.out.println("Recovered " + replayed + " journal record(s) from " + journalPath);
+    Runtime.getRuntime().addShutdownHook(new Thread(CalendarRunner::closeJournal));
+    return manager;
+  }
+
+  /**
+   * Syncs and closes the journal, if one is open.
+   */
+  private static void closeJournal() {
+    if (journal == null) {
+      return;
+    }
+    try {
+      journal.close();
+    } catch (IOException e) {
+      System.err.println("ERROR: Could not close journal: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Writes the store directory's manifest and merges its stores, if one is open.
+   */
+  private static void closeStore() {
+    if (store == null) {
+      return;
+    }
+    try {
+      store.close();
+    } catch (IOException e) {
+      System.err.println("ERROR: Could not close store: " + e.getMessage());
+    }
+  }
+
   /**
    * Prints usage information and exits.
    */
@@ -91,20 +243,41 @@ public class CalendarRunner {
     System.err.println("  4. Headless-to-GUI Mode (Process commands then open GUI):");
     System.err.println("     java -jar calendar.jar --mode headless-gui <commands-file>");
     System.err.println();
+    System.err.println("  5. Server Mode (Many command sessions over local TCP):");
+    System.err.println("     java -jar calendar.jar --mode server [port]");
+    System.err.println("     (default port " + DEFAULT_SERVER_PORT + ", localhost only)");
+    System.err.println();
+    System.err.println("  6. HTTP Mode (JSON API for other services):");
+    System.err.println("     java -jar calendar.jar --mode http [port]");
+    System.err.println("     (default port " + DEFAULT_HTTP_PORT + ", localhost only)");
+    System.err.println();
+    System.err.println("OPTIONS (any mode):");
+    System.err.println("  --journal <file>           Recover from and record to a journal");
+    System.err.println("  --sync always|batch|never  When to fsync the journal (default batch)");
+    System.err.println("  --snapshot <file>          Load a snapshot (and checkpoint the journal");
+    System.err.println("                             into it)");
+    System.err.println("  --store <directory>        Keep each calendar's events in a");
+    System.err.println("                             memory-mapped store file (not with");
+    System.err.println("                             --journal or --snapshot)");
+    System.err.println();
     System.err.println("EXAMPLES:");
     System.err.println("  java -jar calendar.jar");
     System.err.println("  java -jar calendar.jar --mode interactive");
     System.err.println("  java -jar calendar.jar --mode headless res/commands.txt");
     System.err.println("  java -jar calendar.jar --mode headless-gui res/commands.txt");
+    System.err.println("  java -jar calendar.jar --mode interactive --journal calendar.wal");
     System.err.println();
     System.exit(1);
   }
 
   /**
    * Launches the graphical user interface.
+   *
+   * @throws IOException if the journal cannot be opened or read
    */
-  private static void launchGui() {
+  private static void launchGui() throws IOException {
     System.out.println("Starting Calendar Application in GUI mode...");
+    CalendarManager manager = createManager();
 
     javax.swing.SwingUtilities.invokeLater(() -> {
       try {
@@ -116,7 +289,6 @@ public class CalendarRunner {
         System.err.println("Warning: Could not set system look and feel");
       }
 
-      CalendarManager manager = new CalendarManager();
       calendar.view.GuiView view = new calendar.view.GuiView();
       calendar.controller.GuiController controller =
           new calendar.controller.GuiController(manager, view);
@@ -136,13 +308,14 @@ public class CalendarRunner {
     System.out.println("===========================================================");
     System.out.println();
 
-    CalendarManager manager = new CalendarManager();
+    CalendarManager manager = createManager();
     CommandParser parser = new CommandParser();
     ViewInterface view = new ConsoleView(System.out);
 
     Reader input = new InputStreamReader(System.in);
     ControllerInterface controller = new Controller(manager, view, parser, input, true);
     controller.run();
+    closeJournal();
 
     System.out.println();
     System.out.println("===========================================================");
@@ -150,7 +323,12 @@ public class CalendarRunner {
   }
 
   /**
-   * Launches headless mode (batch processing from file).
+   * Launches headless mode (batch processing from file). The file is run as a
+   * pipeline that reads and parses ahead of the command being executed, and runs
+   * commands for different calendars in parallel. With a journal, commands run one
+   * at a time, so that the journal and its checkpoints see them in file order.
+   * Output is buffered and written by its own thread, and flushed when the file
+   * has been run.
    *
    * @param commandsFilePath path to the commands file
    * @throws IOException if I/O error occurs
@@ -161,13 +339,21 @@ public class CalendarRunner {
     System.out.println("═══════════════════════════════════════════════════════════");
     System.out.println();
 
-    CalendarManager manager = new CalendarManager();
+    CalendarManager manager = createManager();
     CommandParser parser = new CommandParser();
-    ViewInterface view = new ConsoleView(System.out);
+    AsyncConsoleOutput output = new AsyncConsoleOutput(System.out);
+    ViewInterface view = new ConsoleView(output);
 
     try (Reader reader = new FileReader(commandsFilePath)) {
-      ControllerInterface controller = new Controller(manager, view, parser, reader, false);
-      controller.run();
+      int threads = Runtime.getRuntime().availableProcessors();
+      ControllerInterface controller = new PipelinedController(manager, view, parser, reader,
+          threads, (journal == null) ? threads : 1);
+      try {
+        controller.run();
+      } finally {
+        output.close();
+      }
+      closeJournal();
     } catch (java.io.FileNotFoundException e) {
       System.err.println("ERROR: Commands file not found: " + commandsFilePath);
       System.err.println("Please check the file path and try again.");
@@ -178,4 +364,71 @@ public class CalendarRunner {
     System.out.println("═══════════════════════════════════════════════════════════");
     System.out.println("Batch processing completed successfully.");
   }
-}
\ No newline at end of file
+
+  /**
+   * Launches server mode: sessions connect over TCP on the loopback address and
+   * send commands as in interactive mode, each with its own current calendar.
+   * Runs until the process is stopped. With a journal, commands run one at a time.
+   *
+   * @param port the port to listen on
+   * @throws IOException if the port cannot be bound
+   */
+  private static void launchServer(int port) throws IOException {
+    CalendarManager manager = createManager();
+    ServerSocket socket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+    CommandServer server = new CommandServer(manager, CommandParser::new, socket,
+        journal == null);
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      try {
+        server.close();
+      } catch (IOException e) {
+        System.err.println("ERROR: Could not close server: " + e.getMessage());
+      }
+    }));
+
+    System.out.println("Starting Calendar Application in SERVER mode...");
+    System.out.println("Listening on " + socket.getInetAddress().getHostAddress() + ":"
+        + server.getPort());
+    server.serve();
+  }
+
+  /**
+   * Launches HTTP mode: serves the calendars as a JSON API on the loopback address.
+   * Runs until the process is stopped. With a journal, requests run one at a time.
+   *
+   * @param port the port to listen on
+   * @throws IOException if the port cannot be bound
+   */
+  private static void launchHttp(int port) throws IOException {
+    CalendarManager manager = createManager();
+    HttpCalendarServer server = new HttpCalendarServer(manager,
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+        Math.max(4, 2 * Runtime.getRuntime().availableProcessors()), journal == null);
+    Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+    server.start();
+
+    System.out.println("Starting Calendar Application in HTTP mode...");
+    System.out.println("Listening on http://" + InetAddress.getLoopbackAddress().getHostAddress()
+        + ":" + server.getPort() + "/calendars");
+  }
+
+  /**
+   * Parses a port number argument.
+   *
+   * @param port the argument
+   * @return the port
+   */
+  private static int parsePort(String port) {
+    try {
+      int value = Integer.parseInt(port);
+      if (value >= 0 && value <= 65535) {
+        return value;
+      }
+    } catch (NumberFormatException e) {
+      // Reported below.
+    }
+    System.err.println("ERROR: Invalid port '" + port + "'.\n");
+    printUsageAndExit();
+    return -1;
+  }
+}
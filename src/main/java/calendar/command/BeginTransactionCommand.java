@@ -0,0 +1,35 @@
+package calendar.command;
+
+import calendar.model.CalendarManager;
+import calendar.view.ViewInterface;
+import java.io.IOException;
+
+/**
+ * Command to begin a transaction.
+ * Format: begin
+ *
+ * <p>The changes made by the commands that follow are kept only if a
+ * {@code commit} command follows them. They are discarded by {@code rollback},
+ * and by the end of the session if it comes first, so a commands file that stops
+ * on a failing command leaves the calendars as they were at {@code begin}.
+ */
+public class BeginTransactionCommand implements CommandInterface {
+
+  /**
+   * Creates a BeginTransactionCommand.
+   */
+  public BeginTransactionCommand() {
+  }
+
+  @Override
+  public boolean execute(CalendarManager manager, ViewInterface view) throws IOException {
+    try {
+      manager.beginTransaction();
+    } catch (IllegalStateException e) {
+      view.displayError(e.getMessage() + ".");
+      return false;
+    }
+    view.displayMessage("Transaction started.");
+    return true;
+  }
+}
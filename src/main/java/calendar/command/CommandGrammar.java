@@ -0,0 +1,535 @@
+package calendar.command;
+
+import calendar.exceptions.InvalidCommandException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A grammar of command rules, matched against the tokens of a line.
+ *
+ * <p>Each rule is written as a sequence of elements separated by spaces:
+ * <ul>
+ *   <li>a keyword, matched ignoring the case of ASCII letters, such as {@code event}</li>
+ *   <li>{@code <word>}, any one token, like {@code (\S+)} in a pattern</li>
+ *   <li>{@code <number>} or {@code <number:18>}, a token of ASCII digits, at most
+ *       18 of them in the second form</li>
+ *   <li>{@code <text>}, free text spanning one or more tokens, like {@code (.+?)}</li>
+ *   <li>{@code [ ... ]}, an optional sequence, and {@code ( ... | ... )}, a choice</li>
+ * </ul>
+ * Every rule must match the whole line. The captured elements are numbered from 1
+ * in the order they are written, as pattern groups are.
+ *
+ * <p>Rules are matched by backtracking in the same order a regular expression
+ * engine explores the equivalent pattern: free text is as short as possible,
+ * optional parts are tried present before absent, and choices left to right. A
+ * rule therefore accepts exactly the lines its pattern accepts and captures the
+ * same arguments, without compiling or running the pattern. Nothing is copied
+ * from the line until a rule has matched and its arguments are read.
+ *
+ * <p>A line can also be prepared as a template, with {@code ?} in place of whole
+ * arguments. The template is matched once, and the resulting {@link Statement}
+ * then builds commands from argument values directly, without matching again.
+ */
+final class CommandGrammar {
+  private final Tokenizer tokenizer = new Tokenizer();
+  private final List<Rule> rules = new ArrayList<>();
+  private int maxGroups;
+
+  /**
+   * Builds the command for a rule that matched.
+   */
+  interface Builder {
+    /**
+     * Builds the command.
+     *
+     * @param captures the captured arguments
+     * @return the command
+     */
+    CommandInterface build(Captures captures);
+  }
+
+  /**
+   * Adds a rule. Rules are tried in the order they were added.
+   *
+   * @param pattern the rule, starting with a keyword
+   * @param builder builds the command from the rule's captured arguments
+   */
+  void add(String pattern, Builder builder) {
+    Rule rule = new Rule(pattern, builder);
+    rules.add(rule);
+    maxGroups = Math.max(maxGroups, rule.groups);
+  }
+
+  /**
+   * Parses a line with the first rule that matches it.
+   *
+   * @param line the line, without leading or trailing whitespace
+   * @return the command, or null if no rule matches
+   */
+  CommandInterface parse(String line) {
+    Tokenizer.Tokens tokens = tokenizer.lex(line);
+    if (tokens.size() == 0) {
+      return null;
+    }
+    Captures captures = new Captures(tokens, maxGroups, false);
+    for (Rule rule : rules) {
+      if (tokens.is(0, rule.keyword) && rule.matches(captures)) {
+        return rule.builder.build(captures);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Prepares a template: a line with {@code ?} for some of its arguments. It is
+   * matched as a line would be, except that a {@code ?} also stands in for a
+   * number. Each {@code ?} must be a whole argument of the rule that matches.
+   *
+   * @param template the template, without leading or trailing whitespace
+   * @return the prepared statement
+   * @throws InvalidCommandException if no rule matches the template, or a
+   *                                 {@code ?} is only part of an argument
+   */
+  Statement prepare(String template) {
+    Tokenizer.Tokens tokens = tokenizer.lex(template);
+    if (tokens.size() > 0) {
+      Captures captures = new Captures(tokens, maxGroups, true);
+      for (Rule rule : rules) {
+        if (tokens.is(0, rule.keyword) && rule.matches(captures)) {
+          return new Statement(template, rule, captures);
+        }
+      }
+    }
+    throw new InvalidCommandException("Invalid command template: " + template);
+  }
+
+  /**
+   * A prepared template: a rule with the arguments the template fixed, and the
+   * parameters left to bind. Immutable, so it can be shared by threads.
+   */
+  static final class Statement {
+    private final String template;
+    private final Builder builder;
+    private final String[] fixed;
+    private final int[] parameterGroups;
+    private final int[] parameterTypes;
+
+    private Statement(String template, Rule rule, Captures captures) {
+      this.template = template;
+      this.builder = rule.builder;
+      this.fixed = new String[rule.groups + 1];
+      Tokenizer.Tokens tokens = captures.tokens;
+      List<Integer> parameters = new ArrayList<>();
+      for (int group = 1; group <= rule.groups; group++) {
+        if (captures.starts[group] < 0) {
+          continue;
+        }
+        String text = captures.get(group);
+        if (text.equals("?")) {
+          parameters.add(group);
+          continue;
+        }
+        for (int token = 0; token < tokens.size(); token++) {
+          if (tokens.start(token) >= captures.starts[group]
+              && tokens.end(token) <= captures.ends[group] && tokens.is(token, "?")) {
+            throw new InvalidCommandException("A ? must stand for a whole argument: "
+                + template);
+          }
+        }
+        fixed[group] = text;
+      }
+      parameters.sort((a, b) -> Integer.compare(captures.starts[a], captures.starts[b]));
+      this.parameterGroups = new int[parameters.size()];
+      this.parameterTypes = new int[parameters.size()];
+      for (int i = 0; i < parameterGroups.length; i++) {
+        parameterGroups[i] = parameters.get(i);
+        parameterTypes[i] = captures.types[parameterGroups[i]];
+      }
+    }
+
+    /**
+     * Gets the template this statement was prepared from.
+     *
+     * @return the template
+     */
+    String getTemplate() {
+      return template;
+    }
+
+    /**
+     * Gets the number of parameters.
+     *
+     * @return the number of {@code ?} in the template
+     */
+    int getParameterCount() {
+      return parameterGroups.length;
+    }
+
+    /**
+     * Builds a command with values for the parameters, checking each against the
+     * kind of argument it stands for: a word may not contain whitespace, a number
+     * must be ASCII digits, and neither may be empty.
+     *
+     * @param arguments the values, in the order of the {@code ?} in the template
+     * @return the command
+     * @throws InvalidCommandException if the number or kind of values is wrong
+     */
+    CommandInterface bind(List<String> arguments) {
+      if (arguments.size() != parameterGroups.length) {
+        throw new InvalidCommandException("Expected " + parameterGroups.length
+            + " parameter(s) for: " + template + ", got " + arguments.size());
+      }
+      String[] values = Arrays.copyOf(fixed, fixed.length);
+      for (int i = 0; i < parameterGroups.length; i++) {
+        String value = arguments.get(i);
+        check(i + 1, value, parameterTypes[i]);
+        values[parameterGroups[i]] = value;
+      }
+      return builder.build(new Captures(values));
+    }
+
+    private static void check(int parameter, String value, int type) {
+      if (value.isEmpty()) {
+        throw new InvalidCommandException("Parameter " + parameter + " cannot be empty");
+      }
+      for (int i = 0; i < value.length(); i++) {
+        char c = value.charAt(i);
+        if (type == Text.TYPE ? (c == '\n' || c == '\r') : Tokenizer.isSpace(c)) {
+          throw new InvalidCommandException("Parameter " + parameter
+              + (type == Text.TYPE ? " cannot contain a line break" : " must be one word"));
+        }
+        if (type > 0 && (c < '0' || c > '9' || value.length() > type)) {
+          throw new InvalidCommandException("Parameter " + parameter + " must be a number");
+        }
+      }
+    }
+  }
+
+  /**
+   * The arguments captured by a rule, read from the line on request, or the values
+   * bound to a prepared statement.
+   */
+  static final class Captures {
+    private final Tokenizer.Tokens tokens;
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] types;
+    private final String[] values;
+
+    private Captures(Tokenizer.Tokens tokens, int groups, boolean template) {
+      this.tokens = tokens;
+      this.starts = new int[groups + 1];
+      this.ends = new int[groups + 1];
+      this.types = template ? new int[groups + 1] : null;
+      this.values = null;
+    }
+
+    private Captures(String[] values) {
+      this.tokens = null;
+      this.starts = null;
+      this.ends = null;
+      this.types = null;
+      this.values = values;
+    }
+
+    /**
+     * Gets a captured argument.
+     *
+     * @param group the number of the capturing element, from 1
+     * @return its text, or null if it was in a part of the rule that was not used
+     */
+    String get(int group) {
+      if (values != null) {
+        return values[group];
+      }
+      return (starts[group] < 0) ? null : tokens.text(starts[group], ends[group]);
+    }
+
+    /**
+     * Checks whether a token is a {@code ?} standing in for an argument.
+     */
+    private boolean isParameter(int token) {
+      return types != null && tokens.is(token, "?");
+    }
+
+    /**
+     * Records a capture, and when matching a template, the kind of element that
+     * captured it.
+     */
+    private void set(int group, int start, int end, int type) {
+      starts[group] = start;
+      ends[group] = end;
+      if (types != null) {
+        types[group] = type;
+      }
+    }
+
+    private void clear(int group) {
+      starts[group] = -1;
+    }
+  }
+
+  /**
+   * Continues a match after an element.
+   */
+  private interface Next {
+    boolean from(int token);
+  }
+
+  /**
+   * One part of a rule.
+   */
+  private abstract static class Element {
+    /**
+     * Matches this element at a token, then the rest of the rule.
+     *
+     * @return true if both matched
+     */
+    abstract boolean match(Captures captures, int token, Next next);
+  }
+
+  private static boolean matchAll(List<Element> elements, int index, Captures captures,
+                                  int token, Next next) {
+    if (index == elements.size()) {
+      return next.from(token);
+    }
+    return elements.get(index).match(captures, token,
+        t -> matchAll(elements, index + 1, captures, t, next));
+  }
+
+  /**
+   * A keyword.
+   */
+  private static final class Keyword extends Element {
+    private final String word;
+
+    Keyword(String word) {
+      this.word = word;
+    }
+
+    @Override
+    boolean match(Captures captures, int token, Next next) {
+      return token < captures.tokens.size() && captures.tokens.is(token, word)
+          && next.from(token + 1);
+    }
+  }
+
+  /**
+   * A captured token, optionally restricted to digits.
+   */
+  private static final class Word extends Element {
+    private final int group;
+    private final int maxDigits;
+
+    Word(int group, int maxDigits) {
+      this.group = group;
+      this.maxDigits = maxDigits;
+    }
+
+    @Override
+    boolean match(Captures captures, int token, Next next) {
+      Tokenizer.Tokens tokens = captures.tokens;
+      if (token >= tokens.size() || (maxDigits > 0 && !tokens.isDigits(token, maxDigits)
+          && !captures.isParameter(token))) {
+        return false;
+      }
+      captures.set(group, tokens.start(token), tokens.end(token), maxDigits);
+      if (next.from(token + 1)) {
+        return true;
+      }
+      captures.clear(group);
+      return false;
+    }
+  }
+
+  /**
+   * Captured free text. Like {@code \s+(.+?)\s+} in a pattern, the text is as short
+   * as possible and may not contain a line break; failing any run of tokens, it
+   * may be a single whitespace character from a gap of three or more between the
+   * tokens around it.
+   */
+  private static final class Text extends Element {
+    /**
+     * The kind recorded for text when matching a template; words record their
+     * maximum number of digits, 0 for any word.
+     */
+    static final int TYPE = -1;
+
+    private final int group;
+
+    Text(int group) {
+      this.group = group;
+    }
+
+    @Override
+    boolean match(Captures captures, int token, Next next) {
+      Tokenizer.Tokens tokens = captures.tokens;
+      if (token >= tokens.size()) {
+        return false;
+      }
+      CharSequence input = tokens.getInput();
+      int checked = tokens.start(token);
+      for (int last = token; last < tokens.size(); last++) {
+        if (hasLineBreak(input, checked, tokens.end(last))) {
+          break;
+        }
+        checked = tokens.end(last);
+        captures.set(group, tokens.start(token), checked, TYPE);
+        if (next.from(last + 1)) {
+          return true;
+        }
+      }
+      if (token > 0 && gapHoldsText(input, tokens.end(token - 1), tokens.start(token))) {
+        captures.set(group, tokens.start(token), tokens.start(token), TYPE);
+        if (next.from(token)) {
+          return true;
+        }
+      }
+      captures.clear(group);
+      return false;
+    }
+
+    /**
+     * Checks for the characters {@code .} does not match.
+     */
+    private static boolean hasLineBreak(CharSequence input, int start, int end) {
+      for (int i = start; i < end; i++) {
+        char c = input.charAt(i);
+        if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028'
+            || c == '\u2029') {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Checks whether whitespace can be split into a separator, one character of
+     * text that is not a line break, and another separator.
+     */
+    private static boolean gapHoldsText(CharSequence input, int start, int end) {
+      for (int i = start + 1; i < end - 1; i++) {
+        char c = input.charAt(i);
+        if (c != '\n' && c != '\r') {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * An optional sequence, tried present first.
+   */
+  private static final class OptionalSequence extends Element {
+    private final List<Element> elements;
+
+    OptionalSequence(List<Element> elements) {
+      this.elements = elements;
+    }
+
+    @Override
+    boolean match(Captures captures, int token, Next next) {
+      return matchAll(elements, 0, captures, token, next) || next.from(token);
+    }
+  }
+
+  /**
+   * A choice between sequences, tried in order.
+   */
+  private static final class Choice extends Element {
+    private final List<List<Element>> alternatives;
+
+    Choice(List<List<Element>> alternatives) {
+      this.alternatives = alternatives;
+    }
+
+    @Override
+    boolean match(Captures captures, int token, Next next) {
+      for (List<Element> alternative : alternatives) {
+        if (matchAll(alternative, 0, captures, token, next)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * A parsed rule.
+   */
+  private static final class Rule {
+    private final String keyword;
+    private final List<Element> elements;
+    private final Builder builder;
+    private final String[] words;
+    private int position;
+    private int groups;
+
+    Rule(String pattern, Builder builder) {
+      this.words = pattern.trim().split(" +");
+      this.builder = builder;
+      this.keyword = words[0];
+      this.elements = sequence();
+      if (position != words.length) {
+        throw new IllegalArgumentException("Unexpected '" + words[position] + "' in rule: "
+            + pattern);
+      }
+    }
+
+    boolean matches(Captures captures) {
+      for (int i = 1; i <= groups; i++) {
+        captures.clear(i);
+      }
+      return matchAll(elements, 0, captures, 0, t -> t == captures.tokens.size());
+    }
+
+    private List<Element> sequence() {
+      List<Element> sequence = new ArrayList<>();
+      while (position < words.length && !words[position].equals("|")
+          && !words[position].equals(")") && !words[position].equals("]")) {
+        sequence.add(element(words[position++]));
+      }
+      return sequence;
+    }
+
+    private Element element(String word) {
+      switch (word) {
+        case "<text>":
+          return new Text(++groups);
+        case "<word>":
+          return new Word(++groups, 0);
+        case "<number>":
+          return new Word(++groups, Integer.MAX_VALUE);
+        case "[":
+          OptionalSequence optional = new OptionalSequence(sequence());
+          expect("]");
+          return optional;
+        case "(":
+          List<List<Element>> alternatives = new ArrayList<>();
+          alternatives.add(sequence());
+          while (position < words.length && words[position].equals("|")) {
+            position++;
+            alternatives.add(sequence());
+          }
+          expect(")");
+          return new Choice(alternatives);
+        default:
+          if (word.startsWith("<number:")) {
+            return new Word(++groups,
+                Integer.parseInt(word.substring(8, word.length() - 1)));
+          }
+          return new Keyword(word);
+      }
+    }
+
+    private void expect(String word) {
+      if (position == words.length || !words[position].equals(word)) {
+        throw new IllegalArgumentException("Expected '" + word + "' in rule: "
+            + String.join(" ", words));
+      }
+      position++;
+    }
+  }
+}
@@ -3,8 +3,11 @@ package calendar.command;
 import calendar.model.CalendarInterface;
 import calendar.model.CalendarManager;
 import calendar.model.CalendarModelInterface;
+import calendar.model.EventInterface;
 import calendar.view.ViewInterface;
 import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * Helper class providing common functionality for command implementations.
@@ -63,4 +66,32 @@ public class CommandHelper {
     }
     return currentCal;
   }
+
+  /**
+   * Finds the one event with a subject that starts at a time, displaying an error
+   * if there is none or if several events differ only in their end.
+   *
+   * @param model       the model to search
+   * @param subject     the event subject
+   * @param start       the start time
+   * @param startString the start time as the user wrote it, for messages
+   * @param view        the view for displaying error messages
+   * @return the event, or null if there is not exactly one
+   * @throws IOException if I/O fails
+   */
+  public static EventInterface findEvent(CalendarModelInterface model, String subject,
+                                         LocalDateTime start, String startString,
+                                         ViewInterface view) throws IOException {
+    List<EventInterface> matches = model.findEventsBySubjectAndStart(subject, start);
+    if (matches.isEmpty()) {
+      view.displayError("Event not found: " + subject + " at " + startString);
+      return null;
+    }
+    if (matches.size() > 1) {
+      view.displayError(matches.size() + " events named " + subject + " start at "
+          + startString + "; use 'edit event' with an end time to pick one");
+      return null;
+    }
+    return matches.get(0);
+  }
 }
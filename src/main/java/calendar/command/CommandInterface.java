@@ -23,5 +23,27 @@ public interface CommandInterface {
    * @throws IOException if I/O fails
    */
   boolean execute(CalendarManager manager, ViewInterface view) throws IOException;
+
+  /**
+   * Tells whether the command only uses the current calendar: it changes nothing
+   * else in the manager, not even which calendar is current, and touches no files.
+   * Such commands for different calendars may run at the same time.
+   *
+   * @return true if the command only uses the current calendar
+   */
+  default boolean isCalendarLocal() {
+    return false;
+  }
+
+  /**
+   * Tells whether the command changes nothing: it only reads the calendars and
+   * reports what it finds. Such a command may run before the commands ahead of it
+   * are known to have succeeded, as long as its output is dropped if they do not.
+   *
+   * @return true if the command changes nothing
+   */
+  default boolean isReadOnly() {
+    return false;
+  }
 }
 
@@ -1,68 +1,107 @@
 package calendar.command;
 
-import calendar.command.matchers.CopyEventCommandMatcher;
-import calendar.command.matchers.CopyEventsOnDayCommandMatcher;
-import calendar.command.matchers.CopyEventsRangeCommandMatcher;
-import calendar.command.matchers.CreateAllDayEventCommandMatcher;
-import calendar.command.matchers.CreateAllDayEventSeriesForCommandMatcher;
-import calendar.command.matchers.CreateAllDayEventSeriesUntilCommandMatcher;
-import calendar.command.matchers.CreateCalendarCommandMatcher;
-import calendar.command.matchers.CreateEventCommandMatcher;
-import calendar.command.matchers.CreateEventSeriesFromToForCommandMatcher;
-import calendar.command.matchers.CreateEventSeriesFromToUntilCommandMatcher;
-import calendar.command.matchers.EditCalendarCommandMatcher;
-import calendar.command.matchers.EditEventCommandMatcher;
-import calendar.command.matchers.EditEventsCommandMatcher;
-import calendar.command.matchers.EditSeriesCommandMatcher;
-import calendar.command.matchers.ExitCommandMatcher;
-import calendar.command.matchers.ExportCommandMatcher;
-import calendar.command.matchers.PrintAllEventsCommandMatcher;
-import calendar.command.matchers.PrintEventsOnCommandMatcher;
-import calendar.command.matchers.PrintEventsRangeCommandMatcher;
-import calendar.command.matchers.ShowStatusCommandMatcher;
-import calendar.command.matchers.UseCalendarCommandMatcher;
-import java.util.Arrays;
+import calendar.exceptions.InvalidCommandException;
+import calendar.util.StringUtils;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Parses command strings into CommandInterface objects using Chain of Responsibility pattern.
+ * Parses command strings into CommandInterface objects.
  *
- * <p>This parser uses a chain of CommandMatcher objects to try matching the input
- * against different command patterns. Each matcher is tried in sequence until one
- * successfully matches, or all matchers fail. This design eliminates the long
- * if-else chain and makes the parser more maintainable and extensible.
+ * <p>Each command form is a rule of a {@link CommandGrammar}: its keywords and
+ * arguments, written out the way the command is typed. A line is split into
+ * tokens once, by {@link Tokenizer#lex}, and the rules for its first keyword are
+ * tried in order until one matches the whole line. Within a keyword the rules are
+ * ordered from most specific to least specific, so "create event" lines are tried
+ * as series before single events.
+ *
+ * <p>The rules accept exactly the lines the patterns of the
+ * {@link calendar.command.matchers} classes accept, with the same arguments, so
+ * the two can be used interchangeably (the transaction and undo commands,
+ * single keywords, have rules only); the grammar avoids compiling and running a
+ * regular expression per form and copies text out of the line only for the
+ * arguments of the command it returns.
+ *
+ * <p>Lines that repeat one form with different arguments can skip the matching:
+ * {@code prepare name as template} matches a template such as
+ * {@code create event ? from ? to ?} once, and {@code exec name values...} then
+ * builds the command from the values, given in the order of the {@code ?}
+ * (double-quoted if they contain spaces). Each value is checked against the kind
+ * of argument it stands for, and is used as that whole argument, never split
+ * again. A name keeps its template: it may be prepared again only with the same
+ * one.
+ *
+ * <p>Parsing does not change the parser, so one parser may be shared by threads
+ * parsing different lines. A statement is recorded when its {@code prepare}
+ * command runs, not when the line is parsed, so lines parsed ahead of running
+ * behave as if each ran before the next was parsed.
  */
 public class CommandParser {
-  private final List<CommandMatcher> matchers;
+  private final CommandGrammar grammar = new CommandGrammar();
+  private final Map<String, CommandGrammar.Statement> statements = new ConcurrentHashMap<>();
 
   /**
-   * Creates a CommandParser with all registered matchers.
-   * Matchers are ordered from most specific to least specific.
+   * Creates a CommandParser with all command rules.
    */
   public CommandParser() {
-    this.matchers = Arrays.asList(
-        new ExitCommandMatcher(),
-        new CreateCalendarCommandMatcher(),
-        new EditCalendarCommandMatcher(),
-        new UseCalendarCommandMatcher(),
-        new CopyEventsRangeCommandMatcher(),
-        new CopyEventsOnDayCommandMatcher(),
-        new CopyEventCommandMatcher(),
-        new PrintAllEventsCommandMatcher(),
-        new PrintEventsOnCommandMatcher(),
-        new PrintEventsRangeCommandMatcher(),
-        new ShowStatusCommandMatcher(),
-        new EditEventCommandMatcher(),
-        new EditEventsCommandMatcher(),
-        new EditSeriesCommandMatcher(),
-        new ExportCommandMatcher(),
-        new CreateEventSeriesFromToForCommandMatcher(),
-        new CreateEventSeriesFromToUntilCommandMatcher(),
-        new CreateAllDayEventSeriesForCommandMatcher(),
-        new CreateAllDayEventSeriesUntilCommandMatcher(),
-        new CreateAllDayEventCommandMatcher(),
-        new CreateEventCommandMatcher()
-    );
+    grammar.add("exit", c -> new ExitCommand());
+    grammar.add("begin", c -> new BeginTransactionCommand());
+    grammar.add("commit", c -> new CommitTransactionCommand());
+    grammar.add("rollback", c -> new RollbackTransactionCommand());
+    grammar.add("undo", c -> new UndoCommand());
+    grammar.add("redo", c -> new RedoCommand());
+    grammar.add("prepare <word> as <text>", c -> prepare(c.get(1), c.get(2).trim()));
+    grammar.add("exec <word> [ <text> ]", c -> exec(c.get(1), c.get(2)));
+    grammar.add("create calendar --name <word> --timezone <word>",
+        c -> new CreateCalendarCommand(c.get(1), c.get(2)));
+    grammar.add("edit calendar --name <word> --property <word> <word>",
+        c -> new EditCalendarCommand(c.get(1), c.get(2), c.get(3)));
+    grammar.add("use calendar --name <word>", c -> new UseCalendarCommand(c.get(1)));
+    grammar.add("copy events between <word> and <word> --target <word> to <word>",
+        c -> new CopyEventsRangeCommand(c.get(1), c.get(2), c.get(3), c.get(4)));
+    grammar.add("copy events on <word> --target <word> to <word>",
+        c -> new CopyEventsOnDayCommand(c.get(1), c.get(2), c.get(3)));
+    grammar.add("copy event <text> on <word> --target <word> to <word>",
+        c -> new CopyEventCommand(c.get(1).trim(), c.get(2), c.get(3), c.get(4)));
+    grammar.add("print all events", c -> new PrintAllEventsCommand());
+    grammar.add("print events on <word>", c -> new PrintEventsOnCommand(c.get(1)));
+    grammar.add("print events from <word> to <word>",
+        c -> new PrintEventsRangeCommand(c.get(1), c.get(2)));
+    grammar.add("show status on <word>", c -> new ShowStatusCommand(c.get(1)));
+    grammar.add("edit event <word> <text> from <word> to <word> with <text>",
+        c -> new EditEventCommand(c.get(1), StringUtils.stripQuotes(c.get(2)), c.get(3),
+            c.get(4), StringUtils.stripQuotes(c.get(5))));
+    grammar.add("edit events where <text> set <word> <text>",
+        c -> new EditEventsWhereCommand(c.get(1).trim(), c.get(2),
+            StringUtils.stripQuotes(c.get(3))));
+    grammar.add("edit events <word> <text> from <word> with <text>",
+        c -> new EditEventsCommand(c.get(1), StringUtils.stripQuotes(c.get(2)), c.get(3),
+            StringUtils.stripQuotes(c.get(4))));
+    grammar.add("edit series <word> <text> from <word> with <text>",
+        c -> new EditSeriesCommand(c.get(1), StringUtils.stripQuotes(c.get(2)), c.get(3),
+            StringUtils.stripQuotes(c.get(4))));
+    grammar.add("export cal <text> ( --since <number:18>"
+        + " | [ --from <word> --to <word> ] [ --calendars <word> ] )", CommandParser::export);
+    grammar.add("save <text>", c -> new SaveCommand(c.get(1).trim()));
+    grammar.add("import <text>", c -> new ImportCommand(c.get(1).trim()));
+    grammar.add("create event <text> from <word> to <word> repeats <word> for <number> times",
+        c -> new CreateEventSeriesFromToCommand(StringUtils.stripQuotes(c.get(1)), c.get(2),
+            c.get(3), c.get(4), Integer.parseInt(c.get(5)), null, false));
+    grammar.add("create event <text> from <word> to <word> repeats <word> until <word>",
+        c -> new CreateEventSeriesFromToCommand(StringUtils.stripQuotes(c.get(1)), c.get(2),
+            c.get(3), c.get(4), null, c.get(5), true));
+    grammar.add("create event <text> on <word> repeats <word> for <number> times",
+        c -> new CreateAllDayEventSeriesCommand(StringUtils.stripQuotes(c.get(1)), c.get(2),
+            c.get(3), Integer.parseInt(c.get(4)), null, false));
+    grammar.add("create event <text> on <word> repeats <word> until <word>",
+        c -> new CreateAllDayEventSeriesCommand(StringUtils.stripQuotes(c.get(1)), c.get(2),
+            c.get(3), null, c.get(4), true));
+    grammar.add("create event <text> on <word>",
+        c -> new CreateAllDayEventCommand(StringUtils.stripQuotes(c.get(1)), c.get(2)));
+    grammar.add("create event <text> from <word> to <word>",
+        c -> new CreateEventCommand(StringUtils.stripQuotes(c.get(1)), c.get(2), c.get(3)));
   }
 
   /**
@@ -76,15 +115,135 @@ public class CommandParser {
       return new NoOpCommand();
     }
 
-    String trimmed = input.trim();
+    CommandInterface command = grammar.parse(input.trim());
+    return (command == null) ? new NoOpCommand(input) : command;
+  }
+
+  /**
+   * Builds a command from a prepared statement.
+   *
+   * @param name      the name of the statement
+   * @param arguments the values for its parameters
+   * @return the command
+   * @throws InvalidCommandException if no statement has that name, or the values
+   *                                 do not fit its parameters
+   */
+  CommandInterface bind(String name, List<String> arguments) {
+    CommandGrammar.Statement statement = statements.get(name);
+    if (statement == null) {
+      throw new InvalidCommandException("No statement prepared as '" + name + "'");
+    }
+    return statement.bind(arguments);
+  }
+
+  /**
+   * Records a prepared statement under a name.
+   *
+   * @param name      the name
+   * @param statement the statement
+   * @throws InvalidCommandException if the name has a different template
+   */
+  void define(String name, CommandGrammar.Statement statement) {
+    CommandGrammar.Statement existing = statements.putIfAbsent(name, statement);
+    if (existing != null && !existing.getTemplate().equals(statement.getTemplate())) {
+      throw new InvalidCommandException("'" + name + "' is already prepared as: "
+          + existing.getTemplate());
+    }
+  }
 
-    for (CommandMatcher matcher : matchers) {
-      CommandInterface command = matcher.tryMatch(trimmed);
-      if (command != null) {
-        return command;
+  /**
+   * Prepares a statement, to be recorded when the command runs.
+   */
+  private CommandInterface prepare(String name, String template) {
+    String keyword = template.split("\\s", 2)[0];
+    if (keyword.equalsIgnoreCase("prepare") || keyword.equalsIgnoreCase("exec")) {
+      throw new InvalidCommandException("Cannot prepare a " + keyword.toLowerCase()
+          + " command");
+    }
+    return new PrepareCommand(this, name, grammar.prepare(template));
+  }
+
+  /**
+   * Builds the command for an exec line: bound now if its statement has been
+   * recorded, or when it runs otherwise. A name never changes its template, so
+   * binding early gives the same command.
+   */
+  private CommandInterface exec(String name, String values) {
+    List<String> arguments = splitArguments(values);
+    if (statements.containsKey(name)) {
+      return bind(name, arguments);
+    }
+    return new ExecPreparedCommand(this, name, arguments);
+  }
+
+  /**
+   * Splits the values of an exec line at whitespace. A value in double quotes may
+   * contain whitespace, and {@code \"} and {@code \\} within it stand for a quote
+   * and a backslash; the quotes are not part of the value.
+   */
+  static List<String> splitArguments(String values) {
+    List<String> arguments = new ArrayList<>();
+    if (values == null) {
+      return arguments;
+    }
+    int length = values.length();
+    int i = 0;
+    while (true) {
+      while (i < length && Tokenizer.isSpace(values.charAt(i))) {
+        i++;
+      }
+      if (i == length) {
+        return arguments;
       }
+      if (values.charAt(i) != '"') {
+        int start = i;
+        while (i < length && !Tokenizer.isSpace(values.charAt(i))) {
+          i++;
+        }
+        arguments.add(values.substring(start, i));
+        continue;
+      }
+      StringBuilder value = new StringBuilder();
+      for (i++; ; i++) {
+        if (i == length) {
+          throw new InvalidCommandException("Unterminated quote in: " + values);
+        }
+        char c = values.charAt(i);
+        if (c == '"') {
+          break;
+        }
+        if (c == '\\' && i + 1 < length
+            && (values.charAt(i + 1) == '"' || values.charAt(i + 1) == '\\')) {
+          c = values.charAt(++i);
+        }
+        value.append(c);
+      }
+      i++;
+      if (i < length && !Tokenizer.isSpace(values.charAt(i))) {
+        throw new InvalidCommandException("Expected a space after a quoted value in: "
+            + values);
+      }
+      arguments.add(value.toString());
     }
+  }
 
-    return new NoOpCommand(input);
+  /**
+   * Builds an export command from its file name and options.
+   */
+  private static CommandInterface export(CommandGrammar.Captures c) {
+    String fileName = c.get(1).trim();
+    if (c.get(2) != null) {
+      return new ExportCommand(fileName, Long.parseLong(c.get(2)));
+    }
+    List<String> calendars = null;
+    if (c.get(5) != null) {
+      calendars = new ArrayList<>();
+      for (String name : c.get(5).split(",")) {
+        if (!name.trim().isEmpty()) {
+          calendars.add(name.trim());
+        }
+      }
+    }
+    return new ExportCommand(fileName, c.get(3), c.get(4), calendars);
   }
-}
\ No newline at end of file
+}
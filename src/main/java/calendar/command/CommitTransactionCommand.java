@@ -0,0 +1,33 @@
+package calendar.command;
+
+import calendar.model.CalendarManager;
+import calendar.model.Transaction;
+import calendar.view.ViewInterface;
+import java.io.IOException;
+
+/**
+ * Command to commit the open transaction, keeping every change made since
+ * {@code begin}.
+ * Format: commit
+ */
+public class CommitTransactionCommand implements CommandInterface {
+
+  /**
+   * Creates a CommitTransactionCommand.
+   */
+  public CommitTransactionCommand() {
+  }
+
+  @Override
+  public boolean execute(CalendarManager manager, ViewInterface view) throws IOException {
+    Transaction transaction = manager.getTransaction();
+    if (transaction == null) {
+      view.displayError("No transaction is open.");
+      return false;
+    }
+    transaction.commit();
+    view.displayMessage("Transaction committed: " + transaction.getChangeCount()
+        + " change(s).");
+    return true;
+  }
+}
@@ -85,21 +85,20 @@ public class CopyEventCommand implements CommandInterface {
       return false;
     }
 
-    List<EventInterface> events = sourceCalendar.getModel().getAllEvents();
-    EventInterface sourceEvent = null;
-    for (EventInterface event : events) {
-      if (event.getSubject().equals(eventName)
-          && event.getStartDateTime().equals(sourceStart)) {
-        sourceEvent = event;
-        break;
-      }
-    }
-
-    if (sourceEvent == null) {
+    List<EventInterface> events = sourceCalendar.getModel()
+        .findEventsBySubjectAndStart(eventName, sourceStart);
+    if (events.isEmpty()) {
       view.displayMessage("Error: Event '" + eventName + "' not found on "
           + sourceDateTime + " in calendar '" + sourceCalendar.getName() + "'.");
       return false;
     }
+    if (events.size() > 1) {
+      view.displayMessage("Error: " + events.size() + " events named '" + eventName
+          + "' start on " + sourceDateTime + " in calendar '" + sourceCalendar.getName()
+          + "'; cannot tell which one to copy.");
+      return false;
+    }
+    EventInterface sourceEvent = events.get(0);
 
     
     long durationMinutes = java.time.Duration.between(
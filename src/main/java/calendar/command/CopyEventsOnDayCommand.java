@@ -2,16 +2,13 @@ package calendar.command;
 
 import calendar.model.CalendarInterface;
 import calendar.model.CalendarManager;
-import calendar.model.CalendarModelInterface;
 import calendar.model.EventInterface;
 import calendar.util.DateTimeParser;
-import calendar.util.TimezoneUtils;
 import calendar.view.ViewInterface;
 import java.io.IOException;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 /**
@@ -75,70 +72,19 @@ public class CopyEventsOnDayCommand implements CommandInterface {
       return false;
     }
 
-    
-    List<EventInterface> allEvents = sourceCalendar.getModel().getAllEvents();
-    List<EventInterface> eventsOnDay = new ArrayList<>();
-    for (EventInterface event : allEvents) {
-      if (event.getStartDateTime().toLocalDate().equals(sourceLocalDate)) {
-        eventsOnDay.add(event);
-      }
-    }
-
+    List<EventInterface> eventsOnDay = EventCopier.eventsStarting(sourceCalendar.getModel(),
+        sourceLocalDate, sourceLocalDate);
     if (eventsOnDay.isEmpty()) {
       view.displayMessage("No events found on " + sourceDate + " in calendar '"
           + sourceCalendar.getName() + "'.");
       return false;
     }
 
-    
-    int copiedCount = 0;
-    int failedCount = 0;
-
-    for (EventInterface sourceEvent : eventsOnDay) {
-      
-      LocalDateTime sourceStart = sourceEvent.getStartDateTime();
-      LocalDateTime sourceEnd = sourceEvent.getEndDateTime();
-
-      
-      LocalDateTime targetStart = TimezoneUtils.convertTimezone(
-          sourceStart,
-          sourceCalendar.getTimezone(),
-          targetCalendar.getTimezone()
-      );
-
-      LocalDateTime targetEnd = TimezoneUtils.convertTimezone(
-          sourceEnd,
-          sourceCalendar.getTimezone(),
-          targetCalendar.getTimezone()
-      );
-
-      
-      int daysDiff = (int) java.time.temporal.ChronoUnit.DAYS.between(
-          sourceStart.toLocalDate(),
-          targetLocalDate
-      );
-
-      targetStart = targetStart.plusDays(daysDiff);
-      targetEnd = targetEnd.plusDays(daysDiff);
-
-      
-      calendar.model.Event newEvent = new calendar.model.Event(
-          sourceEvent.getSubject(),
-          targetStart,
-          targetEnd,
-          sourceEvent.getDescription().orElse(null),
-          sourceEvent.getLocation().orElse(null),
-          sourceEvent.isPrivate(),
-          java.util.UUID.randomUUID(),  
-          null  
-      );
-
-      if (targetCalendar.getModel().createEvent(newEvent)) {
-        copiedCount++;
-      } else {
-        failedCount++;
-      }
-    }
+    EventCopier copier = new EventCopier(sourceCalendar, targetCalendar, sourceLocalDate,
+        sourceLocalDate, ChronoUnit.DAYS.between(sourceLocalDate, targetLocalDate), false);
+    copier.copy(eventsOnDay);
+    int copiedCount = copier.getCopied();
+    int failedCount = copier.getFailed();
 
     view.displayMessage("Copied " + copiedCount + " event(s) from " + sourceDate
         + " in '" + sourceCalendar.getName() + "' to " + targetDate + " in '"
@@ -2,20 +2,14 @@ package calendar.command;
 
 import calendar.model.CalendarInterface;
 import calendar.model.CalendarManager;
-import calendar.model.CalendarModelInterface;
 import calendar.model.EventInterface;
 import calendar.util.DateTimeParser;
-import calendar.util.TimezoneUtils;
 import calendar.view.ViewInterface;
 import java.io.IOException;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
-import java.util.Map;
-import java.util.UUID;
 
 /**
  * Command to copy all events within a date range to a target calendar.
@@ -31,8 +25,10 @@ import java.util.UUID;
  * - Endpoint dates are inclusive
  * - Preserves series relationships in target calendar
  * - Handles timezone conversion
- * - Creates new series IDs for copied series events
+ * - Copies series as new series rules covering the copied occurrences
  * - Maintains event durations and relationships
+ * - Reads only the range from the source and adds events in batches (see
+ *   {@link EventCopier})
  */
 public class CopyEventsRangeCommand implements CommandInterface {
   private final String startDate;
@@ -91,85 +87,19 @@ public class CopyEventsRangeCommand implements CommandInterface {
       return false;
     }
 
-    
-    List<EventInterface> allEvents = sourceCalendar.getModel().getAllEvents();
-    List<EventInterface> eventsInRange = new ArrayList<>();
-
-    for (EventInterface event : allEvents) {
-      LocalDate eventDate = event.getStartDateTime().toLocalDate();
-      
-      if (!eventDate.isBefore(sourceStart) && !eventDate.isAfter(sourceEnd)) {
-        eventsInRange.add(event);
-      }
-    }
-
+    List<EventInterface> eventsInRange = EventCopier.eventsStarting(
+        sourceCalendar.getModel(), sourceStart, sourceEnd);
     if (eventsInRange.isEmpty()) {
       view.displayMessage("No events found between " + startDate + " and " + endDate
           + " in calendar '" + sourceCalendar.getName() + "'.");
       return false;
     }
 
-    
-    Map<UUID, UUID> seriesIdMap = new HashMap<>();
-
-    
-    long dayOffset = java.time.temporal.ChronoUnit.DAYS.between(sourceStart, targetStart);
-
-    
-    int copiedCount = 0;
-    int failedCount = 0;
-
-    for (EventInterface sourceEvent : eventsInRange) {
-      
-      LocalDateTime sourceStartTime = sourceEvent.getStartDateTime();
-      LocalDateTime sourceEndTime = sourceEvent.getEndDateTime();
-
-      LocalDateTime targetStartTime = TimezoneUtils.convertTimezone(
-          sourceStartTime,
-          sourceCalendar.getTimezone(),
-          targetCalendar.getTimezone()
-      );
-
-      LocalDateTime targetEndTime = TimezoneUtils.convertTimezone(
-          sourceEndTime,
-          sourceCalendar.getTimezone(),
-          targetCalendar.getTimezone()
-      );
-
-      
-      targetStartTime = targetStartTime.plusDays(dayOffset);
-      targetEndTime = targetEndTime.plusDays(dayOffset);
-
-      
-      UUID newSeriesId = null;
-      if (sourceEvent.getSeriesId().isPresent()) {
-        UUID oldSeriesId = sourceEvent.getSeriesId().get();
-        if (seriesIdMap.containsKey(oldSeriesId)) {
-          newSeriesId = seriesIdMap.get(oldSeriesId);
-        } else {
-          newSeriesId = UUID.randomUUID();
-          seriesIdMap.put(oldSeriesId, newSeriesId);
-        }
-      }
-
-      
-      calendar.model.Event newEvent = new calendar.model.Event(
-          sourceEvent.getSubject(),
-          targetStartTime,
-          targetEndTime,
-          sourceEvent.getDescription().orElse(null),
-          sourceEvent.getLocation().orElse(null),
-          sourceEvent.isPrivate(),
-          UUID.randomUUID(),  
-          newSeriesId         
-      );
-
-      if (targetCalendar.getModel().createEvent(newEvent)) {
-        copiedCount++;
-      } else {
-        failedCount++;
-      }
-    }
+    EventCopier copier = new EventCopier(sourceCalendar, targetCalendar, sourceStart,
+        sourceEnd, ChronoUnit.DAYS.between(sourceStart, targetStart), true);
+    copier.copy(eventsInRange);
+    int copiedCount = copier.getCopied();
+    int failedCount = copier.getFailed();
 
     view.displayMessage("Copied " + copiedCount + " event(s) from " + startDate + " to "
         + endDate + " in '" + sourceCalendar.getName() + "' to target starting at "
@@ -33,6 +33,11 @@ public class CreateAllDayEventCommand extends BaseCommand {
     this.dateString = dateString;
   }
 
+  @Override
+  public boolean isCalendarLocal() {
+    return true;
+  }
+
   @Override
   protected String getOperationName() {
     return "create all-day event";
@@ -49,6 +49,11 @@ public class CreateAllDayEventSeriesCommand extends BaseCommand {
     this.usesEndDate = usesEndDate;
   }
 
+  @Override
+  public boolean isCalendarLocal() {
+    return true;
+  }
+
   @Override
   protected String getOperationName() {
     return "create all-day event series";
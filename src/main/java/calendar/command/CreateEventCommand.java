@@ -33,6 +33,11 @@ public class CreateEventCommand extends BaseCommand {
     this.to = to;
   }
 
+  @Override
+  public boolean isCalendarLocal() {
+    return true;
+  }
+
   @Override
   protected String getOperationName() {
     return "create event";
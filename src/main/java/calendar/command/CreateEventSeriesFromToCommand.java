@@ -51,6 +51,11 @@ public class CreateEventSeriesFromToCommand extends BaseCommand {
     this.usesEndDate = usesEndDate;
   }
 
+  @Override
+  public boolean isCalendarLocal() {
+    return true;
+  }
+
   @Override
   protected String getOperationName() {
     return "create event series";
@@ -41,6 +41,11 @@ public class EditEventCommand extends BaseCommand {
     this.newValue = newValue;
   }
 
+  @Override
+  public boolean isCalendarLocal() {
+    return true;
+  }
+
   @Override
   protected String getOperationName() {
     return "edit event";
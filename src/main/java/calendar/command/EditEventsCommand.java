@@ -39,6 +39,11 @@ public class EditEventsCommand extends BaseCommand {
     this.newValue = newValue;
   }
 
+  @Override
+  public boolean isCalendarLocal() {
+    return true;
+  }
+
   @Override
   protected String getOperationName() {
     return "edit events";
@@ -53,17 +58,8 @@ public class EditEventsCommand extends BaseCommand {
     }
 
     LocalDateTime start = DateTimeParser.parseDateTime(startString);
-    LocalDate date = start.toLocalDate();
-
-    
-    EventInterface event = model.getEventsOnDate(date).stream()
-        .filter(e -> e.getSubject().equals(subject)
-            && e.getStartDateTime().equals(start))
-        .findFirst()
-        .orElse(null);
-
+    EventInterface event = CommandHelper.findEvent(model, subject, start, startString, view);
     if (event == null) {
-      view.displayError("Event not found: " + subject + " at " + startString);
       return false;
     }
 
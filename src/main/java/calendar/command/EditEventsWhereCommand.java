@@ -0,0 +1,70 @@
+package calendar.command;
+
+import calendar.model.CalendarManager;
+import calendar.model.CalendarModelInterface;
+import calendar.model.EditSpec;
+import calendar.model.EventInterface;
+import calendar.util.EditSpecFactory;
+import calendar.view.ViewInterface;
+import java.io.IOException;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Command to edit every event that meets a condition (see {@link EventQuery}),
+ * each as {@code edit event} would edit it. The events are edited together:
+ * if any edited event would duplicate another event, none is edited.
+ * Format: edit events where condition set property new value
+ */
+public class EditEventsWhereCommand extends BaseCommand {
+  private final String condition;
+  private final String property;
+  private final String newValue;
+
+  /**
+   * Creates an EditEventsWhereCommand.
+   *
+   * @param condition the condition the events must meet
+   * @param property  the property to edit
+   * @param newValue  the new value for the property
+   */
+  public EditEventsWhereCommand(String condition, String property, String newValue) {
+    this.condition = condition;
+    this.property = property.toLowerCase();
+    this.newValue = newValue;
+  }
+
+  @Override
+  public boolean isCalendarLocal() {
+    return true;
+  }
+
+  @Override
+  protected String getOperationName() {
+    return "edit events";
+  }
+
+  @Override
+  protected boolean doExecute(CalendarManager manager, ViewInterface view)
+      throws IOException, DateTimeParseException, IllegalArgumentException {
+    CalendarModelInterface model = CommandHelper.getCurrentModel(manager, view);
+    if (model == null) {
+      return false;
+    }
+
+    EventQuery query = EventQuery.parse(condition);
+    EditSpec spec = EditSpecFactory.createEditSpec(property, newValue);
+    List<EventInterface> events = query.find(model);
+    if (events.isEmpty()) {
+      view.displayMessage("No events match: " + condition);
+      return true;
+    }
+
+    if (!model.editEvents(events, spec)) {
+      view.displayError("Failed to edit: would create duplicate event");
+      return false;
+    }
+    view.displayMessage("Edited " + events.size() + " event(s)");
+    return true;
+  }
+}
@@ -9,7 +9,6 @@ import calendar.util.DateTimeParser;
 import calendar.util.EditSpecFactory;
 import calendar.view.ViewInterface;
 import java.io.IOException;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.UUID;
@@ -39,6 +38,11 @@ public class EditSeriesCommand extends BaseCommand {
     this.newValue = newValue;
   }
 
+  @Override
+  public boolean isCalendarLocal() {
+    return true;
+  }
+
   @Override
   protected String getOperationName() {
     return "edit series";
@@ -53,17 +57,8 @@ public class EditSeriesCommand extends BaseCommand {
     }
 
     LocalDateTime start = DateTimeParser.parseDateTime(startString);
-    LocalDate date = start.toLocalDate();
-
-    
-    EventInterface event = model.getEventsOnDate(date).stream()
-        .filter(e -> e.getSubject().equals(subject)
-            && e.getStartDateTime().equals(start))
-        .findFirst()
-        .orElse(null);
-
+    EventInterface event = CommandHelper.findEvent(model, subject, start, startString, view);
     if (event == null) {
-      view.displayError("Event not found: " + subject + " at " + startString);
       return false;
     }
 
@@ -0,0 +1,262 @@
+package calendar.command;
+
+import calendar.model.CalendarInterface;
+import calendar.model.CalendarModelInterface;
+import calendar.model.EditSpec;
+import calendar.model.Event;
+import calendar.model.EventInterface;
+import calendar.model.EventSeries;
+import calendar.model.EventStatus;
+import calendar.util.ZoneShift;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Copies the events that start within a range of dates from one calendar to
+ * another, converting their times to the target calendar's timezone and then
+ * moving them by a whole number of days.
+ *
+ * <p>The events are read from the source calendar's index for the range only.
+ * Times are converted with a {@link ZoneShift} made once for the range. Events
+ * are added to the target in batches of {@link #BATCH_SIZE} with
+ * {@link CalendarModelInterface#createEvents}. If a batch fails because an event
+ * conflicts with an existing one, that batch is added one event at a time, so
+ * that only the conflicting events fail.
+ *
+ * <p>When series are kept, the occurrences of each source series are copied as a
+ * new series rule. The rule covers the part of the source series within the
+ * range, moved with its template. An occurrence that does not match the moved
+ * rule keeps its own times and fields as an override; that happens when it was
+ * edited, or when a DST change gives it a different offset. If such an
+ * occurrence would no longer fit on one day, it is copied as a standalone event
+ * instead. A series the target cannot take as a rule, because an occurrence
+ * conflicts there, has its occurrences copied as events under a new series ID,
+ * as are events whose series is not found.
+ */
+final class EventCopier {
+  static final int BATCH_SIZE = 8192;
+
+  private final CalendarModelInterface source;
+  private final CalendarModelInterface target;
+  private final ZoneShift shift;
+  private final long days;
+  private final boolean keepSeries;
+  private int copied;
+  private int failed;
+
+  /**
+   * Creates a copier.
+   *
+   * @param source     the calendar to copy from
+   * @param target     the calendar to copy to
+   * @param from       the first date of the range, in the source calendar
+   * @param to         the last date of the range, in the source calendar
+   * @param days       the number of days to move the converted events by
+   * @param keepSeries true to copy series as series, false to copy every event on
+   *                   its own
+   */
+  EventCopier(CalendarInterface source, CalendarInterface target, LocalDate from,
+              LocalDate to, long days, boolean keepSeries) {
+    this.source = source.getModel();
+    this.target = target.getModel();
+    this.shift = ZoneShift.between(source.getTimezone(), target.getTimezone(),
+        from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+    this.days = days;
+    this.keepSeries = keepSeries;
+  }
+
+  /**
+   * Lists the events of a calendar that start within a range of dates.
+   *
+   * @param model the calendar's model
+   * @param from  the first date of the range
+   * @param to    the last date of the range
+   * @return the events, in chronological order
+   */
+  static List<EventInterface> eventsStarting(CalendarModelInterface model, LocalDate from,
+                                             LocalDate to) {
+    return model.streamEventsInRange(from.atStartOfDay(), to.plusDays(1).atStartOfDay())
+        .filter(event -> !event.getStartDateTime().toLocalDate().isBefore(from))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Copies events to the target calendar.
+   *
+   * @param events the events, in chronological order
+   */
+  void copy(List<EventInterface> events) {
+    List<EventInterface> batch = new ArrayList<>();
+    Map<UUID, List<EventInterface>> series = new LinkedHashMap<>();
+    for (EventInterface event : events) {
+      if (keepSeries && event.getSeriesId().isPresent()) {
+        series.computeIfAbsent(event.getSeriesId().get(), id -> new ArrayList<>()).add(event);
+      } else {
+        batch.add(moved(event, null));
+      }
+    }
+    for (Map.Entry<UUID, List<EventInterface>> entry : series.entrySet()) {
+      UUID newSeriesId = UUID.randomUUID();
+      if (!copySeries(entry.getKey(), entry.getValue(), newSeriesId, batch)) {
+        for (EventInterface occurrence : entry.getValue()) {
+          batch.add(moved(occurrence, newSeriesId));
+        }
+      }
+    }
+    for (int start = 0; start < batch.size(); start += BATCH_SIZE) {
+      insert(batch.subList(start, Math.min(batch.size(), start + BATCH_SIZE)));
+    }
+  }
+
+  /**
+   * Gets the number of events copied.
+   *
+   * @return the number of events copied
+   */
+  int getCopied() {
+    return copied;
+  }
+
+  /**
+   * Gets the number of events that could not be copied because they conflict
+   * with events in the target calendar.
+   *
+   * @return the number of events not copied
+   */
+  int getFailed() {
+    return failed;
+  }
+
+  /**
+   * Copies the occurrences of one series as a new series.
+   *
+   * @param seriesId    the source series
+   * @param occurrences its occurrences within the range, in chronological order
+   * @param newSeriesId the ID of the new series
+   * @param extra       collects occurrences to copy as standalone events
+   * @return false if the series was not copied as a series
+   */
+  private boolean copySeries(UUID seriesId, List<EventInterface> occurrences,
+                             UUID newSeriesId, List<EventInterface> extra) {
+    EventSeries series = source.findSeriesById(seriesId);
+    LocalDate first = occurrences.get(0).getStartDateTime().toLocalDate();
+    LocalDate last = occurrences.get(occurrences.size() - 1).getStartDateTime().toLocalDate();
+    EventSeries part = (series == null) ? null : series.from(first, newSeriesId);
+    part = (part == null) ? null : part.before(last.plusDays(1));
+    if (part == null || part.getOccurrenceDates().size() != occurrences.size()) {
+      return false;
+    }
+
+    EventInterface template = part.getTemplate();
+    LocalDateTime start = move(template.getStartDateTime());
+    LocalDateTime end = move(template.getEndDateTime());
+    if (!start.toLocalDate().equals(end.toLocalDate())) {
+      return false;
+    }
+    long dateShift = ChronoUnit.DAYS.between(template.getStartDateTime().toLocalDate(),
+        start.toLocalDate());
+    Duration startShift = Duration.between(template.getStartDateTime(), start);
+    Duration endShift = Duration.between(template.getEndDateTime(), end);
+
+    Set<DayOfWeek> weekdays = EnumSet.noneOf(DayOfWeek.class);
+    for (DayOfWeek day : part.getWeekdays()) {
+      weekdays.add(day.plus(dateShift));
+    }
+    Set<LocalDate> exceptions = new HashSet<>();
+    for (LocalDate date : part.getExceptionDates()) {
+      exceptions.add(date.plusDays(dateShift));
+    }
+    Map<LocalDate, EditSpec> overrides = new HashMap<>();
+    List<EventInterface> standalone = new ArrayList<>();
+    for (LocalDate date : part.getOccurrenceDates()) {
+      EventInterface base = part.baseOccurrence(date);
+      EventInterface occurrence = part.occurrenceOn(date);
+      if (!occurrence.getStartDateTime().toLocalDate().equals(date)) {
+        return false;
+      }
+      LocalDateTime s = move(occurrence.getStartDateTime());
+      LocalDateTime e = move(occurrence.getEndDateTime());
+      if (sameFields(base, occurrence)
+          && s.equals(base.getStartDateTime().plus(startShift))
+          && e.equals(base.getEndDateTime().plus(endShift))) {
+        continue;
+      }
+      LocalDate newDate = date.plusDays(dateShift);
+      if (s.toLocalDate().equals(newDate) && e.toLocalDate().equals(newDate)) {
+        overrides.put(newDate, EditSpec.builder()
+            .subject(occurrence.getSubject())
+            .start(s)
+            .end(e)
+            .description(occurrence.getDescription().orElse(null))
+            .location(occurrence.getLocation().orElse(null))
+            .status(occurrence.isPrivate() ? EventStatus.PRIVATE : EventStatus.PUBLIC)
+            .build());
+      } else {
+        exceptions.add(newDate);
+        standalone.add(moved(occurrence, null));
+      }
+    }
+
+    LocalDate lastDate = part.getLastDate().plusDays(dateShift);
+    EventInterface newTemplate = new Event(template.getSubject(), start, end,
+        template.getDescription().orElse(null), template.getLocation().orElse(null),
+        template.isPrivate(), UUID.randomUUID(), newSeriesId);
+    EventSeries copy = EventSeries.restore(newSeriesId, newTemplate, weekdays, lastDate, null,
+        true, lastDate, exceptions, overrides, Collections.emptyList());
+    if (!target.createEventSeries(copy)) {
+      return false;
+    }
+    copied += occurrences.size() - standalone.size();
+    extra.addAll(standalone);
+    return true;
+  }
+
+  /**
+   * Adds events to the target, all at once if none conflicts.
+   */
+  private void insert(List<EventInterface> events) {
+    if (target.createEvents(events)) {
+      copied += events.size();
+      return;
+    }
+    for (EventInterface event : events) {
+      if (target.createEvent(event)) {
+        copied++;
+      } else {
+        failed++;
+      }
+    }
+  }
+
+  private LocalDateTime move(LocalDateTime dateTime) {
+    return shift.apply(dateTime).plusDays(days);
+  }
+
+  private EventInterface moved(EventInterface event, UUID seriesId) {
+    return new Event(event.getSubject(), move(event.getStartDateTime()),
+        move(event.getEndDateTime()),
+        event.getDescription().orElse(null), event.getLocation().orElse(null),
+        event.isPrivate(), UUID.randomUUID(), seriesId);
+  }
+
+  private static boolean sameFields(EventInterface a, EventInterface b) {
+    return a.getSubject().equals(b.getSubject())
+        && a.getDescription().equals(b.getDescription())
+        && a.getLocation().equals(b.getLocation())
+        && a.isPrivate() == b.isPrivate();
+  }
+}
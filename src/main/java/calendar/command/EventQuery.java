@@ -0,0 +1,190 @@
+package calendar.command;
+
+import calendar.model.CalendarModelInterface;
+import calendar.model.EventInterface;
+import calendar.model.EventStatus;
+import calendar.util.DateTimeParser;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A condition on events, as written after {@code where} in a command: one or
+ * more of the following, joined by {@code and}.
+ * <ul>
+ *   <li>{@code <property> is <value>}, for subject, start, end, location,
+ *       description or status</li>
+ *   <li>{@code <property> contains <text>}, for subject, location or description</li>
+ *   <li>{@code on <date>}, events taking place during the day</li>
+ *   <li>{@code from <dateTime> to <dateTime>}, events taking place during the
+ *       interval, as {@code print events from} lists them</li>
+ * </ul>
+ * Values are split at whitespace as the values of {@code exec} are, so a value
+ * with spaces is written in double quotes.
+ *
+ * <p>The events are found through the model's indexes where the condition
+ * allows: by subject and start time when both are given, by the time range of
+ * {@code start is}, {@code on} or {@code from}, and by a scan of all events
+ * otherwise. Every part of the condition is then checked on each event found.
+ */
+final class EventQuery {
+  private final List<Predicate<EventInterface>> conditions = new ArrayList<>();
+  private String subject;
+  private LocalDateTime start;
+  private LocalDateTime rangeStart;
+  private LocalDateTime rangeEnd;
+
+  private EventQuery() {
+  }
+
+  /**
+   * Parses a condition.
+   *
+   * @param text the condition
+   * @return the query
+   * @throws IllegalArgumentException if the condition is not valid
+   */
+  static EventQuery parse(String text) {
+    List<String> words = CommandParser.splitArguments(text);
+    EventQuery query = new EventQuery();
+    int i = 0;
+    while (true) {
+      i = query.parseCondition(words, i, text);
+      if (i == words.size()) {
+        return query;
+      }
+      if (!words.get(i).equalsIgnoreCase("and") || i + 1 == words.size()) {
+        throw new IllegalArgumentException("Expected 'and' between conditions in: " + text);
+      }
+      i++;
+    }
+  }
+
+  /**
+   * Finds the events that meet the condition.
+   *
+   * @param model the calendar's model
+   * @return the events, in chronological order
+   */
+  List<EventInterface> find(CalendarModelInterface model) {
+    Stream<EventInterface> candidates;
+    if (subject != null && start != null) {
+      candidates = model.findEventsBySubjectAndStart(subject, start).stream();
+    } else if (start != null) {
+      candidates = model.streamEventsInRange(start, start.plusNanos(1));
+    } else if (rangeStart != null) {
+      candidates = model.streamEventsInRange(rangeStart, rangeEnd);
+    } else {
+      candidates = model.streamAllEvents();
+    }
+    return candidates.filter(this::matches).collect(Collectors.toList());
+  }
+
+  private boolean matches(EventInterface event) {
+    for (Predicate<EventInterface> condition : conditions) {
+      if (!condition.test(event)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parses the condition starting at a word.
+   *
+   * @return the index of the word after it
+   */
+  private int parseCondition(List<String> words, int i, String text) {
+    String first = (i < words.size()) ? words.get(i).toLowerCase(Locale.ROOT) : "";
+    if (first.equals("on") && i + 1 < words.size()) {
+      LocalDate date = DateTimeParser.parseDate(words.get(i + 1));
+      addRange(date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+      return i + 2;
+    }
+    if (first.equals("from") && i + 3 < words.size()
+        && words.get(i + 2).equalsIgnoreCase("to")) {
+      LocalDateTime from = DateTimeParser.parseDateTime(words.get(i + 1));
+      LocalDateTime to = DateTimeParser.parseDateTime(words.get(i + 3));
+      if (!to.isAfter(from)) {
+        throw new IllegalArgumentException("The interval must end after it starts");
+      }
+      addRange(from, to);
+      return i + 4;
+    }
+    if (i + 2 < words.size()) {
+      String operator = words.get(i + 1).toLowerCase(Locale.ROOT);
+      String value = words.get(i + 2);
+      if (operator.equals("is")) {
+        addEquals(first, value);
+        return i + 3;
+      }
+      if (operator.equals("contains")) {
+        addContains(first, value);
+        return i + 3;
+      }
+    }
+    throw new IllegalArgumentException("Invalid condition in: " + text);
+  }
+
+  private void addRange(LocalDateTime from, LocalDateTime to) {
+    if (rangeStart == null) {
+      rangeStart = from;
+      rangeEnd = to;
+    }
+    conditions.add(e -> e.getStartDateTime().isBefore(to) && e.getEndDateTime().isAfter(from));
+  }
+
+  private void addEquals(String property, String value) {
+    switch (property) {
+      case "subject":
+        subject = value;
+        conditions.add(e -> e.getSubject().equals(value));
+        break;
+      case "start":
+        LocalDateTime startValue = DateTimeParser.parseDateTime(value);
+        start = startValue;
+        conditions.add(e -> e.getStartDateTime().equals(startValue));
+        break;
+      case "end":
+        LocalDateTime endValue = DateTimeParser.parseDateTime(value);
+        conditions.add(e -> e.getEndDateTime().equals(endValue));
+        break;
+      case "location":
+        conditions.add(e -> value.equals(e.getLocation().orElse(null)));
+        break;
+      case "description":
+        conditions.add(e -> value.equals(e.getDescription().orElse(null)));
+        break;
+      case "status":
+        boolean isPrivate = EventStatus.fromString(value).isPrivate();
+        conditions.add(e -> e.isPrivate() == isPrivate);
+        break;
+      default:
+        throw new IllegalArgumentException("Invalid property: " + property);
+    }
+  }
+
+  private void addContains(String property, String text) {
+    Function<EventInterface, String> field;
+    switch (property) {
+      case "subject":
+        field = EventInterface::getSubject;
+        break;
+      case "location":
+        field = e -> e.getLocation().orElse("");
+        break;
+      case "description":
+        field = e -> e.getDescription().orElse("");
+        break;
+      default:
+        throw new IllegalArgumentException("Invalid property for 'contains': " + property);
+    }
+    conditions.add(e -> field.apply(e).contains(text));
+  }
+}
@@ -0,0 +1,67 @@
+package calendar.command;
+
+import calendar.exceptions.InvalidCommandException;
+import calendar.model.CalendarManager;
+import calendar.view.ViewInterface;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Command to run a prepared statement that had not been recorded yet when the
+ * line was parsed, as happens when lines are parsed ahead of running. The values
+ * are bound the first time the command is asked whether it is calendar-local, or
+ * when it runs. Callers ask only once every earlier command that is not
+ * calendar-local has run, and {@code prepare} is not, so the statement is looked
+ * up as if every earlier line had run. Statements recorded by parse time are bound
+ * by the parser instead, into the command itself.
+ * Format: exec name values...
+ */
+public class ExecPreparedCommand implements CommandInterface {
+  private final CommandParser parser;
+  private final String name;
+  private final List<String> arguments;
+  private CommandInterface bound;
+
+  /**
+   * Creates an ExecPreparedCommand.
+   *
+   * @param parser    the parser the statement is prepared in
+   * @param name      the name of the statement
+   * @param arguments the values for its parameters
+   */
+  public ExecPreparedCommand(CommandParser parser, String name, List<String> arguments) {
+    this.parser = parser;
+    this.name = name;
+    this.arguments = List.copyOf(arguments);
+  }
+
+  @Override
+  public boolean isCalendarLocal() {
+    try {
+      return bind().isCalendarLocal();
+    } catch (InvalidCommandException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public boolean isReadOnly() {
+    try {
+      return bind().isReadOnly();
+    } catch (InvalidCommandException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public boolean execute(CalendarManager manager, ViewInterface view) throws IOException {
+    return bind().execute(manager, view);
+  }
+
+  private CommandInterface bind() {
+    if (bound == null) {
+      bound = parser.bind(name, arguments);
+    }
+    return bound;
+  }
+}
@@ -3,39 +3,111 @@ package calendar.command;
 import calendar.model.CalendarInterface;
 import calendar.model.CalendarManager;
 import calendar.model.CalendarModelInterface;
+import calendar.model.ChangeSet;
+import calendar.model.EventInterface;
 import calendar.util.CsvExporter;
+import calendar.util.DateTimeParser;
 import calendar.util.IcalExporter;
 import calendar.view.ViewInterface;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Command to export calendar to CSV or iCal file.
- * Format: export cal fileName.csv or export cal fileName.ical
+ * Format: export cal fileName.csv or export cal fileName.ical, optionally followed
+ * by --from yyyy-MM-dd --to yyyy-MM-dd and --calendars name1,name2 (or *), or
+ * by --since token
  *
  * <p>The export format is automatically detected by the file extension:
  * - .csv: Exports to CSV format
  * - .ical or .ics: Exports to iCalendar format (RFC 5545)
+ * A further .gz extension (for example .ics.gz) gzip-compresses the file as it
+ * is written.
+ *
+ * <p>With --from and --to, only events overlapping those dates (inclusive) are
+ * exported, read through the model's range query. With --calendars, the listed
+ * calendars are exported in parallel: to one CSV file per calendar, named
+ * fileName-calendarName.csv, or to a single iCal file holding one VCALENDAR per
+ * calendar, each with its own X-WR-CALNAME.
+ *
+ * <p>With --since, only the changes made to the current calendar after the given
+ * change token are exported, and the new token is displayed for the next sync.
+ * A CSV export writes created and modified events to the file and removed events
+ * to fileName-removed.csv; an iCal export writes removals as cancelled events.
  *
  * <p>DESIGN RATIONALE:
  * - Auto-detection by extension provides better user experience
  * - Supports multiple export formats without changing command syntax
  * - Displays absolute path so user knows where file is saved
  * - Platform-independent path handling
+ * - CSV rows are streamed to the file as events are produced, so large
+ *   calendars export in constant memory
+ * - iCal exports write each series once, as a recurrence rule
  */
 public class ExportCommand extends BaseCommand {
+  private static final String GZIP_EXTENSION = ".gz";
+  private static final int GZIP_BUFFER_BYTES = 1 << 16;
+
   private final String fileName;
+  private final String fromDate;
+  private final String toDate;
+  private final List<String> calendarNames;
+  private final Long sinceToken;
 
   /**
-   * Creates an ExportCommand.
+   * Creates an ExportCommand for the whole current calendar.
    *
    * @param fileName the name of the file to create (.csv or .ical)
    */
   public ExportCommand(String fileName) {
+    this(fileName, null, null, null);
+  }
+
+  /**
+   * Creates an ExportCommand.
+   *
+   * @param fileName      the name of the file to create (.csv or .ical)
+   * @param fromDate      the first date to export (yyyy-MM-dd), or null for all events
+   * @param toDate        the last date to export (yyyy-MM-dd), or null for all events
+   * @param calendarNames the calendars to export ("*" for all), or null for the
+   *                      current calendar
+   */
+  public ExportCommand(String fileName, String fromDate, String toDate,
+                       List<String> calendarNames) {
+    this(fileName, fromDate, toDate, calendarNames, null);
+  }
+
+  /**
+   * Creates an ExportCommand for the changes to the current calendar after a
+   * change token.
+   *
+   * @param fileName   the name of the file to create (.csv or .ical)
+   * @param sinceToken the token from the previous export, or 0 for every change
+   */
+  public ExportCommand(String fileName, long sinceToken) {
+    this(fileName, null, null, null, sinceToken);
+  }
+
+  private ExportCommand(String fileName, String fromDate, String toDate,
+                        List<String> calendarNames, Long sinceToken) {
     this.fileName = fileName;
+    this.fromDate = fromDate;
+    this.toDate = toDate;
+    this.calendarNames = calendarNames;
+    this.sinceToken = sinceToken;
   }
 
   @Override
@@ -46,13 +118,11 @@ public class ExportCommand extends BaseCommand {
   @Override
   protected boolean doExecute(CalendarManager manager, ViewInterface view)
       throws IOException, DateTimeParseException, IllegalArgumentException {
-    CalendarInterface currentCal = CommandHelper.getCurrentCalendar(manager, view);
-    if (currentCal == null) {
+    List<CalendarInterface> calendars = resolveCalendars(manager, view);
+    if (calendars == null) {
       return false;
     }
 
-    CalendarModelInterface model = currentCal.getModel();
-
     Path filePath = Paths.get(fileName).toAbsolutePath().normalize();
 
     
@@ -63,25 +133,213 @@ public class ExportCommand extends BaseCommand {
     }
 
     String lowerFileName = fileName.toLowerCase();
+    boolean gzip = lowerFileName.endsWith(GZIP_EXTENSION);
+    String formatName = gzip
+        ? lowerFileName.substring(0, lowerFileName.length() - GZIP_EXTENSION.length())
+        : lowerFileName;
+    boolean csv = formatName.endsWith(".csv");
+    if (!csv && !formatName.endsWith(".ical") && !formatName.endsWith(".ics")) {
+      view.displayError("Unsupported file format. Use .csv or .ical extension, "
+          + "optionally followed by .gz.");
+      return false;
+    }
+    String extension = (csv ? ".csv" : "") + (gzip ? GZIP_EXTENSION : "");
 
-    if (lowerFileName.endsWith(".csv")) {
-      String csvContent = CsvExporter.toCsv(model.getAllEvents());
-      Files.writeString(filePath, csvContent);
-      view.displayMessage("Calendar exported to: " + filePath);
-      return true;
-    } else if (lowerFileName.endsWith(".ical") || lowerFileName.endsWith(".ics")) {
-      String icalContent = IcalExporter.toIcal(
-          model.getAllEvents(),
-          currentCal.getName(),
-          currentCal.getTimezone()
-      );
-      Files.writeString(filePath, icalContent);
+    if (sinceToken != null) {
+      return exportChanges(calendars.get(0), filePath, csv, gzip, extension, view);
+    }
+
+    LocalDate from = (fromDate == null) ? null : DateTimeParser.parseDate(fromDate);
+    LocalDate to = (toDate == null) ? null : DateTimeParser.parseDate(toDate);
+    if (from != null && to.isBefore(from)) {
+      view.displayError("Invalid range: end date is before start date");
+      return false;
+    }
+
+    if (calendarNames == null) {
+      export(calendars.get(0), filePath, csv, gzip, from, to);
       view.displayMessage("Calendar exported to: " + filePath);
       return true;
+    }
+
+    if (csv) {
+      List<Path> paths = new ArrayList<>();
+      for (CalendarInterface calendar : calendars) {
+        paths.add(sibling(filePath, extension, "-" + safeName(calendar.getName())));
+      }
+      exportAll(calendars, paths, true, gzip, from, to);
+      view.displayMessage("Exported " + calendars.size() + " calendar(s) to: "
+          + sibling(filePath, extension, "-<calendar>"));
     } else {
-      view.displayError("Unsupported file format. Use .csv or .ical extension.");
-      return false;
+      exportMerged(calendars, filePath, gzip, from, to);
+      view.displayMessage("Exported " + calendars.size() + " calendar(s) to: " + filePath);
     }
+    return true;
+  }
+
+  /**
+   * Writes the changes made after the token and displays the new token.
+   */
+  private boolean exportChanges(CalendarInterface calendar, Path filePath, boolean csv,
+                                boolean gzip, String extension, ViewInterface view)
+      throws IOException {
+    ChangeSet changes = calendar.getModel().getChangesSince(sinceToken);
+    List<EventInterface> changed = changes.getAllChanged();
+    List<EventInterface> removed = changes.getAllRemoved();
+    if (csv) {
+      try (OutputStream out = open(filePath, gzip)) {
+        CsvExporter.write(changed.stream(), out);
+      }
+      try (OutputStream out = open(sibling(filePath, extension, "-removed"), gzip)) {
+        CsvExporter.write(removed.stream(), out);
+      }
+    } else {
+      try (OutputStream out = open(filePath, gzip)) {
+        IcalExporter.write(changes, calendar.getName(), calendar.getTimezone(), out);
+      }
+    }
+    view.displayMessage("Exported " + changed.size() + " changed and " + removed.size()
+        + " removed event(s) to: " + filePath);
+    view.displayMessage("Change token: " + changes.getToken());
+    return true;
   }
-}
 
+  /**
+   * Finds the calendars to export.
+   *
+   * @return the calendars, or null if one could not be found
+   */
+  private List<CalendarInterface> resolveCalendars(CalendarManager manager,
+                                                   ViewInterface view) throws IOException {
+    if (calendarNames == null) {
+      CalendarInterface currentCal = CommandHelper.getCurrentCalendar(manager, view);
+      return (currentCal == null) ? null : List.of(currentCal);
+    }
+    if (calendarNames.contains("*")) {
+      return manager.getAllCalendars();
+    }
+    List<CalendarInterface> calendars = new ArrayList<>();
+    for (String name : calendarNames) {
+      CalendarInterface calendar = manager.getCalendar(name);
+      if (calendar == null) {
+        view.displayError("Calendar not found: " + name);
+        return null;
+      }
+      calendars.add(calendar);
+    }
+    return calendars;
+  }
+
+  /**
+   * Writes one calendar to one file.
+   */
+  private static void export(CalendarInterface calendar, Path path, boolean csv,
+                             boolean gzip, LocalDate from, LocalDate to) throws IOException {
+    CalendarModelInterface model = calendar.getModel();
+    try (OutputStream out = open(path, gzip)) {
+      if (csv) {
+        try (Stream<EventInterface> events = (from == null) ? model.streamAllEvents()
+            : model.streamEventsInRange(from.atStartOfDay(), to.plusDays(1).atStartOfDay())) {
+          CsvExporter.write(events, out);
+        }
+      } else if (from == null) {
+        IcalExporter.write(model, calendar.getName(), calendar.getTimezone(), out);
+      } else {
+        IcalExporter.write(model, calendar.getName(), calendar.getTimezone(), from, to, out);
+      }
+    }
+  }
+
+  /**
+   * Writes each calendar to its own file, in parallel.
+   */
+  private static void exportAll(List<CalendarInterface> calendars, List<Path> paths,
+                                boolean csv, boolean gzip, LocalDate from, LocalDate to)
+      throws IOException {
+    try {
+      IntStream.range(0, calendars.size()).parallel().forEach(i -> {
+        try {
+          export(calendars.get(i), paths.get(i), csv, gzip, from, to);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Writes calendars to one iCal file. Each calendar is rendered to a temporary
+   * part file in parallel, then the parts are appended in order. Compressed parts
+   * are complete gzip members, and concatenated members form a valid gzip file.
+   */
+  private static void exportMerged(List<CalendarInterface> calendars, Path path,
+                                   boolean gzip, LocalDate from, LocalDate to)
+      throws IOException {
+    List<Path> parts = new ArrayList<>();
+    try {
+      for (int i = 0; i < calendars.size(); i++) {
+        parts.add(Files.createTempFile(path.getParent(), ".export-", ".part"));
+      }
+      exportAll(calendars, parts, false, gzip, from, to);
+      try (OutputStream out = Files.newOutputStream(path)) {
+        for (Path part : parts) {
+          Files.copy(part, out);
+        }
+      }
+    } finally {
+      for (Path part : parts) {
+        Files.deleteIfExists(part);
+      }
+    }
+  }
+
+  /**
+   * Opens an export file, compressing what is written to it if requested. The
+   * fastest compression level keeps gzip close to disk speed; exports still
+   * shrink about five-fold.
+   */
+  private static OutputStream open(Path path, boolean gzip) throws IOException {
+    OutputStream out = Files.newOutputStream(path);
+    if (!gzip) {
+      return out;
+    }
+    try {
+      return new FastGzipOutputStream(out);
+    } catch (IOException e) {
+      out.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Names a file next to the export file by inserting a suffix before the
+   * extension, for example cal.csv.gz to cal-Work.csv.gz.
+   */
+  private static Path sibling(Path filePath, String extension, String suffix) {
+    String name = filePath.getFileName().toString();
+    return filePath.resolveSibling(name.substring(0, name.length() - extension.length())
+        + suffix + name.substring(name.length() - extension.length()));
+  }
+
+  /**
+   * Makes a calendar name safe to use in a file name.
+   */
+  private static String safeName(String name) {
+    return name.chars()
+        .mapToObj(c -> Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '.'
+            ? String.valueOf((char) c) : "_")
+        .collect(Collectors.joining());
+  }
+
+  /**
+   * A gzip stream that compresses at the fastest level.
+   */
+  private static final class FastGzipOutputStream extends GZIPOutputStream {
+    FastGzipOutputStream(OutputStream out) throws IOException {
+      super(out, GZIP_BUFFER_BYTES);
+      def.setLevel(Deflater.BEST_SPEED);
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package calendar.command;
+
+import calendar.model.CalendarInterface;
+import calendar.model.CalendarManager;
+import calendar.util.CsvImporter;
+import calendar.util.IcalImporter;
+import calendar.util.ImportResult;
+import calendar.view.ViewInterface;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.format.DateTimeParseException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Command to import events from a CSV or iCal file into the current calendar.
+ * Format: import fileName.csv or import fileName.ics
+ *
+ * <p>The format is detected by the file extension, as for {@code export}:
+ * - .csv: the layout written by {@code export}
+ * - .ical or .ics: iCalendar (RFC 5545); recurring events become series and times
+ *   are converted into the calendar's timezone
+ * A further .gz extension marks a gzip-compressed file, as written by {@code export}.
+ *
+ * <p>Files are streamed, so large files import without being held in memory.
+ * Rows or events that cannot be imported are skipped and reported by line number;
+ * the rest are still added.
+ */
+public class ImportCommand extends BaseCommand {
+  private final String fileName;
+
+  /**
+   * Creates an ImportCommand.
+   *
+   * @param fileName the name of the file to read (.csv, .ical or .ics)
+   */
+  public ImportCommand(String fileName) {
+    this.fileName = fileName;
+  }
+
+  @Override
+  protected String getOperationName() {
+    return "import events";
+  }
+
+  @Override
+  protected boolean doExecute(CalendarManager manager, ViewInterface view)
+      throws IOException, DateTimeParseException, IllegalArgumentException {
+    CalendarInterface currentCal = CommandHelper.getCurrentCalendar(manager, view);
+    if (currentCal == null) {
+      return false;
+    }
+
+    Path filePath = Paths.get(fileName).toAbsolutePath().normalize();
+
+    Path currentDir = Paths.get("").toAbsolutePath();
+    if (!filePath.startsWith(currentDir)) {
+      view.displayError("Invalid file path: cannot read outside current directory");
+      return false;
+    }
+
+    String lowerFileName = fileName.toLowerCase();
+    boolean gzip = lowerFileName.endsWith(".gz");
+    String formatName = gzip ? lowerFileName.substring(0, lowerFileName.length() - 3)
+        : lowerFileName;
+    boolean csv = formatName.endsWith(".csv");
+    if (!csv && !formatName.endsWith(".ical") && !formatName.endsWith(".ics")) {
+      view.displayError("Unsupported file format. Use .csv or .ical extension, "
+          + "optionally followed by .gz.");
+      return false;
+    }
+
+    ImportResult result;
+    try (Reader in = open(filePath, gzip)) {
+      result = csv ? CsvImporter.importCsv(in, currentCal.getModel())
+          : IcalImporter.importIcal(in, currentCal.getModel(), currentCal.getTimezone());
+    }
+    view.displayMessage("Imported " + result.getImported() + " event(s)"
+        + (result.getSeries() > 0 ? " and " + result.getSeries() + " series" : "")
+        + " from: " + filePath);
+    if (result.getErrorCount() > 0) {
+      view.displayError("Skipped " + result.getErrorCount() + " row(s):");
+      for (String error : result.getErrors()) {
+        view.displayError(error);
+      }
+      if (result.getErrorCount() > result.getErrors().size()) {
+        view.displayError("... and " + (result.getErrorCount() - result.getErrors().size())
+            + " more");
+      }
+    }
+    return result.getErrorCount() == 0;
+  }
+
+  /**
+   * Opens a UTF-8 file for reading, decompressing it if requested.
+   */
+  private static Reader open(Path path, boolean gzip) throws IOException {
+    if (!gzip) {
+      return Files.newBufferedReader(path, StandardCharsets.UTF_8);
+    }
+    InputStream in = Files.newInputStream(path);
+    try {
+      return new InputStreamReader(new GZIPInputStream(in, 1 << 16), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+}
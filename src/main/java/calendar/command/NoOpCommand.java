@@ -27,6 +27,16 @@ public class NoOpCommand implements CommandInterface {
     this.input = null;
   }
 
+  @Override
+  public boolean isCalendarLocal() {
+    return true;
+  }
+
+  @Override
+  public boolean isReadOnly() {
+    return true;
+  }
+
   @Override
   public boolean execute(CalendarManager manager, ViewInterface view) throws IOException {
     if (input != null && !input.trim().isEmpty()) {
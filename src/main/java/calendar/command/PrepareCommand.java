@@ -0,0 +1,38 @@
+package calendar.command;
+
+import calendar.model.CalendarManager;
+import calendar.view.ViewInterface;
+import java.io.IOException;
+
+/**
+ * Command to prepare a command template for {@code exec}. The template is
+ * matched when the line is parsed, and recorded under its name when the command
+ * runs, so only the lines after it can use it.
+ * Format: prepare name as template
+ */
+public class PrepareCommand implements CommandInterface {
+  private final CommandParser parser;
+  private final String name;
+  private final CommandGrammar.Statement statement;
+
+  /**
+   * Creates a PrepareCommand.
+   *
+   * @param parser    the parser to record the statement in
+   * @param name      the name to prepare the statement as
+   * @param statement the prepared statement
+   */
+  PrepareCommand(CommandParser parser, String name, CommandGrammar.Statement statement) {
+    this.parser = parser;
+    this.name = name;
+    this.statement = statement;
+  }
+
+  @Override
+  public boolean execute(CalendarManager manager, ViewInterface view) throws IOException {
+    parser.define(name, statement);
+    view.displayMessage("Prepared '" + name + "' with " + statement.getParameterCount()
+        + " parameter(s).");
+    return true;
+  }
+}
@@ -20,6 +20,16 @@ public class PrintAllEventsCommand extends BaseCommand {
   public PrintAllEventsCommand() {
   }
 
+  @Override
+  public boolean isCalendarLocal() {
+    return true;
+  }
+
+  @Override
+  public boolean isReadOnly() {
+    return true;
+  }
+
   @Override
   protected String getOperationName() {
     return "print all events";
@@ -26,6 +26,16 @@ public class PrintEventsOnCommand extends BaseCommand {
     this.dateString = dateString;
   }
 
+  @Override
+  public boolean isCalendarLocal() {
+    return true;
+  }
+
+  @Override
+  public boolean isReadOnly() {
+    return true;
+  }
+
   @Override
   protected String getOperationName() {
     return "print events";
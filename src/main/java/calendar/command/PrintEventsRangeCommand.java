@@ -29,6 +29,16 @@ public class PrintEventsRangeCommand extends BaseCommand {
     this.endString = endString;
   }
 
+  @Override
+  public boolean isCalendarLocal() {
+    return true;
+  }
+
+  @Override
+  public boolean isReadOnly() {
+    return true;
+  }
+
   @Override
   protected String getOperationName() {
     return "print events";
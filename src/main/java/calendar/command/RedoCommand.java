@@ -0,0 +1,47 @@
+package calendar.command;
+
+import calendar.model.CalendarInterface;
+import calendar.model.CalendarManager;
+import calendar.model.CalendarModel;
+import calendar.view.ViewInterface;
+import java.io.IOException;
+
+/**
+ * Command to redo the last change to the current calendar that was undone.
+ * Format: redo
+ */
+public class RedoCommand implements CommandInterface {
+
+  /**
+   * Creates a RedoCommand.
+   */
+  public RedoCommand() {
+  }
+
+  @Override
+  public boolean isCalendarLocal() {
+    return true;
+  }
+
+  @Override
+  public boolean execute(CalendarManager manager, ViewInterface view) throws IOException {
+    if (manager.getTransaction() != null) {
+      view.displayError("Cannot redo while a transaction is open; use 'rollback' instead.");
+      return false;
+    }
+    CalendarInterface calendar = CommandHelper.getCurrentCalendar(manager, view);
+    if (calendar == null) {
+      return false;
+    }
+    if (!(calendar.getModel() instanceof CalendarModel)) {
+      view.displayError("Calendar '" + calendar.getName() + "' keeps no undo history.");
+      return false;
+    }
+    if (((CalendarModel) calendar.getModel()).redo()) {
+      view.displayMessage("Redid the last change to calendar '" + calendar.getName() + "'.");
+    } else {
+      view.displayMessage("Nothing to redo in calendar '" + calendar.getName() + "'.");
+    }
+    return true;
+  }
+}
@@ -0,0 +1,33 @@
+package calendar.command;
+
+import calendar.model.CalendarManager;
+import calendar.model.Transaction;
+import calendar.view.ViewInterface;
+import java.io.IOException;
+
+/**
+ * Command to roll back the open transaction, discarding every change made since
+ * {@code begin}.
+ * Format: rollback
+ */
+public class RollbackTransactionCommand implements CommandInterface {
+
+  /**
+   * Creates a RollbackTransactionCommand.
+   */
+  public RollbackTransactionCommand() {
+  }
+
+  @Override
+  public boolean execute(CalendarManager manager, ViewInterface view) throws IOException {
+    Transaction transaction = manager.getTransaction();
+    if (transaction == null) {
+      view.displayError("No transaction is open.");
+      return false;
+    }
+    transaction.rollback();
+    view.displayMessage("Transaction rolled back: " + transaction.getChangeCount()
+        + " change(s) discarded.");
+    return true;
+  }
+}
@@ -0,0 +1,50 @@
+package calendar.command;
+
+import calendar.model.CalendarManager;
+import calendar.persistence.Snapshot;
+import calendar.view.ViewInterface;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Command to save every calendar to a binary snapshot file.
+ * Format: save fileName
+ *
+ * <p>The snapshot can be loaded at startup with the {@code --snapshot} option,
+ * which is much faster than replaying the commands that built the calendars.
+ */
+public class SaveCommand extends BaseCommand {
+  private final String fileName;
+
+  /**
+   * Creates a SaveCommand.
+   *
+   * @param fileName the name of the snapshot file to write
+   */
+  public SaveCommand(String fileName) {
+    this.fileName = fileName;
+  }
+
+  @Override
+  protected String getOperationName() {
+    return "save calendars";
+  }
+
+  @Override
+  protected boolean doExecute(CalendarManager manager, ViewInterface view)
+      throws IOException, DateTimeParseException, IllegalArgumentException {
+    Path filePath = Paths.get(fileName).toAbsolutePath().normalize();
+
+    Path currentDir = Paths.get("").toAbsolutePath();
+    if (!filePath.startsWith(currentDir)) {
+      view.displayError("Invalid file path: cannot write outside current directory");
+      return false;
+    }
+
+    int saved = Snapshot.save(manager, filePath);
+    view.displayMessage("Saved " + saved + " calendar(s) to: " + filePath);
+    return true;
+  }
+}
@@ -24,6 +24,16 @@ public class ShowStatusCommand extends BaseCommand {
     this.dateTimeString = dateTimeString;
   }
 
+  @Override
+  public boolean isCalendarLocal() {
+    return true;
+  }
+
+  @Override
+  public boolean isReadOnly() {
+    return true;
+  }
+
   @Override
   protected String getOperationName() {
     return "show status";
@@ -19,4 +19,172 @@ public class Tokenizer {
     }
     return Arrays.asList(input.trim().split("\\s+"));
   }
+
+  /**
+   * Splits a line into its whitespace-separated tokens in a single pass. The
+   * tokens are recorded as positions in the input rather than copied out of it,
+   * so nothing is allocated per token; text is only extracted when asked for.
+   *
+   * <p>Whitespace is the set the command patterns use ({@code \s}). Quotes do not
+   * split or join tokens: a quoted subject spans several tokens, and commands find
+   * where it ends from the keywords around it, exactly as the patterns do.
+   *
+   * @param input the input line
+   * @return the tokens of the line
+   */
+  public Tokens lex(CharSequence input) {
+    Tokens tokens = new Tokens(input);
+    int length = input.length();
+    int i = 0;
+    while (true) {
+      while (i < length && isSpace(input.charAt(i))) {
+        i++;
+      }
+      if (i == length) {
+        return tokens;
+      }
+      int start = i;
+      while (i < length && !isSpace(input.charAt(i))) {
+        i++;
+      }
+      tokens.add(start, i);
+    }
+  }
+
+  /**
+   * Checks for the characters the command patterns treat as whitespace.
+   *
+   * @param c the character
+   * @return true for space, tab, line feed, vertical tab, form feed and carriage return
+   */
+  static boolean isSpace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  /**
+   * The tokens of one line, as start and end positions in the line.
+   */
+  public static final class Tokens {
+    private final CharSequence input;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int count;
+
+    private Tokens(CharSequence input) {
+      this.input = input;
+    }
+
+    private void add(int start, int end) {
+      if (count == starts.length) {
+        starts = Arrays.copyOf(starts, count * 2);
+        ends = Arrays.copyOf(ends, count * 2);
+      }
+      starts[count] = start;
+      ends[count] = end;
+      count++;
+    }
+
+    /**
+     * Gets the line the tokens were read from.
+     *
+     * @return the input line
+     */
+    public CharSequence getInput() {
+      return input;
+    }
+
+    /**
+     * Gets the number of tokens.
+     *
+     * @return the token count
+     */
+    public int size() {
+      return count;
+    }
+
+    /**
+     * Gets where a token starts.
+     *
+     * @param index the token index
+     * @return the position of its first character
+     */
+    public int start(int index) {
+      return starts[index];
+    }
+
+    /**
+     * Gets where a token ends.
+     *
+     * @param index the token index
+     * @return the position after its last character
+     */
+    public int end(int index) {
+      return ends[index];
+    }
+
+    /**
+     * Checks whether a token is a keyword, ignoring the case of ASCII letters.
+     *
+     * @param index   the token index
+     * @param keyword the keyword, in lower case
+     * @return true if the token spells the keyword
+     */
+    public boolean is(int index, String keyword) {
+      int start = starts[index];
+      if (ends[index] - start != keyword.length()) {
+        return false;
+      }
+      for (int i = 0; i < keyword.length(); i++) {
+        char c = input.charAt(start + i);
+        if (c >= 'A' && c <= 'Z') {
+          c = (char) (c + ('a' - 'A'));
+        }
+        if (c != keyword.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Checks whether a token is a number written with ASCII digits.
+     *
+     * @param index     the token index
+     * @param maxDigits the most digits allowed
+     * @return true if the token is all digits and not too long
+     */
+    public boolean isDigits(int index, int maxDigits) {
+      if (ends[index] - starts[index] > maxDigits) {
+        return false;
+      }
+      for (int i = starts[index]; i < ends[index]; i++) {
+        char c = input.charAt(i);
+        if (c < '0' || c > '9') {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Gets a token's text.
+     *
+     * @param index the token index
+     * @return the token
+     */
+    public String text(int index) {
+      return text(starts[index], ends[index]);
+    }
+
+    /**
+     * Gets the text between two positions of the input.
+     *
+     * @param start the first position
+     * @param end   the position after the last
+     * @return the text
+     */
+    public String text(int start, int end) {
+      return input.subSequence(start, end).toString();
+    }
+  }
 }
@@ -0,0 +1,48 @@
+package calendar.command;
+
+import calendar.model.CalendarInterface;
+import calendar.model.CalendarManager;
+import calendar.model.CalendarModel;
+import calendar.view.ViewInterface;
+import java.io.IOException;
+
+/**
+ * Command to undo the last change to the current calendar: the last command that
+ * changed it, or the last commit of a transaction that did.
+ * Format: undo
+ */
+public class UndoCommand implements CommandInterface {
+
+  /**
+   * Creates a UndoCommand.
+   */
+  public UndoCommand() {
+  }
+
+  @Override
+  public boolean isCalendarLocal() {
+    return true;
+  }
+
+  @Override
+  public boolean execute(CalendarManager manager, ViewInterface view) throws IOException {
+    if (manager.getTransaction() != null) {
+      view.displayError("Cannot undo while a transaction is open; use 'rollback' instead.");
+      return false;
+    }
+    CalendarInterface calendar = CommandHelper.getCurrentCalendar(manager, view);
+    if (calendar == null) {
+      return false;
+    }
+    if (!(calendar.getModel() instanceof CalendarModel)) {
+      view.displayError("Calendar '" + calendar.getName() + "' keeps no undo history.");
+      return false;
+    }
+    if (((CalendarModel) calendar.getModel()).undo()) {
+      view.displayMessage("Undid the last change to calendar '" + calendar.getName() + "'.");
+    } else {
+      view.displayMessage("Nothing to undo in calendar '" + calendar.getName() + "'.");
+    }
+    return true;
+  }
+}
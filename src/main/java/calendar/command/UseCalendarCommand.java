@@ -27,6 +27,15 @@ public class UseCalendarCommand implements CommandInterface {
     this.calendarName = calendarName;
   }
 
+  /**
+   * Gets the name of the calendar to use.
+   *
+   * @return the calendar name
+   */
+  public String getCalendarName() {
+    return calendarName;
+  }
+
   @Override
   public boolean execute(CalendarManager manager, ViewInterface view) throws IOException {
     boolean success = manager.setCurrentCalendar(calendarName);
@@ -0,0 +1,29 @@
+package calendar.command.matchers;
+
+import calendar.command.CommandInterface;
+import calendar.command.CommandMatcher;
+import calendar.command.EditEventsWhereCommand;
+import calendar.util.StringUtils;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Matches "edit events where" commands.
+ */
+public class EditEventsWhereCommandMatcher implements CommandMatcher {
+  private static final Pattern PATTERN = Pattern.compile(
+      "^\\s*edit\\s+events\\s+where\\s+(.+?)\\s+set\\s+(\\S+)\\s+(.+?)\\s*$",
+      Pattern.CASE_INSENSITIVE);
+
+  @Override
+  public CommandInterface tryMatch(String input) {
+    Matcher matcher = PATTERN.matcher(input);
+    if (matcher.matches()) {
+      String condition = matcher.group(1).trim();
+      String property = matcher.group(2);
+      String value = StringUtils.stripQuotes(matcher.group(3));
+      return new EditEventsWhereCommand(condition, property, value);
+    }
+    return null;
+  }
+}
@@ -3,22 +3,42 @@ package calendar.command.matchers;
 import calendar.command.CommandInterface;
 import calendar.command.CommandMatcher;
 import calendar.command.ExportCommand;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * Matches "export cal" commands.
+ * Matches "export cal" commands, with an optional date range and calendar list,
+ * or a change token.
+ * Format: export cal fileName [--from yyyy-MM-dd --to yyyy-MM-dd] [--calendars a,b]
+ * or: export cal fileName --since token
  */
 public class ExportCommandMatcher implements CommandMatcher {
-  private static final Pattern PATTERN =
-      Pattern.compile("^\\s*export\\s+cal\\s+(.+?)\\s*$", Pattern.CASE_INSENSITIVE);
+  private static final Pattern PATTERN = Pattern.compile(
+      "^\\s*export\\s+cal\\s+(.+?)(?:\\s+--since\\s+(\\d{1,18})"
+          + "|(?:\\s+--from\\s+(\\S+)\\s+--to\\s+(\\S+))?"
+          + "(?:\\s+--calendars\\s+(\\S+))?)\\s*$",
+      Pattern.CASE_INSENSITIVE);
 
   @Override
   public CommandInterface tryMatch(String input) {
     Matcher matcher = PATTERN.matcher(input);
     if (matcher.matches()) {
       String fileName = matcher.group(1).trim();
-      return new ExportCommand(fileName);
+      if (matcher.group(2) != null) {
+        return new ExportCommand(fileName, Long.parseLong(matcher.group(2)));
+      }
+      List<String> calendars = null;
+      if (matcher.group(5) != null) {
+        calendars = new ArrayList<>();
+        for (String name : matcher.group(5).split(",")) {
+          if (!name.trim().isEmpty()) {
+            calendars.add(name.trim());
+          }
+        }
+      }
+      return new ExportCommand(fileName, matcher.group(3), matcher.group(4), calendars);
     }
     return null;
   }
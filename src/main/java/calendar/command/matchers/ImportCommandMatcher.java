@@ -0,0 +1,25 @@
+package calendar.command.matchers;
+
+import calendar.command.CommandInterface;
+import calendar.command.CommandMatcher;
+import calendar.command.ImportCommand;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Matches "import" commands.
+ */
+public class ImportCommandMatcher implements CommandMatcher {
+  private static final Pattern PATTERN =
+      Pattern.compile("^\\s*import\\s+(.+?)\\s*$", Pattern.CASE_INSENSITIVE);
+
+  @Override
+  public CommandInterface tryMatch(String input) {
+    Matcher matcher = PATTERN.matcher(input);
+    if (matcher.matches()) {
+      String fileName = matcher.group(1).trim();
+      return new ImportCommand(fileName);
+    }
+    return null;
+  }
+}
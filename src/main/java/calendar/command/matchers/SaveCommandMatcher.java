@@ -0,0 +1,25 @@
+package calendar.command.matchers;
+
+import calendar.command.CommandInterface;
+import calendar.command.CommandMatcher;
+import calendar.command.SaveCommand;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Matches "save" commands.
+ */
+public class SaveCommandMatcher implements CommandMatcher {
+  private static final Pattern PATTERN =
+      Pattern.compile("^\\s*save\\s+(.+?)\\s*$", Pattern.CASE_INSENSITIVE);
+
+  @Override
+  public CommandInterface tryMatch(String input) {
+    Matcher matcher = PATTERN.matcher(input);
+    if (matcher.matches()) {
+      String fileName = matcher.group(1).trim();
+      return new SaveCommand(fileName);
+    }
+    return null;
+  }
+}
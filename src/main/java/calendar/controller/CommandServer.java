@@ -0,0 +1,344 @@
+package calendar.controller;
+
+import calendar.command.CommandInterface;
+import calendar.command.CommandParser;
+import calendar.model.CalendarInterface;
+import calendar.model.CalendarManager;
+import calendar.view.ConsoleView;
+import calendar.view.ViewInterface;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Serves the calendars of one manager to many clients at once over TCP.
+ *
+ * <p>Each connection is a session that sends the same text commands as
+ * interactive mode, one per line. A session has its own current calendar (see
+ * {@link CalendarManager#withCurrentCalendar}), so "use calendar" in one session
+ * does not affect the others, and its output goes only to its own connection.
+ * Statements prepared with {@code prepare} are likewise kept per session.
+ * The output of each command is followed by an empty line, which marks the end of
+ * the response. As in interactive mode, {@code exit} or a command that fails in a
+ * way that ends the session closes the connection after its response.
+ *
+ * <p>A session can switch to pipelining by sending {@code pipeline [window]}.
+ * After that the client may send commands without waiting for their responses:
+ * the server reads and parses up to {@code window} commands ahead (256 by
+ * default) while earlier ones run, and stops reading from the connection while
+ * that many are waiting, so a client sending faster than its commands run is
+ * held back by TCP rather than queued in memory. Commands still run in the order
+ * sent. Each response then starts with a line {@code #n}, the command's sequence
+ * number counting from 1 after the {@code pipeline} line, and responses are
+ * written in batches. Once a command ends the session, the commands sent after
+ * it are not run.
+ *
+ * <p>Every session runs on its own thread, plus a reader thread while
+ * pipelining. Commands that only use the current calendar run at the same time
+ * as each other when they are for different calendars; any other command
+ * (creating or editing calendars, copying between them, import, export, save)
+ * runs alone. Transactions cannot be begun in a session.
+ */
+public class CommandServer implements Closeable {
+
+  /**
+   * The number of commands read ahead of a pipelined session when the client does
+   * not choose one.
+   */
+  public static final int DEFAULT_WINDOW = 256;
+
+  /**
+   * The largest number of commands a pipelined session may have read ahead.
+   */
+  public static final int MAX_WINDOW = 4096;
+
+  private static final String PIPELINE = "pipeline";
+  private static final Parsed END = new Parsed(0, null, null);
+
+  private final CalendarManager manager;
+  private final Supplier<CommandParser> parsers;
+  private final ServerSocket socket;
+  private final boolean parallelCalendars;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+  private final ExecutorService sessions = Executors.newCachedThreadPool(task -> {
+    Thread thread = new Thread(task, "calendar-session");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Creates a server.
+   *
+   * @param manager           the calendar manager shared by the sessions
+   * @param parsers           makes a command parser for each session, which keeps
+   *                          the statements the session prepares
+   * @param socket            the bound socket to accept connections on
+   * @param parallelCalendars true to run commands for different calendars at the
+   *                          same time, false to run one command at a time (for
+   *                          example when a journal records them)
+   */
+  public CommandServer(CalendarManager manager, Supplier<CommandParser> parsers,
+                       ServerSocket socket, boolean parallelCalendars) {
+    this.manager = manager;
+    this.parsers = parsers;
+    this.socket = socket;
+    this.parallelCalendars = parallelCalendars;
+  }
+
+  /**
+   * Gets the port the server accepts connections on.
+   *
+   * @return the port
+   */
+  public int getPort() {
+    return socket.getLocalPort();
+  }
+
+  /**
+   * Accepts connections and starts a session for each, until the server is closed.
+   *
+   * @throws IOException if accepting a connection fails
+   */
+  public void serve() throws IOException {
+    try {
+      while (true) {
+        Socket client = socket.accept();
+        clients.add(client);
+        sessions.execute(() -> session(client));
+      }
+    } catch (SocketException e) {
+      if (!socket.isClosed()) {
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Stops accepting connections and closes every open session.
+   *
+   * @throws IOException if the socket cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    socket.close();
+    sessions.shutdownNow();
+    for (Socket client : clients) {
+      client.close();
+    }
+  }
+
+  /**
+   * Runs one session until the client disconnects or the session ends. Runs on the
+   * session's thread.
+   */
+  private void session(Socket client) {
+    try (Socket connection = client;
+         BufferedReader in = new BufferedReader(new InputStreamReader(
+             connection.getInputStream(), StandardCharsets.UTF_8));
+         Writer out = new BufferedWriter(new OutputStreamWriter(
+             connection.getOutputStream(), StandardCharsets.UTF_8))) {
+      connection.setTcpNoDelay(true);
+      CalendarManager session = manager.withCurrentCalendar(null);
+      CommandParser parser = parsers.get();
+      StringBuilder response = new StringBuilder();
+      ViewInterface view = new ConsoleView(response);
+      String line;
+      boolean open = true;
+      while (open && (line = in.readLine()) != null) {
+        line = line.trim();
+        if (line.isEmpty()) {
+          continue;
+        }
+        if (line.equals(PIPELINE) || line.startsWith(PIPELINE + " ")) {
+          int window = parseWindow(line.substring(PIPELINE.length()).trim());
+          if (window > 0) {
+            view.displayMessage("Pipelining with window " + window + ".");
+            respond(out, response);
+            pipeline(connection, in, out, parser, session, view, response, window);
+            return;
+          }
+          view.displayError("Window must be a number from 1 to " + MAX_WINDOW + ".");
+        } else {
+          open = execute(parse(parser, 0, line), session, view);
+        }
+        respond(out, response);
+      }
+    } catch (IOException e) {
+      // The client went away; its session is over.
+    } finally {
+      clients.remove(client);
+    }
+  }
+
+  /**
+   * Runs the rest of a session as a pipeline: a reader thread parses commands
+   * into a queue holding at most {@code window} of them, and this thread runs them
+   * in order, flushing responses whenever it has caught up with the reader. The
+   * connection is closed at the end, which stops a reader waiting for input.
+   */
+  private void pipeline(Socket connection, BufferedReader in, Writer out,
+                        CommandParser parser, CalendarManager session, ViewInterface view,
+                        StringBuilder response, int window) throws IOException {
+    BlockingQueue<Parsed> queue = new ArrayBlockingQueue<>(window);
+    Future<?> reader = sessions.submit(() -> readAhead(in, parser, queue));
+    try {
+      Parsed next;
+      while ((next = queue.take()) != END) {
+        boolean open = execute(next, session, view);
+        out.append('#').append(Long.toString(next.sequence)).append(System.lineSeparator());
+        response.append(System.lineSeparator());
+        out.append(response);
+        response.setLength(0);
+        if (!open) {
+          break;
+        }
+        if (queue.isEmpty()) {
+          out.flush();
+        }
+      }
+      out.flush();
+    } catch (InterruptedException e) {
+      // The server is closing.
+    } finally {
+      reader.cancel(true);
+      connection.close();
+    }
+  }
+
+  /**
+   * Reads and parses the commands of a pipelined session, waiting while the queue
+   * is full. Runs on the session's reader thread until the client stops sending,
+   * the connection is closed, or the session ends.
+   */
+  private static void readAhead(BufferedReader in, CommandParser parser,
+                                BlockingQueue<Parsed> queue) {
+    try {
+      long sequence = 0;
+      String line;
+      try {
+        while ((line = in.readLine()) != null) {
+          line = line.trim();
+          if (!line.isEmpty()) {
+            queue.put(parse(parser, ++sequence, line));
+          }
+        }
+      } catch (IOException e) {
+        // The connection is closed; run what has been read.
+      }
+      queue.put(END);
+    } catch (InterruptedException e) {
+      // The session has ended.
+    }
+  }
+
+  /**
+   * Writes a response and the empty line that ends it.
+   */
+  private static void respond(Writer out, StringBuilder response) throws IOException {
+    response.append(System.lineSeparator());
+    out.append(response);
+    out.flush();
+    response.setLength(0);
+  }
+
+  /**
+   * Parses the window of a {@code pipeline} line.
+   *
+   * @return the window, or 0 if it is not valid
+   */
+  private static int parseWindow(String window) {
+    if (window.isEmpty()) {
+      return DEFAULT_WINDOW;
+    }
+    try {
+      int value = Integer.parseInt(window);
+      return (value >= 1 && value <= MAX_WINDOW) ? value : 0;
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Parses a command, keeping the failure to report when it is run.
+   */
+  private static Parsed parse(CommandParser parser, long sequence, String line) {
+    try {
+      return new Parsed(sequence, parser.parse(line), null);
+    } catch (RuntimeException e) {
+      return new Parsed(sequence, null, e);
+    }
+  }
+
+  /**
+   * Executes one parsed command of a session. The command was parsed before taking
+   * the lock, and its output is collected so that no client is written to while
+   * the lock is held.
+   *
+   * @return false if the command ends the session
+   */
+  private boolean execute(Parsed parsed, CalendarManager session, ViewInterface view)
+      throws IOException {
+    if (parsed.failure != null) {
+      return Controller.execute(() -> {
+        throw parsed.failure;
+      }, session, view);
+    }
+    CommandInterface command = parsed.command;
+
+    if (parallelCalendars && command.isCalendarLocal()) {
+      lock.readLock().lock();
+      try {
+        CalendarInterface calendar = session.getCurrentCalendar();
+        if (calendar == null) {
+          return Controller.execute(() -> command, session, view);
+        }
+        synchronized (calendar) {
+          return Controller.execute(() -> command, session, view);
+        }
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+
+    lock.writeLock().lock();
+    try {
+      return Controller.execute(() -> command, session, view);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * A command read from a session, or the reason it could not be parsed.
+   */
+  private static final class Parsed {
+    private final long sequence;
+    private final CommandInterface command;
+    private final RuntimeException failure;
+
+    Parsed(long sequence, CommandInterface command, RuntimeException failure) {
+      this.sequence = sequence;
+      this.command = command;
+      this.failure = failure;
+    }
+  }
+}
@@ -4,10 +4,12 @@ import calendar.command.CommandInterface;
 import calendar.command.CommandParser;
 import calendar.exceptions.InvalidCommandException;
 import calendar.model.CalendarManager;
+import calendar.model.Transaction;
 import calendar.view.ViewInterface;
 import java.io.IOException;
 import java.time.format.DateTimeParseException;
 import java.util.Scanner;
+import java.util.function.Supplier;
 
 /**
  * Unified controller that reads commands from any Readable source.
@@ -72,37 +74,67 @@ public class Controller implements ControllerInterface {
           continue;
         }
 
-        try {
-          CommandInterface cmd = parser.parse(line);
-          boolean shouldContinue = cmd.execute(manager, view);
-          if (!shouldContinue) {
-            exitFound = true;
-            break;
-          }
-        } catch (InvalidCommandException e) {
-          view.displayError(e.getMessage());
-
-          if (!interactive) {
-
-          }
-        } catch (DateTimeParseException e) {
-          view.displayError("Command failed: Invalid date/time format - " + e.getMessage());
-
-          if (!interactive) {
-
-          }
-        } catch (IllegalArgumentException e) {
-          view.displayError("Command failed: " + e.getMessage());
-
-          if (!interactive) {
-
-          }
+        if (!execute(() -> parser.parse(line), manager, view)) {
+          exitFound = true;
+          break;
         }
       }
 
       if (!interactive && !exitFound) {
         view.displayError("Error: Commands file must end with 'exit' command");
       }
+      rollBackOpenTransaction(manager, view);
+    }
+  }
+
+  /**
+   * Rolls back a transaction left open at the end of a session, so a session that
+   * stops inside one keeps none of its changes.
+   *
+   * @param manager the calendar manager
+   * @param view    the view for output
+   * @throws IOException if the view cannot be written
+   */
+  static void rollBackOpenTransaction(CalendarManager manager, ViewInterface view)
+      throws IOException {
+    Transaction transaction = manager.getTransaction();
+    if (transaction != null) {
+      transaction.rollback();
+      view.displayError("Error: Transaction was not committed; "
+          + transaction.getChangeCount() + " change(s) rolled back");
+    }
+  }
+
+  /**
+   * Parses and executes one command, reporting a failed command on the view
+   * rather than ending the session. The command's changes form one undo step, in
+   * the current calendar if the command only uses that calendar and in every
+   * calendar otherwise.
+   *
+   * @param command parses the command
+   * @param manager the calendar manager
+   * @param view    the view for output
+   * @return false if the command ends the session
+   * @throws IOException if the view cannot be written
+   */
+  static boolean execute(Supplier<CommandInterface> command, CalendarManager manager,
+                         ViewInterface view) throws IOException {
+    try {
+      CommandInterface parsed = command.get();
+      boolean allCalendars = !parsed.isCalendarLocal();
+      manager.beginUndoStep(allCalendars);
+      try {
+        return parsed.execute(manager, view);
+      } finally {
+        manager.endUndoStep(allCalendars);
+      }
+    } catch (InvalidCommandException e) {
+      view.displayError(e.getMessage());
+    } catch (DateTimeParseException e) {
+      view.displayError("Command failed: Invalid date/time format - " + e.getMessage());
+    } catch (IllegalArgumentException e) {
+      view.displayError("Command failed: " + e.getMessage());
     }
+    return true;
   }
-}
\ No newline at end of file
+}
@@ -49,6 +49,16 @@ public interface Features {
    */
   void navigateToToday();
 
+  /**
+   * Undoes the last change to the current calendar.
+   */
+  void undo();
+
+  /**
+   * Redoes the last change to the current calendar that was undone.
+   */
+  void redo();
+
   /**
    * Selects a specific day.
    *
@@ -2,6 +2,7 @@ package calendar.controller;
 
 import calendar.model.CalendarInterface;
 import calendar.model.CalendarManager;
+import calendar.model.CalendarModel;
 import calendar.model.CalendarModelInterface;
 import calendar.model.EditSpec;
 import calendar.model.Event;
@@ -17,6 +18,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.BooleanSupplier;
 
 /**
  * GUI controller for calendar application.
@@ -227,6 +229,36 @@ public class GuiController implements Features {
     refreshEventsForSelectedDay();
   }
 
+  @Override
+  public void undo() {
+    CalendarModelInterface model = getCurrentModel();
+    if (model == null) {
+      view.showError(UIMessages.ERROR_NO_CALENDAR);
+    } else if (!(model instanceof CalendarModel)) {
+      view.showError(UIMessages.ERROR_NO_UNDO_HISTORY);
+    } else if (((CalendarModel) model).undo()) {
+      refreshView();
+      refreshEventsForSelectedDay();
+    } else {
+      view.showError(UIMessages.ERROR_NOTHING_TO_UNDO);
+    }
+  }
+
+  @Override
+  public void redo() {
+    CalendarModelInterface model = getCurrentModel();
+    if (model == null) {
+      view.showError(UIMessages.ERROR_NO_CALENDAR);
+    } else if (!(model instanceof CalendarModel)) {
+      view.showError(UIMessages.ERROR_NO_UNDO_HISTORY);
+    } else if (((CalendarModel) model).redo()) {
+      refreshView();
+      refreshEventsForSelectedDay();
+    } else {
+      view.showError(UIMessages.ERROR_NOTHING_TO_REDO);
+    }
+  }
+
   @Override
   public void selectDay(LocalDate date) {
     if (date == null) {
@@ -264,7 +296,7 @@ public class GuiController implements Features {
           null
       );
 
-      boolean success = model.createEvent(event);
+      boolean success = undoable(() -> model.createEvent(event));
       if (success) {
         view.showMessage(UIMessages.formatEventCreated(subject));
         refreshView();
@@ -304,7 +336,7 @@ public class GuiController implements Features {
           subject, start, end, location, description, isPrivate,
           weekdays, endDate, occurrences, usesEndDate);
 
-      boolean success = model.createEventSeries(series);
+      boolean success = undoable(() -> model.createEventSeries(series));
       if (success) {
         view.showMessage(UIMessages.formatSeriesCreated(subject));
         refreshView();
@@ -349,7 +381,7 @@ public class GuiController implements Features {
           newSubject, newStart, newEnd, newDescription, newLocation, newStatus
       );
 
-      boolean success = model.editEvent(event.getId(), spec);
+      boolean success = undoable(() -> model.editEvent(event.getId(), spec));
       if (success) {
         view.showMessage(UIMessages.SUCCESS_EVENT_UPDATED);
         refreshView();
@@ -383,7 +415,7 @@ public class GuiController implements Features {
       );
 
       UUID seriesUuid = UUID.fromString(seriesId);
-      boolean success = model.editEntireSeries(seriesUuid, spec);
+      boolean success = undoable(() -> model.editEntireSeries(seriesUuid, spec));
       if (success) {
         view.showMessage(UIMessages.SUCCESS_SERIES_UPDATED);
         refreshView();
@@ -417,7 +449,7 @@ public class GuiController implements Features {
       );
 
       UUID seriesUuid = UUID.fromString(seriesId);
-      boolean success = model.editSeriesFrom(seriesUuid, fromDate, spec);
+      boolean success = undoable(() -> model.editSeriesFrom(seriesUuid, fromDate, spec));
       if (success) {
         view.showMessage(UIMessages.SUCCESS_SERIES_FROM_DATE_UPDATED);
         refreshView();
@@ -442,6 +474,21 @@ public class GuiController implements Features {
     return current != null ? current.getModel() : null;
   }
 
+  /**
+   * Makes a change to the current calendar as one undo step.
+   *
+   * @param change makes the change
+   * @return the change's result
+   */
+  private boolean undoable(BooleanSupplier change) {
+    manager.beginUndoStep(false);
+    try {
+      return change.getAsBoolean();
+    } finally {
+      manager.endUndoStep(false);
+    }
+  }
+
   /**
    * Refreshes the calendar list in the view.
    */
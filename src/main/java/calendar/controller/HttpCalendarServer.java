@@ -0,0 +1,715 @@
+package calendar.controller;
+
+import calendar.model.CalendarInterface;
+import calendar.model.CalendarManager;
+import calendar.model.CalendarModelInterface;
+import calendar.model.EditSpec;
+import calendar.model.Event;
+import calendar.model.EventInterface;
+import calendar.model.EventStatus;
+import calendar.util.DateTimeParser;
+import calendar.util.JsonWriter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Serves the calendars of one manager as a JSON API over HTTP.
+ *
+ * <p>Endpoints, with calendar names and event IDs as path segments:
+ * <ul>
+ *   <li>{@code GET /calendars} - the calendars, with their timezones</li>
+ *   <li>{@code POST /calendars} - create a calendar from an object with name and
+ *       timezone</li>
+ *   <li>{@code GET /calendars/{name}/events?date=yyyy-MM-dd} - events on a day</li>
+ *   <li>{@code GET /calendars/{name}/events?from=...&to=...} - events overlapping a
+ *       range of date-times; without parameters, every event</li>
+ *   <li>{@code GET /calendars/{name}/events/{id}} - one event</li>
+ *   <li>{@code GET /calendars/{name}/busy?at=yyyy-MM-ddTHH:mm} - busy status</li>
+ *   <li>{@code POST /calendars/{name}/events} - create an event from an object with
+ *       subject, start, end and optionally description, location and status</li>
+ *   <li>{@code PATCH /calendars/{name}/events/{id}?scope=event|following|series} -
+ *       edit an event, the rest of its series or the whole series, from an object
+ *       with the properties to change</li>
+ * </ul>
+ *
+ * <p>Date-times use the same format as commands. Responses for a calendar carry an
+ * ETag made from the calendar's change token, so a GET with a matching
+ * {@code If-None-Match} is answered with 304 without running the query. Results
+ * are gathered while holding the calendar and then streamed through a
+ * {@link JsonWriter}, so no client is written to while the lock is held. Errors
+ * are returned as {@code {"error": message}} with a 4xx status.
+ *
+ * <p>As with {@link CommandServer}, requests for different calendars run at the
+ * same time unless the server is created to run one request at a time (for
+ * example when a journal records the changes).
+ */
+public class HttpCalendarServer implements Closeable {
+  private static final String JSON = "application/json; charset=utf-8";
+  private static final int MAX_BODY_BYTES = 1 << 16;
+  private static final String NO_DELAY = "sun.net.httpserver.nodelay";
+
+  static {
+    // Responses are streamed as chunks after the headers; with Nagle's algorithm on,
+    // every response would wait for the client's delayed ACK (about 40 ms).
+    if (System.getProperty(NO_DELAY) == null) {
+      System.setProperty(NO_DELAY, "true");
+    }
+  }
+
+  private final CalendarManager manager;
+  private final boolean parallelCalendars;
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Creates a server bound to an address. It does not accept requests until
+   * {@link #start()} is called.
+   *
+   * @param manager           the calendar manager to serve
+   * @param address           the address to listen on
+   * @param threads           the number of threads handling requests
+   * @param parallelCalendars true to handle requests for different calendars at the
+   *                          same time, false to handle one request at a time
+   * @throws IOException if the address cannot be bound
+   */
+  public HttpCalendarServer(CalendarManager manager, InetSocketAddress address, int threads,
+                            boolean parallelCalendars) throws IOException {
+    this.manager = manager;
+    this.parallelCalendars = parallelCalendars;
+    this.server = HttpServer.create(address, 1024);
+    this.executor = Executors.newFixedThreadPool(threads, task -> {
+      Thread thread = new Thread(task, "calendar-http");
+      thread.setDaemon(true);
+      return thread;
+    });
+    server.setExecutor(executor);
+    server.createContext("/calendars", this::handle);
+  }
+
+  /**
+   * Gets the port the server listens on.
+   *
+   * @return the port
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Starts accepting requests, on the server's own threads.
+   */
+  public void start() {
+    server.start();
+  }
+
+  /**
+   * Stops the server, letting requests in progress finish for up to a second.
+   */
+  @Override
+  public void close() {
+    server.stop(1);
+    executor.shutdown();
+    try {
+      executor.awaitTermination(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Handles one request. Runs on a server thread.
+   */
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      route(exchange);
+    } catch (HttpError e) {
+      sendError(exchange, e.status, e.getMessage());
+    } catch (DateTimeParseException e) {
+      sendError(exchange, 400, "Invalid date/time format - " + e.getMessage());
+    } catch (IllegalArgumentException e) {
+      sendError(exchange, 400, e.getMessage());
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * Dispatches a request by its path and method.
+   */
+  private void route(HttpExchange exchange) throws IOException {
+    String method = exchange.getRequestMethod();
+    String[] path = exchange.getRequestURI().getPath().substring("/calendars".length())
+        .split("/");
+    // path[0] is empty: the path after /calendars starts with '/' or is empty.
+    if (path.length <= 1) {
+      if (method.equals("POST")) {
+        createCalendar(exchange, readObject(exchange.getRequestBody()));
+      } else {
+        requireMethod(method, "GET");
+        listCalendars(exchange);
+      }
+      return;
+    }
+    CalendarInterface calendar = findCalendar(path[1]);
+    if (calendar == null) {
+      throw new HttpError(404, "Calendar not found: " + path[1]);
+    }
+    Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+    String resource = (path.length > 2) ? path[2] : "";
+
+    if (resource.equals("events") && path.length == 3) {
+      if (method.equals("POST")) {
+        createEvent(exchange, calendar, readObject(exchange.getRequestBody()));
+      } else {
+        requireMethod(method, "GET");
+        getEvents(exchange, calendar, query);
+      }
+    } else if (resource.equals("events") && path.length == 4) {
+      UUID id = parseId(path[3]);
+      if (method.equals("PATCH")) {
+        editEvent(exchange, calendar, id, query.getOrDefault("scope", "event"),
+            readObject(exchange.getRequestBody()));
+      } else {
+        requireMethod(method, "GET");
+        getEvent(exchange, calendar, id);
+      }
+    } else if (resource.equals("busy") && path.length == 3) {
+      requireMethod(method, "GET");
+      getBusy(exchange, calendar, DateTimeParser.parseDateTime(require(query, "at")));
+    } else {
+      throw new HttpError(404, "Not found: " + exchange.getRequestURI().getPath());
+    }
+  }
+
+  private void listCalendars(HttpExchange exchange) throws IOException {
+    List<CalendarInterface> calendars = inAll(manager::getAllCalendars);
+    JsonWriter json = beginJson(exchange, 200, null);
+    json.beginArray();
+    for (CalendarInterface calendar : calendars) {
+      json.beginObject()
+          .name("name").value(calendar.getName())
+          .name("timezone").value(calendar.getTimezone().getId())
+          .endObject();
+    }
+    json.endArray().flush();
+  }
+
+  private void createCalendar(HttpExchange exchange, Map<String, String> body)
+      throws IOException {
+    String name = require(body, "name");
+    ZoneId timezone;
+    try {
+      timezone = ZoneId.of(require(body, "timezone"));
+    } catch (DateTimeException e) {
+      throw new HttpError(400, "Invalid timezone: " + body.get("timezone"));
+    }
+    if (!inAll(() -> manager.createCalendar(name, timezone))) {
+      throw new HttpError(409, "Calendar already exists: " + name);
+    }
+    exchange.getResponseHeaders().set("Location", "/calendars/" + name);
+    JsonWriter json = beginJson(exchange, 201, null);
+    json.beginObject()
+        .name("name").value(name)
+        .name("timezone").value(timezone.getId())
+        .endObject()
+        .flush();
+  }
+
+  private void getEvents(HttpExchange exchange, CalendarInterface calendar,
+                         Map<String, String> query) throws IOException {
+    String date = query.get("date");
+    String from = query.get("from");
+    String to = query.get("to");
+    if ((from == null) != (to == null)) {
+      throw new HttpError(400, "Both from and to are needed for a range");
+    }
+    Callable<List<EventInterface>> read;
+    if (date != null) {
+      LocalDate day = DateTimeParser.parseDate(date);
+      read = () -> calendar.getModel().getEventsOnDate(day);
+    } else if (from != null) {
+      LocalDateTime start = DateTimeParser.parseDateTime(from);
+      LocalDateTime end = DateTimeParser.parseDateTime(to);
+      read = () -> calendar.getModel().getEventsInRange(start, end);
+    } else {
+      read = () -> calendar.getModel().getAllEvents();
+    }
+    Versioned<List<EventInterface>> events = readIfChanged(exchange, calendar, read);
+    if (events == null) {
+      return;
+    }
+    JsonWriter json = beginJson(exchange, 200, events.etag);
+    json.beginArray();
+    for (EventInterface event : events.value) {
+      writeEvent(json, event);
+    }
+    json.endArray().flush();
+  }
+
+  private void getEvent(HttpExchange exchange, CalendarInterface calendar, UUID id)
+      throws IOException {
+    Versioned<EventInterface> event = readIfChanged(exchange, calendar,
+        () -> calendar.getModel().findEventById(id));
+    if (event == null) {
+      return;
+    }
+    if (event.value == null) {
+      throw new HttpError(404, "Event not found: " + id);
+    }
+    JsonWriter json = beginJson(exchange, 200, event.etag);
+    writeEvent(json, event.value);
+    json.flush();
+  }
+
+  private void getBusy(HttpExchange exchange, CalendarInterface calendar, LocalDateTime at)
+      throws IOException {
+    Versioned<Boolean> busy = readIfChanged(exchange, calendar,
+        () -> calendar.getModel().isBusy(at));
+    if (busy == null) {
+      return;
+    }
+    JsonWriter json = beginJson(exchange, 200, busy.etag);
+    json.beginObject().name("busy").value(busy.value.booleanValue()).endObject().flush();
+  }
+
+  private void createEvent(HttpExchange exchange, CalendarInterface calendar,
+                           Map<String, String> body) throws IOException {
+    EventInterface event = new Event(require(body, "subject"),
+        DateTimeParser.parseDateTime(require(body, "start")),
+        DateTimeParser.parseDateTime(require(body, "end")),
+        body.get("description"), body.get("location"),
+        body.containsKey("status") && EventStatus.fromString(body.get("status")).isPrivate(),
+        UUID.randomUUID(), null);
+    Versioned<Boolean> created = inCalendar(calendar,
+        () -> calendar.getModel().createEvent(event));
+    if (!created.value) {
+      throw new HttpError(409, "Duplicate event: " + event.getSubject());
+    }
+    exchange.getResponseHeaders().set("Location", exchange.getRequestURI().getPath() + "/"
+        + event.getId());
+    JsonWriter json = beginJson(exchange, 201, created.etag);
+    writeEvent(json, event);
+    json.flush();
+  }
+
+  private void editEvent(HttpExchange exchange, CalendarInterface calendar, UUID id,
+                         String scope, Map<String, String> body) throws IOException {
+    if (!scope.equals("event") && !scope.equals("following") && !scope.equals("series")) {
+      throw new HttpError(400, "Invalid scope: " + scope);
+    }
+    EditSpec spec = toEditSpec(body);
+    Versioned<Boolean> edited = inCalendar(calendar, () -> {
+      CalendarModelInterface model = calendar.getModel();
+      EventInterface event = model.findEventById(id);
+      if (event == null) {
+        throw new HttpError(404, "Event not found: " + id);
+      }
+      UUID seriesId = event.getSeriesId().orElse(null);
+      if (seriesId != null && scope.equals("following")) {
+        return model.editSeriesFrom(seriesId, event.getStartDateTime().toLocalDate(), spec);
+      } else if (seriesId != null && scope.equals("series")) {
+        return model.editEntireSeries(seriesId, spec);
+      }
+      return model.editEvent(id, spec);
+    });
+    if (!edited.value) {
+      throw new HttpError(409, "Failed to edit: would create duplicate event");
+    }
+    exchange.getResponseHeaders().set("ETag", edited.etag);
+    sendEmpty(exchange, 204);
+  }
+
+  /**
+   * Builds an edit from the properties present in a request body.
+   */
+  private static EditSpec toEditSpec(Map<String, String> body) {
+    EditSpec.Builder spec = EditSpec.builder();
+    for (Map.Entry<String, String> property : body.entrySet()) {
+      String value = property.getValue();
+      switch (property.getKey()) {
+        case "subject":
+          spec.subject(value);
+          break;
+        case "start":
+          spec.start(DateTimeParser.parseDateTime(value));
+          break;
+        case "end":
+          spec.end(DateTimeParser.parseDateTime(value));
+          break;
+        case "description":
+          spec.description(value);
+          break;
+        case "location":
+          spec.location(value);
+          break;
+        case "status":
+          spec.status(EventStatus.fromString(value));
+          break;
+        default:
+          throw new HttpError(400, "Invalid property: " + property.getKey());
+      }
+    }
+    if (body.isEmpty()) {
+      throw new HttpError(400, "No properties to change");
+    }
+    return spec.build();
+  }
+
+  /**
+   * Reads from a calendar unless the client's copy is current, in which case 304
+   * is sent and null returned.
+   */
+  private <T> Versioned<T> readIfChanged(HttpExchange exchange, CalendarInterface calendar,
+                                         Callable<T> read) throws IOException {
+    String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+    Versioned<T> result = inCalendar(calendar, () -> {
+      if (ifNoneMatch != null && matches(ifNoneMatch, etag(calendar))) {
+        return null;
+      }
+      return read.call();
+    });
+    if (result.value == null && ifNoneMatch != null && matches(ifNoneMatch, result.etag)) {
+      exchange.getResponseHeaders().set("ETag", result.etag);
+      sendEmpty(exchange, 304);
+      return null;
+    }
+    return result;
+  }
+
+  /**
+   * Looks up a calendar by name. The manager's map is read under the lock, as
+   * creating a calendar changes it under the write lock.
+   */
+  private CalendarInterface findCalendar(String name) throws IOException {
+    if (!parallelCalendars) {
+      return inAll(() -> manager.getCalendar(name));
+    }
+    lock.readLock().lock();
+    try {
+      return manager.getCalendar(name);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Runs an action on a calendar while holding it, and returns its result with the
+   * calendar's ETag afterwards.
+   */
+  private <T> Versioned<T> inCalendar(CalendarInterface calendar, Callable<T> action)
+      throws IOException {
+    if (!parallelCalendars) {
+      return inAll(() -> new Versioned<>(action.call(), etag(calendar)));
+    }
+    lock.readLock().lock();
+    try {
+      synchronized (calendar) {
+        return new Versioned<>(action.call(), etag(calendar));
+      }
+    } catch (IOException | RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException(e);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Runs an action with no other request running.
+   */
+  private <T> T inAll(Callable<T> action) throws IOException {
+    lock.writeLock().lock();
+    try {
+      return action.call();
+    } catch (IOException | RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException(e);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Makes the ETag of a calendar's current state: which calendar it is, its change
+   * token and its timezone.
+   */
+  private static String etag(CalendarInterface calendar) {
+    return "\"" + Integer.toHexString(System.identityHashCode(calendar)) + "-"
+        + calendar.getModel().getChangeToken() + "-" + calendar.getTimezone().getId() + "\"";
+  }
+
+  /**
+   * Checks an If-None-Match header, which may list several tags, against an ETag.
+   */
+  private static boolean matches(String ifNoneMatch, String etag) {
+    for (String tag : ifNoneMatch.split(",")) {
+      tag = tag.trim();
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals("*") || tag.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static JsonWriter beginJson(HttpExchange exchange, int status, String etag)
+      throws IOException {
+    Headers headers = exchange.getResponseHeaders();
+    headers.set("Content-Type", JSON);
+    if (etag != null) {
+      headers.set("ETag", etag);
+    }
+    exchange.sendResponseHeaders(status, 0);
+    return new JsonWriter(exchange.getResponseBody());
+  }
+
+  /**
+   * Sends a response without a body. The request body is closed first: the
+   * exchange ends as soon as the headers are sent, and the connection is only kept
+   * open for the next request if the request has been read to its end by then.
+   */
+  private static void sendEmpty(HttpExchange exchange, int status) throws IOException {
+    exchange.getRequestBody().close();
+    exchange.sendResponseHeaders(status, -1);
+  }
+
+  private static void sendError(HttpExchange exchange, int status, String message)
+      throws IOException {
+    JsonWriter json = beginJson(exchange, status, null);
+    json.beginObject().name("error").value(message).endObject().flush();
+  }
+
+  private static void writeEvent(JsonWriter json, EventInterface event) throws IOException {
+    json.beginObject()
+        .name("id").value(event.getId().toString())
+        .name("subject").value(event.getSubject())
+        .name("start").value(event.getStartDateTime())
+        .name("end").value(event.getEndDateTime())
+        .name("allDay").value(event.isAllDayEvent())
+        .name("description").value(event.getDescription().orElse(null))
+        .name("location").value(event.getLocation().orElse(null))
+        .name("status").value(event.isPrivate() ? "private" : "public")
+        .name("seriesId").value(event.getSeriesId().map(UUID::toString).orElse(null))
+        .endObject();
+  }
+
+  private static void requireMethod(String method, String allowed) {
+    if (!method.equals(allowed)) {
+      throw new HttpError(405, "Method not allowed: " + method);
+    }
+  }
+
+  private static String require(Map<String, String> values, String name) {
+    String value = values.get(name);
+    if (value == null) {
+      throw new HttpError(400, "Missing " + name);
+    }
+    return value;
+  }
+
+  private static UUID parseId(String id) {
+    try {
+      return UUID.fromString(id);
+    } catch (IllegalArgumentException e) {
+      throw new HttpError(404, "Event not found: " + id);
+    }
+  }
+
+  private static Map<String, String> parseQuery(String rawQuery) {
+    Map<String, String> query = new HashMap<>();
+    if (rawQuery == null || rawQuery.isEmpty()) {
+      return query;
+    }
+    for (String pair : rawQuery.split("&")) {
+      int equals = pair.indexOf('=');
+      String name = (equals < 0) ? pair : pair.substring(0, equals);
+      String value = (equals < 0) ? "" : pair.substring(equals + 1);
+      query.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+          URLDecoder.decode(value, StandardCharsets.UTF_8));
+    }
+    return query;
+  }
+
+  /**
+   * Reads a request body holding one JSON object whose values are strings or null.
+   * Members with null values are left out.
+   */
+  private static Map<String, String> readObject(InputStream in) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      if (bytes.size() + read > MAX_BODY_BYTES) {
+        throw new HttpError(413, "Request body is too large");
+      }
+      bytes.write(buffer, 0, read);
+    }
+    return new ObjectParser(bytes.toString(StandardCharsets.UTF_8)).parse();
+  }
+
+  /**
+   * A failed request, with the status to answer it with.
+   */
+  private static final class HttpError extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    HttpError(int status, String message) {
+      super(message);
+      this.status = status;
+    }
+  }
+
+  /**
+   * A result read from a calendar together with the calendar's ETag at that time.
+   */
+  private static final class Versioned<T> {
+    private final T value;
+    private final String etag;
+
+    Versioned(T value, String etag) {
+      this.value = value;
+      this.etag = etag;
+    }
+  }
+
+  /**
+   * Parses a flat JSON object of string and null values.
+   */
+  private static final class ObjectParser {
+    private final String text;
+    private int pos;
+
+    ObjectParser(String text) {
+      this.text = text;
+    }
+
+    Map<String, String> parse() {
+      Map<String, String> values = new HashMap<>();
+      expect('{');
+      if (!consume('}')) {
+        do {
+          String name = string();
+          expect(':');
+          skipSpace();
+          if (text.startsWith("null", pos)) {
+            pos += 4;
+          } else {
+            values.put(name, string());
+          }
+        } while (consume(','));
+        expect('}');
+      }
+      skipSpace();
+      if (pos != text.length()) {
+        throw malformed();
+      }
+      return values;
+    }
+
+    private String string() {
+      expect('"');
+      StringBuilder value = new StringBuilder();
+      while (pos < text.length()) {
+        char c = text.charAt(pos++);
+        if (c == '"') {
+          return value.toString();
+        }
+        if (c != '\\') {
+          value.append(c);
+          continue;
+        }
+        if (pos == text.length()) {
+          break;
+        }
+        char escaped = text.charAt(pos++);
+        switch (escaped) {
+          case 'n':
+            value.append('\n');
+            break;
+          case 'r':
+            value.append('\r');
+            break;
+          case 't':
+            value.append('\t');
+            break;
+          case 'b':
+            value.append('\b');
+            break;
+          case 'f':
+            value.append('\f');
+            break;
+          case 'u':
+            if (pos + 4 > text.length()) {
+              throw malformed();
+            }
+            try {
+              value.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+            } catch (NumberFormatException e) {
+              throw malformed();
+            }
+            pos += 4;
+            break;
+          default:
+            value.append(escaped);
+            break;
+        }
+      }
+      throw malformed();
+    }
+
+    private boolean consume(char c) {
+      skipSpace();
+      if (pos < text.length() && text.charAt(pos) == c) {
+        pos++;
+        return true;
+      }
+      return false;
+    }
+
+    private void expect(char c) {
+      if (!consume(c)) {
+        throw malformed();
+      }
+    }
+
+    private void skipSpace() {
+      while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+        pos++;
+      }
+    }
+
+    private HttpError malformed() {
+      return new HttpError(400, "Request body must be a JSON object of strings");
+    }
+  }
+}
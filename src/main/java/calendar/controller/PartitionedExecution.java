@@ -0,0 +1,333 @@
+package calendar.controller;
+
+import calendar.command.CommandInterface;
+import calendar.command.UseCalendarCommand;
+import calendar.model.CalendarInterface;
+import calendar.model.CalendarManager;
+import calendar.model.EventInterface;
+import calendar.view.ViewInterface;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Executes a stream of commands with the commands for different calendars
+ * running at the same time, while the output appears exactly as if they ran one
+ * after another.
+ *
+ * <p>Commands that only use the current calendar are grouped into batches for
+ * that calendar. Batches for one calendar run in order, each after the last, and
+ * batches for different calendars run in parallel on the worker threads, each
+ * through a manager whose current calendar is its own (see
+ * {@link CalendarManager#withCurrentCalendar}). A batch records its output, and
+ * the recorded output is written to the view in command order as batches finish.
+ * "use calendar" decides the calendar of the commands after it as soon as it is
+ * read, since only barriers change which calendars exist, but it runs in its place
+ * in the output. Every other command (creating, editing or copying between
+ * calendars, import, export, save, exit) is a barrier: it waits for all earlier
+ * commands and runs on its own.
+ *
+ * <p>A command that stops the run (exit, or one that fails) does so exactly
+ * where a sequential run would. A batch that changes its calendar starts only
+ * once every earlier command has run without stopping the run, so nothing after a
+ * stop changes a calendar, its undo history or an open transaction. Batches that
+ * only read (see {@link CommandInterface#isReadOnly()}) may run ahead, in parallel
+ * with each other and with the batch changing a calendar; output they record
+ * after a stop is dropped.
+ */
+final class PartitionedExecution {
+  private static final int BATCH_COMMANDS = 64;
+  private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+  private final CalendarManager manager;
+  private final ViewInterface view;
+  private final ExecutorService workers;
+  private final int maxPending;
+  private final Map<CalendarInterface, CalendarManager> scopes = new HashMap<>();
+  private final Map<CalendarInterface, CompletableFuture<Void>> tails = new HashMap<>();
+  private final Deque<Batch> pending = new ArrayDeque<>();
+  private final AtomicLong stopAt = new AtomicLong(Long.MAX_VALUE);
+  private CalendarInterface current;
+  private Batch open;
+  private long sequence;
+  private boolean stopped;
+
+  /**
+   * Creates an execution. With one thread, commands run one at a time on the
+   * calling thread.
+   *
+   * @param manager the calendar manager
+   * @param view    the view for output
+   * @param threads the number of threads running commands
+   */
+  PartitionedExecution(CalendarManager manager, ViewInterface view, int threads) {
+    this.manager = manager;
+    this.view = view;
+    this.maxPending = threads * 8;
+    this.workers = (threads == 1) ? null : Executors.newFixedThreadPool(threads, task -> {
+      Thread thread = new Thread(task, "calendar-command-worker");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.current = manager.getCurrentCalendar();
+  }
+
+  /**
+   * Executes the next command, or schedules it to be executed.
+   *
+   * @param command parses the command
+   * @return false once a command has stopped the run
+   * @throws IOException if the view cannot be written
+   */
+  boolean execute(Supplier<CommandInterface> command) throws IOException {
+    if (stopped) {
+      return false;
+    }
+    if (workers == null) {
+      stopped = !Controller.execute(command, manager, view);
+      return !stopped;
+    }
+
+    long position = sequence++;
+    CommandInterface parsed = peek(command);
+    if (parsed == null || parsed.isCalendarLocal()) {
+      if (open != null && (open.calendar != current || open.size() == BATCH_COMMANDS)) {
+        schedule();
+      }
+      if (open == null) {
+        open = new Batch(current,
+            scopes.computeIfAbsent(current, manager::withCurrentCalendar));
+      }
+      open.add(position, command, parsed == null || parsed.isReadOnly());
+      return flushFinished();
+    }
+
+    if (parsed instanceof UseCalendarCommand) {
+      schedule();
+      CalendarInterface calendar =
+          manager.getCalendar(((UseCalendarCommand) parsed).getCalendarName());
+      if (calendar != null) {
+        current = calendar;
+      }
+      Batch use = new Batch(null, manager);
+      use.add(position, command, true);
+      use.deferred = true;
+      use.done = DONE;
+      pending.add(use);
+      return flushFinished();
+    }
+
+    if (!finish()) {
+      return false;
+    }
+    stopped = !Controller.execute(command, manager, view);
+    current = manager.getCurrentCalendar();
+    return !stopped;
+  }
+
+  /**
+   * Waits for every scheduled command and writes the remaining output.
+   *
+   * @return false if a command stopped the run
+   * @throws IOException if the view cannot be written
+   */
+  boolean finish() throws IOException {
+    schedule();
+    while (!pending.isEmpty()) {
+      pending.peek().done.join();
+      flush();
+    }
+    tails.clear();
+    return !stopped;
+  }
+
+  /**
+   * Stops the worker threads.
+   */
+  void shutdown() {
+    if (workers != null) {
+      workers.shutdownNow();
+    }
+  }
+
+  /**
+   * Gets the parsed command, or null for a line that failed to parse; such a line
+   * only reports its error, so it runs with the commands around it.
+   */
+  private static CommandInterface peek(Supplier<CommandInterface> command) {
+    try {
+      return command.get();
+    } catch (RuntimeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Hands the batch being filled to the workers, after the last batch for its
+   * calendar. A batch that changes its calendar first waits for every earlier
+   * batch, and is dropped if one of them stopped the run.
+   */
+  private void schedule() throws IOException {
+    if (open == null) {
+      return;
+    }
+    Batch batch = open;
+    open = null;
+    if (!batch.readOnly) {
+      while (!pending.isEmpty()) {
+        pending.peek().done.join();
+        flush();
+      }
+      if (stopped) {
+        return;
+      }
+    }
+    batch.done = tails.getOrDefault(batch.calendar, DONE).thenRunAsync(batch::run, workers);
+    tails.put(batch.calendar, batch.done);
+    pending.add(batch);
+    while (pending.size() > maxPending) {
+      pending.peek().done.join();
+      flush();
+    }
+  }
+
+  /**
+   * Writes the output of the finished batches at the head of the queue.
+   */
+  private boolean flushFinished() throws IOException {
+    while (!pending.isEmpty() && pending.peek().done.isDone()) {
+      flush();
+    }
+    return !stopped;
+  }
+
+  /**
+   * Writes the output of the batch at the head of the queue and removes it,
+   * running it first if it was deferred. Once the run has stopped, later batches
+   * are dropped.
+   */
+  private void flush() throws IOException {
+    Batch batch = pending.poll();
+    if (stopped) {
+      return;
+    }
+    if (batch.deferred) {
+      batch.run();
+    }
+    batch.output.replay(view);
+    if (batch.stoppedAt != Long.MAX_VALUE) {
+      stopped = true;
+    }
+    if (batch.failure instanceof IOException) {
+      throw (IOException) batch.failure;
+    } else if (batch.failure instanceof RuntimeException) {
+      throw (RuntimeException) batch.failure;
+    } else if (batch.failure instanceof Error) {
+      throw (Error) batch.failure;
+    }
+  }
+
+  /**
+   * Commands run together through one manager, with their output recorded.
+   */
+  private final class Batch {
+    private final CalendarInterface calendar;
+    private final CalendarManager scope;
+    private final List<Long> positions = new ArrayList<>();
+    private final List<Supplier<CommandInterface>> commands = new ArrayList<>();
+    private final RecordingView output = new RecordingView();
+    private CompletableFuture<Void> done;
+    private boolean readOnly = true;
+    private boolean deferred;
+    private long stoppedAt = Long.MAX_VALUE;
+    private Throwable failure;
+
+    Batch(CalendarInterface calendar, CalendarManager scope) {
+      this.calendar = calendar;
+      this.scope = scope;
+    }
+
+    void add(long position, Supplier<CommandInterface> command, boolean reads) {
+      positions.add(position);
+      commands.add(command);
+      readOnly &= reads;
+    }
+
+    int size() {
+      return commands.size();
+    }
+
+    /**
+     * Runs the commands until one stops the run. Commands after a stop already
+     * found elsewhere are skipped, as their output will be dropped.
+     */
+    void run() {
+      for (int i = 0; i < commands.size(); i++) {
+        long position = positions.get(i);
+        if (position > stopAt.get()) {
+          return;
+        }
+        try {
+          if (!Controller.execute(commands.get(i), scope, output)) {
+            stop(position);
+            return;
+          }
+        } catch (IOException | RuntimeException | Error e) {
+          failure = e;
+          stop(position);
+          return;
+        }
+      }
+    }
+
+    private void stop(long position) {
+      stoppedAt = position;
+      stopAt.accumulateAndGet(position, Math::min);
+    }
+  }
+
+  /**
+   * A view that records what is displayed, to be written to another view later.
+   */
+  private static final class RecordingView implements ViewInterface {
+    private final List<Display> calls = new ArrayList<>();
+
+    @Override
+    public void displayMessage(String message) {
+      calls.add(view -> view.displayMessage(message));
+    }
+
+    @Override
+    public void displayError(String error) {
+      calls.add(view -> view.displayError(error));
+    }
+
+    @Override
+    public void displayEvents(List<EventInterface> events) {
+      List<EventInterface> copy = new ArrayList<>(events);
+      calls.add(view -> view.displayEvents(copy));
+    }
+
+    void replay(ViewInterface view) throws IOException {
+      for (Display call : calls) {
+        call.on(view);
+      }
+    }
+  }
+
+  /**
+   * One recorded call to a view.
+   */
+  private interface Display {
+    void on(ViewInterface view) throws IOException;
+  }
+}
@@ -0,0 +1,281 @@
+package calendar.controller;
+
+import calendar.command.CommandInterface;
+import calendar.command.CommandParser;
+import calendar.model.CalendarManager;
+import calendar.view.ViewInterface;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Controller for headless mode that runs a commands file as a pipeline.
+ *
+ * <p>Three stages run at once: a reader thread splits the input into lines with
+ * large buffered reads and hands them on in chunks; a pool of threads parses the
+ * chunks in parallel, since parsing does not touch the calendars; and the calling
+ * thread executes the parsed commands one at a time, in file order. The stages are
+ * connected by a bounded queue of parse results, so the reader stops when the
+ * executing stage falls behind rather than parsing the whole file into memory.
+ * With more than one executor thread, commands for different calendars also run
+ * at the same time, as described in {@link PartitionedExecution}.
+ *
+ * <p>The output is exactly that of {@link Controller} in headless mode: commands
+ * for each calendar run in order and output appears in file order, a line that
+ * fails to parse reports its error at its place in the output, nothing after
+ * {@code exit} is executed, and a file without {@code exit} ends with the same
+ * error. Lines are split where
+ * {@link java.util.Scanner} splits them, and as with Scanner an input that cannot
+ * be read further ends the file.
+ */
+public class PipelinedController implements ControllerInterface {
+  private static final int READ_BUFFER_CHARS = 1 << 16;
+  private static final int CHUNK_LINES = 512;
+  private static final Future<List<Supplier<CommandInterface>>> END =
+      CompletableFuture.completedFuture(null);
+
+  private final CalendarManager manager;
+  private final ViewInterface view;
+  private final CommandParser parser;
+  private final Readable input;
+  private final int parserThreads;
+  private final int executorThreads;
+
+  /**
+   * Creates a PipelinedController that parses, and runs commands for different
+   * calendars, on one thread per processor.
+   *
+   * @param manager the calendar manager
+   * @param view    the view for output
+   * @param parser  the command parser, shared by the parsing threads
+   * @param input   the commands to run
+   */
+  public PipelinedController(CalendarManager manager, ViewInterface view,
+                             CommandParser parser, Readable input) {
+    this(manager, view, parser, input, Runtime.getRuntime().availableProcessors(),
+        Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates a PipelinedController that runs commands one at a time.
+   *
+   * @param manager       the calendar manager
+   * @param view          the view for output
+   * @param parser        the command parser, shared by the parsing threads
+   * @param input         the commands to run
+   * @param parserThreads the number of threads parsing lines
+   * @throws IllegalArgumentException if parserThreads is not positive
+   */
+  public PipelinedController(CalendarManager manager, ViewInterface view,
+                             CommandParser parser, Readable input, int parserThreads) {
+    this(manager, view, parser, input, parserThreads, 1);
+  }
+
+  /**
+   * Creates a PipelinedController.
+   *
+   * @param manager         the calendar manager
+   * @param view            the view for output
+   * @param parser          the command parser, shared by the parsing threads
+   * @param input           the commands to run
+   * @param parserThreads   the number of threads parsing lines
+   * @param executorThreads the number of threads running commands for different
+   *                        calendars at once, or 1 to run every command on the
+   *                        calling thread
+   * @throws IllegalArgumentException if either thread count is not positive
+   */
+  public PipelinedController(CalendarManager manager, ViewInterface view,
+                             CommandParser parser, Readable input, int parserThreads,
+                             int executorThreads) {
+    if (parserThreads < 1) {
+      throw new IllegalArgumentException("At least one parser thread is required");
+    }
+    if (executorThreads < 1) {
+      throw new IllegalArgumentException("At least one executor thread is required");
+    }
+    this.manager = manager;
+    this.view = view;
+    this.parser = parser;
+    this.input = input;
+    this.parserThreads = parserThreads;
+    this.executorThreads = executorThreads;
+  }
+
+  @Override
+  public void run() throws IOException {
+    BlockingQueue<Future<List<Supplier<CommandInterface>>>> parsed =
+        new ArrayBlockingQueue<>(parserThreads * 4);
+    ExecutorService parsers = Executors.newFixedThreadPool(parserThreads, task -> {
+      Thread thread = new Thread(task, "calendar-command-parser");
+      thread.setDaemon(true);
+      return thread;
+    });
+    Thread reader = new Thread(() -> read(parsers, parsed), "calendar-command-reader");
+    reader.setDaemon(true);
+    reader.start();
+
+    PartitionedExecution execution = new PartitionedExecution(manager, view, executorThreads);
+    try {
+      boolean exitFound = false;
+      List<Supplier<CommandInterface>> commands;
+      while (!exitFound && (commands = next(parsed)) != null) {
+        for (Supplier<CommandInterface> command : commands) {
+          if (!execution.execute(command)) {
+            exitFound = true;
+            break;
+          }
+        }
+      }
+
+      if (execution.finish() && !exitFound) {
+        view.displayError("Error: Commands file must end with 'exit' command");
+      }
+      Controller.rollBackOpenTransaction(manager, view);
+    } finally {
+      reader.interrupt();
+      parsers.shutdownNow();
+      execution.shutdown();
+      if (input instanceof Closeable) {
+        ((Closeable) input).close();
+      }
+    }
+  }
+
+  /**
+   * Waits for the next chunk of parsed lines.
+   *
+   * @return the commands, or null at the end of the input
+   */
+  private static List<Supplier<CommandInterface>> next(
+      BlockingQueue<Future<List<Supplier<CommandInterface>>>> parsed) throws IOException {
+    try {
+      return parsed.take().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for commands");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Reads the input into chunks of non-blank lines and queues each chunk for
+   * parsing. Runs on the reader thread until the input ends or the pipeline
+   * shuts down.
+   */
+  private void read(ExecutorService parsers,
+                    BlockingQueue<Future<List<Supplier<CommandInterface>>>> parsed) {
+    try {
+      CharBuffer buffer = CharBuffer.allocate(READ_BUFFER_CHARS);
+      StringBuilder partial = new StringBuilder();
+      List<String> lines = new ArrayList<>(CHUNK_LINES);
+      while (readQuietly(buffer) != -1) {
+        buffer.flip();
+        char[] chars = buffer.array();
+        int lineStart = 0;
+        for (int i = 0; i < buffer.limit(); i++) {
+          if (!isLineSeparator(chars[i])) {
+            continue;
+          }
+          String line;
+          if (partial.length() == 0) {
+            line = new String(chars, lineStart, i - lineStart);
+          } else {
+            line = partial.append(chars, lineStart, i - lineStart).toString();
+            partial.setLength(0);
+          }
+          lines = add(line, lines, parsers, parsed);
+          lineStart = i + 1;
+        }
+        partial.append(chars, lineStart, buffer.limit() - lineStart);
+        buffer.clear();
+      }
+      lines = add(partial.toString(), lines, parsers, parsed);
+      if (!lines.isEmpty()) {
+        parsed.put(parsers.submit(parse(lines)));
+      }
+      parsed.put(END);
+    } catch (InterruptedException | RejectedExecutionException e) {
+      // The pipeline was shut down; nothing is waiting for more commands.
+    }
+  }
+
+  /**
+   * Adds a line to the current chunk, queueing the chunk once it is full.
+   *
+   * @return the chunk to add the next line to
+   */
+  private List<String> add(String line, List<String> lines, ExecutorService parsers,
+                           BlockingQueue<Future<List<Supplier<CommandInterface>>>> parsed)
+      throws InterruptedException {
+    String trimmed = line.trim();
+    if (trimmed.isEmpty()) {
+      return lines;
+    }
+    lines.add(trimmed);
+    if (lines.size() < CHUNK_LINES) {
+      return lines;
+    }
+    parsed.put(parsers.submit(parse(lines)));
+    return new ArrayList<>(CHUNK_LINES);
+  }
+
+  /**
+   * Makes the task that parses a chunk. A line that fails to parse becomes a
+   * command that throws the same exception when it is run, so the failure is
+   * reported in order.
+   */
+  private Callable<List<Supplier<CommandInterface>>> parse(List<String> lines) {
+    return () -> {
+      List<Supplier<CommandInterface>> commands = new ArrayList<>(lines.size());
+      for (String line : lines) {
+        try {
+          CommandInterface command = parser.parse(line);
+          commands.add(() -> command);
+        } catch (RuntimeException e) {
+          commands.add(() -> {
+            throw e;
+          });
+        }
+      }
+      return commands;
+    };
+  }
+
+  /**
+   * Reads more input, treating a read failure as the end of the input as
+   * {@link java.util.Scanner} does.
+   */
+  private int readQuietly(CharBuffer buffer) {
+    try {
+      return input.read(buffer);
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Checks for the characters {@link java.util.Scanner#nextLine()} ends lines at.
+   * A carriage return and line feed pair ends a line and then an empty one, which
+   * is skipped like any blank line.
+   */
+  private static boolean isLineSeparator(char c) {
+    return c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029' || c == '\u0085';
+  }
+}
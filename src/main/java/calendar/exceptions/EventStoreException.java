@@ -0,0 +1,16 @@
+package calendar.exceptions;
+
+/**
+ * Thrown when an on-disk event store cannot be read or written.
+ */
+public class EventStoreException extends RuntimeException {
+  /**
+   * Creates an EventStoreException.
+   *
+   * @param message the error message
+   * @param cause   the underlying cause
+   */
+  public EventStoreException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,25 @@
+package calendar.exceptions;
+
+/**
+ * Thrown when the calendar journal cannot be written or replayed.
+ */
+public class JournalException extends RuntimeException {
+  /**
+   * Creates a JournalException.
+   *
+   * @param message the error message
+   */
+  public JournalException(String message) {
+    super(message);
+  }
+
+  /**
+   * Creates a JournalException.
+   *
+   * @param message the error message
+   * @param cause   the underlying cause
+   */
+  public JournalException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -97,6 +97,9 @@ public class Calendar implements CalendarInterface {
    * timezone is changed to Europe/Paris, the event will be at 4:00 PM Paris time
    * (the same instant in time).
    *
+   * <p>The model's undo history is cleared, since undoing an earlier change
+   * would put back times in the old timezone.
+   *
    * @param timezone the new timezone for this calendar
    * @throws IllegalArgumentException if timezone is null
    */
@@ -111,6 +114,9 @@ public class Calendar implements CalendarInterface {
 
     ZoneId oldTimezone = this.timezone;
     convertEventTimes(oldTimezone, timezone);
+    if (model instanceof CalendarModel) {
+      ((CalendarModel) model).clearUndoHistory();
+    }
 
     this.timezone = timezone;
   }
@@ -0,0 +1,23 @@
+package calendar.model;
+
+import java.time.ZoneId;
+
+/**
+ * Creates the calendars managed by a {@link CalendarManager}.
+ *
+ * <p>The manager validates names before calling the factory, so a factory only
+ * decides how a calendar is built (for example, wrapping it so its changes are
+ * journaled).
+ */
+@FunctionalInterface
+public interface CalendarFactory {
+
+  /**
+   * Creates an empty calendar.
+   *
+   * @param name     the unique calendar name
+   * @param timezone the calendar timezone
+   * @return the new calendar
+   */
+  CalendarInterface createCalendar(String name, ZoneId timezone);
+}
@@ -20,19 +20,66 @@ import java.util.Map;
  * - All calendar names in the map are unique (case-insensitive)
  * - If currentCalendar is not null, it must exist in the calendars map
  * - Map keys are calendar names (as stored in Calendar objects)
+ * - While a transaction is open, every calendar in the map is a view of the
+ *   transaction (see {@link Transaction})
  */
 public class CalendarManager {
   private final Map<String, CalendarInterface> calendars;
+  private final CalendarFactory calendarFactory;
+  private final CalendarManager owner;
   private CalendarInterface currentCalendar;
+  private Transaction transaction;
 
   /**
    * Creates a new CalendarManager with no calendars.
    */
   public CalendarManager() {
+    this((name, timezone) -> new Calendar(name, timezone, new CalendarModel()));
+  }
+
+  /**
+   * Creates a new CalendarManager with no calendars that builds new calendars
+   * through the given factory (e.g. to journal their changes).
+   *
+   * @param calendarFactory the factory used by {@link #createCalendar(String, ZoneId)}
+   * @throws IllegalArgumentException if calendarFactory is null
+   */
+  public CalendarManager(CalendarFactory calendarFactory) {
+    if (calendarFactory == null) {
+      throw new IllegalArgumentException("Calendar factory cannot be null");
+    }
     this.calendars = new HashMap<>();
+    this.calendarFactory = calendarFactory;
+    this.owner = this;
     this.currentCalendar = null;
   }
 
+  /**
+   * Creates a manager over another manager's calendars with its own current
+   * calendar.
+   */
+  private CalendarManager(CalendarManager shared, CalendarInterface currentCalendar) {
+    this.calendars = shared.calendars;
+    this.calendarFactory = shared.calendarFactory;
+    this.owner = shared.owner;
+    this.currentCalendar = currentCalendar;
+  }
+
+  /**
+   * Creates a manager that shares this manager's calendars but keeps its own
+   * current calendar, so commands for different calendars can run side by side,
+   * each through its own manager. Calendars must not be created or renamed
+   * through any of the managers while another is in use, and transactions can
+   * only be begun on the manager that created the calendars. The new manager
+   * sees the transaction open on that manager, if any.
+   *
+   * @param calendar the current calendar of the new manager, or null for none
+   * @return the new manager
+   */
+  public CalendarManager withCurrentCalendar(CalendarInterface calendar) {
+    return new CalendarManager(this, calendar);
+  }
+
   /**
    * Creates a new calendar with the specified name and timezone.
    * Calendar names must be unique (case-insensitive).
@@ -55,8 +102,10 @@ public class CalendarManager {
       return false;
     }
 
-    CalendarModelInterface model = new CalendarModel();
-    Calendar calendar = new Calendar(name, timezone, model);
+    Transaction open = getTransaction();
+    CalendarInterface calendar = (open == null)
+        ? calendarFactory.createCalendar(name, timezone)
+        : open.createCalendar(name, timezone);
     calendars.put(name, calendar);
     return true;
   }
@@ -124,6 +173,9 @@ public class CalendarManager {
     calendars.remove(oldName);
     calendar.setName(newName);
     calendars.put(newName, calendar);
+    if (getTransaction() != null) {
+      getTransaction().record(() -> editCalendarName(oldName, newName));
+    }
 
     return true;
   }
@@ -147,9 +199,109 @@ public class CalendarManager {
     }
 
     calendar.setTimezone(timezone);
+    if (getTransaction() != null) {
+      getTransaction().record(() -> editCalendarTimezone(name, timezone));
+    }
     return true;
   }
 
+  /**
+   * Begins a transaction. Until it is committed or rolled back, changes to the
+   * calendars, including creating, renaming and changing the timezone of
+   * calendars, are only made to the transaction's view of them.
+   *
+   * @return the transaction
+   * @throws IllegalStateException if a transaction is already open, or this
+   *                               manager shares another manager's calendars
+   */
+  public Transaction beginTransaction() {
+    if (owner != this) {
+      throw new IllegalStateException(
+          "Transactions cannot be begun on a manager sharing another's calendars");
+    }
+    if (transaction != null) {
+      throw new IllegalStateException("A transaction is already open");
+    }
+    transaction = new Transaction(this, new HashMap<>(calendars));
+    calendars.replaceAll((name, calendar) -> transaction.open(calendar));
+    if (currentCalendar != null) {
+      currentCalendar = calendars.get(currentCalendar.getName());
+    }
+    return transaction;
+  }
+
+  /**
+   * Gets the open transaction. A manager made by {@link #withCurrentCalendar}
+   * gets the transaction open on the manager that created the calendars.
+   *
+   * @return the transaction, or null if none is open
+   */
+  public Transaction getTransaction() {
+    return owner.transaction;
+  }
+
+  /**
+   * Ends the open transaction: puts back the calendars it began with, makes its
+   * changes and then selects the calendar that was current in the transaction,
+   * if it still exists.
+   *
+   * @param committed the calendars the transaction began with
+   * @param changes   makes the transaction's changes, if it is committed
+   */
+  void endTransaction(Map<String, CalendarInterface> committed, Runnable changes) {
+    TransactionalCalendar current = (TransactionalCalendar) currentCalendar;
+    transaction = null;
+    calendars.clear();
+    calendars.putAll(committed);
+    currentCalendar = null;
+    try {
+      changes.run();
+    } finally {
+      if (current != null && current.getTarget() != null
+          && calendars.containsValue(current.getTarget())) {
+        currentCalendar = current.getTarget();
+      }
+    }
+  }
+
+  /**
+   * Begins an undo step in the current calendar, or in every calendar. Changes
+   * made until {@link #endUndoStep(boolean)} are undone together; calendars that
+   * keep no undo history are skipped.
+   *
+   * @param allCalendars true to begin the step in every calendar
+   */
+  public void beginUndoStep(boolean allCalendars) {
+    for (CalendarModel model : undoableModels(allCalendars)) {
+      model.beginUndoStep();
+    }
+  }
+
+  /**
+   * Ends the undo step begun by {@link #beginUndoStep(boolean)}.
+   *
+   * @param allCalendars true to end the step in every calendar
+   */
+  public void endUndoStep(boolean allCalendars) {
+    for (CalendarModel model : undoableModels(allCalendars)) {
+      model.endUndoStep();
+    }
+  }
+
+  private List<CalendarModel> undoableModels(boolean allCalendars) {
+    List<CalendarModel> models = new ArrayList<>();
+    if (allCalendars) {
+      for (CalendarInterface calendar : calendars.values()) {
+        if (calendar.getModel() instanceof CalendarModel) {
+          models.add((CalendarModel) calendar.getModel());
+        }
+      }
+    } else if (currentCalendar != null && currentCalendar.getModel() instanceof CalendarModel) {
+      models.add((CalendarModel) currentCalendar.getModel());
+    }
+    return models;
+  }
+
   /**
    * Gets all calendars.
    *
@@ -1,18 +1,27 @@
 package calendar.model;
 
-import java.time.DayOfWeek;
+import calendar.util.PersistentSortedMap;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Implementation of a calendar model.
@@ -20,36 +29,132 @@ import java.util.stream.Collectors;
  * <p>This model stores events and series, validates uniqueness,
  * and provides query operations. It does not perform any I/O
  * or command parsing - that is handled by other components.
+ *
+ * <p>Series are stored as recurrence rules ({@link EventSeries}) and expanded
+ * into occurrences at query time. Only standalone events and occurrences that
+ * were moved off their series date ("detached" occurrences) are stored
+ * individually.
+ *
+ * <p>Stored events are also indexed by start time, together with the longest
+ * event duration seen, so date and range queries read only the events that can
+ * overlap the range instead of scanning the whole calendar. They are also hashed
+ * by subject and start, and series by every subject their occurrences can have,
+ * so an event named by subject and start is found without a scan. Stored events
+ * are hashed by ID, and series by the days their occurrences cover and by
+ * the high bits their occurrence IDs share (see {@link EventSeries#occurrenceId}),
+ * so looking up an event or checking a date reads only the series that can
+ * have an occurrence there.
+ *
+ * <p>Every change is also recorded in a {@link ChangeLog}, so callers can ask for
+ * just the changes made after a change token.
+ *
+ * <p>Stored events and series are kept in {@link PersistentSortedMap}s, which
+ * are never changed in place: each change makes new maps that share all but a
+ * few nodes with the old ones. The model keeps the maps it had at the start of
+ * each undo step (see {@link #beginUndoStep()}), so an undo or redo just puts
+ * back the maps of another step; the hashed indexes and the change log are then
+ * brought up to date from the entries that differ, found without visiting the
+ * entries the two versions share. A step costs memory only for what it changed:
+ * editing a series of 500 occurrences changes one series entry.
  */
 public class CalendarModel implements CalendarModelInterface {
 
   /**
-   * Maximum number of years to generate series events into the future.
-   * Prevents infinite loops for series with no end date or far-future end dates.
+   * Orders the start-time index. Ties are broken by end and subject, the fields
+   * of {@link Event#equals}, so the order is consistent with the event set.
    */
-  private static final int SERIES_MAX_YEARS = 10;
+  private static final Comparator<EventInterface> INDEX_ORDER = (a, b) -> {
+    int order = a.getStartDateTime().compareTo(b.getStartDateTime());
+    if (order == 0) {
+      order = a.getEndDateTime().compareTo(b.getEndDateTime());
+    }
+    return (order != 0) ? order : a.getSubject().compareTo(b.getSubject());
+  };
+
+  private static final UUID PROBE_ID = new UUID(0, 0);
+
+  private PersistentSortedMap<EventInterface, EventInterface> events;
+
+  private final Map<SubjectStart, Set<EventInterface>> bySubjectStart;
+
+  private final Map<UUID, EventInterface> byId;
+
+  private Duration maxSpan = Duration.ZERO;
+
+  private PersistentSortedMap<UUID, EventSeries> seriesConfigs;
 
-  private final Set<EventInterface> events;
+  private final Map<String, Set<UUID>> seriesBySubject;
 
-  private final Map<UUID, EventSeries> seriesConfigs;
+  private final Map<Long, Set<UUID>> seriesByDay;
+
+  private final Map<Long, Set<UUID>> seriesByIdBits;
+
+  private final ChangeLog changes;
+
+  private Version stepStart;
+
+  private final Deque<Version> undoSteps = new ArrayDeque<>();
+
+  private final Deque<Version> redoSteps = new ArrayDeque<>();
 
   /**
    * Creates a new empty calendar model.
    */
   public CalendarModel() {
-    this.events = new HashSet<>();
-    this.seriesConfigs = new HashMap<>();
+    this(new ChangeLog());
+  }
+
+  /**
+   * Creates a new empty calendar model that records its changes in an existing
+   * log, continuing its sequence of change tokens.
+   *
+   * @param changes the change log
+   */
+  protected CalendarModel(ChangeLog changes) {
+    this.events = PersistentSortedMap.empty(INDEX_ORDER);
+    this.bySubjectStart = new HashMap<>();
+    this.byId = new HashMap<>();
+    this.seriesConfigs = PersistentSortedMap.empty(Comparator.naturalOrder());
+    this.seriesBySubject = new HashMap<>();
+    this.seriesByDay = new HashMap<>();
+    this.seriesByIdBits = new HashMap<>();
+    this.changes = Objects.requireNonNull(changes, "Change log cannot be null");
+    this.stepStart = currentVersion();
   }
 
   @Override
   public boolean createEvent(EventInterface event) {
     Objects.requireNonNull(event, "Event cannot be null");
 
-    if (events.contains(event)) {
+    if (containsEvent(event)) {
       return false;
     }
 
-    events.add(event);
+    addEvent(event);
+    return true;
+  }
+
+  @Override
+  public boolean createEvents(List<EventInterface> newEvents) {
+    Objects.requireNonNull(newEvents, "Events cannot be null");
+
+    Version before = currentVersion();
+    for (int i = 0; i < newEvents.size(); i++) {
+      EventInterface event = Objects.requireNonNull(newEvents.get(i), "Event cannot be null");
+      boolean added = store(event);
+      if (!added || matchesSeriesOccurrence(event)) {
+        int stored = added ? i + 1 : i;
+        for (int j = 0; j < stored; j++) {
+          unindexEvent(newEvents.get(j));
+        }
+        events = before.events;
+        maxSpan = before.maxSpan;
+        return false;
+      }
+    }
+    for (EventInterface event : newEvents) {
+      changes.eventAdded(event);
+    }
     return true;
   }
 
@@ -57,19 +162,17 @@ public class CalendarModel implements CalendarModelInterface {
   public boolean createEventSeries(EventSeries series) {
     Objects.requireNonNull(series, "Series cannot be null");
 
-    List<EventInterface> occurrences = generateOccurrences(series);
+    if (seriesConfigs.containsKey(series.getSeriesId())) {
+      return false;
+    }
 
-    for (EventInterface occurrence : occurrences) {
-      if (events.contains(occurrence)) {
+    for (LocalDate date : series.getOccurrenceDates()) {
+      if (containsEvent(series.occurrenceOn(date))) {
         return false;
       }
     }
 
-    for (EventInterface occurrence : occurrences) {
-      events.add(occurrence);
-    }
-
-    seriesConfigs.put(series.getSeriesId(), series);
+    putSeries(series);
 
     return true;
   }
@@ -79,20 +182,120 @@ public class CalendarModel implements CalendarModelInterface {
     Objects.requireNonNull(eventId, "Event ID cannot be null");
     Objects.requireNonNull(spec, "Edit specification cannot be null");
 
-    EventInterface event = findEventById(eventId);
-    if (event == null) {
-      return false;
+    EventInterface event = findStandaloneEventById(eventId);
+    if (event != null) {
+      EventInterface modified = spec.applyTo(event);
+
+      if (wouldCreateDuplicate(event, modified)) {
+        return false;
+      }
+
+      removeEvent(event);
+      addEvent(modified);
+      return true;
     }
 
-    EventInterface modified = applyEditSpec(event, spec);
+    for (EventSeries series : seriesWithIdBits(eventId)) {
+      LocalDate date = series.occurrenceDateOf(eventId);
+      if (date != null) {
+        return editOccurrence(series, date, spec);
+      }
+    }
+    return false;
+  }
 
-    if (!modified.equals(event) && events.contains(modified)) {
-      return false;
+  /**
+   * Edits the events in one pass. The events are found through the stored-event
+   * map or their series, the edited events are checked against each other and
+   * the events not edited. Then the standalone events are replaced with one bulk
+   * removal and one bulk insertion into the stored-event map, and each series
+   * changed is stored once, however many of its occurrences were edited.
+   */
+  @Override
+  public boolean editEvents(List<EventInterface> targets, EditSpec spec) {
+    Objects.requireNonNull(targets, "Events cannot be null");
+    Objects.requireNonNull(spec, "Edit specification cannot be null");
+
+    Map<UUID, EventInterface> originals = new LinkedHashMap<>();
+    Map<UUID, EventInterface> stored = new LinkedHashMap<>();
+    Map<UUID, Map<LocalDate, EventInterface>> occurrences = new LinkedHashMap<>();
+    for (EventInterface target : targets) {
+      EventInterface event = events.get(target);
+      if (event != null && event.getId().equals(target.getId())) {
+        originals.put(event.getId(), event);
+        stored.put(event.getId(), event);
+        continue;
+      }
+      EventSeries series = target.getSeriesId().map(seriesConfigs::get).orElse(null);
+      LocalDate date = (series == null) ? null : series.occurrenceDateOf(target.getId());
+      if (date == null) {
+        return false;
+      }
+      EventInterface occurrence = series.occurrenceOn(date);
+      originals.put(occurrence.getId(), occurrence);
+      occurrences.computeIfAbsent(series.getSeriesId(), id -> new LinkedHashMap<>())
+          .put(date, occurrence);
     }
 
-    events.remove(event);
-    events.add(modified);
+    Set<EventInterface> originalKeys = new HashSet<>(originals.values());
+    Map<UUID, EventInterface> modified = new HashMap<>();
+    Set<EventInterface> modifiedKeys = new HashSet<>();
+    for (EventInterface original : originals.values()) {
+      EventInterface edited = spec.applyTo(original);
+      if (!modifiedKeys.add(edited)
+          || (!originalKeys.contains(edited) && containsEvent(edited))) {
+        return false;
+      }
+      modified.put(original.getId(), edited);
+    }
 
+    List<EventInterface> removed = new ArrayList<>();
+    for (EventInterface original : stored.values()) {
+      unindexEvent(original);
+      if (!modified.get(original.getId()).equals(original)) {
+        removed.add(original);
+        changes.eventRemoved(original);
+      }
+    }
+    events = events.removeAll(removed);
+    for (Map.Entry<UUID, Map<LocalDate, EventInterface>> entry : occurrences.entrySet()) {
+      EventSeries series = seriesConfigs.get(entry.getKey());
+      for (Map.Entry<LocalDate, EventInterface> occurrence : entry.getValue().entrySet()) {
+        series = recordOccurrence(series, occurrence.getKey(),
+            modified.get(occurrence.getValue().getId()));
+      }
+      putSeries(series);
+    }
+    List<Map.Entry<EventInterface, EventInterface>> added = new ArrayList<>();
+    for (EventInterface original : stored.values()) {
+      EventInterface edited = modified.get(original.getId());
+      added.add(new AbstractMap.SimpleImmutableEntry<>(edited, edited));
+      indexEvent(edited);
+      changes.eventAdded(edited);
+    }
+    events = events.putAll(added);
+    return true;
+  }
+
+  /**
+   * Edits a single occurrence of a series. The edit is recorded as an override
+   * when the occurrence stays on its date; otherwise the occurrence is detached
+   * from the rule and stored as an individual event.
+   *
+   * @param series the series containing the occurrence
+   * @param date   the occurrence date
+   * @param spec   the edit specification
+   * @return true if successful, false if the edit would create a duplicate
+   */
+  private boolean editOccurrence(EventSeries series, LocalDate date, EditSpec spec) {
+    EventInterface occurrence = series.occurrenceOn(date);
+    EventInterface modified = spec.applyTo(occurrence);
+
+    if (wouldCreateDuplicate(occurrence, modified)) {
+      return false;
+    }
+
+    putSeries(recordOccurrence(series, date, modified));
     return true;
   }
 
@@ -117,105 +320,143 @@ public class CalendarModel implements CalendarModelInterface {
    * Internal helper method to edit series events, eliminating duplication between
    * editSeriesFrom() and editEntireSeries().
    *
-   * @param seriesId           the series ID
-   * @param spec               the edit specification
-   * @param fromDate           the date to start editing from (null for entire
-   *                           series)
-   * @param removeSeriesConfig whether to remove the series config if split
+   * <p>The edit is stored on the series as a single range edit rather than by
+   * rewriting every affected occurrence. Changing the start time of part of a
+   * series splits that part off into a new series.
+   *
+   * @param seriesId     the series ID
+   * @param spec         the edit specification
+   * @param fromDate     the date to start editing from (null for entire
+   *                     series)
+   * @param entireSeries whether the whole series is being edited
    * @return true if successful, false otherwise
    */
   private boolean editSeriesInternal(UUID seriesId, EditSpec spec, LocalDate fromDate,
-      boolean removeSeriesConfig) {
-    if (!seriesConfigs.containsKey(seriesId)) {
+      boolean entireSeries) {
+    EventSeries series = seriesConfigs.get(seriesId);
+    if (series == null) {
       return false;
     }
 
-    List<EventInterface> toEdit = findSeriesEventsToEdit(seriesId, fromDate);
-    if (toEdit.isEmpty()) {
+    List<LocalDate> dates = (fromDate == null)
+        ? series.getOccurrenceDates()
+        : series.getOccurrenceDates(fromDate, LocalDate.MAX);
+    List<EventInterface> detached = findDetachedEventsToEdit(seriesId, fromDate);
+    if (dates.isEmpty() && detached.isEmpty()) {
       return false;
     }
 
-    boolean mustSplit = spec.getNewStart() != null;
-    List<EventInterface> modifiedEvents = buildModifiedEventsList(toEdit, spec, mustSplit);
-    if (modifiedEvents == null) {
-      return false;
+    boolean mustSplit = spec.getNewStart() != null && !entireSeries;
+    UUID targetId = mustSplit ? series.splitSeriesId(fromDate) : seriesId;
+    EventSeries target = mustSplit ? series.from(fromDate, targetId) : series;
+
+    Set<EventInterface> seen = new HashSet<>();
+    List<EventInterface> modifiedDetached = new ArrayList<>();
+    for (EventInterface event : detached) {
+      EventInterface modified = spec.applyToOccurrence(event);
+      if (mustSplit) {
+        modified = (target != null) ? relink(modified, targetId) : breakSeriesLink(modified);
+      }
+      if (wouldCreateDuplicate(event, modified) || !seen.add(modified)) {
+        return false;
+      }
+      modifiedDetached.add(modified);
     }
 
-    replaceSeriesEvents(toEdit, modifiedEvents);
+    List<EventInterface> modifiedOccurrences = new ArrayList<>();
+    for (LocalDate date : dates) {
+      EventInterface occurrence = series.occurrenceOn(date);
+      EventInterface modified = spec.applyToOccurrence(occurrence);
+      if (wouldCreateDuplicate(occurrence, modified) || !seen.add(modified)) {
+        return false;
+      }
+      modifiedOccurrences.add(modified);
+    }
+
+    if (target != null) {
+      LocalDate editFrom = (fromDate == null || fromDate.isBefore(target.getFirstDate()))
+          ? target.getFirstDate()
+          : fromDate;
+      target = target.withRangeEdit(editFrom, spec);
+      for (int i = 0; i < dates.size(); i++) {
+        EventInterface modified = mustSplit
+            ? relink(modifiedOccurrences.get(i), targetId)
+            : modifiedOccurrences.get(i);
+        target = recordRangeEditedOccurrence(target, dates.get(i), modified);
+      }
+    }
+
+    replaceEvents(detached, modifiedDetached);
 
-    if (mustSplit && removeSeriesConfig) {
-      seriesConfigs.remove(seriesId);
+    if (mustSplit) {
+      EventSeries remainder = series.before(fromDate);
+      if (remainder == null) {
+        seriesConfigs = seriesConfigs.remove(seriesId);
+        indexSeries(series, null);
+        changes.seriesChanged(series, null);
+      } else {
+        putSeries(remainder);
+      }
+    }
+    if (target != null) {
+      putSeries(target);
     }
 
     return true;
   }
 
   /**
-   * Finds all events in a series that should be edited.
+   * Finds detached events of a series that should be edited.
    *
    * @param seriesId the series ID
    * @param fromDate the date to start from (null for all events)
    * @return list of events to edit
    */
-  private List<EventInterface> findSeriesEventsToEdit(UUID seriesId, LocalDate fromDate) {
-    return events.stream()
-        .filter(e -> e.getSeriesId().isPresent())
-        .filter(e -> e.getSeriesId().get().equals(seriesId))
-        .filter(e -> fromDate == null || !e.getStartDateTime().toLocalDate().isBefore(fromDate))
-        .collect(Collectors.toList());
+  private List<EventInterface> findDetachedEventsToEdit(UUID seriesId, LocalDate fromDate) {
+    List<EventInterface> result = new ArrayList<>();
+    for (EventInterface e : events.values()) {
+      if (e.getSeriesId().isPresent() && e.getSeriesId().get().equals(seriesId)
+          && (fromDate == null || !e.getStartDateTime().toLocalDate().isBefore(fromDate))) {
+        result.add(e);
+      }
+    }
+    return result;
   }
 
   /**
-   * Builds a list of modified events from the original events and edit spec.
+   * Records the result of editing one occurrence: as a sparse override if it stays
+   * on its date, otherwise as a detached event plus an exception date.
    *
-   * @param toEdit    the events to edit
-   * @param spec      the edit specification
-   * @param mustSplit whether to break series link
-   * @return list of modified events, or null if a duplicate would be created
-   */
-  private List<EventInterface> buildModifiedEventsList(List<EventInterface> toEdit,
-      EditSpec spec, boolean mustSplit) {
-    List<EventInterface> modifiedEvents = new ArrayList<>();
-    for (EventInterface event : toEdit) {
-      EditSpec eventSpec = createAdjustedEditSpec(spec, event);
-      EventInterface modified = applyEditSpec(event, eventSpec);
-
-      if (mustSplit) {
-        modified = breakSeriesLink(modified);
-      }
-
-      if (wouldCreateDuplicate(event, modified)) {
-        return null;
-      }
-
-      modifiedEvents.add(modified);
+   * @param series   the series containing the occurrence
+   * @param date     the occurrence date
+   * @param modified the edited occurrence
+   * @return the updated series
+   */
+  private EventSeries recordOccurrence(EventSeries series, LocalDate date,
+      EventInterface modified) {
+    if (!fitsRule(series, date, modified)) {
+      addEvent(modified);
+      return series.withExceptionDate(date);
     }
-    return modifiedEvents;
+    return series.withOverride(date, diff(series.baseOccurrence(date), modified));
   }
 
   /**
-   * Creates an adjusted edit spec for a specific series event.
-   * When changing start time for series events, adjusts the time while preserving
-   * the date.
+   * Reconciles one occurrence with a range edit that was just appended to its series.
+   * Occurrences without an override already expand to the edited value; overrides
+   * are recomputed and occurrences that no longer fit the rule are detached.
    *
-   * @param spec  the original edit specification
-   * @param event the event being edited
-   * @return adjusted edit spec for this event
+   * @param series   the series with the range edit applied
+   * @param date     the occurrence date
+   * @param modified the edited occurrence
+   * @return the updated series
    */
-  private EditSpec createAdjustedEditSpec(EditSpec spec, EventInterface event) {
-    if (spec.getNewStart() != null && spec.getNewEnd() == null) {
-      java.time.LocalTime newTime = spec.getNewStart().toLocalTime();
-      java.time.LocalDate eventDate = event.getStartDateTime().toLocalDate();
-      LocalDateTime adjustedStart = LocalDateTime.of(eventDate, newTime);
-      return new EditSpec(
-          spec.getNewSubject(),
-          adjustedStart,
-          null,
-          spec.getNewDescription(),
-          spec.getNewLocation(),
-          spec.getNewStatus());
+  private EventSeries recordRangeEditedOccurrence(EventSeries series, LocalDate date,
+      EventInterface modified) {
+    if (!fitsRule(series, date, modified) || series.getOverrides().containsKey(date)) {
+      return recordOccurrence(series, date, modified);
     }
-    return spec;
+    return series;
   }
 
   /**
@@ -236,6 +477,17 @@ public class CalendarModel implements CalendarModelInterface {
         null);
   }
 
+  /**
+   * Creates a copy of an event linked to another series.
+   *
+   * @param event    the event to relink
+   * @param seriesId the new series ID
+   * @return new event with the given series ID
+   */
+  private EventInterface relink(EventInterface event, UUID seriesId) {
+    return event.withModifications(null, null, null, null, null, null, seriesId);
+  }
+
   /**
    * Checks if modifying an event would create a duplicate.
    *
@@ -244,7 +496,7 @@ public class CalendarModel implements CalendarModelInterface {
    * @return true if modification would create duplicate
    */
   private boolean wouldCreateDuplicate(EventInterface original, EventInterface modified) {
-    return !modified.equals(original) && events.contains(modified);
+    return !modified.equals(original) && containsEvent(modified);
   }
 
   /**
@@ -253,34 +505,309 @@ public class CalendarModel implements CalendarModelInterface {
    * @param originals the original events
    * @param modified  the modified events
    */
-  private void replaceSeriesEvents(List<EventInterface> originals,
-      List<EventInterface> modified) {
+  private void replaceEvents(List<EventInterface> originals, List<EventInterface> modified) {
     for (int i = 0; i < originals.size(); i++) {
-      events.remove(originals.get(i));
-      events.add(modified.get(i));
+      removeEvent(originals.get(i));
+      addEvent(modified.get(i));
+    }
+  }
+
+  /**
+   * Stores a standalone event and records the change.
+   *
+   * @param event the event
+   * @return false if an equal event is already stored
+   */
+  private boolean addEvent(EventInterface event) {
+    if (!store(event)) {
+      return false;
+    }
+    changes.eventAdded(event);
+    return true;
+  }
+
+  /**
+   * Removes a standalone event and records the change.
+   *
+   * @param event the event
+   */
+  private void removeEvent(EventInterface event) {
+    if (unstore(event)) {
+      changes.eventRemoved(event);
+    }
+  }
+
+  /**
+   * Stores or replaces a series and records the change.
+   *
+   * @param series the series
+   */
+  private void putSeries(EventSeries series) {
+    EventSeries previous = seriesConfigs.get(series.getSeriesId());
+    seriesConfigs = seriesConfigs.put(series.getSeriesId(), series);
+    indexSeries(previous, series);
+    changes.seriesChanged(previous, series);
+  }
+
+  /**
+   * Moves a series in the subject, day and ID indexes from its old version to
+   * its new one.
+   *
+   * @param previous the old version, or null if the series is new
+   * @param current  the new version, or null if the series was removed
+   */
+  private void indexSeries(EventSeries previous, EventSeries current) {
+    boolean sameDays = previous != null && current != null && sameDays(previous, current);
+    if (previous != null) {
+      UUID id = previous.getSeriesId();
+      for (String subject : subjectsOf(previous)) {
+        unindex(seriesBySubject, subject, id);
+      }
+      if (!sameDays) {
+        for (long day : daysOf(previous)) {
+          unindex(seriesByDay, day, id);
+        }
+      }
+      unindex(seriesByIdBits, id.getMostSignificantBits(), id);
     }
+    if (current != null) {
+      UUID id = current.getSeriesId();
+      for (String subject : subjectsOf(current)) {
+        seriesBySubject.computeIfAbsent(subject, key -> new HashSet<>()).add(id);
+      }
+      if (!sameDays) {
+        for (long day : daysOf(current)) {
+          seriesByDay.computeIfAbsent(day, key -> new HashSet<>()).add(id);
+        }
+      }
+      seriesByIdBits.computeIfAbsent(id.getMostSignificantBits(), key -> new HashSet<>())
+          .add(id);
+    }
+  }
+
+  private static <K> void unindex(Map<K, Set<UUID>> index, K key, UUID id) {
+    Set<UUID> ids = index.get(key);
+    ids.remove(id);
+    if (ids.isEmpty()) {
+      index.remove(key);
+    }
+  }
+
+  /**
+   * Checks whether two versions of a series have the same rule dates and span,
+   * so they cover the same days. Overrides and exceptions do not change them.
+   */
+  private static boolean sameDays(EventSeries a, EventSeries b) {
+    return a.getFirstDate().equals(b.getFirstDate())
+        && Objects.equals(a.getLastDate(), b.getLastDate())
+        && a.getSpanDays() == b.getSpanDays()
+        && a.getWeekdays().equals(b.getWeekdays());
+  }
+
+  /**
+   * Lists the days, as epoch days, that an occurrence on one of a series' rule
+   * dates would cover.
+   */
+  private static Set<Long> daysOf(EventSeries series) {
+    Set<Long> days = new HashSet<>();
+    if (series.getLastDate() == null) {
+      return days;
+    }
+    long span = series.getSpanDays();
+    for (LocalDate date = series.getFirstDate(); !date.isAfter(series.getLastDate());
+         date = date.plusDays(1)) {
+      if (series.isRuleDate(date)) {
+        for (long day = date.toEpochDay(); day <= date.toEpochDay() + span; day++) {
+          days.add(day);
+        }
+      }
+    }
+    return days;
+  }
+
+  /**
+   * Gets the series that may have an occurrence covering a date within a range.
+   * When the range covers more days than the index holds, every series is
+   * returned instead.
+   *
+   * @param from the first date
+   * @param to   the last date
+   * @return the series
+   */
+  private Iterable<EventSeries> seriesCovering(LocalDate from, LocalDate to) {
+    long first = from.toEpochDay();
+    long last = to.toEpochDay();
+    if (last - first >= seriesByDay.size()) {
+      return seriesConfigs.values();
+    }
+    Set<UUID> ids = seriesByDay.getOrDefault(first, Collections.emptySet());
+    if (last > first) {
+      ids = new HashSet<>(ids);
+      for (long day = first + 1; day <= last; day++) {
+        ids.addAll(seriesByDay.getOrDefault(day, Collections.emptySet()));
+      }
+    }
+    List<EventSeries> result = new ArrayList<>(ids.size());
+    for (UUID id : ids) {
+      result.add(seriesConfigs.get(id));
+    }
+    return result;
+  }
+
+  /**
+   * Gets the series whose occurrence IDs could include an event ID.
+   */
+  private List<EventSeries> seriesWithIdBits(UUID eventId) {
+    List<EventSeries> result = new ArrayList<>();
+    for (UUID id : seriesByIdBits.getOrDefault(eventId.getMostSignificantBits(),
+        Collections.emptySet())) {
+      result.add(seriesConfigs.get(id));
+    }
+    return result;
+  }
+
+  /**
+   * Lists every subject an occurrence of a series can have: the template's, and
+   * any set by an override or a range edit.
+   */
+  private static Set<String> subjectsOf(EventSeries series) {
+    Set<String> subjects = new HashSet<>();
+    subjects.add(series.getTemplate().getSubject());
+    for (EditSpec override : series.getOverrides().values()) {
+      if (override.getNewSubject() != null) {
+        subjects.add(override.getNewSubject().trim());
+      }
+    }
+    for (EventSeries.RangeEdit edit : series.getRangeEdits()) {
+      if (edit.getSpec().getNewSubject() != null) {
+        subjects.add(edit.getSpec().getNewSubject().trim());
+      }
+    }
+    return subjects;
+  }
+
+  /**
+   * Stores a standalone event and adds it to the subject index.
+   *
+   * @param event the event
+   * @return false if an equal event is already stored
+   */
+  private boolean store(EventInterface event) {
+    if (events.containsKey(event)) {
+      return false;
+    }
+    events = events.put(event, event);
+    indexEvent(event);
+    return true;
+  }
+
+  /**
+   * Removes a standalone event and its subject index entry. The longest duration
+   * is kept, which only widens later range lookups.
+   *
+   * @param event the event
+   * @return true if the event was stored
+   */
+  private boolean unstore(EventInterface event) {
+    if (!events.containsKey(event)) {
+      return false;
+    }
+    events = events.remove(event);
+    unindexEvent(event);
+    return true;
+  }
+
+  private void indexEvent(EventInterface event) {
+    byId.put(event.getId(), event);
+    bySubjectStart.computeIfAbsent(new SubjectStart(event.getSubject(),
+        event.getStartDateTime()), key -> new HashSet<>()).add(event);
+    Duration span = Duration.between(event.getStartDateTime(), event.getEndDateTime());
+    if (span.compareTo(maxSpan) > 0) {
+      maxSpan = span;
+    }
+  }
+
+  private void unindexEvent(EventInterface event) {
+    byId.remove(event.getId(), event);
+    SubjectStart key = new SubjectStart(event.getSubject(), event.getStartDateTime());
+    Set<EventInterface> stored = bySubjectStart.get(key);
+    if (stored != null && stored.remove(event) && stored.isEmpty()) {
+      bySubjectStart.remove(key);
+    }
+  }
+
+  /**
+   * Gets the stored events that may overlap a time range: those starting before
+   * its end, and no earlier than its start minus the longest event duration.
+   *
+   * @param startDateTime start of range
+   * @param endDateTime   end of range (exclusive)
+   * @return a chronological view of the index
+   */
+  private Stream<EventInterface> candidates(LocalDateTime startDateTime,
+      LocalDateTime endDateTime) {
+    LocalDateTime from = startDateTime.minus(maxSpan);
+    if (!endDateTime.isAfter(from)) {
+      return Stream.empty();
+    }
+    return events.valuesBetween(probe(from), probe(endDateTime));
+  }
+
+  /**
+   * Creates a search key that sorts before every event starting at a time: the end
+   * is the earliest possible, and "!" is the smallest subject that survives
+   * {@link Event}'s trimming.
+   */
+  private static EventInterface probe(LocalDateTime start) {
+    return new Event("!", start, start.plusNanos(1), null, null, false, PROBE_ID, null);
   }
 
   @Override
   public List<EventInterface> getEventsOnDate(LocalDate date) {
     Objects.requireNonNull(date, "Date cannot be null");
 
-    return events.stream()
+    List<EventInterface> result = candidates(date.atStartOfDay(),
+        date.plusDays(1).atStartOfDay())
         .filter(e -> {
           LocalDate eventStart = e.getStartDateTime().toLocalDate();
           LocalDate eventEnd = e.getEndDateTime().toLocalDate();
           return !date.isBefore(eventStart) && !date.isAfter(eventEnd);
         })
-        .sorted((e1, e2) -> e1.getStartDateTime().compareTo(e2.getStartDateTime()))
         .collect(Collectors.toList());
+
+    for (EventSeries series : seriesCovering(date, date)) {
+      for (LocalDate d : series.getOccurrenceDates(date.minusDays(series.getSpanDays()), date)) {
+        result.add(series.occurrenceOn(d));
+      }
+    }
+
+    result.sort(EventStreams.CHRONOLOGICAL);
+    return result;
   }
 
   @Override
   public List<EventInterface> getAllEvents() {
-    return events.stream()
-        .sorted(Comparator.comparing(EventInterface::getStartDateTime)
-            .thenComparing(EventInterface::getEndDateTime))
-        .collect(Collectors.toList());
+    List<EventInterface> result = getStandaloneEvents();
+    for (EventSeries series : seriesConfigs.values()) {
+      for (LocalDate date : series.getOccurrenceDates()) {
+        result.add(series.occurrenceOn(date));
+      }
+    }
+
+    result.sort(EventStreams.CHRONOLOGICAL);
+    return result;
+  }
+
+  @Override
+  public Stream<EventInterface> streamAllEvents() {
+    List<Iterator<EventInterface>> sources = new ArrayList<>();
+    sources.add(events.values().iterator());
+    for (EventSeries series : seriesConfigs.values()) {
+      sources.add(series.getOccurrenceDates().stream()
+          .map(series::occurrenceOn)
+          .iterator());
+    }
+    return EventStreams.merge(sources);
   }
 
   @Override
@@ -289,30 +816,89 @@ public class CalendarModel implements CalendarModelInterface {
     Objects.requireNonNull(startDateTime, "Start date-time cannot be null");
     Objects.requireNonNull(endDateTime, "End date-time cannot be null");
 
-    return events.stream()
-        .filter(e -> e.getStartDateTime().isBefore(endDateTime)
-            && e.getEndDateTime().isAfter(startDateTime))
-        .sorted((e1, e2) -> e1.getStartDateTime().compareTo(e2.getStartDateTime()))
-        .collect(Collectors.toList());
+    return streamEventsInRange(startDateTime, endDateTime).collect(Collectors.toList());
+  }
+
+  @Override
+  public Stream<EventInterface> streamEventsInRange(LocalDateTime startDateTime,
+      LocalDateTime endDateTime) {
+    Objects.requireNonNull(startDateTime, "Start date-time cannot be null");
+    Objects.requireNonNull(endDateTime, "End date-time cannot be null");
+
+    List<Iterator<EventInterface>> sources = new ArrayList<>();
+    sources.add(candidates(startDateTime, endDateTime)
+        .filter(e -> overlaps(e, startDateTime, endDateTime))
+        .iterator());
+    for (EventSeries series : seriesCovering(startDateTime.toLocalDate(),
+        endDateTime.toLocalDate())) {
+      LocalDate from = startDateTime.toLocalDate().minusDays(series.getSpanDays());
+      sources.add(series.getOccurrenceDates(from, endDateTime.toLocalDate()).stream()
+          .map(series::occurrenceOn)
+          .filter(e -> overlaps(e, startDateTime, endDateTime))
+          .iterator());
+    }
+    return EventStreams.merge(sources);
+  }
+
+  /**
+   * Checks whether an event overlaps a time range.
+   *
+   * @param e             the event
+   * @param startDateTime start of range
+   * @param endDateTime   end of range
+   * @return true if eventStart &lt; rangeEnd and eventEnd &gt; rangeStart
+   */
+  private boolean overlaps(EventInterface e, LocalDateTime startDateTime,
+      LocalDateTime endDateTime) {
+    return e.getStartDateTime().isBefore(endDateTime)
+        && e.getEndDateTime().isAfter(startDateTime);
   }
 
   @Override
   public boolean isBusy(LocalDateTime dateTime) {
     Objects.requireNonNull(dateTime, "Date-time cannot be null");
 
-    return events.stream()
-        .anyMatch(e -> !e.getStartDateTime().isAfter(dateTime)
-            && e.getEndDateTime().isAfter(dateTime));
+    boolean busy = candidates(dateTime, dateTime.plusNanos(1))
+        .anyMatch(e -> coversTime(e, dateTime));
+    if (busy) {
+      return true;
+    }
+
+    LocalDate date = dateTime.toLocalDate();
+    for (EventSeries series : seriesCovering(date, date)) {
+      for (LocalDate d : series.getOccurrenceDates(date.minusDays(series.getSpanDays()), date)) {
+        if (coversTime(series.occurrenceOn(d), dateTime)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private boolean coversTime(EventInterface e, LocalDateTime dateTime) {
+    return !e.getStartDateTime().isAfter(dateTime) && e.getEndDateTime().isAfter(dateTime);
   }
 
   @Override
   public EventInterface findEventById(UUID eventId) {
     Objects.requireNonNull(eventId, "Event ID cannot be null");
 
-    return events.stream()
-        .filter(e -> e.getId().equals(eventId))
-        .findFirst()
-        .orElse(null);
+    EventInterface event = findStandaloneEventById(eventId);
+    if (event != null) {
+      return event;
+    }
+
+    for (EventSeries series : seriesWithIdBits(eventId)) {
+      LocalDate date = series.occurrenceDateOf(eventId);
+      if (date != null) {
+        return series.occurrenceOn(date);
+      }
+    }
+    return null;
+  }
+
+  private EventInterface findStandaloneEventById(UUID eventId) {
+    return byId.get(eventId);
   }
 
   @Override
@@ -322,119 +908,363 @@ public class CalendarModel implements CalendarModelInterface {
     Objects.requireNonNull(startDateTime, "Start date-time cannot be null");
     Objects.requireNonNull(endDateTime, "End date-time cannot be null");
 
-    return events.stream()
-        .filter(e -> e.getSubject().equals(subject.trim()))
-        .filter(e -> e.getStartDateTime().equals(startDateTime))
-        .filter(e -> e.getEndDateTime().equals(endDateTime))
-        .findFirst()
-        .orElse(null);
+    EventInterface event = findStoredEvent(subject.trim(), startDateTime, endDateTime);
+    if (event != null) {
+      return event;
+    }
+
+    for (EventInterface occurrence : findOccurrencesStartingAt(startDateTime)) {
+      if (occurrence.getSubject().equals(subject.trim())
+          && occurrence.getEndDateTime().equals(endDateTime)) {
+        return occurrence;
+      }
+    }
+    return null;
   }
 
   /**
-   * Generates all occurrences for an event series.
+   * Looks up a stored event in the start-time index, whose order compares exactly
+   * the fields given.
    *
-   * @param series the series configuration
-   * @return list of all event occurrences
+   * @param subject       the trimmed subject
+   * @param startDateTime the start
+   * @param endDateTime   the end
+   * @return the stored event, or null if there is none
    */
-  private List<EventInterface> generateOccurrences(EventSeries series) {
-    List<EventInterface> occurrences = new ArrayList<>();
-
-    LocalDateTime startTime = series.getTemplate().getStartDateTime();
-    LocalDateTime endTime = series.getTemplate().getEndDateTime();
-
-    LocalDate templateDate = startTime.toLocalDate();
-    int startHour = startTime.getHour();
-    int startMinute = startTime.getMinute();
+  private EventInterface findStoredEvent(String subject, LocalDateTime startDateTime,
+      LocalDateTime endDateTime) {
+    if (subject.isEmpty() || !endDateTime.isAfter(startDateTime)) {
+      return null;
+    }
+    EventInterface key = new Event(subject, startDateTime, endDateTime, null, null, false,
+        PROBE_ID, null);
+    return events.get(key);
+  }
 
-    int durationMinutes = (int) java.time.Duration.between(startTime, endTime).toMinutes();
+  @Override
+  public List<EventInterface> findEventsBySubjectAndStart(String subject,
+      LocalDateTime startDateTime) {
+    Objects.requireNonNull(subject, "Subject cannot be null");
+    Objects.requireNonNull(startDateTime, "Start date-time cannot be null");
 
-    LocalDate currentDate = templateDate;
-    Set<DayOfWeek> weekdays = series.getWeekdays();
-    int occurrenceCount = 0;
+    String trimmed = subject.trim();
+    List<EventInterface> result = new ArrayList<>(bySubjectStart.getOrDefault(
+        new SubjectStart(trimmed, startDateTime), Collections.emptySet()));
+    LocalDate date = startDateTime.toLocalDate();
+    for (UUID seriesId : seriesBySubject.getOrDefault(trimmed, Collections.emptySet())) {
+      EventSeries series = seriesConfigs.get(seriesId);
+      if (series.occursOn(date)) {
+        EventInterface occurrence = series.occurrenceOn(date);
+        if (occurrence.getSubject().equals(trimmed)
+            && occurrence.getStartDateTime().equals(startDateTime)) {
+          result.add(occurrence);
+        }
+      }
+    }
+    result.sort(EventStreams.CHRONOLOGICAL);
+    return result;
+  }
 
-    while (true) {
+  @Override
+  public EventSeries findSeriesById(UUID seriesId) {
+    Objects.requireNonNull(seriesId, "Series ID cannot be null");
 
-      if (weekdays.contains(currentDate.getDayOfWeek())) {
-        LocalDateTime eventStart = LocalDateTime.of(currentDate,
-            java.time.LocalTime.of(startHour, startMinute));
-        LocalDateTime eventEnd = eventStart.plusMinutes(durationMinutes);
+    return seriesConfigs.get(seriesId);
+  }
 
-        EventInterface occurrence = new Event(
-            series.getTemplate().getSubject(),
-            eventStart,
-            eventEnd,
-            series.getTemplate().getDescription().orElse(null),
-            series.getTemplate().getLocation().orElse(null),
-            series.getTemplate().isPrivate(),
-            UUID.randomUUID(),
-            series.getSeriesId());
+  /**
+   * Checks whether an equal event (same subject, start and end) already exists,
+   * either as a stored event or as a series occurrence. Subclasses that keep
+   * further events outside this model extend the check to cover them, so every
+   * create and edit sees them as duplicates.
+   *
+   * @param event the event to look for
+   * @return true if an equal event exists
+   */
+  protected boolean containsEvent(EventInterface event) {
+    return events.containsKey(event) || matchesSeriesOccurrence(event);
+  }
 
-        occurrences.add(occurrence);
-        occurrenceCount++;
+  /**
+   * Checks whether a series generates an occurrence equal to the given event.
+   *
+   * @param event the event to check
+   * @return true if a series occurrence has the same subject, start and end
+   */
+  private boolean matchesSeriesOccurrence(EventInterface event) {
+    if (seriesConfigs.isEmpty()) {
+      return false;
+    }
+    for (EventInterface occurrence : findOccurrencesStartingAt(event.getStartDateTime())) {
+      if (occurrence.equals(event)) {
+        return true;
+      }
+    }
+    return false;
+  }
 
-        if (series.getOccurrences() != null && occurrenceCount >= series.getOccurrences()) {
-          break;
+  /**
+   * Finds the series occurrences that start at a given time.
+   *
+   * @param startDateTime the start time
+   * @return the matching occurrences
+   */
+  private List<EventInterface> findOccurrencesStartingAt(LocalDateTime startDateTime) {
+    List<EventInterface> result = new ArrayList<>();
+    LocalDate date = startDateTime.toLocalDate();
+    for (EventSeries series : seriesCovering(date, date)) {
+      if (series.occursOn(date)) {
+        EventInterface occurrence = series.occurrenceOn(date);
+        if (occurrence.getStartDateTime().equals(startDateTime)) {
+          result.add(occurrence);
         }
       }
+    }
+    return result;
+  }
 
-      if (series.usesEndDate() && currentDate.isAfter(series.getEndDate())) {
-        break;
-      }
+  /**
+   * Checks whether an edited occurrence can still be generated by its series rule,
+   * i.e. it starts on its own date and spans as many days as the template.
+   *
+   * @param series   the series configuration
+   * @param date     the occurrence date
+   * @param modified the edited occurrence
+   * @return true if the occurrence can stay part of the rule
+   */
+  private boolean fitsRule(EventSeries series, LocalDate date, EventInterface modified) {
+    LocalDate start = modified.getStartDateTime().toLocalDate();
+    LocalDate end = modified.getEndDateTime().toLocalDate();
+    return start.equals(date) && ChronoUnit.DAYS.between(start, end) == series.getSpanDays();
+  }
 
-      currentDate = currentDate.plusDays(1);
+  /**
+   * Computes the sparse override that turns a generated occurrence into an edited one.
+   * Start and end are always recorded together so the duration is preserved exactly.
+   *
+   * @param base     the generated occurrence
+   * @param resolved the edited occurrence
+   * @return the override, or null if the occurrences are identical
+   */
+  private EditSpec diff(EventInterface base, EventInterface resolved) {
+    EditSpec.Builder builder = EditSpec.builder();
+    boolean changed = false;
 
-      if (currentDate.isAfter(templateDate.plusYears(SERIES_MAX_YEARS))) {
-        break;
-      }
+    if (!base.getSubject().equals(resolved.getSubject())) {
+      builder.subject(resolved.getSubject());
+      changed = true;
+    }
+    if (!base.getStartDateTime().equals(resolved.getStartDateTime())
+        || !base.getEndDateTime().equals(resolved.getEndDateTime())) {
+      builder.start(resolved.getStartDateTime()).end(resolved.getEndDateTime());
+      changed = true;
+    }
+    if (!base.getDescription().equals(resolved.getDescription())) {
+      builder.description(resolved.getDescription().orElse(null));
+      changed = true;
+    }
+    if (!base.getLocation().equals(resolved.getLocation())) {
+      builder.location(resolved.getLocation().orElse(null));
+      changed = true;
+    }
+    if (base.isPrivate() != resolved.isPrivate()) {
+      builder.status(resolved.isPrivate() ? EventStatus.PRIVATE : EventStatus.PUBLIC);
+      changed = true;
+    }
+
+    return changed ? builder.build() : null;
+  }
+
+  @Override
+  public ChangeSet getChangesSince(long token) {
+    return changes.since(token);
+  }
+
+  @Override
+  public long getChangeToken() {
+    return changes.getToken();
+  }
+
+  @Override
+  public List<EventSeries> getAllSeries() {
+    List<EventSeries> result = new ArrayList<>(seriesConfigs.size());
+    for (EventSeries series : seriesConfigs.values()) {
+      result.add(series);
+    }
+    return result;
+  }
+
+  @Override
+  public List<EventInterface> getStandaloneEvents() {
+    List<EventInterface> result = new ArrayList<>(events.size());
+    for (EventInterface event : events.values()) {
+      result.add(event);
     }
+    return result;
+  }
+
+  /**
+   * Begins an undo step: the changes made from now until {@link #endUndoStep()}
+   * are undone and redone together. Changes made outside a step are not undone
+   * on their own; undoing the step before them undoes them too.
+   */
+  public void beginUndoStep() {
+    stepStart = currentVersion();
+  }
 
-    return occurrences;
+  /**
+   * Ends the undo step begun last. If the model changed during it, the step can
+   * be undone, and the steps undone before can no longer be redone.
+   */
+  public void endUndoStep() {
+    if (events != stepStart.events || seriesConfigs != stepStart.series) {
+      undoSteps.push(stepStart);
+      redoSteps.clear();
+    }
+    stepStart = currentVersion();
   }
 
   /**
-   * Applies an edit specification to an event.
+   * Undoes the last undo step, putting back the events and series as they were
+   * before it.
    *
-   * @param event the event to modify
-   * @param spec  the edit specification
-   * @return a new event with modifications applied
+   * @return false if there is no step to undo
    */
-  private EventInterface applyEditSpec(EventInterface event, EditSpec spec) {
-    String newSubject = (spec.getNewSubject() != null)
-        ? spec.getNewSubject()
-        : event.getSubject();
+  public boolean undo() {
+    if (undoSteps.isEmpty()) {
+      return false;
+    }
+    redoSteps.push(currentVersion());
+    restore(undoSteps.pop());
+    return true;
+  }
 
-    LocalDateTime newStart = (spec.getNewStart() != null)
-        ? spec.getNewStart()
-        : event.getStartDateTime();
+  /**
+   * Redoes the last undo step that was undone.
+   *
+   * @return false if there is no step to redo
+   */
+  public boolean redo() {
+    if (redoSteps.isEmpty()) {
+      return false;
+    }
+    undoSteps.push(currentVersion());
+    restore(redoSteps.pop());
+    return true;
+  }
 
-    LocalDateTime newEnd;
-    if (spec.getNewEnd() != null) {
+  /**
+   * Forgets every undo step, for changes the events alone cannot undo, such as a
+   * change of the calendar's timezone.
+   */
+  public void clearUndoHistory() {
+    undoSteps.clear();
+    redoSteps.clear();
+    stepStart = currentVersion();
+  }
 
-      newEnd = spec.getNewEnd();
-    } else if (spec.getNewStart() != null && spec.getNewEnd() == null) {
+  private Version currentVersion() {
+    return new Version(events, seriesConfigs, maxSpan);
+  }
 
-      java.time.Duration duration = java.time.Duration.between(
-          event.getStartDateTime(), event.getEndDateTime());
-      newEnd = newStart.plus(duration);
-    } else {
+  /**
+   * Puts back the events and series of another version. The subject indexes and
+   * the change log are updated from the entries that differ, events first, as
+   * when the changes were made.
+   *
+   * @param version the version
+   */
+  private void restore(Version version) {
+    PersistentSortedMap.diff(events, version.events,
+        new PersistentSortedMap.Changes<EventInterface>() {
+          @Override
+          public void removed(EventInterface event) {
+            unindexEvent(event);
+            changes.eventRemoved(event);
+          }
+
+          @Override
+          public void added(EventInterface event) {
+            indexEvent(event);
+            changes.eventAdded(event);
+          }
+
+          @Override
+          public void replaced(EventInterface before, EventInterface after) {
+            unindexEvent(before);
+            indexEvent(after);
+            if (!before.getId().equals(after.getId())) {
+              changes.eventRemoved(before);
+            }
+            changes.eventAdded(after);
+          }
+        });
+    PersistentSortedMap.diff(seriesConfigs, version.series,
+        new PersistentSortedMap.Changes<EventSeries>() {
+          @Override
+          public void removed(EventSeries series) {
+            indexSeries(series, null);
+            changes.seriesChanged(series, null);
+          }
+
+          @Override
+          public void added(EventSeries series) {
+            indexSeries(null, series);
+            changes.seriesChanged(null, series);
+          }
+
+          @Override
+          public void replaced(EventSeries before, EventSeries after) {
+            indexSeries(before, after);
+            changes.seriesChanged(before, after);
+          }
+        });
+    events = version.events;
+    seriesConfigs = version.series;
+    maxSpan = version.maxSpan;
+    stepStart = version;
+  }
 
-      newEnd = event.getEndDateTime();
+  /**
+   * The stored events and series at one point in the model's history.
+   */
+  private static final class Version {
+    private final PersistentSortedMap<EventInterface, EventInterface> events;
+    private final PersistentSortedMap<UUID, EventSeries> series;
+    private final Duration maxSpan;
+
+    Version(PersistentSortedMap<EventInterface, EventInterface> events,
+            PersistentSortedMap<UUID, EventSeries> series, Duration maxSpan) {
+      this.events = events;
+      this.series = series;
+      this.maxSpan = maxSpan;
     }
+  }
 
-    String newDescription = (spec.getNewDescription() != null)
-        ? spec.getNewDescription()
-        : event.getDescription().orElse(null);
+  /**
+   * The key of the subject-and-start index.
+   */
+  private static final class SubjectStart {
+    private final String subject;
+    private final LocalDateTime start;
 
-    String newLocation = (spec.getNewLocation() != null)
-        ? spec.getNewLocation()
-        : event.getLocation().orElse(null);
+    SubjectStart(String subject, LocalDateTime start) {
+      this.subject = subject;
+      this.start = start;
+    }
 
-    Boolean newIsPrivate = (spec.getNewStatus() != null)
-        ? spec.getNewStatus().isPrivate()
-        : event.isPrivate() ? Boolean.TRUE : Boolean.FALSE;
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof SubjectStart)) {
+        return false;
+      }
+      SubjectStart other = (SubjectStart) obj;
+      return subject.equals(other.subject) && start.equals(other.start);
+    }
 
-    return event.withModifications(
-        newSubject, newStart, newEnd, newDescription, newLocation, newIsPrivate,
-        event.getSeriesId().orElse(null));
+    @Override
+    public int hashCode() {
+      return 31 * subject.hashCode() + start.hashCode();
+    }
   }
-}
\ No newline at end of file
+}
@@ -2,8 +2,11 @@ package calendar.model;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Represents the core logic of the calendar application.
@@ -40,6 +43,15 @@ public interface CalendarModelInterface {
    */
   boolean createEvent(EventInterface event);
 
+  /**
+   * Creates many single events at once. Either all events are created or, if any
+   * of them duplicates an existing event or another event in the batch, none are.
+   *
+   * @param events the events to create
+   * @return true if all were created, false if any duplicate exists
+   */
+  boolean createEvents(List<EventInterface> events);
+
   /**
    * Creates an event series.
    *
@@ -74,6 +86,37 @@ public interface CalendarModelInterface {
    */
   boolean editEvent(UUID eventId, EditSpec spec);
 
+  /**
+   * Edits many events with one edit, each as {@link #editEvent} would edit it.
+   * Either all events are edited or, if any edited event would duplicate an event
+   * that is not edited or another edited event, none are.
+   *
+   * <p>This implementation checks the edited events first and then edits them one
+   * at a time; models that can edit a batch in one pass override it.
+   *
+   * @param events the events to edit, as found in this model
+   * @param spec   the edit specification
+   * @return true if all were edited, false if any duplicate would result
+   */
+  default boolean editEvents(List<EventInterface> events, EditSpec spec) {
+    Set<EventInterface> originals = new HashSet<>(events);
+    Set<EventInterface> edited = new HashSet<>();
+    for (EventInterface event : events) {
+      EventInterface modified = spec.applyTo(event);
+      if (!edited.add(modified) || (!originals.contains(modified)
+          && findEventByProperties(modified.getSubject(), modified.getStartDateTime(),
+              modified.getEndDateTime()) != null)) {
+        return false;
+      }
+    }
+    for (EventInterface event : events) {
+      if (!editEvent(event.getId(), spec)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Edits events in a series starting from a specific date forward.
    *
@@ -133,6 +176,47 @@ public interface CalendarModelInterface {
    */
   List<EventInterface> getAllEvents();
 
+  /**
+   * Streams all events in the same order as {@link #getAllEvents()}, but lazily:
+   * series occurrences are expanded as the stream is consumed rather than
+   * collected up front. The model must not be modified while the stream is in use.
+   *
+   * @return stream of all events, in chronological order
+   */
+  Stream<EventInterface> streamAllEvents();
+
+  /**
+   * Streams the events that overlap a time range, in chronological order, reading
+   * only the part of the calendar near the range. Like {@link #streamAllEvents()},
+   * the stream is lazy and the model must not be modified while it is in use.
+   *
+   * @param startDateTime start of range (inclusive)
+   * @param endDateTime   end of range (exclusive)
+   * @return stream of overlapping events, in chronological order
+   */
+  Stream<EventInterface> streamEventsInRange(LocalDateTime startDateTime,
+      LocalDateTime endDateTime);
+
+  /**
+   * Gets the changes made after a change token: the events and series created,
+   * modified or removed since. A caller that keeps the returned token can sync
+   * incrementally, reading only the changes rather than the whole calendar.
+   *
+   * @param token a token from an earlier change set, or 0 for every change
+   * @return the changes, with the current token
+   * @throws IllegalArgumentException if the token was not issued by this model
+   */
+  ChangeSet getChangesSince(long token);
+
+  /**
+   * Gets the current change token without collecting any changes. It is the token
+   * {@link #getChangesSince} would return now, and it changes whenever the
+   * calendar does, so it also serves as a version number.
+   *
+   * @return the current change token
+   */
+  long getChangeToken();
+
   /**
    * Checks if user is busy at a specific time.
    *
@@ -167,4 +251,42 @@ public interface CalendarModelInterface {
    */
   EventInterface findEventByProperties(String subject, LocalDateTime startDateTime,
       LocalDateTime endDateTime);
+
+  /**
+   * Finds the events with a subject that start at a time, whether stored or
+   * generated by a series. Commands name events this way, and subject and start
+   * usually identify one event; several are returned when events differ only in
+   * their end, so callers can tell that the name is ambiguous.
+   *
+   * @param subject       the subject
+   * @param startDateTime the start time
+   * @return the matching events, in chronological order; empty if there are none
+   */
+  List<EventInterface> findEventsBySubjectAndStart(String subject,
+      LocalDateTime startDateTime);
+
+  /**
+   * Finds a series configuration by ID.
+   *
+   * @param seriesId the series ID
+   * @return the series with its recurrence exceptions and overrides, or null if not found
+   */
+  EventSeries findSeriesById(UUID seriesId);
+
+  /**
+   * Gets every series configuration, as recurrence rules rather than occurrences.
+   *
+   * @return list of all series
+   */
+  List<EventSeries> getAllSeries();
+
+  /**
+   * Gets the events that are stored individually: single events and series
+   * occurrences that were detached from their rule. Together with
+   * {@link #getAllSeries()} this describes the whole calendar without expanding
+   * any series.
+   *
+   * @return list of standalone events, in no particular order
+   */
+  List<EventInterface> getStandaloneEvents();
 }
@@ -0,0 +1,178 @@
+package calendar.model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Records the changes made to a calendar model, so that a caller holding an
+ * earlier change token can fetch only what changed since.
+ *
+ * <p>Every change takes the next number from a monotonically increasing
+ * sequence; the latest number is the current token. The log keeps only the
+ * latest change for each event or series ID, in sequence order, so a request
+ * reads just the changes after its token. Removals are kept as tombstones that
+ * hold the removed item's last version.
+ *
+ * <p>A log is normally owned by one model. Models that rebuild their in-memory
+ * state may hand the same log to the new state so tokens remain valid.
+ */
+public final class ChangeLog {
+
+  private enum Kind {
+    EVENT, SERIES, REMOVED_EVENT, REMOVED_OCCURRENCE, REMOVED_SERIES
+  }
+
+  private final Map<UUID, Entry> latest = new HashMap<>();
+  private final List<Entry> log = new ArrayList<>();
+  private long sequence;
+
+  /**
+   * Gets the current change token.
+   *
+   * @return the number of the latest change, or 0 if nothing changed yet
+   */
+  public long getToken() {
+    return sequence;
+  }
+
+  /**
+   * Records that a standalone event was created or replaced by an edited version.
+   *
+   * @param event the event as now stored
+   */
+  void eventAdded(EventInterface event) {
+    record(event.getId(), Kind.EVENT, event, null);
+  }
+
+  /**
+   * Records that a standalone event was removed.
+   *
+   * @param event the removed event
+   */
+  void eventRemoved(EventInterface event) {
+    record(event.getId(), Kind.REMOVED_EVENT, event, null);
+  }
+
+  /**
+   * Records that a series was created, replaced or removed. Occurrences of the
+   * old version that the new version no longer has are recorded as removed,
+   * unless they were detached into standalone events first.
+   *
+   * @param before the previous version, or null if the series is new
+   * @param after  the new version, or null if the series was removed
+   */
+  void seriesChanged(EventSeries before, EventSeries after) {
+    if (before != null) {
+      for (LocalDate date : before.getOccurrenceDates()) {
+        UUID id = before.occurrenceId(date);
+        Entry entry = latest.get(id);
+        boolean detached = entry != null && entry.kind == Kind.EVENT;
+        if (!detached && (after == null || after.occurrenceDateOf(id) == null)) {
+          record(id, Kind.REMOVED_OCCURRENCE, before.occurrenceOn(date), null);
+        }
+      }
+    }
+    EventSeries series = (after != null) ? after : before;
+    record(series.getSeriesId(), (after != null) ? Kind.SERIES : Kind.REMOVED_SERIES,
+        null, series);
+  }
+
+  /**
+   * Collects the changes made after a token.
+   *
+   * @param token a token from {@link #getToken()} or an earlier change set; 0 for
+   *              every change
+   * @return the changes, with the current token
+   * @throws IllegalArgumentException if the token was never issued by this log
+   */
+  ChangeSet since(long token) {
+    if (token < 0 || token > sequence) {
+      throw new IllegalArgumentException("Unknown change token: " + token);
+    }
+    List<EventInterface> changedEvents = new ArrayList<>();
+    List<EventSeries> changedSeries = new ArrayList<>();
+    List<EventInterface> removedEvents = new ArrayList<>();
+    List<EventInterface> removedOccurrences = new ArrayList<>();
+    List<EventSeries> removedSeries = new ArrayList<>();
+    for (int i = firstAfter(token); i < log.size(); i++) {
+      Entry entry = log.get(i);
+      if (entry.superseded) {
+        continue;
+      }
+      switch (entry.kind) {
+        case EVENT:
+          changedEvents.add(entry.event);
+          break;
+        case SERIES:
+          changedSeries.add(entry.series);
+          break;
+        case REMOVED_EVENT:
+          removedEvents.add(entry.event);
+          break;
+        case REMOVED_OCCURRENCE:
+          removedOccurrences.add(entry.event);
+          break;
+        default:
+          removedSeries.add(entry.series);
+          break;
+      }
+    }
+    changedEvents.sort(EventStreams.CHRONOLOGICAL);
+    removedEvents.sort(EventStreams.CHRONOLOGICAL);
+    removedOccurrences.sort(EventStreams.CHRONOLOGICAL);
+    return new ChangeSet(sequence, changedEvents, changedSeries, removedEvents,
+        removedOccurrences, removedSeries);
+  }
+
+  private void record(UUID id, Kind kind, EventInterface event, EventSeries series) {
+    Entry entry = new Entry(++sequence, kind, event, series);
+    Entry previous = latest.put(id, entry);
+    if (previous != null) {
+      previous.superseded = true;
+    }
+    log.add(entry);
+    if (log.size() > 2 * latest.size() + 1024) {
+      log.removeIf(e -> e.superseded);
+    }
+  }
+
+  /**
+   * Finds the position of the first change after a token by binary search; the
+   * log is in sequence order.
+   */
+  private int firstAfter(long token) {
+    int low = 0;
+    int high = log.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (log.get(mid).sequence <= token) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * The latest change to one event or series.
+   */
+  private static final class Entry {
+    private final long sequence;
+    private final Kind kind;
+    private final EventInterface event;
+    private final EventSeries series;
+    private boolean superseded;
+
+    Entry(long sequence, Kind kind, EventInterface event, EventSeries series) {
+      this.sequence = sequence;
+      this.kind = kind;
+      this.event = event;
+      this.series = series;
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package calendar.model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The changes made to a calendar after a change token, as returned by
+ * {@link CalendarModelInterface#getChangesSince(long)}. Immutable.
+ *
+ * <p>Changes are reported at the level the model stores them: standalone events,
+ * and series as whole rules. A series that changed in any way is reported with
+ * all of its occurrences. Removed items are reported with their last version.
+ */
+public final class ChangeSet {
+  private final long token;
+  private final List<EventInterface> changedEvents;
+  private final List<EventSeries> changedSeries;
+  private final List<EventInterface> removedEvents;
+  private final List<EventInterface> removedOccurrences;
+  private final List<EventSeries> removedSeries;
+
+  /**
+   * Creates a change set.
+   *
+   * @param token              the token to pass to the next request
+   * @param changedEvents      standalone events created or modified
+   * @param changedSeries      series created or modified
+   * @param removedEvents      standalone events that no longer exist
+   * @param removedOccurrences series occurrences that no longer exist
+   * @param removedSeries      series that no longer exist
+   */
+  public ChangeSet(long token, List<EventInterface> changedEvents,
+                   List<EventSeries> changedSeries, List<EventInterface> removedEvents,
+                   List<EventInterface> removedOccurrences, List<EventSeries> removedSeries) {
+    this.token = token;
+    this.changedEvents = List.copyOf(changedEvents);
+    this.changedSeries = List.copyOf(changedSeries);
+    this.removedEvents = List.copyOf(removedEvents);
+    this.removedOccurrences = List.copyOf(removedOccurrences);
+    this.removedSeries = List.copyOf(removedSeries);
+  }
+
+  /**
+   * Gets the token that marks the end of these changes. Passing it to the next
+   * request returns only what changed after this one.
+   *
+   * @return the change token
+   */
+  public long getToken() {
+    return token;
+  }
+
+  /**
+   * Gets the standalone events that were created or modified.
+   *
+   * @return the events, in chronological order
+   */
+  public List<EventInterface> getChangedEvents() {
+    return changedEvents;
+  }
+
+  /**
+   * Gets the series that were created or modified.
+   *
+   * @return the series
+   */
+  public List<EventSeries> getChangedSeries() {
+    return changedSeries;
+  }
+
+  /**
+   * Gets the standalone events that were removed, for example by an edit that
+   * moved them into a series or merged them away.
+   *
+   * @return the last version of each event, in chronological order
+   */
+  public List<EventInterface> getRemovedEvents() {
+    return removedEvents;
+  }
+
+  /**
+   * Gets the series occurrences that no longer exist, for example after a series
+   * was split or shortened. Occurrences that were detached into standalone events
+   * are reported as changed events instead.
+   *
+   * @return the last version of each occurrence, in chronological order
+   */
+  public List<EventInterface> getRemovedOccurrences() {
+    return removedOccurrences;
+  }
+
+  /**
+   * Gets the series that no longer exist.
+   *
+   * @return the last version of each series
+   */
+  public List<EventSeries> getRemovedSeries() {
+    return removedSeries;
+  }
+
+  /**
+   * Gets every event that was created or modified, expanding each changed series
+   * into its occurrences.
+   *
+   * @return the events, in chronological order
+   */
+  public List<EventInterface> getAllChanged() {
+    List<EventInterface> all = new ArrayList<>(changedEvents);
+    for (EventSeries series : changedSeries) {
+      for (LocalDate date : series.getOccurrenceDates()) {
+        all.add(series.occurrenceOn(date));
+      }
+    }
+    all.sort(EventStreams.CHRONOLOGICAL);
+    return Collections.unmodifiableList(all);
+  }
+
+  /**
+   * Gets every event that was removed: standalone events and series occurrences.
+   *
+   * @return the events, in chronological order
+   */
+  public List<EventInterface> getAllRemoved() {
+    List<EventInterface> all = new ArrayList<>(removedEvents);
+    all.addAll(removedOccurrences);
+    all.sort(EventStreams.CHRONOLOGICAL);
+    return Collections.unmodifiableList(all);
+  }
+}
@@ -1,5 +1,6 @@
 package calendar.model;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 
 /**
@@ -99,6 +100,64 @@ public class EditSpec {
     return newStatus;
   }
 
+  /**
+   * Applies this edit to an event. Fields left null keep the event's value; a new
+   * start without a new end keeps the event's duration.
+   *
+   * @param event the event to modify
+   * @return a new event with the modifications applied
+   */
+  public EventInterface applyTo(EventInterface event) {
+    String subject = (newSubject != null) ? newSubject : event.getSubject();
+
+    LocalDateTime start = (newStart != null) ? newStart : event.getStartDateTime();
+
+    LocalDateTime end;
+    if (newEnd != null) {
+      end = newEnd;
+    } else if (newStart != null) {
+      end = start.plus(Duration.between(event.getStartDateTime(), event.getEndDateTime()));
+    } else {
+      end = event.getEndDateTime();
+    }
+
+    String description = (newDescription != null)
+        ? newDescription
+        : event.getDescription().orElse(null);
+
+    String location = (newLocation != null) ? newLocation : event.getLocation().orElse(null);
+
+    Boolean isPrivate = (newStatus != null)
+        ? newStatus.isPrivate()
+        : event.isPrivate() ? Boolean.TRUE : Boolean.FALSE;
+
+    return event.withModifications(subject, start, end, description, location, isPrivate,
+        event.getSeriesId().orElse(null));
+  }
+
+  /**
+   * Applies this edit to one occurrence of a series-wide edit. A new start without
+   * a new end only sets the time of day, so each occurrence keeps its own date.
+   *
+   * @param event the occurrence to modify
+   * @return a new event with the modifications applied
+   */
+  public EventInterface applyToOccurrence(EventInterface event) {
+    if (newStart == null || newEnd != null) {
+      return applyTo(event);
+    }
+    LocalDateTime adjustedStart = LocalDateTime.of(event.getStartDateTime().toLocalDate(),
+        newStart.toLocalTime());
+    return builder()
+        .subject(newSubject)
+        .start(adjustedStart)
+        .description(newDescription)
+        .location(newLocation)
+        .status(newStatus)
+        .build()
+        .applyTo(event);
+  }
+
   @Override
   public boolean equals(Object obj) {
     if (this == obj) {
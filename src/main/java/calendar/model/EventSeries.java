@@ -1,7 +1,17 @@
 package calendar.model;
 
+import java.nio.ByteBuffer;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 
@@ -17,14 +27,35 @@ import java.util.UUID;
  *
  * <p>A series can be defined to repeat for a fixed number of occurrences
  * or until a specific end date.
+ *
+ * <p>DESIGN RATIONALE:
+ * - A series is stored as a rule, not as its expanded occurrences; the model
+ *   expands it on demand when queried
+ * - Cancelled occurrences are kept in a sparse exception set (like iCal EXDATE)
+ * - Single-occurrence edits are kept in a sparse override map keyed by date,
+ *   holding only the fields that differ from the generated occurrence
+ * - Edits applied "from a date onward" are kept as an ordered list of range edits,
+ *   so editing the tail of a series costs O(1) storage
+ * - Instances are immutable; the {@code with...} methods return modified copies
  */
 public class EventSeries {
+
+  /**
+   * Maximum number of years to generate series events into the future.
+   * Prevents infinite loops for series with no end date or far-future end dates.
+   */
+  public static final int SERIES_MAX_YEARS = 10;
+
   private final UUID seriesId;
   private final EventInterface template;
   private final Set<DayOfWeek> weekdays;
   private final LocalDate endDate;
   private final Integer occurrences;
   private final boolean usesEndDate;
+  private final LocalDate lastDate;
+  private final Set<LocalDate> exceptionDates;
+  private final Map<LocalDate, EditSpec> overrides;
+  private final List<RangeEdit> rangeEdits;
 
   /**
    * Creates a series that repeats until an end date.
@@ -45,6 +76,85 @@ public class EventSeries {
     this.endDate = endDate;
     this.occurrences = occurrences;
     this.usesEndDate = usesEndDate;
+    this.lastDate = computeLastDate(template, weekdays, endDate, occurrences, usesEndDate);
+    this.exceptionDates = Collections.emptySet();
+    this.overrides = Collections.emptyMap();
+    this.rangeEdits = Collections.emptyList();
+  }
+
+  /**
+   * Creates a series with an explicit last date and recurrence exceptions.
+   * Used by the {@code with...} methods and when splitting a series.
+   *
+   * @param base           the series to copy the rule from
+   * @param seriesId       the series ID of the new series
+   * @param template       the template of the new series
+   * @param lastDate       the last date of the rule (inclusive), or null if empty
+   * @param exceptionDates the cancelled occurrence dates
+   * @param overrides      the per-date overrides
+   * @param rangeEdits     the ordered range edits
+   */
+  private EventSeries(EventSeries base, UUID seriesId, EventInterface template,
+                      LocalDate lastDate, Set<LocalDate> exceptionDates,
+                      Map<LocalDate, EditSpec> overrides, List<RangeEdit> rangeEdits) {
+    boolean truncated = !Objects.equals(lastDate, base.lastDate)
+        || !template.getStartDateTime().toLocalDate()
+        .equals(base.template.getStartDateTime().toLocalDate());
+    this.seriesId = seriesId;
+    this.template = template;
+    this.weekdays = base.weekdays;
+    this.endDate = truncated ? lastDate : base.endDate;
+    this.occurrences = truncated ? null : base.occurrences;
+    this.usesEndDate = truncated || base.usesEndDate;
+    this.lastDate = lastDate;
+    this.exceptionDates = Collections.unmodifiableSet(exceptionDates);
+    this.overrides = Collections.unmodifiableMap(overrides);
+    this.rangeEdits = Collections.unmodifiableList(rangeEdits);
+  }
+
+  /**
+   * Creates a series from its complete state, as persisted.
+   */
+  private EventSeries(UUID seriesId, EventInterface template, Set<DayOfWeek> weekdays,
+                      LocalDate endDate, Integer occurrences, boolean usesEndDate,
+                      LocalDate lastDate, Set<LocalDate> exceptionDates,
+                      Map<LocalDate, EditSpec> overrides, List<RangeEdit> rangeEdits) {
+    this.seriesId = seriesId;
+    this.template = template;
+    this.weekdays = weekdays;
+    this.endDate = endDate;
+    this.occurrences = occurrences;
+    this.usesEndDate = usesEndDate;
+    this.lastDate = lastDate;
+    this.exceptionDates = Collections.unmodifiableSet(new HashSet<>(exceptionDates));
+    this.overrides = Collections.unmodifiableMap(new HashMap<>(overrides));
+    this.rangeEdits = Collections.unmodifiableList(new ArrayList<>(rangeEdits));
+  }
+
+  /**
+   * Recreates a series exactly as it was persisted, including a last date that
+   * no longer follows from its end date (after a split).
+   *
+   * @param seriesId       the series ID
+   * @param template       the template event
+   * @param weekdays       the weekdays the series repeats on
+   * @param endDate        the end date, or null if using occurrences
+   * @param occurrences    the number of occurrences, or null if using end date
+   * @param usesEndDate    true if using end date
+   * @param lastDate       the last rule date (inclusive), or null if empty
+   * @param exceptionDates the cancelled occurrence dates
+   * @param overrides      the per-date overrides
+   * @param rangeEdits     the ordered range edits
+   * @return the restored series
+   */
+  public static EventSeries restore(UUID seriesId, EventInterface template,
+                                    Set<DayOfWeek> weekdays, LocalDate endDate,
+                                    Integer occurrences, boolean usesEndDate,
+                                    LocalDate lastDate, Set<LocalDate> exceptionDates,
+                                    Map<LocalDate, EditSpec> overrides,
+                                    List<RangeEdit> rangeEdits) {
+    return new EventSeries(seriesId, template, weekdays, endDate, occurrences, usesEndDate,
+        lastDate, exceptionDates, overrides, rangeEdits);
   }
 
   /**
@@ -100,4 +210,430 @@ public class EventSeries {
   public boolean usesEndDate() {
     return usesEndDate;
   }
+
+  /**
+   * Gets the first date covered by the recurrence rule.
+   *
+   * @return the template's start date
+   */
+  public LocalDate getFirstDate() {
+    return template.getStartDateTime().toLocalDate();
+  }
+
+  /**
+   * Gets the last date on which the recurrence rule generates an occurrence.
+   *
+   * @return the last occurrence date (inclusive), or null if the rule is empty
+   */
+  public LocalDate getLastDate() {
+    return lastDate;
+  }
+
+  /**
+   * Gets the number of days an occurrence spans past its start date.
+   *
+   * @return 0 for occurrences that end on the day they start
+   */
+  public long getSpanDays() {
+    return ChronoUnit.DAYS.between(template.getStartDateTime().toLocalDate(),
+        template.getEndDateTime().toLocalDate());
+  }
+
+  /**
+   * Gets the dates whose occurrences were cancelled or detached from the rule.
+   *
+   * @return unmodifiable set of exception dates
+   */
+  public Set<LocalDate> getExceptionDates() {
+    return exceptionDates;
+  }
+
+  /**
+   * Gets the per-date overrides. Each value only sets the fields that differ
+   * from the occurrence the rule generates for that date.
+   *
+   * @return unmodifiable map from occurrence date to override
+   */
+  public Map<LocalDate, EditSpec> getOverrides() {
+    return overrides;
+  }
+
+  /**
+   * Gets the edits applied from a date onward, in the order they were made.
+   *
+   * @return unmodifiable list of range edits
+   */
+  public List<RangeEdit> getRangeEdits() {
+    return rangeEdits;
+  }
+
+  /**
+   * Checks whether the recurrence rule generates an occurrence on a date,
+   * ignoring exceptions.
+   *
+   * @param date the date to check
+   * @return true if the date matches the rule
+   */
+  public boolean isRuleDate(LocalDate date) {
+    return lastDate != null
+        && !date.isBefore(getFirstDate())
+        && !date.isAfter(lastDate)
+        && weekdays.contains(date.getDayOfWeek());
+  }
+
+  /**
+   * Checks whether this series has a live occurrence on a date.
+   *
+   * @param date the date to check
+   * @return true if the rule matches the date and it is not an exception
+   */
+  public boolean occursOn(LocalDate date) {
+    return isRuleDate(date) && !exceptionDates.contains(date);
+  }
+
+  /**
+   * Lists the live occurrence dates within an inclusive window.
+   *
+   * @param from the first date of the window (inclusive)
+   * @param to   the last date of the window (inclusive)
+   * @return the occurrence dates in chronological order
+   */
+  public List<LocalDate> getOccurrenceDates(LocalDate from, LocalDate to) {
+    List<LocalDate> dates = new ArrayList<>();
+    if (lastDate == null) {
+      return dates;
+    }
+    LocalDate start = from.isAfter(getFirstDate()) ? from : getFirstDate();
+    LocalDate end = to.isBefore(lastDate) ? to : lastDate;
+    for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+      if (weekdays.contains(date.getDayOfWeek()) && !exceptionDates.contains(date)) {
+        dates.add(date);
+      }
+    }
+    return dates;
+  }
+
+  /**
+   * Lists all live occurrence dates of this series.
+   *
+   * @return the occurrence dates in chronological order
+   */
+  public List<LocalDate> getOccurrenceDates() {
+    if (lastDate == null) {
+      return new ArrayList<>();
+    }
+    return getOccurrenceDates(getFirstDate(), lastDate);
+  }
+
+  /**
+   * Derives the stable event ID of the occurrence on a date.
+   *
+   * @param date the occurrence date
+   * @return the occurrence's event ID
+   */
+  public UUID occurrenceId(LocalDate date) {
+    return new UUID(seriesId.getMostSignificantBits(),
+        seriesId.getLeastSignificantBits() ^ (date.toEpochDay() + 1));
+  }
+
+  /**
+   * Resolves an event ID produced by {@link #occurrenceId(LocalDate)} back to its date.
+   *
+   * @param eventId the event ID
+   * @return the date of the live occurrence with that ID, or null if none
+   */
+  public LocalDate occurrenceDateOf(UUID eventId) {
+    if (lastDate == null
+        || eventId.getMostSignificantBits() != seriesId.getMostSignificantBits()) {
+      return null;
+    }
+    long epochDay = (eventId.getLeastSignificantBits() ^ seriesId.getLeastSignificantBits()) - 1;
+    if (epochDay < getFirstDate().toEpochDay() || epochDay > lastDate.toEpochDay()) {
+      return null;
+    }
+    LocalDate date = LocalDate.ofEpochDay(epochDay);
+    return occursOn(date) ? date : null;
+  }
+
+  /**
+   * Generates the occurrence on a date as the rule defines it, before any
+   * override or range edit is applied.
+   *
+   * @param date the occurrence date
+   * @return the generated occurrence
+   */
+  public EventInterface baseOccurrence(LocalDate date) {
+    long shift = ChronoUnit.DAYS.between(getFirstDate(), date);
+
+    return new Event(
+        template.getSubject(),
+        template.getStartDateTime().plusDays(shift),
+        template.getEndDateTime().plusDays(shift),
+        template.getDescription().orElse(null),
+        template.getLocation().orElse(null),
+        template.isPrivate(),
+        occurrenceId(date),
+        seriesId);
+  }
+
+  /**
+   * Expands the occurrence on a date as it currently appears in the calendar. An
+   * override replaces the generated occurrence's fields; otherwise the range
+   * edits are applied in order.
+   *
+   * @param date the occurrence date
+   * @return the occurrence
+   */
+  public EventInterface occurrenceOn(LocalDate date) {
+    EventInterface occurrence = baseOccurrence(date);
+
+    EditSpec override = overrides.get(date);
+    if (override != null) {
+      return override.applyTo(occurrence);
+    }
+
+    for (RangeEdit edit : rangeEdits) {
+      if (!date.isBefore(edit.getFromDate())) {
+        occurrence = edit.getSpec().applyToOccurrence(occurrence);
+      }
+    }
+    return occurrence;
+  }
+
+  /**
+   * Derives the ID of the series that is split off this one at a date. The ID is
+   * a name-based UUID so that replaying the same edits always yields the same IDs.
+   *
+   * @param date the first date of the split-off series
+   * @return the ID for the new series
+   */
+  public UUID splitSeriesId(LocalDate date) {
+    ByteBuffer name = ByteBuffer.allocate(3 * Long.BYTES)
+        .putLong(seriesId.getMostSignificantBits())
+        .putLong(seriesId.getLeastSignificantBits())
+        .putLong(date.toEpochDay());
+    return UUID.nameUUIDFromBytes(name.array());
+  }
+
+  /**
+   * Returns a copy of this series with an occurrence cancelled.
+   *
+   * @param date the occurrence date to cancel
+   * @return the modified series
+   */
+  public EventSeries withExceptionDate(LocalDate date) {
+    Set<LocalDate> newExceptions = new HashSet<>(exceptionDates);
+    newExceptions.add(date);
+    Map<LocalDate, EditSpec> newOverrides = new HashMap<>(overrides);
+    newOverrides.remove(date);
+    return new EventSeries(this, seriesId, template, lastDate, newExceptions, newOverrides,
+        new ArrayList<>(rangeEdits));
+  }
+
+  /**
+   * Returns a copy of this series with the override for a date replaced.
+   *
+   * @param date     the occurrence date
+   * @param override the fields that differ from the generated occurrence, or null to clear
+   * @return the modified series
+   */
+  public EventSeries withOverride(LocalDate date, EditSpec override) {
+    Map<LocalDate, EditSpec> newOverrides = new HashMap<>(overrides);
+    if (override == null) {
+      newOverrides.remove(date);
+    } else {
+      newOverrides.put(date, override);
+    }
+    return new EventSeries(this, seriesId, template, lastDate, new HashSet<>(exceptionDates),
+        newOverrides, new ArrayList<>(rangeEdits));
+  }
+
+  /**
+   * Returns a copy of this series with an edit applied to every occurrence on
+   * or after a date.
+   *
+   * @param fromDate the first date the edit applies to (inclusive)
+   * @param spec     the edit
+   * @return the modified series
+   */
+  public EventSeries withRangeEdit(LocalDate fromDate, EditSpec spec) {
+    List<RangeEdit> newEdits = new ArrayList<>(rangeEdits);
+    newEdits.add(new RangeEdit(fromDate, spec));
+    return new EventSeries(this, seriesId, template, lastDate, new HashSet<>(exceptionDates),
+        new HashMap<>(overrides), newEdits);
+  }
+
+  /**
+   * Returns the part of this series that lies before a date.
+   *
+   * @param date the first date that is no longer part of the series
+   * @return the truncated series, or null if no occurrence lies before the date
+   */
+  public EventSeries before(LocalDate date) {
+    LocalDate newLast = lastRuleDateBefore(date);
+    if (newLast == null) {
+      return null;
+    }
+    Set<LocalDate> newExceptions = new HashSet<>();
+    for (LocalDate d : exceptionDates) {
+      if (d.isBefore(date)) {
+        newExceptions.add(d);
+      }
+    }
+    Map<LocalDate, EditSpec> newOverrides = new HashMap<>();
+    for (Map.Entry<LocalDate, EditSpec> entry : overrides.entrySet()) {
+      if (entry.getKey().isBefore(date)) {
+        newOverrides.put(entry.getKey(), entry.getValue());
+      }
+    }
+    List<RangeEdit> newEdits = new ArrayList<>();
+    for (RangeEdit edit : rangeEdits) {
+      if (edit.getFromDate().isBefore(date)) {
+        newEdits.add(edit);
+      }
+    }
+    return new EventSeries(this, seriesId, template, newLast, newExceptions, newOverrides,
+        newEdits);
+  }
+
+  /**
+   * Returns the part of this series that lies on or after a date, as a new series.
+   * Exceptions, overrides and range edits that affect that part are carried over.
+   *
+   * @param date        the first date of the new series
+   * @param newSeriesId the ID of the new series
+   * @return the new series, or null if no occurrence lies on or after the date
+   */
+  public EventSeries from(LocalDate date, UUID newSeriesId) {
+    LocalDate first = firstRuleDateFrom(date);
+    if (first == null) {
+      return null;
+    }
+    long shift = ChronoUnit.DAYS.between(getFirstDate(), first);
+    EventInterface newTemplate = template.withModifications(null,
+        template.getStartDateTime().plusDays(shift), template.getEndDateTime().plusDays(shift),
+        null, null, null, newSeriesId);
+
+    Set<LocalDate> newExceptions = new HashSet<>();
+    for (LocalDate d : exceptionDates) {
+      if (!d.isBefore(first)) {
+        newExceptions.add(d);
+      }
+    }
+    Map<LocalDate, EditSpec> newOverrides = new HashMap<>();
+    for (Map.Entry<LocalDate, EditSpec> entry : overrides.entrySet()) {
+      if (!entry.getKey().isBefore(first)) {
+        newOverrides.put(entry.getKey(), entry.getValue());
+      }
+    }
+    List<RangeEdit> newEdits = new ArrayList<>();
+    for (RangeEdit edit : rangeEdits) {
+      LocalDate editFrom = edit.getFromDate().isBefore(first) ? first : edit.getFromDate();
+      newEdits.add(new RangeEdit(editFrom, edit.getSpec()));
+    }
+    return new EventSeries(this, newSeriesId, newTemplate, lastDate, newExceptions,
+        newOverrides, newEdits);
+  }
+
+  private LocalDate lastRuleDateBefore(LocalDate date) {
+    if (lastDate == null) {
+      return null;
+    }
+    LocalDate candidate = date.minusDays(1).isBefore(lastDate) ? date.minusDays(1) : lastDate;
+    for (int i = 0; i < 7 && !candidate.isBefore(getFirstDate()); i++) {
+      if (weekdays.contains(candidate.getDayOfWeek())) {
+        return candidate;
+      }
+      candidate = candidate.minusDays(1);
+    }
+    return null;
+  }
+
+  private LocalDate firstRuleDateFrom(LocalDate date) {
+    if (lastDate == null) {
+      return null;
+    }
+    LocalDate candidate = date.isAfter(getFirstDate()) ? date : getFirstDate();
+    for (int i = 0; i < 7 && !candidate.isAfter(lastDate); i++) {
+      if (weekdays.contains(candidate.getDayOfWeek())) {
+        return candidate;
+      }
+      candidate = candidate.plusDays(1);
+    }
+    return null;
+  }
+
+  /**
+   * Computes the last occurrence date of a newly defined series. Mirrors the
+   * generation loop the model has always used, including its 10-year cap.
+   *
+   * @return the last matching date, or null if the rule generates nothing
+   */
+  private static LocalDate computeLastDate(EventInterface template, Set<DayOfWeek> weekdays,
+                                           LocalDate endDate, Integer occurrences,
+                                           boolean usesEndDate) {
+    if (template == null || weekdays == null) {
+      return null;
+    }
+    LocalDateTime startTime = template.getStartDateTime();
+    LocalDate templateDate = startTime.toLocalDate();
+    LocalDate cap = templateDate.plusYears(SERIES_MAX_YEARS);
+    LocalDate last = null;
+    int count = 0;
+    LocalDate currentDate = templateDate;
+    while (true) {
+      if (weekdays.contains(currentDate.getDayOfWeek())) {
+        last = currentDate;
+        count++;
+        if (occurrences != null && count >= occurrences) {
+          break;
+        }
+      }
+      if (usesEndDate && endDate != null && currentDate.isAfter(endDate)) {
+        break;
+      }
+      currentDate = currentDate.plusDays(1);
+      if (currentDate.isAfter(cap)) {
+        break;
+      }
+    }
+    return last;
+  }
+
+  /**
+   * An edit applied to every occurrence of a series on or after a date.
+   */
+  public static final class RangeEdit {
+    private final LocalDate fromDate;
+    private final EditSpec spec;
+
+    /**
+     * Creates a range edit.
+     *
+     * @param fromDate the first date the edit applies to (inclusive)
+     * @param spec     the edit specification
+     */
+    public RangeEdit(LocalDate fromDate, EditSpec spec) {
+      this.fromDate = fromDate;
+      this.spec = spec;
+    }
+
+    /**
+     * Gets the first date the edit applies to.
+     *
+     * @return the from date (inclusive)
+     */
+    public LocalDate getFromDate() {
+      return fromDate;
+    }
+
+    /**
+     * Gets the edit specification.
+     *
+     * @return the edit
+     */
+    public EditSpec getSpec() {
+      return spec;
+    }
+  }
 }
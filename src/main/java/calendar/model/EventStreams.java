@@ -0,0 +1,92 @@
+package calendar.model;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Helpers for producing events lazily in chronological order.
+ */
+public final class EventStreams {
+
+  /**
+   * The order of {@link CalendarModelInterface#getAllEvents()}: by start, then end,
+   * subject, location, description and status. The order is total over the
+   * fields shown, so events at the same time are listed the same way whichever
+   * order their series are stored in.
+   */
+  public static final Comparator<EventInterface> CHRONOLOGICAL =
+      Comparator.comparing(EventInterface::getStartDateTime)
+          .thenComparing(EventInterface::getEndDateTime)
+          .thenComparing(EventInterface::getSubject)
+          .thenComparing(event -> event.getLocation().orElse(""))
+          .thenComparing(event -> event.getDescription().orElse(""))
+          .thenComparing(EventInterface::isPrivate);
+
+  private EventStreams() {
+  }
+
+  /**
+   * Merges iterators that are each in chronological order into one chronological
+   * stream. Only the current head of each iterator is held at a time.
+   *
+   * @param sources the sorted iterators
+   * @return the merged stream
+   */
+  public static Stream<EventInterface> merge(List<Iterator<EventInterface>> sources) {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new MergingIterator(sources),
+        Spliterator.ORDERED | Spliterator.NONNULL), false);
+  }
+
+  /**
+   * A k-way merge over sorted iterators, using a heap of their heads.
+   */
+  private static final class MergingIterator implements Iterator<EventInterface> {
+    private final PriorityQueue<Head> heads;
+
+    MergingIterator(List<Iterator<EventInterface>> sources) {
+      this.heads = new PriorityQueue<>(Math.max(1, sources.size()),
+          (a, b) -> CHRONOLOGICAL.compare(a.event, b.event));
+      for (Iterator<EventInterface> source : sources) {
+        if (source.hasNext()) {
+          heads.add(new Head(source.next(), source));
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !heads.isEmpty();
+    }
+
+    @Override
+    public EventInterface next() {
+      Head head = heads.poll();
+      if (head == null) {
+        throw new NoSuchElementException();
+      }
+      EventInterface event = head.event;
+      if (head.source.hasNext()) {
+        head.event = head.source.next();
+        heads.add(head);
+      }
+      return event;
+    }
+  }
+
+  private static final class Head {
+    private EventInterface event;
+    private final Iterator<EventInterface> source;
+
+    Head(EventInterface event, Iterator<EventInterface> source) {
+      this.event = event;
+      this.source = source;
+    }
+  }
+}
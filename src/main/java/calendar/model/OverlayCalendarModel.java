@@ -0,0 +1,282 @@
+package calendar.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A copy-on-write overlay over another calendar model, which it never changes.
+ *
+ * <p>Writes go to an on-heap delta model, as in
+ * {@link calendar.persistence.MappedCalendarModel}. An event of the base model
+ * that is edited is first copied into the delta and hidden in the base; an edit
+ * to any event of a series copies the whole series, with its detached
+ * occurrences. Reads combine the visible base events with the delta, so the
+ * overlay looks like the base with the writes applied, while only what was
+ * written or edited is copied.
+ *
+ * <p>Change tokens are those of the base model: changes made in the overlay are
+ * not reported.
+ */
+final class OverlayCalendarModel implements CalendarModelInterface {
+  private final CalendarModelInterface base;
+  private final DeltaModel delta = new DeltaModel();
+  private final Set<UUID> hiddenEvents = new HashSet<>();
+  private final Set<UUID> hiddenSeries = new HashSet<>();
+
+  /**
+   * Creates an overlay with no changes.
+   *
+   * @param base the model to overlay
+   */
+  OverlayCalendarModel(CalendarModelInterface base) {
+    this.base = Objects.requireNonNull(base, "Base model cannot be null");
+  }
+
+  @Override
+  public boolean createEvent(EventInterface event) {
+    return delta.createEvent(event);
+  }
+
+  @Override
+  public boolean createEvents(List<EventInterface> events) {
+    Objects.requireNonNull(events, "Events cannot be null");
+
+    for (EventInterface event : events) {
+      if (event != null && baseContains(event)) {
+        return false;
+      }
+    }
+    return delta.createEvents(events);
+  }
+
+  @Override
+  public boolean createEventSeries(EventSeries series) {
+    Objects.requireNonNull(series, "Series cannot be null");
+
+    if (!hiddenSeries.contains(series.getSeriesId())
+        && base.findSeriesById(series.getSeriesId()) != null) {
+      return false;
+    }
+    return delta.createEventSeries(series);
+  }
+
+  @Override
+  public boolean editEvent(UUID eventId, EditSpec spec) {
+    Objects.requireNonNull(eventId, "Event ID cannot be null");
+
+    if (delta.findEventById(eventId) == null) {
+      EventInterface event = base.findEventById(eventId);
+      if (event == null || !isVisible(event)) {
+        return false;
+      }
+      if (event.getSeriesId().isPresent()) {
+        promoteSeries(event.getSeriesId().get());
+      } else {
+        hiddenEvents.add(eventId);
+        delta.createEvent(event);
+      }
+    }
+    return delta.editEvent(eventId, spec);
+  }
+
+  @Override
+  public boolean editSeriesFrom(UUID seriesId, LocalDate fromDate, EditSpec spec) {
+    Objects.requireNonNull(seriesId, "Series ID cannot be null");
+
+    promoteSeries(seriesId);
+    return delta.editSeriesFrom(seriesId, fromDate, spec);
+  }
+
+  @Override
+  public boolean editEntireSeries(UUID seriesId, EditSpec spec) {
+    Objects.requireNonNull(seriesId, "Series ID cannot be null");
+
+    promoteSeries(seriesId);
+    return delta.editEntireSeries(seriesId, spec);
+  }
+
+  @Override
+  public List<EventInterface> getEventsOnDate(LocalDate date) {
+    List<EventInterface> result = visible(base.getEventsOnDate(date));
+    result.addAll(delta.getEventsOnDate(date));
+    result.sort(EventStreams.CHRONOLOGICAL);
+    return result;
+  }
+
+  @Override
+  public List<EventInterface> getEventsInRange(LocalDateTime startDateTime,
+      LocalDateTime endDateTime) {
+    return streamEventsInRange(startDateTime, endDateTime).collect(Collectors.toList());
+  }
+
+  @Override
+  public List<EventInterface> getAllEvents() {
+    List<EventInterface> result = visible(base.getAllEvents());
+    result.addAll(delta.getAllEvents());
+    result.sort(EventStreams.CHRONOLOGICAL);
+    return result;
+  }
+
+  @Override
+  public Stream<EventInterface> streamAllEvents() {
+    return EventStreams.merge(List.of(base.streamAllEvents().filter(this::isVisible).iterator(),
+        delta.streamAllEvents().iterator()));
+  }
+
+  @Override
+  public Stream<EventInterface> streamEventsInRange(LocalDateTime startDateTime,
+      LocalDateTime endDateTime) {
+    return EventStreams.merge(List.of(
+        base.streamEventsInRange(startDateTime, endDateTime).filter(this::isVisible).iterator(),
+        delta.streamEventsInRange(startDateTime, endDateTime).iterator()));
+  }
+
+  @Override
+  public ChangeSet getChangesSince(long token) {
+    return base.getChangesSince(token);
+  }
+
+  @Override
+  public long getChangeToken() {
+    return base.getChangeToken();
+  }
+
+  @Override
+  public boolean isBusy(LocalDateTime dateTime) {
+    if (delta.isBusy(dateTime)) {
+      return true;
+    }
+    try (Stream<EventInterface> events =
+             base.streamEventsInRange(dateTime, dateTime.plusNanos(1))) {
+      return events.anyMatch(this::isVisible);
+    }
+  }
+
+  @Override
+  public EventInterface findEventById(UUID eventId) {
+    EventInterface event = delta.findEventById(eventId);
+    if (event != null) {
+      return event;
+    }
+    event = base.findEventById(eventId);
+    return (event != null && isVisible(event)) ? event : null;
+  }
+
+  @Override
+  public EventInterface findEventByProperties(String subject, LocalDateTime startDateTime,
+      LocalDateTime endDateTime) {
+    EventInterface event = delta.findEventByProperties(subject, startDateTime, endDateTime);
+    if (event != null) {
+      return event;
+    }
+    event = base.findEventByProperties(subject, startDateTime, endDateTime);
+    return (event != null && isVisible(event)) ? event : null;
+  }
+
+  @Override
+  public List<EventInterface> findEventsBySubjectAndStart(String subject,
+      LocalDateTime startDateTime) {
+    List<EventInterface> result = delta.findEventsBySubjectAndStart(subject, startDateTime);
+    for (EventInterface event : base.findEventsBySubjectAndStart(subject, startDateTime)) {
+      if (isVisible(event)) {
+        result.add(event);
+      }
+    }
+    result.sort(EventStreams.CHRONOLOGICAL);
+    return result;
+  }
+
+  @Override
+  public EventSeries findSeriesById(UUID seriesId) {
+    EventSeries series = delta.findSeriesById(seriesId);
+    if (series != null || hiddenSeries.contains(seriesId)) {
+      return series;
+    }
+    return base.findSeriesById(seriesId);
+  }
+
+  @Override
+  public List<EventSeries> getAllSeries() {
+    List<EventSeries> result = delta.getAllSeries();
+    for (EventSeries series : base.getAllSeries()) {
+      if (!hiddenSeries.contains(series.getSeriesId())) {
+        result.add(series);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public List<EventInterface> getStandaloneEvents() {
+    List<EventInterface> result = visible(base.getStandaloneEvents());
+    result.addAll(delta.getStandaloneEvents());
+    return result;
+  }
+
+  /**
+   * Copies a series of the base model, with its detached occurrences, into the
+   * delta and hides it in the base. Does nothing if it was copied before.
+   *
+   * @param seriesId the series ID
+   */
+  private void promoteSeries(UUID seriesId) {
+    if (!hiddenSeries.add(seriesId)) {
+      return;
+    }
+    EventSeries series = base.findSeriesById(seriesId);
+    if (series != null) {
+      delta.createEventSeries(series);
+    }
+    for (EventInterface event : base.getStandaloneEvents()) {
+      if (event.getSeriesId().isPresent() && event.getSeriesId().get().equals(seriesId)) {
+        delta.createEvent(event);
+      }
+    }
+  }
+
+  /**
+   * Checks whether an event of the base model has not been copied into the delta.
+   *
+   * @param event an event of the base model
+   * @return true if the overlay shows it
+   */
+  private boolean isVisible(EventInterface event) {
+    return !hiddenEvents.contains(event.getId())
+        && !(event.getSeriesId().isPresent() && hiddenSeries.contains(event.getSeriesId().get()));
+  }
+
+  private List<EventInterface> visible(List<EventInterface> events) {
+    List<EventInterface> result = new ArrayList<>(events.size());
+    for (EventInterface event : events) {
+      if (isVisible(event)) {
+        result.add(event);
+      }
+    }
+    return result;
+  }
+
+  private boolean baseContains(EventInterface event) {
+    EventInterface found = base.findEventByProperties(event.getSubject(),
+        event.getStartDateTime(), event.getEndDateTime());
+    return found != null && isVisible(found);
+  }
+
+  /**
+   * The on-heap delta. It treats the visible events of the base model as
+   * existing, so every create and edit is checked against the whole calendar.
+   */
+  private final class DeltaModel extends CalendarModel {
+    @Override
+    protected boolean containsEvent(EventInterface event) {
+      return super.containsEvent(event) || baseContains(event);
+    }
+  }
+}
@@ -0,0 +1,220 @@
+package calendar.model;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A group of changes to a {@link CalendarManager}'s calendars that is kept or
+ * discarded as a whole. Begin one with {@link CalendarManager#beginTransaction()}:
+ * <pre>
+ *   try (Transaction transaction = manager.beginTransaction()) {
+ *     ...
+ *     transaction.commit();
+ *   }
+ * </pre>
+ *
+ * <p>While the transaction is open, the manager's calendars are copy-on-write
+ * overlays of the calendars (see {@link OverlayCalendarModel}), so changes are
+ * seen by everything using the manager but the calendars themselves are not
+ * touched and nothing is copied up front. Each change that succeeds is recorded.
+ * {@link #rollback()} drops the overlays. {@link #commit()} puts the calendars
+ * back and makes the recorded changes to them in order, with runs of created
+ * events made as one batch; since each change already succeeded against the same
+ * events, the calendars end up as the overlays were. Calendars with a journal
+ * journal only committed changes.
+ *
+ * <p>That holds only if the calendars are still as they were when the transaction
+ * began. Each calendar's change token, name and timezone are kept at the start, and
+ * a commit that finds any of them changed (by code holding a calendar or model
+ * directly) makes no change at all and ends the transaction as a rollback would.
+ *
+ * <p>Change tokens do not cover changes made in an open transaction.
+ */
+public final class Transaction implements AutoCloseable {
+  private final CalendarManager manager;
+  private final Map<String, CalendarInterface> calendars;
+  private final Map<String, Long> tokens = new HashMap<>();
+  private final Map<String, ZoneId> timezones = new HashMap<>();
+  private final List<BooleanSupplier> changes = new ArrayList<>();
+  private CreatedEvents lastCreated;
+  private int changeCount;
+  private boolean open = true;
+
+  /**
+   * Creates a transaction over the manager's calendars.
+   *
+   * @param manager   the manager
+   * @param calendars the manager's calendars when the transaction began, by name
+   */
+  Transaction(CalendarManager manager, Map<String, CalendarInterface> calendars) {
+    this.manager = manager;
+    this.calendars = calendars;
+    calendars.forEach((name, calendar) -> {
+      tokens.put(name, calendar.getModel().getChangeToken());
+      timezones.put(name, calendar.getTimezone());
+    });
+  }
+
+  /**
+   * Commits the changes to the calendars and ends the transaction. If the
+   * calendars were changed outside the transaction, nothing is committed.
+   *
+   * @throws IllegalStateException if the transaction has ended, or the calendars
+   *                               were changed outside the transaction
+   */
+  public void commit() {
+    checkOpen();
+    open = false;
+    if (changedOutside()) {
+      manager.endTransaction(calendars, () -> { });
+      throw new IllegalStateException(
+          "Calendars were changed outside the transaction; nothing was committed");
+    }
+    manager.endTransaction(calendars, () -> {
+      for (BooleanSupplier change : changes) {
+        if (!change.getAsBoolean()) {
+          throw new IllegalStateException(
+              "Calendars were changed outside the transaction; commit is incomplete");
+        }
+      }
+    });
+  }
+
+  /**
+   * Discards the changes and ends the transaction.
+   *
+   * @throws IllegalStateException if the transaction has ended
+   */
+  public void rollback() {
+    checkOpen();
+    open = false;
+    manager.endTransaction(calendars, () -> { });
+  }
+
+  /**
+   * Rolls the transaction back unless it has ended.
+   */
+  @Override
+  public void close() {
+    if (open) {
+      rollback();
+    }
+  }
+
+  /**
+   * Checks whether the transaction has not been committed or rolled back.
+   *
+   * @return true if it is open
+   */
+  public boolean isOpen() {
+    return open;
+  }
+
+  /**
+   * Gets the number of changes made in the transaction, counting each created
+   * event.
+   *
+   * @return the number of changes
+   */
+  public int getChangeCount() {
+    return changeCount;
+  }
+
+  /**
+   * Creates the view of a calendar that exists when the transaction begins.
+   *
+   * @param calendar the calendar
+   * @return its view
+   */
+  CalendarInterface open(CalendarInterface calendar) {
+    return new TransactionalCalendar(this, calendar.getName(), calendar.getTimezone(),
+        calendar.getModel(), calendar);
+  }
+
+  /**
+   * Creates a calendar in the transaction. It is created in the manager at commit.
+   *
+   * @param name     the calendar name
+   * @param timezone the calendar timezone
+   * @return the calendar
+   */
+  CalendarInterface createCalendar(String name, ZoneId timezone) {
+    TransactionalCalendar calendar =
+        new TransactionalCalendar(this, name, timezone, new CalendarModel(), null);
+    record(() -> manager.createCalendar(name, timezone)
+        && calendar.setTarget(manager.getCalendar(name)));
+    return calendar;
+  }
+
+  /**
+   * Records a change to make at commit.
+   *
+   * @param change makes the change, returning false if it could not be made
+   * @return true
+   */
+  synchronized boolean record(BooleanSupplier change) {
+    changes.add(change);
+    lastCreated = null;
+    changeCount++;
+    return true;
+  }
+
+  /**
+   * Records events created in a calendar, adding them to the batch recorded just
+   * before if it was for the same calendar.
+   *
+   * @param calendar the calendar
+   * @param events   the events
+   */
+  synchronized void recordCreated(TransactionalCalendar calendar, List<EventInterface> events) {
+    if (lastCreated == null || lastCreated.calendar != calendar) {
+      lastCreated = new CreatedEvents(calendar);
+      changes.add(lastCreated);
+    }
+    lastCreated.events.addAll(events);
+    changeCount += events.size();
+  }
+
+  /**
+   * Checks whether a calendar the transaction began with has a different name,
+   * timezone or change token than it had then.
+   */
+  private boolean changedOutside() {
+    for (Map.Entry<String, CalendarInterface> entry : calendars.entrySet()) {
+      CalendarInterface calendar = entry.getValue();
+      if (!calendar.getName().equals(entry.getKey())
+          || !calendar.getTimezone().equals(timezones.get(entry.getKey()))
+          || calendar.getModel().getChangeToken() != tokens.get(entry.getKey())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void checkOpen() {
+    if (!open) {
+      throw new IllegalStateException("Transaction has already ended");
+    }
+  }
+
+  /**
+   * Events created one after another in one calendar, made as one batch.
+   */
+  private static final class CreatedEvents implements BooleanSupplier {
+    private final TransactionalCalendar calendar;
+    private final List<EventInterface> events = new ArrayList<>();
+
+    CreatedEvents(TransactionalCalendar calendar) {
+      this.calendar = calendar;
+    }
+
+    @Override
+    public boolean getAsBoolean() {
+      return calendar.getTarget().getModel().createEvents(events);
+    }
+  }
+}
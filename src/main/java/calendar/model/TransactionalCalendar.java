@@ -0,0 +1,228 @@
+package calendar.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * The view of a calendar inside a {@link Transaction}. Its events live in an
+ * {@link OverlayCalendarModel} over the calendar's model, and each change that
+ * succeeds is recorded with the transaction, to be made to the calendar itself
+ * at commit.
+ *
+ * <p>Renames and timezone changes go through {@link CalendarManager}, which
+ * records them. The event times a timezone change converts are not recorded, as
+ * the calendar converts them again when the timezone change is committed.
+ */
+final class TransactionalCalendar implements CalendarInterface {
+  private final Transaction transaction;
+  private final Calendar overlay;
+  private final CalendarModelInterface model;
+  private CalendarInterface target;
+
+  /**
+   * Creates the view of a calendar.
+   *
+   * @param transaction the transaction recording the changes
+   * @param name        the calendar name
+   * @param timezone    the calendar timezone
+   * @param base        the calendar's model
+   * @param target      the calendar the changes are committed to, or null for a
+   *                    calendar created in the transaction
+   */
+  TransactionalCalendar(Transaction transaction, String name, ZoneId timezone,
+                        CalendarModelInterface base, CalendarInterface target) {
+    this.transaction = transaction;
+    this.overlay = new Calendar(name, timezone, new OverlayCalendarModel(base));
+    this.model = new RecordingModel(overlay.getModel());
+    this.target = target;
+  }
+
+  /**
+   * Gets the calendar the changes are committed to.
+   *
+   * @return the calendar, or null for a calendar created in the transaction that
+   *         has not been committed
+   */
+  CalendarInterface getTarget() {
+    return target;
+  }
+
+  /**
+   * Sets the calendar the changes are committed to, once a calendar created in the
+   * transaction has been created for real.
+   *
+   * @param target the calendar
+   * @return true if there is one
+   */
+  boolean setTarget(CalendarInterface target) {
+    this.target = target;
+    return target != null;
+  }
+
+  @Override
+  public String getName() {
+    return overlay.getName();
+  }
+
+  @Override
+  public void setName(String name) {
+    overlay.setName(name);
+  }
+
+  @Override
+  public ZoneId getTimezone() {
+    return overlay.getTimezone();
+  }
+
+  @Override
+  public void setTimezone(ZoneId timezone) {
+    overlay.setTimezone(timezone);
+  }
+
+  @Override
+  public CalendarModelInterface getModel() {
+    return model;
+  }
+
+  @Override
+  public String toString() {
+    return overlay.toString();
+  }
+
+  /**
+   * Passes every call to the overlay and records the changes that succeed.
+   */
+  private final class RecordingModel implements CalendarModelInterface {
+    private final CalendarModelInterface delegate;
+
+    RecordingModel(CalendarModelInterface delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public boolean createEvent(EventInterface event) {
+      if (!delegate.createEvent(event)) {
+        return false;
+      }
+      transaction.recordCreated(TransactionalCalendar.this, List.of(event));
+      return true;
+    }
+
+    @Override
+    public boolean createEvents(List<EventInterface> events) {
+      if (!delegate.createEvents(events)) {
+        return false;
+      }
+      transaction.recordCreated(TransactionalCalendar.this, events);
+      return true;
+    }
+
+    @Override
+    public boolean createEventSeries(EventSeries series) {
+      return delegate.createEventSeries(series)
+          && transaction.record(() -> target.getModel().createEventSeries(series));
+    }
+
+    @Override
+    public boolean editEvent(UUID eventId, EditSpec spec) {
+      return delegate.editEvent(eventId, spec)
+          && transaction.record(() -> target.getModel().editEvent(eventId, spec));
+    }
+
+    @Override
+    public boolean editEvents(List<EventInterface> events, EditSpec spec) {
+      return delegate.editEvents(events, spec)
+          && transaction.record(() -> target.getModel().editEvents(events, spec));
+    }
+
+    @Override
+    public boolean editSeriesFrom(UUID seriesId, LocalDate fromDate, EditSpec spec) {
+      return delegate.editSeriesFrom(seriesId, fromDate, spec)
+          && transaction.record(() -> target.getModel().editSeriesFrom(seriesId, fromDate, spec));
+    }
+
+    @Override
+    public boolean editEntireSeries(UUID seriesId, EditSpec spec) {
+      return delegate.editEntireSeries(seriesId, spec)
+          && transaction.record(() -> target.getModel().editEntireSeries(seriesId, spec));
+    }
+
+    @Override
+    public List<EventInterface> getEventsOnDate(LocalDate date) {
+      return delegate.getEventsOnDate(date);
+    }
+
+    @Override
+    public List<EventInterface> getEventsInRange(LocalDateTime startDateTime,
+        LocalDateTime endDateTime) {
+      return delegate.getEventsInRange(startDateTime, endDateTime);
+    }
+
+    @Override
+    public List<EventInterface> getAllEvents() {
+      return delegate.getAllEvents();
+    }
+
+    @Override
+    public Stream<EventInterface> streamAllEvents() {
+      return delegate.streamAllEvents();
+    }
+
+    @Override
+    public Stream<EventInterface> streamEventsInRange(LocalDateTime startDateTime,
+        LocalDateTime endDateTime) {
+      return delegate.streamEventsInRange(startDateTime, endDateTime);
+    }
+
+    @Override
+    public ChangeSet getChangesSince(long token) {
+      return delegate.getChangesSince(token);
+    }
+
+    @Override
+    public long getChangeToken() {
+      return delegate.getChangeToken();
+    }
+
+    @Override
+    public boolean isBusy(LocalDateTime dateTime) {
+      return delegate.isBusy(dateTime);
+    }
+
+    @Override
+    public EventInterface findEventById(UUID eventId) {
+      return delegate.findEventById(eventId);
+    }
+
+    @Override
+    public EventInterface findEventByProperties(String subject, LocalDateTime startDateTime,
+        LocalDateTime endDateTime) {
+      return delegate.findEventByProperties(subject, startDateTime, endDateTime);
+    }
+
+    @Override
+    public List<EventInterface> findEventsBySubjectAndStart(String subject,
+        LocalDateTime startDateTime) {
+      return delegate.findEventsBySubjectAndStart(subject, startDateTime);
+    }
+
+    @Override
+    public EventSeries findSeriesById(UUID seriesId) {
+      return delegate.findSeriesById(seriesId);
+    }
+
+    @Override
+    public List<EventSeries> getAllSeries() {
+      return delegate.getAllSeries();
+    }
+
+    @Override
+    public List<EventInterface> getStandaloneEvents() {
+      return delegate.getStandaloneEvents();
+    }
+  }
+}
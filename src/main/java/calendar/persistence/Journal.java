@@ -0,0 +1,649 @@
+package calendar.persistence;
+
+import calendar.exceptions.JournalException;
+import calendar.model.Calendar;
+import calendar.model.CalendarFactory;
+import calendar.model.CalendarInterface;
+import calendar.model.CalendarManager;
+import calendar.model.CalendarModel;
+import calendar.model.CalendarModelInterface;
+import calendar.model.EditSpec;
+import calendar.model.EventInterface;
+import calendar.model.EventSeries;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only write-ahead journal of calendar mutations.
+ *
+ * <p>Every successful mutation made through a journaled calendar (calendar
+ * creation, rename and timezone changes, event and series creation and edits)
+ * is appended as one record. At startup the journal is replayed into an empty
+ * {@link CalendarManager} to rebuild the state that was there before the
+ * process stopped or crashed.
+ *
+ * <p>FILE FORMAT:
+ * - header: magic "CALJ", the format version and the journal generation
+ * - records: [int payload length][int CRC32C of payload][payload]
+ * - a payload is a record type byte, the calendar name, then the record's fields
+ *
+ * <p>DESIGN RATIONALE:
+ * - Records are logical (the operation, not the resulting events), so a series
+ *   edit is one small record however many occurrences it touches; replay is exact
+ *   because the model is deterministic once the event IDs are recorded
+ * - A torn or corrupt record marks the end of the log: replay stops there and the
+ *   file is truncated so new records follow the last intact one
+ * - Records are buffered and group-committed as configured by {@link SyncPolicy}
+ * - A checkpoint writes a {@link Snapshot} and then empties the journal, bumping
+ *   its generation; the snapshot stores the generation and offset it covers, so a
+ *   crash between the two steps is detected and never replays a record twice
+ */
+public class Journal implements Closeable {
+
+  /**
+   * Records per group commit under {@link SyncPolicy#BATCH}.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 256;
+
+  /**
+   * Maximum delay before a pending batch is synced under {@link SyncPolicy#BATCH}.
+   */
+  public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 50;
+
+  /**
+   * Records between automatic checkpoints once checkpoints are enabled.
+   */
+  public static final int DEFAULT_CHECKPOINT_RECORDS = 100_000;
+
+  private static final int MAGIC = 0x43414c4a;
+  private static final int VERSION = 2;
+  private static final int HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES;
+  private static final int FRAME_HEADER_BYTES = 2 * Integer.BYTES;
+
+  private static final byte CREATE_CALENDAR = 1;
+  private static final byte RENAME_CALENDAR = 2;
+  private static final byte SET_TIMEZONE = 3;
+  private static final byte CREATE_EVENT = 4;
+  private static final byte CREATE_SERIES = 5;
+  private static final byte EDIT_EVENT = 6;
+  private static final byte EDIT_SERIES_FROM = 7;
+  private static final byte EDIT_ENTIRE_SERIES = 8;
+  private static final byte CREATE_EVENTS = 9;
+  private static final byte EDIT_EVENTS = 10;
+
+  private final Path path;
+  private final FileChannel channel;
+  private final SyncPolicy policy;
+  private final int batchSize;
+  private final long syncIntervalNanos;
+  private final FrameBuffer record = new FrameBuffer();
+  private final DataOutputStream recordOut = new DataOutputStream(record);
+  private final FrameBuffer pending = new FrameBuffer();
+  private final DataOutputStream pendingOut = new DataOutputStream(pending);
+  private final CRC32C checksum = new CRC32C();
+  private final ScheduledExecutorService syncer;
+  private long generation;
+  private int pendingRecords;
+  private int recordsSinceCheckpoint;
+  private long lastSyncNanos;
+  private CalendarManager checkpointManager;
+  private Path checkpointPath;
+  private int checkpointRecords;
+  private boolean replaying;
+  private boolean closed;
+  private JournalException syncFailure;
+
+  private Journal(Path path, FileChannel channel, long generation, SyncPolicy policy,
+                  int batchSize, long syncIntervalMillis) {
+    this.path = path;
+    this.channel = channel;
+    this.generation = generation;
+    this.policy = policy;
+    this.batchSize = batchSize;
+    this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis);
+    this.lastSyncNanos = System.nanoTime();
+    if (policy == SyncPolicy.BATCH) {
+      this.syncer = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "calendar-journal-sync");
+        thread.setDaemon(true);
+        return thread;
+      });
+      syncer.scheduleWithFixedDelay(this::backgroundSync, syncIntervalMillis,
+          syncIntervalMillis, TimeUnit.MILLISECONDS);
+    } else {
+      this.syncer = null;
+    }
+  }
+
+  /**
+   * Opens (or creates) a journal file with the default batch settings.
+   *
+   * @param path   the journal file
+   * @param policy when records are forced to disk
+   * @return the open journal, positioned at its end
+   * @throws IOException if the file cannot be opened or is not a journal
+   */
+  public static Journal open(Path path, SyncPolicy policy) throws IOException {
+    return open(path, policy, DEFAULT_BATCH_SIZE, DEFAULT_SYNC_INTERVAL_MILLIS);
+  }
+
+  /**
+   * Opens (or creates) a journal file.
+   *
+   * @param path               the journal file
+   * @param policy             when records are forced to disk
+   * @param batchSize          records per group commit (BATCH only)
+   * @param syncIntervalMillis maximum delay before a pending batch is synced (BATCH only)
+   * @return the open journal, positioned at its end
+   * @throws IOException if the file cannot be opened or is not a journal
+   * @throws IllegalArgumentException if policy is null or the batch settings are not positive
+   */
+  public static Journal open(Path path, SyncPolicy policy, int batchSize,
+                             long syncIntervalMillis) throws IOException {
+    if (policy == null) {
+      throw new IllegalArgumentException("Sync policy cannot be null");
+    }
+    if (batchSize <= 0 || syncIntervalMillis <= 0) {
+      throw new IllegalArgumentException("Batch size and sync interval must be positive");
+    }
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    long generation = 0;
+    try {
+      if (channel.size() < HEADER_BYTES) {
+        writeHeader(channel, generation);
+      } else {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        channel.read(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+          throw new IOException("Not a calendar journal: " + path);
+        }
+        generation = header.getLong();
+      }
+      channel.position(channel.size());
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    return new Journal(path, channel, generation, policy, batchSize, syncIntervalMillis);
+  }
+
+  /**
+   * Creates a calendar factory whose calendars record their changes in this journal.
+   * Pass it to {@link CalendarManager#CalendarManager(CalendarFactory)}.
+   *
+   * @return the journaling calendar factory
+   */
+  public CalendarFactory calendarFactory() {
+    return (name, timezone) -> {
+      CalendarInterface calendar =
+          new JournaledCalendar(new Calendar(name, timezone, new CalendarModel()), this);
+      calendarCreated(name, timezone);
+      return calendar;
+    };
+  }
+
+  /**
+   * Replays every intact record into a manager. The manager should be empty and
+   * built with {@link #calendarFactory()}; nothing is journaled while replaying.
+   * A torn or corrupt tail is cut off so new records follow the last intact one.
+   *
+   * @param manager the manager to rebuild
+   * @return the number of records replayed
+   * @throws IOException if the journal cannot be read
+   * @throws JournalException if an intact record cannot be applied
+   */
+  public synchronized int replay(CalendarManager manager) throws IOException {
+    return replayFrom(manager, HEADER_BYTES);
+  }
+
+  /**
+   * Restores a manager from a snapshot (if the file exists) plus the journal
+   * records written after it, then enables checkpoints to that snapshot file.
+   *
+   * <p>If the snapshot was taken by a checkpoint that crashed before emptying the
+   * journal, the journal's records are already in the snapshot and are discarded.
+   * If the snapshot and journal cannot be combined safely (for example, a snapshot
+   * saved without this journal), a fresh checkpoint is taken right away so the
+   * next start is consistent.
+   *
+   * @param manager           an empty manager built with {@link #calendarFactory()}
+   * @param snapshot          the snapshot file
+   * @param checkpointRecords records between automatic checkpoints
+   * @return the number of journal records replayed on top of the snapshot
+   * @throws IOException if the snapshot or journal cannot be read
+   * @throws JournalException if the snapshot is older than the journal
+   */
+  public synchronized int recover(CalendarManager manager, Path snapshot,
+                                  int checkpointRecords) throws IOException {
+    long offset = HEADER_BYTES;
+    boolean mustCheckpoint = false;
+    if (Files.exists(snapshot)) {
+      Snapshot.Info info;
+      replaying = true;
+      try {
+        info = Snapshot.read(snapshot, manager);
+      } finally {
+        replaying = false;
+      }
+      if (info.journalGeneration < 0) {
+        if (info.calendars > 0 && channel.size() > HEADER_BYTES) {
+          throw new JournalException("Snapshot " + snapshot
+              + " was not saved with journal " + path + "; use one or the other");
+        }
+        mustCheckpoint = info.calendars > 0;
+      } else if (info.journalGeneration > generation) {
+        reset(info.journalGeneration);
+      } else if (info.journalGeneration < generation) {
+        throw new JournalException("Snapshot " + snapshot + " is older than journal " + path);
+      } else if (info.journalOffset > channel.size()) {
+        offset = channel.size();
+        mustCheckpoint = true;
+      } else {
+        offset = info.journalOffset;
+      }
+    }
+    int replayed = replayFrom(manager, offset);
+    checkpointEvery(manager, snapshot, checkpointRecords);
+    if (mustCheckpoint || replayed >= checkpointRecords) {
+      checkpoint();
+    }
+    return replayed;
+  }
+
+  /**
+   * Enables automatic checkpoints: once the given number of records has been
+   * journaled, the next mutation first writes a snapshot and empties the journal.
+   *
+   * @param manager  the manager whose calendars this journal records
+   * @param snapshot the snapshot file to write
+   * @param records  records between checkpoints
+   * @throws IllegalArgumentException if records is not positive
+   */
+  public synchronized void checkpointEvery(CalendarManager manager, Path snapshot,
+                                           int records) {
+    if (records <= 0) {
+      throw new IllegalArgumentException("Checkpoint interval must be positive");
+    }
+    this.checkpointManager = manager;
+    this.checkpointPath = snapshot;
+    this.checkpointRecords = records;
+  }
+
+  /**
+   * Writes a snapshot of the manager and empties the journal.
+   *
+   * @throws IllegalStateException if checkpoints were not enabled
+   * @throws JournalException if the snapshot or the journal cannot be written
+   */
+  public synchronized void checkpoint() {
+    if (checkpointManager == null) {
+      throw new IllegalStateException("Checkpoints are not enabled for " + path);
+    }
+    try {
+      flush(true);
+      Snapshot.write(checkpointManager.getAllCalendars(), checkpointPath, generation + 1,
+          HEADER_BYTES);
+      reset(generation + 1);
+    } catch (IOException e) {
+      throw new JournalException("Could not checkpoint journal: " + path, e);
+    }
+  }
+
+  private int replayFrom(CalendarManager manager, long start) throws IOException {
+    flush(false);
+    long size = channel.size();
+    long offset = start;
+    int replayed = 0;
+    replaying = true;
+    try (InputStream file = Files.newInputStream(path);
+         DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+      in.readFully(new byte[(int) start]);
+      while (size - offset >= FRAME_HEADER_BYTES) {
+        int length = in.readInt();
+        int expected = in.readInt();
+        if (length <= 0 || length > size - offset - FRAME_HEADER_BYTES) {
+          break;
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        checksum.reset();
+        checksum.update(payload, 0, length);
+        if ((int) checksum.getValue() != expected) {
+          break;
+        }
+        apply(manager, new DataInputStream(new ByteArrayInputStream(payload)));
+        offset += FRAME_HEADER_BYTES + length;
+        replayed++;
+      }
+    } finally {
+      replaying = false;
+    }
+    if (offset < size) {
+      channel.truncate(offset);
+      channel.force(true);
+    }
+    channel.position(offset);
+    return replayed;
+  }
+
+  /**
+   * Writes and fsyncs any buffered records.
+   *
+   * @throws JournalException if the records cannot be written
+   */
+  public synchronized void sync() {
+    if (!closed) {
+      flushOrFail(true);
+    }
+  }
+
+  /**
+   * Syncs buffered records and closes the file. Closing twice has no effect.
+   *
+   * @throws IOException if the final sync or close fails
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (syncer != null) {
+      syncer.shutdownNow();
+    }
+    try {
+      flush(true);
+    } finally {
+      channel.close();
+    }
+  }
+
+  long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Syncs buffered records and returns the journal length they end at.
+   */
+  long syncedLength() throws IOException {
+    flush(true);
+    return channel.position();
+  }
+
+  /**
+   * Called before a model mutation, when the calendars are in a consistent state,
+   * to take a due checkpoint.
+   */
+  synchronized void beforeMutation() {
+    if (!replaying && checkpointManager != null
+        && recordsSinceCheckpoint >= checkpointRecords) {
+      checkpoint();
+    }
+  }
+
+  void calendarCreated(String name, ZoneId timezone) {
+    append(CREATE_CALENDAR, name, out -> JournalCodec.writeString(out, timezone.getId()));
+  }
+
+  void calendarRenamed(String oldName, String newName) {
+    append(RENAME_CALENDAR, oldName, out -> JournalCodec.writeString(out, newName));
+  }
+
+  void timezoneChanged(String calendarName, ZoneId timezone) {
+    append(SET_TIMEZONE, calendarName,
+        out -> JournalCodec.writeString(out, timezone.getId()));
+  }
+
+  void eventCreated(String calendarName, EventInterface event) {
+    append(CREATE_EVENT, calendarName, out -> JournalCodec.writeEvent(out, event));
+  }
+
+  void eventsCreated(String calendarName, List<EventInterface> events) {
+    append(CREATE_EVENTS, calendarName, out -> {
+      out.writeInt(events.size());
+      for (EventInterface event : events) {
+        JournalCodec.writeEvent(out, event);
+      }
+    });
+  }
+
+  void seriesCreated(String calendarName, EventSeries series) {
+    append(CREATE_SERIES, calendarName, out -> JournalCodec.writeSeries(out, series));
+  }
+
+  void eventsEdited(String calendarName, List<EventInterface> events, EditSpec spec) {
+    append(EDIT_EVENTS, calendarName, out -> {
+      out.writeInt(events.size());
+      for (EventInterface event : events) {
+        JournalCodec.writeEvent(out, event);
+      }
+      JournalCodec.writeSpec(out, spec);
+    });
+  }
+
+  void eventEdited(String calendarName, UUID eventId, EditSpec spec) {
+    append(EDIT_EVENT, calendarName, out -> {
+      JournalCodec.writeUuid(out, eventId);
+      JournalCodec.writeSpec(out, spec);
+    });
+  }
+
+  void seriesEditedFrom(String calendarName, UUID seriesId, LocalDate fromDate,
+                        EditSpec spec) {
+    append(EDIT_SERIES_FROM, calendarName, out -> {
+      JournalCodec.writeUuid(out, seriesId);
+      JournalCodec.writeDate(out, fromDate);
+      JournalCodec.writeSpec(out, spec);
+    });
+  }
+
+  void entireSeriesEdited(String calendarName, UUID seriesId, EditSpec spec) {
+    append(EDIT_ENTIRE_SERIES, calendarName, out -> {
+      JournalCodec.writeUuid(out, seriesId);
+      JournalCodec.writeSpec(out, spec);
+    });
+  }
+
+  private synchronized void append(byte type, String calendarName, RecordBody body) {
+    if (replaying) {
+      return;
+    }
+    if (closed) {
+      throw new JournalException("Journal is closed: " + path);
+    }
+    if (syncFailure != null) {
+      throw syncFailure;
+    }
+    try {
+      record.reset();
+      recordOut.writeByte(type);
+      JournalCodec.writeString(recordOut, calendarName);
+      body.write(recordOut);
+      checksum.reset();
+      checksum.update(record.array(), 0, record.size());
+      pendingOut.writeInt(record.size());
+      pendingOut.writeInt((int) checksum.getValue());
+      record.writeTo(pending);
+    } catch (IOException e) {
+      throw new JournalException("Could not encode journal record", e);
+    }
+    pendingRecords++;
+    recordsSinceCheckpoint++;
+
+    if (policy != SyncPolicy.BATCH) {
+      flushOrFail(policy == SyncPolicy.ALWAYS);
+    } else if (pendingRecords >= batchSize
+        || System.nanoTime() - lastSyncNanos >= syncIntervalNanos) {
+      flushOrFail(true);
+    }
+  }
+
+  private void apply(CalendarManager manager, DataInputStream in) throws IOException {
+    byte type = in.readByte();
+    String calendarName = JournalCodec.readString(in);
+    boolean applied;
+    switch (type) {
+      case CREATE_CALENDAR:
+        applied = manager.createCalendar(calendarName, ZoneId.of(JournalCodec.readString(in)));
+        break;
+      case RENAME_CALENDAR:
+        applied = manager.editCalendarName(calendarName, JournalCodec.readString(in));
+        break;
+      case SET_TIMEZONE:
+        applied = manager.editCalendarTimezone(calendarName,
+            ZoneId.of(JournalCodec.readString(in)));
+        break;
+      case CREATE_EVENT:
+        applied = modelOf(manager, calendarName).createEvent(JournalCodec.readEvent(in));
+        break;
+      case CREATE_EVENTS: {
+        int count = in.readInt();
+        List<EventInterface> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+          events.add(JournalCodec.readEvent(in));
+        }
+        applied = modelOf(manager, calendarName).createEvents(events);
+        break;
+      }
+      case CREATE_SERIES:
+        applied = modelOf(manager, calendarName).createEventSeries(JournalCodec.readSeries(in));
+        break;
+      case EDIT_EVENT: {
+        UUID eventId = JournalCodec.readUuid(in);
+        applied = modelOf(manager, calendarName).editEvent(eventId, JournalCodec.readSpec(in));
+        break;
+      }
+      case EDIT_EVENTS: {
+        int count = in.readInt();
+        List<EventInterface> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+          events.add(JournalCodec.readEvent(in));
+        }
+        applied = modelOf(manager, calendarName).editEvents(events, JournalCodec.readSpec(in));
+        break;
+      }
+      case EDIT_SERIES_FROM: {
+        UUID seriesId = JournalCodec.readUuid(in);
+        LocalDate fromDate = JournalCodec.readDate(in);
+        applied = modelOf(manager, calendarName)
+            .editSeriesFrom(seriesId, fromDate, JournalCodec.readSpec(in));
+        break;
+      }
+      case EDIT_ENTIRE_SERIES: {
+        UUID seriesId = JournalCodec.readUuid(in);
+        applied = modelOf(manager, calendarName)
+            .editEntireSeries(seriesId, JournalCodec.readSpec(in));
+        break;
+      }
+      default:
+        throw new JournalException("Unknown journal record type: " + type);
+    }
+    if (!applied) {
+      throw new JournalException("Journal record of type " + type
+          + " could not be replayed on calendar '" + calendarName + "'");
+    }
+  }
+
+  private void reset(long newGeneration) throws IOException {
+    pending.reset();
+    pendingRecords = 0;
+    channel.truncate(0);
+    writeHeader(channel, newGeneration);
+    channel.position(HEADER_BYTES);
+    generation = newGeneration;
+    recordsSinceCheckpoint = 0;
+  }
+
+  private static void writeHeader(FileChannel channel, long generation) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+        .putInt(MAGIC).putInt(VERSION).putLong(generation);
+    header.flip();
+    channel.truncate(0);
+    while (header.hasRemaining()) {
+      channel.write(header, header.position());
+    }
+    channel.force(true);
+  }
+
+  private CalendarModelInterface modelOf(CalendarManager manager, String calendarName) {
+    CalendarInterface calendar = manager.getCalendar(calendarName);
+    if (calendar == null) {
+      throw new JournalException("Journal refers to unknown calendar '" + calendarName + "'");
+    }
+    return calendar.getModel();
+  }
+
+  private synchronized void backgroundSync() {
+    if (closed || pendingRecords == 0) {
+      return;
+    }
+    try {
+      flush(true);
+    } catch (IOException e) {
+      syncFailure = new JournalException("Could not sync journal: " + path, e);
+    }
+  }
+
+  private void flushOrFail(boolean force) {
+    try {
+      flush(force);
+    } catch (IOException e) {
+      throw new JournalException("Could not write journal: " + path, e);
+    }
+  }
+
+  private void flush(boolean force) throws IOException {
+    if (pending.size() > 0) {
+      ByteBuffer buffer = ByteBuffer.wrap(pending.array(), 0, pending.size());
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      pending.reset();
+      pendingRecords = 0;
+    }
+    if (force) {
+      channel.force(false);
+      lastSyncNanos = System.nanoTime();
+    }
+  }
+
+  /**
+   * Writes the fields of one record.
+   */
+  @FunctionalInterface
+  private interface RecordBody {
+    void write(DataOutput out) throws IOException;
+  }
+
+  /**
+   * A reusable byte buffer whose backing array can be written without copying.
+   */
+  private static final class FrameBuffer extends ByteArrayOutputStream {
+    byte[] array() {
+      return buf;
+    }
+  }
+}
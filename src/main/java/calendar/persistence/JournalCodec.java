@@ -0,0 +1,236 @@
+package calendar.persistence;
+
+import calendar.model.EditSpec;
+import calendar.model.Event;
+import calendar.model.EventInterface;
+import calendar.model.EventSeries;
+import calendar.model.EventStatus;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Binary encoding of model values used by journal records.
+ *
+ * <p>Nullable values are preceded by a presence flag. Date-times are stored as
+ * epoch day plus nano-of-day so they round-trip exactly.
+ */
+final class JournalCodec {
+
+  private static final int SUBJECT = 1;
+  private static final int START = 1 << 1;
+  private static final int END = 1 << 2;
+  private static final int DESCRIPTION = 1 << 3;
+  private static final int LOCATION = 1 << 4;
+  private static final int STATUS = 1 << 5;
+
+  private JournalCodec() {
+  }
+
+  static void writeString(DataOutput out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  static String readString(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  static void writeUuid(DataOutput out, UUID value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeLong(value.getMostSignificantBits());
+      out.writeLong(value.getLeastSignificantBits());
+    }
+  }
+
+  static UUID readUuid(DataInput in) throws IOException {
+    return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+  }
+
+  static void writeDate(DataOutput out, LocalDate value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeLong(value.toEpochDay());
+    }
+  }
+
+  static LocalDate readDate(DataInput in) throws IOException {
+    return in.readBoolean() ? LocalDate.ofEpochDay(in.readLong()) : null;
+  }
+
+  static void writeDateTime(DataOutput out, LocalDateTime value) throws IOException {
+    out.writeLong(value.toLocalDate().toEpochDay());
+    out.writeLong(value.toLocalTime().toNanoOfDay());
+  }
+
+  static LocalDateTime readDateTime(DataInput in) throws IOException {
+    LocalDate date = LocalDate.ofEpochDay(in.readLong());
+    return LocalDateTime.of(date, LocalTime.ofNanoOfDay(in.readLong()));
+  }
+
+  static void writeEvent(DataOutput out, EventInterface event) throws IOException {
+    writeString(out, event.getSubject());
+    writeDateTime(out, event.getStartDateTime());
+    writeDateTime(out, event.getEndDateTime());
+    writeString(out, event.getDescription().orElse(null));
+    writeString(out, event.getLocation().orElse(null));
+    out.writeBoolean(event.isPrivate());
+    writeUuid(out, event.getId());
+    writeUuid(out, event.getSeriesId().orElse(null));
+  }
+
+  static EventInterface readEvent(DataInput in) throws IOException {
+    String subject = readString(in);
+    LocalDateTime start = readDateTime(in);
+    LocalDateTime end = readDateTime(in);
+    String description = readString(in);
+    String location = readString(in);
+    boolean isPrivate = in.readBoolean();
+    UUID id = readUuid(in);
+    UUID seriesId = readUuid(in);
+    return new Event(subject, start, end, description, location, isPrivate, id, seriesId);
+  }
+
+  static void writeSpec(DataOutput out, EditSpec spec) throws IOException {
+    int fields = (spec.getNewSubject() != null ? SUBJECT : 0)
+        | (spec.getNewStart() != null ? START : 0)
+        | (spec.getNewEnd() != null ? END : 0)
+        | (spec.getNewDescription() != null ? DESCRIPTION : 0)
+        | (spec.getNewLocation() != null ? LOCATION : 0)
+        | (spec.getNewStatus() != null ? STATUS : 0);
+    out.writeByte(fields);
+    if (spec.getNewSubject() != null) {
+      writeString(out, spec.getNewSubject());
+    }
+    if (spec.getNewStart() != null) {
+      writeDateTime(out, spec.getNewStart());
+    }
+    if (spec.getNewEnd() != null) {
+      writeDateTime(out, spec.getNewEnd());
+    }
+    if (spec.getNewDescription() != null) {
+      writeString(out, spec.getNewDescription());
+    }
+    if (spec.getNewLocation() != null) {
+      writeString(out, spec.getNewLocation());
+    }
+    if (spec.getNewStatus() != null) {
+      out.writeByte(spec.getNewStatus().ordinal());
+    }
+  }
+
+  static EditSpec readSpec(DataInput in) throws IOException {
+    int fields = in.readUnsignedByte();
+    EditSpec.Builder builder = EditSpec.builder();
+    if ((fields & SUBJECT) != 0) {
+      builder.subject(readString(in));
+    }
+    if ((fields & START) != 0) {
+      builder.start(readDateTime(in));
+    }
+    if ((fields & END) != 0) {
+      builder.end(readDateTime(in));
+    }
+    if ((fields & DESCRIPTION) != 0) {
+      builder.description(readString(in));
+    }
+    if ((fields & LOCATION) != 0) {
+      builder.location(readString(in));
+    }
+    if ((fields & STATUS) != 0) {
+      builder.status(EventStatus.values()[in.readUnsignedByte()]);
+    }
+    return builder.build();
+  }
+
+  static void writeSeries(DataOutput out, EventSeries series) throws IOException {
+    writeUuid(out, series.getSeriesId());
+    writeEvent(out, series.getTemplate());
+    int weekdays = 0;
+    for (DayOfWeek day : series.getWeekdays()) {
+      weekdays |= 1 << day.ordinal();
+    }
+    out.writeByte(weekdays);
+    writeDate(out, series.getEndDate());
+    out.writeInt(series.getOccurrences() == null ? -1 : series.getOccurrences());
+    out.writeBoolean(series.usesEndDate());
+    writeDate(out, series.getLastDate());
+
+    out.writeInt(series.getExceptionDates().size());
+    for (LocalDate date : series.getExceptionDates()) {
+      out.writeLong(date.toEpochDay());
+    }
+    out.writeInt(series.getOverrides().size());
+    for (Map.Entry<LocalDate, EditSpec> entry : series.getOverrides().entrySet()) {
+      out.writeLong(entry.getKey().toEpochDay());
+      writeSpec(out, entry.getValue());
+    }
+    out.writeInt(series.getRangeEdits().size());
+    for (EventSeries.RangeEdit edit : series.getRangeEdits()) {
+      out.writeLong(edit.getFromDate().toEpochDay());
+      writeSpec(out, edit.getSpec());
+    }
+  }
+
+  static EventSeries readSeries(DataInput in) throws IOException {
+    UUID seriesId = readUuid(in);
+    EventInterface template = readEvent(in);
+    int weekdayBits = in.readUnsignedByte();
+    Set<DayOfWeek> weekdays = EnumSet.noneOf(DayOfWeek.class);
+    for (DayOfWeek day : DayOfWeek.values()) {
+      if ((weekdayBits & (1 << day.ordinal())) != 0) {
+        weekdays.add(day);
+      }
+    }
+    LocalDate endDate = readDate(in);
+    int occurrences = in.readInt();
+    boolean usesEndDate = in.readBoolean();
+    LocalDate lastDate = readDate(in);
+
+    int exceptionCount = in.readInt();
+    Set<LocalDate> exceptionDates = new HashSet<>();
+    for (int i = 0; i < exceptionCount; i++) {
+      exceptionDates.add(LocalDate.ofEpochDay(in.readLong()));
+    }
+    int overrideCount = in.readInt();
+    Map<LocalDate, EditSpec> overrides = new HashMap<>();
+    for (int i = 0; i < overrideCount; i++) {
+      LocalDate date = LocalDate.ofEpochDay(in.readLong());
+      overrides.put(date, readSpec(in));
+    }
+    int editCount = in.readInt();
+    List<EventSeries.RangeEdit> rangeEdits = new ArrayList<>();
+    for (int i = 0; i < editCount; i++) {
+      LocalDate fromDate = LocalDate.ofEpochDay(in.readLong());
+      rangeEdits.add(new EventSeries.RangeEdit(fromDate, readSpec(in)));
+    }
+    return EventSeries.restore(seriesId, template, weekdays, endDate,
+        occurrences < 0 ? null : occurrences, usesEndDate, lastDate, exceptionDates,
+        overrides, rangeEdits);
+  }
+}
@@ -0,0 +1,72 @@
+package calendar.persistence;
+
+import calendar.model.CalendarInterface;
+import calendar.model.CalendarModelInterface;
+import java.time.ZoneId;
+
+/**
+ * A calendar decorator that records renames, timezone changes and (through its
+ * model) event changes in a {@link Journal}.
+ *
+ * <p>The wrapped calendar converts event times on a timezone change through its
+ * own, unjournaled model, so replaying the timezone record converts them once.
+ */
+class JournaledCalendar implements CalendarInterface {
+  private final CalendarInterface delegate;
+  private final Journal journal;
+  private final CalendarModelInterface model;
+
+  /**
+   * Wraps a calendar.
+   *
+   * @param delegate the calendar that holds the state
+   * @param journal  the journal to record changes in
+   */
+  JournaledCalendar(CalendarInterface delegate, Journal journal) {
+    this.delegate = delegate;
+    this.journal = journal;
+    this.model = new JournaledCalendarModel(delegate.getModel(), this, journal);
+  }
+
+  /**
+   * Gets the journal this calendar records its changes in.
+   *
+   * @return the journal
+   */
+  Journal getJournal() {
+    return journal;
+  }
+
+  @Override
+  public String getName() {
+    return delegate.getName();
+  }
+
+  @Override
+  public void setName(String name) {
+    String oldName = delegate.getName();
+    delegate.setName(name);
+    journal.calendarRenamed(oldName, name);
+  }
+
+  @Override
+  public ZoneId getTimezone() {
+    return delegate.getTimezone();
+  }
+
+  @Override
+  public void setTimezone(ZoneId timezone) {
+    delegate.setTimezone(timezone);
+    journal.timezoneChanged(delegate.getName(), timezone);
+  }
+
+  @Override
+  public CalendarModelInterface getModel() {
+    return model;
+  }
+
+  @Override
+  public String toString() {
+    return delegate.toString();
+  }
+}
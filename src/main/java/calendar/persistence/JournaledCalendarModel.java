@@ -0,0 +1,186 @@
+package calendar.persistence;
+
+import calendar.model.CalendarInterface;
+import calendar.model.CalendarModelInterface;
+import calendar.model.ChangeSet;
+import calendar.model.EditSpec;
+import calendar.model.EventInterface;
+import calendar.model.EventSeries;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * A model decorator that appends every successful mutation to a {@link Journal}.
+ * Queries go straight to the wrapped model.
+ *
+ * <p>Mutations are recorded after they succeed, tagged with the calendar's name at
+ * that moment, so a rejected edit (duplicate, unknown ID) never reaches the log.
+ * Before each mutation the journal may take a due checkpoint, since the calendars
+ * are consistent at that point.
+ */
+class JournaledCalendarModel implements CalendarModelInterface {
+  private final CalendarModelInterface delegate;
+  private final CalendarInterface calendar;
+  private final Journal journal;
+
+  /**
+   * Wraps a model.
+   *
+   * @param delegate the model that holds the events
+   * @param calendar the calendar the model belongs to
+   * @param journal  the journal to record mutations in
+   */
+  JournaledCalendarModel(CalendarModelInterface delegate, CalendarInterface calendar,
+                         Journal journal) {
+    this.delegate = delegate;
+    this.calendar = calendar;
+    this.journal = journal;
+  }
+
+  @Override
+  public boolean createEvent(EventInterface event) {
+    journal.beforeMutation();
+    boolean created = delegate.createEvent(event);
+    if (created) {
+      journal.eventCreated(calendar.getName(), event);
+    }
+    return created;
+  }
+
+  @Override
+  public boolean createEvents(List<EventInterface> events) {
+    journal.beforeMutation();
+    boolean created = delegate.createEvents(events);
+    if (created) {
+      journal.eventsCreated(calendar.getName(), events);
+    }
+    return created;
+  }
+
+  @Override
+  public boolean createEventSeries(EventSeries series) {
+    journal.beforeMutation();
+    boolean created = delegate.createEventSeries(series);
+    if (created) {
+      journal.seriesCreated(calendar.getName(), series);
+    }
+    return created;
+  }
+
+  @Override
+  public boolean editEvent(UUID eventId, EditSpec spec) {
+    journal.beforeMutation();
+    boolean edited = delegate.editEvent(eventId, spec);
+    if (edited) {
+      journal.eventEdited(calendar.getName(), eventId, spec);
+    }
+    return edited;
+  }
+
+  @Override
+  public boolean editEvents(List<EventInterface> events, EditSpec spec) {
+    journal.beforeMutation();
+    boolean edited = delegate.editEvents(events, spec);
+    if (edited) {
+      journal.eventsEdited(calendar.getName(), events, spec);
+    }
+    return edited;
+  }
+
+  @Override
+  public boolean editSeriesFrom(UUID seriesId, LocalDate fromDate, EditSpec spec) {
+    journal.beforeMutation();
+    boolean edited = delegate.editSeriesFrom(seriesId, fromDate, spec);
+    if (edited) {
+      journal.seriesEditedFrom(calendar.getName(), seriesId, fromDate, spec);
+    }
+    return edited;
+  }
+
+  @Override
+  public boolean editEntireSeries(UUID seriesId, EditSpec spec) {
+    journal.beforeMutation();
+    boolean edited = delegate.editEntireSeries(seriesId, spec);
+    if (edited) {
+      journal.entireSeriesEdited(calendar.getName(), seriesId, spec);
+    }
+    return edited;
+  }
+
+  @Override
+  public List<EventInterface> getEventsOnDate(LocalDate date) {
+    return delegate.getEventsOnDate(date);
+  }
+
+  @Override
+  public List<EventInterface> getEventsInRange(LocalDateTime startDateTime,
+                                               LocalDateTime endDateTime) {
+    return delegate.getEventsInRange(startDateTime, endDateTime);
+  }
+
+  @Override
+  public List<EventInterface> getAllEvents() {
+    return delegate.getAllEvents();
+  }
+
+  @Override
+  public Stream<EventInterface> streamAllEvents() {
+    return delegate.streamAllEvents();
+  }
+
+  @Override
+  public Stream<EventInterface> streamEventsInRange(LocalDateTime startDateTime,
+      LocalDateTime endDateTime) {
+    return delegate.streamEventsInRange(startDateTime, endDateTime);
+  }
+
+  @Override
+  public ChangeSet getChangesSince(long token) {
+    return delegate.getChangesSince(token);
+  }
+
+  @Override
+  public long getChangeToken() {
+    return delegate.getChangeToken();
+  }
+
+  @Override
+  public boolean isBusy(LocalDateTime dateTime) {
+    return delegate.isBusy(dateTime);
+  }
+
+  @Override
+  public EventInterface findEventById(UUID eventId) {
+    return delegate.findEventById(eventId);
+  }
+
+  @Override
+  public EventInterface findEventByProperties(String subject, LocalDateTime startDateTime,
+                                              LocalDateTime endDateTime) {
+    return delegate.findEventByProperties(subject, startDateTime, endDateTime);
+  }
+
+  @Override
+  public List<EventInterface> findEventsBySubjectAndStart(String subject,
+      LocalDateTime startDateTime) {
+    return delegate.findEventsBySubjectAndStart(subject, startDateTime);
+  }
+
+  @Override
+  public EventSeries findSeriesById(UUID seriesId) {
+    return delegate.findSeriesById(seriesId);
+  }
+
+  @Override
+  public List<EventSeries> getAllSeries() {
+    return delegate.getAllSeries();
+  }
+
+  @Override
+  public List<EventInterface> getStandaloneEvents() {
+    return delegate.getStandaloneEvents();
+  }
+}
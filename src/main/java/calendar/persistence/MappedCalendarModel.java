@@ -0,0 +1,812 @@
+package calendar.persistence;
+
+import calendar.exceptions.EventStoreException;
+import calendar.model.CalendarModel;
+import calendar.model.CalendarModelInterface;
+import calendar.model.ChangeLog;
+import calendar.model.ChangeSet;
+import calendar.model.EditSpec;
+import calendar.model.Event;
+import calendar.model.EventInterface;
+import calendar.model.EventSeries;
+import calendar.model.EventStreams;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * A read-optimized calendar model whose events live in a memory-mapped file.
+ *
+ * <p>Meant for archival calendars that are queried often and edited rarely: the
+ * stored events are never loaded onto the heap. Queries binary-search the mapped
+ * records and decode only the events they return, and the operating system's page
+ * cache does the caching.
+ *
+ * <p>FILE FORMAT:
+ * - header: magic "CALM", version, record count, series count, the longest event
+ *   span in seconds, and the offsets of the sections below
+ * - records: one fixed-width record per standalone event, sorted by start then end
+ *   (start and end as epoch second plus nano, string offsets, flags, event ID and
+ *   series ID)
+ * - sparse index: the start second of every {@value #INDEX_STRIDE}th record, kept
+ *   on the heap so a lookup touches a single page of records
+ * - strings: every distinct subject, description and location, stored once
+ * - series: the recurrence rules, in the journal's encoding
+ *
+ * <p>Writes go to an on-heap delta model. A stored event that is edited is
+ * promoted into the delta and hidden in the file, which changes where the event
+ * lives but not what the calendar contains. Series rules are small and always
+ * live in the delta. After a number of writes, or on {@link #merge()} or
+ * {@link #close()}, the delta and the file are merged into a new file that is
+ * written to a temporary sibling and atomically moved into place. Writes that
+ * have not been merged are lost if the process dies.
+ *
+ * <p>Change tokens cover the changes made since the store was opened. Each delta
+ * shares one change log, so tokens stay valid across merges, although a merge
+ * reports every series as changed again.
+ */
+public final class MappedCalendarModel implements CalendarModelInterface, Closeable {
+
+  /**
+   * Number of writes after which the delta is merged into the file.
+   */
+  public static final int DEFAULT_MERGE_THRESHOLD = 10_000;
+
+  private static final int MAGIC = 0x43414c4d;
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 48;
+  private static final int RECORD_BYTES = 72;
+  private static final int INDEX_STRIDE = 64;
+
+  private static final int START_SECOND = 0;
+  private static final int END_SECOND = 8;
+  private static final int START_NANO = 16;
+  private static final int END_NANO = 20;
+  private static final int SUBJECT = 24;
+  private static final int DESCRIPTION = 28;
+  private static final int LOCATION = 32;
+  private static final int FLAGS = 36;
+  private static final int EVENT_ID = 40;
+  private static final int SERIES_ID = 56;
+
+  private static final int PRIVATE = 1;
+  private static final int IN_SERIES = 1 << 1;
+  private static final int NONE = -1;
+
+  private static final Comparator<EventInterface> STORE_ORDER =
+      EventStreams.CHRONOLOGICAL.thenComparing(EventInterface::getSubject);
+
+  private final Path file;
+  private final int mergeThreshold;
+  private final ChangeLog changes = new ChangeLog();
+  private MappedByteBuffer records;
+  private int stringsBase;
+  private int count;
+  private long maxSpanSeconds;
+  private long[] index;
+  private BitSet hidden;
+  private DeltaModel delta;
+  private int pendingWrites;
+
+  private MappedCalendarModel(Path file, int mergeThreshold) {
+    this.file = file;
+    this.mergeThreshold = mergeThreshold;
+  }
+
+  /**
+   * Opens a store with the default merge threshold, creating an empty one if the
+   * file does not exist.
+   *
+   * @param file the store file
+   * @return the model
+   * @throws IOException if the file cannot be read or is not an event store
+   */
+  public static MappedCalendarModel open(Path file) throws IOException {
+    return open(file, DEFAULT_MERGE_THRESHOLD);
+  }
+
+  /**
+   * Opens a store, creating an empty one if the file does not exist.
+   *
+   * @param file           the store file
+   * @param mergeThreshold number of writes after which the delta is merged
+   * @return the model
+   * @throws IOException if the file cannot be read or is not an event store
+   * @throws IllegalArgumentException if the threshold is not positive
+   */
+  public static MappedCalendarModel open(Path file, int mergeThreshold) throws IOException {
+    Objects.requireNonNull(file, "Store file cannot be null");
+    if (mergeThreshold < 1) {
+      throw new IllegalArgumentException("Merge threshold must be positive");
+    }
+    if (!Files.exists(file)) {
+      write(file, new ArrayList<>(), new ArrayList<>());
+    }
+    MappedCalendarModel model = new MappedCalendarModel(file, mergeThreshold);
+    model.map();
+    return model;
+  }
+
+  /**
+   * Merges the on-heap delta into the file and maps the result.
+   *
+   * @throws IOException if the file cannot be written
+   */
+  public void merge() throws IOException {
+    List<EventInterface> events = delta.getStandaloneEvents();
+    for (int i = 0; i < count; i++) {
+      if (!hidden.get(i)) {
+        events.add(decode(i));
+      }
+    }
+    write(file, events, delta.getAllSeries());
+    map();
+  }
+
+  /**
+   * Merges any pending writes into the file.
+   *
+   * @throws IOException if the file cannot be written
+   */
+  @Override
+  public void close() throws IOException {
+    if (pendingWrites > 0) {
+      merge();
+    }
+  }
+
+  /**
+   * Gets the number of events stored in the mapped file, including those that
+   * were since edited and now live in the delta.
+   *
+   * @return the number of records in the file
+   */
+  public int getStoredEventCount() {
+    return count;
+  }
+
+  @Override
+  public boolean createEvent(EventInterface event) {
+    return recordWrite(delta.createEvent(event));
+  }
+
+  @Override
+  public boolean createEvents(List<EventInterface> events) {
+    Objects.requireNonNull(events, "Events cannot be null");
+
+    for (EventInterface event : events) {
+      if (event != null && storedIndexOf(event) != NONE) {
+        return false;
+      }
+    }
+    return recordWrite(delta.createEvents(events));
+  }
+
+  @Override
+  public boolean createEventSeries(EventSeries series) {
+    return recordWrite(delta.createEventSeries(series));
+  }
+
+  @Override
+  public boolean editEvent(UUID eventId, EditSpec spec) {
+    Objects.requireNonNull(eventId, "Event ID cannot be null");
+
+    if (delta.findEventById(eventId) == null) {
+      int i = storedIndexOf(eventId);
+      if (i == NONE) {
+        return false;
+      }
+      promote(i);
+    }
+    return recordWrite(delta.editEvent(eventId, spec));
+  }
+
+  @Override
+  public boolean editSeriesFrom(UUID seriesId, LocalDate fromDate, EditSpec spec) {
+    Objects.requireNonNull(seriesId, "Series ID cannot be null");
+
+    promoteSeries(seriesId);
+    return recordWrite(delta.editSeriesFrom(seriesId, fromDate, spec));
+  }
+
+  @Override
+  public boolean editEntireSeries(UUID seriesId, EditSpec spec) {
+    Objects.requireNonNull(seriesId, "Series ID cannot be null");
+
+    promoteSeries(seriesId);
+    return recordWrite(delta.editEntireSeries(seriesId, spec));
+  }
+
+  @Override
+  public List<EventInterface> getEventsOnDate(LocalDate date) {
+    Objects.requireNonNull(date, "Date cannot be null");
+
+    long dayStart = date.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+    long nextDay = date.plusDays(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+    List<EventInterface> result = delta.getEventsOnDate(date);
+    for (int i = firstStartingAtOrAfter(dayStart - maxSpanSeconds);
+         i < count && startSecond(i) < nextDay; i++) {
+      if (!hidden.get(i) && !endDateTime(i).toLocalDate().isBefore(date)) {
+        result.add(decode(i));
+      }
+    }
+    result.sort(STORE_ORDER);
+    return result;
+  }
+
+  @Override
+  public List<EventInterface> getEventsInRange(LocalDateTime startDateTime,
+      LocalDateTime endDateTime) {
+    Objects.requireNonNull(startDateTime, "Start date-time cannot be null");
+    Objects.requireNonNull(endDateTime, "End date-time cannot be null");
+
+    long from = startDateTime.toEpochSecond(ZoneOffset.UTC);
+    long to = endDateTime.toEpochSecond(ZoneOffset.UTC);
+    List<EventInterface> result = delta.getEventsInRange(startDateTime, endDateTime);
+    for (int i = firstStartingAtOrAfter(from - maxSpanSeconds);
+         i < count && startSecond(i) <= to; i++) {
+      if (!hidden.get(i) && startDateTime(i).isBefore(endDateTime)
+          && endDateTime(i).isAfter(startDateTime)) {
+        result.add(decode(i));
+      }
+    }
+    result.sort(STORE_ORDER);
+    return result;
+  }
+
+  @Override
+  public List<EventInterface> getAllEvents() {
+    List<EventInterface> result = delta.getAllEvents();
+    for (int i = 0; i < count; i++) {
+      if (!hidden.get(i)) {
+        result.add(decode(i));
+      }
+    }
+    result.sort(STORE_ORDER);
+    return result;
+  }
+
+  @Override
+  public Stream<EventInterface> streamAllEvents() {
+    Iterator<EventInterface> stored = new Iterator<EventInterface>() {
+      private int next = hidden.nextClearBit(0);
+
+      @Override
+      public boolean hasNext() {
+        return next < count;
+      }
+
+      @Override
+      public EventInterface next() {
+        if (next >= count) {
+          throw new NoSuchElementException();
+        }
+        EventInterface event = decode(next);
+        next = hidden.nextClearBit(next + 1);
+        return event;
+      }
+    };
+    return EventStreams.merge(List.of(stored, delta.streamAllEvents().iterator()));
+  }
+
+  @Override
+  public Stream<EventInterface> streamEventsInRange(LocalDateTime startDateTime,
+      LocalDateTime endDateTime) {
+    Objects.requireNonNull(startDateTime, "Start date-time cannot be null");
+    Objects.requireNonNull(endDateTime, "End date-time cannot be null");
+
+    long to = endDateTime.toEpochSecond(ZoneOffset.UTC);
+    int first = firstStartingAtOrAfter(startDateTime.toEpochSecond(ZoneOffset.UTC)
+        - maxSpanSeconds);
+    Iterator<EventInterface> stored = new Iterator<EventInterface>() {
+      private int next = advance(first);
+
+      private int advance(int i) {
+        for (; i < count && startSecond(i) <= to; i++) {
+          if (!hidden.get(i) && startDateTime(i).isBefore(endDateTime)
+              && endDateTime(i).isAfter(startDateTime)) {
+            return i;
+          }
+        }
+        return count;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next < count;
+      }
+
+      @Override
+      public EventInterface next() {
+        if (next >= count) {
+          throw new NoSuchElementException();
+        }
+        EventInterface event = decode(next);
+        next = advance(next + 1);
+        return event;
+      }
+    };
+    return EventStreams.merge(List.of(stored,
+        delta.streamEventsInRange(startDateTime, endDateTime).iterator()));
+  }
+
+  @Override
+  public ChangeSet getChangesSince(long token) {
+    return delta.getChangesSince(token);
+  }
+
+  @Override
+  public long getChangeToken() {
+    return delta.getChangeToken();
+  }
+
+  @Override
+  public boolean isBusy(LocalDateTime dateTime) {
+    Objects.requireNonNull(dateTime, "Date-time cannot be null");
+
+    if (delta.isBusy(dateTime)) {
+      return true;
+    }
+    long second = dateTime.toEpochSecond(ZoneOffset.UTC);
+    for (int i = firstStartingAtOrAfter(second - maxSpanSeconds);
+         i < count && startSecond(i) <= second; i++) {
+      if (!hidden.get(i) && !startDateTime(i).isAfter(dateTime)
+          && endDateTime(i).isAfter(dateTime)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public EventInterface findEventById(UUID eventId) {
+    Objects.requireNonNull(eventId, "Event ID cannot be null");
+
+    EventInterface event = delta.findEventById(eventId);
+    if (event != null) {
+      return event;
+    }
+    int i = storedIndexOf(eventId);
+    return (i == NONE) ? null : decode(i);
+  }
+
+  @Override
+  public EventInterface findEventByProperties(String subject, LocalDateTime startDateTime,
+      LocalDateTime endDateTime) {
+    EventInterface event = delta.findEventByProperties(subject, startDateTime, endDateTime);
+    if (event != null) {
+      return event;
+    }
+    int i = storedIndexOf(subject.trim(), startDateTime, endDateTime);
+    return (i == NONE) ? null : decode(i);
+  }
+
+  @Override
+  public List<EventInterface> findEventsBySubjectAndStart(String subject,
+      LocalDateTime startDateTime) {
+    List<EventInterface> result = delta.findEventsBySubjectAndStart(subject, startDateTime);
+    String trimmed = subject.trim();
+    long second = startDateTime.toEpochSecond(ZoneOffset.UTC);
+    for (int i = firstStartingAtOrAfter(second); i < count && startSecond(i) == second; i++) {
+      if (!hidden.get(i) && startDateTime(i).equals(startDateTime)
+          && readString(records.getInt(offset(i) + SUBJECT)).equals(trimmed)) {
+        result.add(decode(i));
+      }
+    }
+    result.sort(EventStreams.CHRONOLOGICAL);
+    return result;
+  }
+
+  @Override
+  public EventSeries findSeriesById(UUID seriesId) {
+    return delta.findSeriesById(seriesId);
+  }
+
+  @Override
+  public List<EventSeries> getAllSeries() {
+    return delta.getAllSeries();
+  }
+
+  @Override
+  public List<EventInterface> getStandaloneEvents() {
+    List<EventInterface> result = delta.getStandaloneEvents();
+    for (int i = 0; i < count; i++) {
+      if (!hidden.get(i)) {
+        result.add(decode(i));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Counts a write and merges the delta once enough writes have accumulated.
+   *
+   * @param succeeded whether the write succeeded
+   * @return the given result
+   */
+  private boolean recordWrite(boolean succeeded) {
+    if (succeeded && ++pendingWrites >= mergeThreshold) {
+      try {
+        merge();
+      } catch (IOException e) {
+        throw new EventStoreException("Could not merge event store " + file, e);
+      }
+    }
+    return succeeded;
+  }
+
+  /**
+   * Moves a stored event into the delta so it can be edited there.
+   *
+   * @param i the record index
+   */
+  private void promote(int i) {
+    EventInterface event = decode(i);
+    hidden.set(i);
+    delta.createEvent(event);
+  }
+
+  /**
+   * Moves every stored event of a series into the delta, so series edits see the
+   * occurrences that were detached from the rule before the file was written.
+   *
+   * @param seriesId the series ID
+   */
+  private void promoteSeries(UUID seriesId) {
+    for (int i = 0; i < count; i++) {
+      if (!hidden.get(i) && (records.getInt(offset(i) + FLAGS) & IN_SERIES) != 0
+          && records.getLong(offset(i) + SERIES_ID) == seriesId.getMostSignificantBits()
+          && records.getLong(offset(i) + SERIES_ID + 8) == seriesId.getLeastSignificantBits()) {
+        promote(i);
+      }
+    }
+  }
+
+  /**
+   * Maps the file and resets the delta to hold just its series rules.
+   *
+   * @throws IOException if the file cannot be read or is not an event store
+   */
+  private void map() throws IOException {
+    MappedByteBuffer mapped;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Not an event store: " + file);
+      }
+      mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+      throw new IOException("Not an event store: " + file);
+    }
+    int recordCount = mapped.getInt(8);
+    int seriesCount = mapped.getInt(12);
+    long indexOffset = mapped.getLong(24);
+    long stringsOffset = mapped.getLong(32);
+    long seriesOffset = mapped.getLong(40);
+    if (recordCount < 0 || indexOffset != HEADER_BYTES + (long) recordCount * RECORD_BYTES
+        || stringsOffset < indexOffset || seriesOffset < stringsOffset
+        || seriesOffset > mapped.capacity()) {
+      throw new IOException("Event store is corrupt: " + file);
+    }
+
+    long[] sparse = new long[(recordCount + INDEX_STRIDE - 1) / INDEX_STRIDE];
+    for (int k = 0; k < sparse.length; k++) {
+      sparse[k] = mapped.getLong((int) indexOffset + k * Long.BYTES);
+    }
+
+    this.records = mapped;
+    this.stringsBase = (int) stringsOffset;
+    this.count = recordCount;
+    this.maxSpanSeconds = mapped.getLong(16);
+    this.index = sparse;
+    this.hidden = new BitSet(recordCount);
+
+    byte[] seriesBytes = new byte[mapped.capacity() - (int) seriesOffset];
+    ByteBuffer view = mapped.duplicate();
+    view.position((int) seriesOffset);
+    view.get(seriesBytes);
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(seriesBytes));
+    this.delta = new DeltaModel(changes);
+    for (int i = 0; i < seriesCount; i++) {
+      if (!delta.createEventSeries(JournalCodec.readSeries(in))) {
+        throw new IOException("Event store has a conflicting series: " + file);
+      }
+    }
+    this.pendingWrites = 0;
+  }
+
+  /**
+   * Writes a store file to a temporary sibling and atomically moves it into place.
+   *
+   * @param target the store file
+   * @param events the standalone events
+   * @param series the series rules
+   * @throws IOException if the file cannot be written
+   */
+  private static void write(Path target, List<EventInterface> events, List<EventSeries> series)
+      throws IOException {
+    events.sort(STORE_ORDER);
+
+    Map<String, Integer> stringOffsets = new HashMap<>();
+    ByteArrayOutputStream stringBytes = new ByteArrayOutputStream();
+    DataOutputStream strings = new DataOutputStream(stringBytes);
+    long maxSpan = 0;
+    int[] stringRefs = new int[events.size() * 3];
+    for (int i = 0; i < events.size(); i++) {
+      EventInterface event = events.get(i);
+      stringRefs[3 * i] = intern(event.getSubject(), stringOffsets, strings);
+      stringRefs[3 * i + 1] = intern(event.getDescription().orElse(null), stringOffsets, strings);
+      stringRefs[3 * i + 2] = intern(event.getLocation().orElse(null), stringOffsets, strings);
+      maxSpan = Math.max(maxSpan, event.getEndDateTime().toEpochSecond(ZoneOffset.UTC)
+          - event.getStartDateTime().toEpochSecond(ZoneOffset.UTC) + 1);
+    }
+
+    ByteArrayOutputStream seriesBytes = new ByteArrayOutputStream();
+    DataOutputStream seriesOut = new DataOutputStream(seriesBytes);
+    for (EventSeries rule : series) {
+      JournalCodec.writeSeries(seriesOut, rule);
+    }
+
+    long indexOffset = HEADER_BYTES + (long) events.size() * RECORD_BYTES;
+    long stringsOffset = indexOffset
+        + (long) ((events.size() + INDEX_STRIDE - 1) / INDEX_STRIDE) * Long.BYTES;
+    long seriesOffset = stringsOffset + stringBytes.size();
+    if (seriesOffset + seriesBytes.size() > Integer.MAX_VALUE) {
+      throw new IOException("Event store would exceed 2 GB: " + target);
+    }
+
+    Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(events.size());
+      out.writeInt(series.size());
+      out.writeLong(maxSpan);
+      out.writeLong(indexOffset);
+      out.writeLong(stringsOffset);
+      out.writeLong(seriesOffset);
+      for (int i = 0; i < events.size(); i++) {
+        writeRecord(out, events.get(i), stringRefs, i);
+      }
+      for (int i = 0; i < events.size(); i += INDEX_STRIDE) {
+        out.writeLong(events.get(i).getStartDateTime().toEpochSecond(ZoneOffset.UTC));
+      }
+      stringBytes.writeTo(out);
+      seriesBytes.writeTo(out);
+      out.flush();
+      channel.force(true);
+    }
+    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static void writeRecord(DataOutputStream out, EventInterface event, int[] stringRefs,
+                                  int i) throws IOException {
+    LocalDateTime start = event.getStartDateTime();
+    LocalDateTime end = event.getEndDateTime();
+    out.writeLong(start.toEpochSecond(ZoneOffset.UTC));
+    out.writeLong(end.toEpochSecond(ZoneOffset.UTC));
+    out.writeInt(start.getNano());
+    out.writeInt(end.getNano());
+    out.writeInt(stringRefs[3 * i]);
+    out.writeInt(stringRefs[3 * i + 1]);
+    out.writeInt(stringRefs[3 * i + 2]);
+    out.writeInt((event.isPrivate() ? PRIVATE : 0)
+        | (event.getSeriesId().isPresent() ? IN_SERIES : 0));
+    out.writeLong(event.getId().getMostSignificantBits());
+    out.writeLong(event.getId().getLeastSignificantBits());
+    UUID seriesId = event.getSeriesId().orElse(null);
+    out.writeLong(seriesId == null ? 0 : seriesId.getMostSignificantBits());
+    out.writeLong(seriesId == null ? 0 : seriesId.getLeastSignificantBits());
+  }
+
+  /**
+   * Adds a string to the string section once and returns its offset there.
+   *
+   * @param value   the string, or null
+   * @param offsets offsets of the strings written so far
+   * @param out     the string section
+   * @return the offset, or -1 for null
+   * @throws IOException never, the section is in memory
+   */
+  private static int intern(String value, Map<String, Integer> offsets, DataOutputStream out)
+      throws IOException {
+    if (value == null) {
+      return NONE;
+    }
+    Integer offset = offsets.get(value);
+    if (offset == null) {
+      offset = out.size();
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+      offsets.put(value, offset);
+    }
+    return offset;
+  }
+
+  /**
+   * Finds the first record that starts at or after a second. The sparse index
+   * narrows the search to one stride of records before the mapped region is read.
+   *
+   * @param second the epoch second
+   * @return the record index, or the record count if there is none
+   */
+  private int firstStartingAtOrAfter(long second) {
+    int lo = 0;
+    int hi = index.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (index[mid] < second) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    int from = (lo == 0) ? 0 : (lo - 1) * INDEX_STRIDE;
+    int to = Math.min(count, lo * INDEX_STRIDE);
+    while (from < to) {
+      int mid = (from + to) >>> 1;
+      if (startSecond(mid) < second) {
+        from = mid + 1;
+      } else {
+        to = mid;
+      }
+    }
+    return from;
+  }
+
+  private int storedIndexOf(EventInterface event) {
+    return storedIndexOf(event.getSubject(), event.getStartDateTime(), event.getEndDateTime());
+  }
+
+  /**
+   * Finds a visible stored event by its subject, start and end.
+   *
+   * @param subject       the subject
+   * @param startDateTime the start time
+   * @param endDateTime   the end time
+   * @return the record index, or -1 if there is none
+   */
+  private int storedIndexOf(String subject, LocalDateTime startDateTime,
+                            LocalDateTime endDateTime) {
+    long second = startDateTime.toEpochSecond(ZoneOffset.UTC);
+    for (int i = firstStartingAtOrAfter(second); i < count && startSecond(i) == second; i++) {
+      if (!hidden.get(i) && startDateTime(i).equals(startDateTime)
+          && endDateTime(i).equals(endDateTime)
+          && readString(records.getInt(offset(i) + SUBJECT)).equals(subject)) {
+        return i;
+      }
+    }
+    return NONE;
+  }
+
+  /**
+   * Finds a visible stored event by ID. Records are not indexed by ID, so this
+   * compares the IDs in place without decoding any record.
+   *
+   * @param eventId the event ID
+   * @return the record index, or -1 if there is none
+   */
+  private int storedIndexOf(UUID eventId) {
+    long msb = eventId.getMostSignificantBits();
+    long lsb = eventId.getLeastSignificantBits();
+    for (int i = 0; i < count; i++) {
+      int at = offset(i) + EVENT_ID;
+      if (records.getLong(at) == msb && records.getLong(at + 8) == lsb && !hidden.get(i)) {
+        return i;
+      }
+    }
+    return NONE;
+  }
+
+  /**
+   * Checks whether the file holds a visible event equal to the given one.
+   *
+   * @param event the event to look for
+   * @return true if an equal event is stored
+   */
+  private boolean storedContains(EventInterface event) {
+    return storedIndexOf(event) != NONE;
+  }
+
+  private static int offset(int i) {
+    return HEADER_BYTES + i * RECORD_BYTES;
+  }
+
+  private long startSecond(int i) {
+    return records.getLong(offset(i) + START_SECOND);
+  }
+
+  private LocalDateTime startDateTime(int i) {
+    int at = offset(i);
+    return LocalDateTime.ofEpochSecond(records.getLong(at + START_SECOND),
+        records.getInt(at + START_NANO), ZoneOffset.UTC);
+  }
+
+  private LocalDateTime endDateTime(int i) {
+    int at = offset(i);
+    return LocalDateTime.ofEpochSecond(records.getLong(at + END_SECOND),
+        records.getInt(at + END_NANO), ZoneOffset.UTC);
+  }
+
+  private String readString(int ref) {
+    if (ref == NONE) {
+      return null;
+    }
+    int at = stringsBase + ref;
+    byte[] bytes = new byte[records.getInt(at)];
+    ByteBuffer view = records.duplicate();
+    view.position(at + Integer.BYTES);
+    view.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Decodes one record into an event.
+   *
+   * @param i the record index
+   * @return the event
+   */
+  private EventInterface decode(int i) {
+    int at = offset(i);
+    int flags = records.getInt(at + FLAGS);
+    UUID seriesId = ((flags & IN_SERIES) != 0)
+        ? new UUID(records.getLong(at + SERIES_ID), records.getLong(at + SERIES_ID + 8))
+        : null;
+    return new Event(
+        readString(records.getInt(at + SUBJECT)),
+        startDateTime(i),
+        endDateTime(i),
+        readString(records.getInt(at + DESCRIPTION)),
+        readString(records.getInt(at + LOCATION)),
+        (flags & PRIVATE) != 0,
+        new UUID(records.getLong(at + EVENT_ID), records.getLong(at + EVENT_ID + 8)),
+        seriesId);
+  }
+
+  /**
+   * The on-heap delta. It treats events stored in the file as existing, so every
+   * create and edit is checked against the whole calendar.
+   */
+  private final class DeltaModel extends CalendarModel {
+    DeltaModel(ChangeLog changes) {
+      super(changes);
+    }
+
+    @Override
+    protected boolean containsEvent(EventInterface event) {
+      return super.containsEvent(event) || storedContains(event);
+    }
+  }
+}
@@ -0,0 +1,205 @@
+package calendar.persistence;
+
+import calendar.exceptions.EventStoreException;
+import calendar.model.Calendar;
+import calendar.model.CalendarFactory;
+import calendar.model.CalendarInterface;
+import calendar.model.CalendarManager;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A directory of calendars whose events live in {@link MappedCalendarModel} stores,
+ * one store file per calendar.
+ *
+ * <p>A store file holds events only, so the directory also keeps a manifest that
+ * lists, one calendar per line, its store file, timezone and name, separated by
+ * tabs. The manifest is read when the directory is opened and rewritten on
+ * {@link #close()}, so calendars created, renamed or moved to another timezone
+ * since are kept. The manifest is written to a temporary sibling and atomically
+ * moved into place.
+ *
+ * <p>Use it like a journal: open the directory, build the manager with
+ * {@link #calendarFactory()}, {@link #load(CalendarManager)} the calendars, and
+ * close the directory when the application exits. As with a single store, writes
+ * made since the last merge are lost if the process dies.
+ */
+public final class MappedStoreDirectory implements Closeable {
+  /**
+   * Name of the manifest file in the directory.
+   */
+  public static final String MANIFEST = "calendars.manifest";
+
+  private final Path directory;
+  private final Map<String, String> storedFiles = new LinkedHashMap<>();
+  private final Map<String, ZoneId> storedTimezones = new LinkedHashMap<>();
+  private final List<CalendarInterface> calendars = new ArrayList<>();
+  private final List<String> files = new ArrayList<>();
+  private final List<MappedCalendarModel> models = new ArrayList<>();
+  private int nextFile;
+
+  private MappedStoreDirectory(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Opens a store directory, creating it if it does not exist.
+   *
+   * @param directory the directory
+   * @return the opened directory
+   * @throws IOException if the directory cannot be created or its manifest is
+   *                     unreadable or malformed
+   */
+  public static MappedStoreDirectory open(Path directory) throws IOException {
+    Objects.requireNonNull(directory, "Store directory cannot be null");
+    Files.createDirectories(directory);
+    MappedStoreDirectory store = new MappedStoreDirectory(directory);
+    Path manifest = directory.resolve(MANIFEST);
+    if (Files.exists(manifest)) {
+      store.readManifest(manifest);
+    }
+    return store;
+  }
+
+  /**
+   * Gets a factory that creates calendars backed by store files in this directory.
+   * A calendar listed in the manifest reopens its file; any other calendar gets a
+   * new one.
+   *
+   * @return the factory
+   * @throws EventStoreException from the factory if a store cannot be opened
+   */
+  public CalendarFactory calendarFactory() {
+    return this::createCalendar;
+  }
+
+  /**
+   * Creates every calendar listed in the manifest in an empty manager built with
+   * {@link #calendarFactory()}.
+   *
+   * @param manager the manager to populate
+   * @return the number of calendars loaded
+   */
+  public int load(CalendarManager manager) {
+    Map<String, ZoneId> listed;
+    synchronized (this) {
+      listed = new LinkedHashMap<>(storedTimezones);
+    }
+    int loaded = 0;
+    for (Map.Entry<String, ZoneId> entry : listed.entrySet()) {
+      if (manager.createCalendar(entry.getKey(), entry.getValue())) {
+        loaded++;
+      }
+    }
+    return loaded;
+  }
+
+  /**
+   * Rewrites the manifest and merges every store's pending writes into its file.
+   *
+   * @throws IOException if the manifest or a store cannot be written
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    Path manifest = directory.resolve(MANIFEST);
+    Path temp = manifest.resolveSibling(MANIFEST + ".tmp");
+    try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+      for (int i = 0; i < calendars.size(); i++) {
+        CalendarInterface calendar = calendars.get(i);
+        out.write(files.get(i) + "\t" + calendar.getTimezone().getId() + "\t"
+            + calendar.getName());
+        out.newLine();
+      }
+      for (Map.Entry<String, String> entry : storedFiles.entrySet()) {
+        out.write(entry.getValue() + "\t" + storedTimezones.get(entry.getKey()).getId()
+            + "\t" + entry.getKey());
+        out.newLine();
+      }
+    }
+    Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    for (MappedCalendarModel model : models) {
+      model.close();
+    }
+  }
+
+  /**
+   * Creates a calendar backed by its store file.
+   *
+   * @param name     the calendar name
+   * @param timezone the calendar timezone
+   * @return the calendar
+   */
+  private synchronized CalendarInterface createCalendar(String name, ZoneId timezone) {
+    String file = storedFiles.remove(name);
+    storedTimezones.remove(name);
+    if (file == null) {
+      file = newFileName();
+    }
+    MappedCalendarModel model;
+    try {
+      model = MappedCalendarModel.open(directory.resolve(file));
+    } catch (IOException e) {
+      throw new EventStoreException("Could not open event store " + file, e);
+    }
+    CalendarInterface calendar = new Calendar(name, timezone, model);
+    calendars.add(calendar);
+    files.add(file);
+    models.add(model);
+    return calendar;
+  }
+
+  /**
+   * Picks a store file name that no calendar uses and no file has.
+   *
+   * @return the file name
+   */
+  private String newFileName() {
+    while (true) {
+      String file = "calendar-" + nextFile++ + ".store";
+      if (!files.contains(file) && !storedFiles.containsValue(file)
+          && !Files.exists(directory.resolve(file))) {
+        return file;
+      }
+    }
+  }
+
+  /**
+   * Reads the manifest.
+   *
+   * @param manifest the manifest file
+   * @throws IOException if it cannot be read or a line is malformed
+   */
+  private void readManifest(Path manifest) throws IOException {
+    int lineNumber = 0;
+    for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+      lineNumber++;
+      if (line.isEmpty()) {
+        continue;
+      }
+      String[] fields = line.split("\t", 3);
+      if (fields.length < 3 || fields[0].isEmpty() || fields[2].isEmpty()) {
+        throw new IOException("Malformed manifest line " + lineNumber + " in " + manifest);
+      }
+      try {
+        storedTimezones.put(fields[2], ZoneId.of(fields[1]));
+      } catch (DateTimeException e) {
+        throw new IOException("Invalid timezone on manifest line " + lineNumber + " in "
+            + manifest, e);
+      }
+      storedFiles.put(fields[2], fields[0]);
+    }
+  }
+}
@@ -0,0 +1,621 @@
+package calendar.persistence;
+
+import calendar.model.CalendarInterface;
+import calendar.model.CalendarManager;
+import calendar.model.CalendarModelInterface;
+import calendar.model.EditSpec;
+import calendar.model.Event;
+import calendar.model.EventInterface;
+import calendar.model.EventSeries;
+import calendar.model.EventStatus;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * Compact binary snapshot of every calendar in a {@link CalendarManager}.
+ *
+ * <p>FILE FORMAT:
+ * - header: magic "CALS", format version, and the journal position the snapshot
+ *   covers (generation and byte offset; generation -1 if taken without a journal)
+ * - string table: every distinct subject, description, location, calendar name
+ *   and timezone, stored once; the body refers to strings by index
+ * - body: per calendar, its standalone events followed by its series rules
+ *   (never their expanded occurrences)
+ * - trailer: CRC32C of everything before it
+ *
+ * <p>Integers are LEB128 varints (zigzag-encoded when they may be negative).
+ * Date-times are epoch minutes, with the end of an event stored relative to its
+ * start; sub-minute precision costs one extra varint only when present. UUIDs are
+ * stored as two fixed-width longs.
+ *
+ * <p>Files are written to a temporary sibling, forced to disk and atomically
+ * moved into place, so a crash never leaves a half-written snapshot behind.
+ */
+public final class Snapshot {
+
+  private static final int MAGIC = 0x43414c53;
+  private static final int VERSION = 1;
+  private static final int MINUTES_PER_DAY = 24 * 60;
+  private static final long NANOS_PER_MINUTE = 60_000_000_000L;
+
+  private static final int PRIVATE = 1;
+  private static final int IN_SERIES = 1 << 1;
+
+  private static final int USES_END_DATE = 1;
+  private static final int HAS_END_DATE = 1 << 1;
+  private static final int HAS_OCCURRENCES = 1 << 2;
+  private static final int HAS_LAST_DATE = 1 << 3;
+
+  private static final int SUBJECT = 1;
+  private static final int START = 1 << 1;
+  private static final int END = 1 << 2;
+  private static final int DESCRIPTION = 1 << 3;
+  private static final int LOCATION = 1 << 4;
+  private static final int STATUS = 1 << 5;
+
+  private Snapshot() {
+  }
+
+  /**
+   * Saves every calendar to a snapshot file. If the calendars are journaled, the
+   * journal is synced first and its position is stored, so the snapshot can later
+   * be combined with the same journal.
+   *
+   * @param manager the manager to save
+   * @param path    the snapshot file
+   * @return the number of calendars saved
+   * @throws IOException if the file cannot be written
+   */
+  public static int save(CalendarManager manager, Path path) throws IOException {
+    List<CalendarInterface> calendars = manager.getAllCalendars();
+    for (CalendarInterface calendar : calendars) {
+      if (calendar instanceof JournaledCalendar) {
+        Journal journal = ((JournaledCalendar) calendar).getJournal();
+        synchronized (journal) {
+          write(calendars, path, journal.getGeneration(), journal.syncedLength());
+        }
+        return calendars.size();
+      }
+    }
+    write(calendars, path, -1, 0);
+    return calendars.size();
+  }
+
+  /**
+   * Loads a snapshot into an empty manager.
+   *
+   * @param path    the snapshot file
+   * @param manager the manager to populate
+   * @return the number of calendars loaded
+   * @throws IOException if the file cannot be read or is not a valid snapshot
+   */
+  public static int load(Path path, CalendarManager manager) throws IOException {
+    return read(path, manager).calendars;
+  }
+
+  /**
+   * Writes a snapshot of a set of calendars.
+   *
+   * @param calendars         the calendars to write
+   * @param path              the snapshot file
+   * @param journalGeneration the generation of the journal the snapshot covers
+   * @param journalOffset     the journal length the snapshot covers
+   * @throws IOException if the file cannot be written
+   */
+  static void write(List<CalendarInterface> calendars, Path path, long journalGeneration,
+                    long journalOffset) throws IOException {
+    Encoder body = new Encoder();
+    body.writeVarLong(calendars.size());
+    for (CalendarInterface calendar : calendars) {
+      CalendarModelInterface model = calendar.getModel();
+      body.writeString(calendar.getName());
+      body.writeString(calendar.getTimezone().getId());
+      List<EventInterface> events = model.getStandaloneEvents();
+      body.writeVarLong(events.size());
+      for (EventInterface event : events) {
+        body.writeEvent(event);
+      }
+      List<EventSeries> seriesList = model.getAllSeries();
+      body.writeVarLong(seriesList.size());
+      for (EventSeries series : seriesList) {
+        body.writeSeries(series);
+      }
+    }
+
+    Encoder header = new Encoder();
+    header.writeFixedInt(MAGIC);
+    header.writeVarLong(VERSION);
+    header.writeSignedVarLong(journalGeneration);
+    header.writeVarLong(journalOffset);
+    header.writeVarLong(body.strings.size());
+    for (String value : body.strings) {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      header.writeVarLong(bytes.length);
+      header.writeBytes(bytes, 0, bytes.length);
+    }
+
+    CRC32C checksum = new CRC32C();
+    checksum.update(header.buf, 0, header.count);
+    checksum.update(body.buf, 0, body.count);
+    ByteBuffer trailer = ByteBuffer.allocate(Integer.BYTES);
+    trailer.putInt((int) checksum.getValue()).flip();
+
+    Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      writeFully(channel, ByteBuffer.wrap(header.buf, 0, header.count));
+      writeFully(channel, ByteBuffer.wrap(body.buf, 0, body.count));
+      writeFully(channel, trailer);
+      channel.force(true);
+    }
+    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Reads a snapshot into an empty manager.
+   *
+   * @param path    the snapshot file
+   * @param manager the manager to populate
+   * @return what the snapshot contained and which journal position it covers
+   * @throws IOException if the file cannot be read or is not a valid snapshot
+   */
+  static Info read(Path path, CalendarManager manager) throws IOException {
+    byte[] data = Files.readAllBytes(path);
+    if (data.length < 2 * Integer.BYTES) {
+      throw new IOException("Not a calendar snapshot: " + path);
+    }
+    int end = data.length - Integer.BYTES;
+    CRC32C checksum = new CRC32C();
+    checksum.update(data, 0, end);
+    if ((int) checksum.getValue() != ByteBuffer.wrap(data, end, Integer.BYTES).getInt()) {
+      throw new IOException("Snapshot is corrupt (checksum mismatch): " + path);
+    }
+
+    Decoder in = new Decoder(data, end);
+    if (in.readFixedInt() != MAGIC || in.readVarLong() != VERSION) {
+      throw new IOException("Not a calendar snapshot: " + path);
+    }
+    Info info = new Info(in.readSignedVarLong(), in.readVarLong());
+    int stringCount = in.readCount();
+    in.strings = new String[stringCount];
+    for (int i = 0; i < stringCount; i++) {
+      int length = in.readCount();
+      in.strings[i] = new String(data, in.pos, length, StandardCharsets.UTF_8);
+      in.pos += length;
+    }
+
+    int calendarCount = in.readCount();
+    for (int c = 0; c < calendarCount; c++) {
+      String name = in.readString();
+      if (!manager.createCalendar(name, ZoneId.of(in.readString()))) {
+        throw new IOException("Snapshot calendar '" + name + "' already exists");
+      }
+      CalendarModelInterface model = manager.getCalendar(name).getModel();
+      int eventCount = in.readCount();
+      List<EventInterface> events = new ArrayList<>(eventCount);
+      for (int i = 0; i < eventCount; i++) {
+        events.add(in.readEvent());
+      }
+      if (!model.createEvents(events)) {
+        throw new IOException("Snapshot has a duplicate event in '" + name + "'");
+      }
+      int seriesCount = in.readCount();
+      for (int i = 0; i < seriesCount; i++) {
+        if (!model.createEventSeries(in.readSeries())) {
+          throw new IOException("Snapshot has a conflicting series in '" + name + "'");
+        }
+      }
+      info.events += eventCount;
+    }
+    info.calendars = calendarCount;
+    return info;
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private static long epochMinute(LocalDateTime value) {
+    return value.toLocalDate().toEpochDay() * MINUTES_PER_DAY
+        + value.getHour() * 60L + value.getMinute();
+  }
+
+
+  /**
+   * What a loaded snapshot contained and the journal position it covers.
+   */
+  static final class Info {
+    final long journalGeneration;
+    final long journalOffset;
+    int calendars;
+    long events;
+
+    Info(long journalGeneration, long journalOffset) {
+      this.journalGeneration = journalGeneration;
+      this.journalOffset = journalOffset;
+    }
+  }
+
+  /**
+   * Growable output buffer with varint, string-table and model encoders.
+   */
+  private static final class Encoder {
+    private byte[] buf = new byte[8192];
+    private int count;
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    private void ensure(int extra) {
+      if (count + extra > buf.length) {
+        buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + extra));
+      }
+    }
+
+    void writeByte(int value) {
+      ensure(1);
+      buf[count++] = (byte) value;
+    }
+
+    void writeBytes(byte[] bytes, int offset, int length) {
+      ensure(length);
+      System.arraycopy(bytes, offset, buf, count, length);
+      count += length;
+    }
+
+    void writeFixedInt(int value) {
+      ensure(Integer.BYTES);
+      for (int shift = 24; shift >= 0; shift -= 8) {
+        buf[count++] = (byte) (value >>> shift);
+      }
+    }
+
+    void writeFixedLong(long value) {
+      ensure(Long.BYTES);
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        buf[count++] = (byte) (value >>> shift);
+      }
+    }
+
+    void writeVarLong(long value) {
+      ensure(10);
+      while ((value & ~0x7FL) != 0) {
+        buf[count++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      buf[count++] = (byte) value;
+    }
+
+    void writeSignedVarLong(long value) {
+      writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    void writeString(String value) {
+      if (value == null) {
+        writeVarLong(0);
+        return;
+      }
+      Integer id = stringIds.get(value);
+      if (id == null) {
+        id = strings.size();
+        stringIds.put(value, id);
+        strings.add(value);
+      }
+      writeVarLong(id + 1L);
+    }
+
+    void writeUuid(UUID value) {
+      writeFixedLong(value.getMostSignificantBits());
+      writeFixedLong(value.getLeastSignificantBits());
+    }
+
+    void writeDate(LocalDate value) {
+      writeSignedVarLong(value.toEpochDay());
+    }
+
+    /**
+     * Writes a date-time as minutes relative to a base, flagging sub-minute parts.
+     */
+    void writeDateTime(LocalDateTime value, long baseMinute) {
+      long subMinute = value.getSecond() * 1_000_000_000L + value.getNano();
+      long minutes = epochMinute(value) - baseMinute;
+      writeSignedVarLong(minutes * 2 + (subMinute != 0 ? 1 : 0));
+      if (subMinute != 0) {
+        writeVarLong(subMinute);
+      }
+    }
+
+    void writeEvent(EventInterface event) {
+      int flags = (event.isPrivate() ? PRIVATE : 0)
+          | (event.getSeriesId().isPresent() ? IN_SERIES : 0);
+      writeByte(flags);
+      writeString(event.getSubject());
+      writeDateTime(event.getStartDateTime(), 0);
+      writeDateTime(event.getEndDateTime(), epochMinute(event.getStartDateTime()));
+      writeString(event.getDescription().orElse(null));
+      writeString(event.getLocation().orElse(null));
+      writeUuid(event.getId());
+      if (event.getSeriesId().isPresent()) {
+        writeUuid(event.getSeriesId().get());
+      }
+    }
+
+    void writeSpec(EditSpec spec) {
+      int fields = (spec.getNewSubject() != null ? SUBJECT : 0)
+          | (spec.getNewStart() != null ? START : 0)
+          | (spec.getNewEnd() != null ? END : 0)
+          | (spec.getNewDescription() != null ? DESCRIPTION : 0)
+          | (spec.getNewLocation() != null ? LOCATION : 0)
+          | (spec.getNewStatus() != null ? STATUS : 0);
+      writeByte(fields);
+      if (spec.getNewSubject() != null) {
+        writeString(spec.getNewSubject());
+      }
+      if (spec.getNewStart() != null) {
+        writeDateTime(spec.getNewStart(), 0);
+      }
+      if (spec.getNewEnd() != null) {
+        writeDateTime(spec.getNewEnd(), 0);
+      }
+      if (spec.getNewDescription() != null) {
+        writeString(spec.getNewDescription());
+      }
+      if (spec.getNewLocation() != null) {
+        writeString(spec.getNewLocation());
+      }
+      if (spec.getNewStatus() != null) {
+        writeByte(spec.getNewStatus().ordinal());
+      }
+    }
+
+    void writeSeries(EventSeries series) {
+      writeUuid(series.getSeriesId());
+      writeEvent(series.getTemplate());
+      int weekdays = 0;
+      for (DayOfWeek day : series.getWeekdays()) {
+        weekdays |= 1 << day.ordinal();
+      }
+      writeByte(weekdays);
+      int flags = (series.usesEndDate() ? USES_END_DATE : 0)
+          | (series.getEndDate() != null ? HAS_END_DATE : 0)
+          | (series.getOccurrences() != null ? HAS_OCCURRENCES : 0)
+          | (series.getLastDate() != null ? HAS_LAST_DATE : 0);
+      writeByte(flags);
+      if (series.getEndDate() != null) {
+        writeDate(series.getEndDate());
+      }
+      if (series.getOccurrences() != null) {
+        writeVarLong(series.getOccurrences());
+      }
+      if (series.getLastDate() != null) {
+        writeDate(series.getLastDate());
+      }
+
+      writeVarLong(series.getExceptionDates().size());
+      for (LocalDate date : series.getExceptionDates()) {
+        writeDate(date);
+      }
+      writeVarLong(series.getOverrides().size());
+      for (Map.Entry<LocalDate, EditSpec> entry : series.getOverrides().entrySet()) {
+        writeDate(entry.getKey());
+        writeSpec(entry.getValue());
+      }
+      writeVarLong(series.getRangeEdits().size());
+      for (EventSeries.RangeEdit edit : series.getRangeEdits()) {
+        writeDate(edit.getFromDate());
+        writeSpec(edit.getSpec());
+      }
+    }
+  }
+
+  /**
+   * Cursor over a snapshot's bytes with the matching decoders.
+   *
+   * <p>Decoded dates and times of day are shared between events: a calendar has
+   * few distinct days and at most 1440 distinct minutes, so caching them avoids
+   * most of the allocation when loading millions of events.
+   */
+  private static final class Decoder {
+    private static final int DATE_CACHE_SIZE = 4096;
+
+    private final byte[] data;
+    private final int limit;
+    private int pos;
+    private String[] strings;
+    private final LocalDate[] dates = new LocalDate[DATE_CACHE_SIZE];
+    private final long[] dateKeys = new long[DATE_CACHE_SIZE];
+    private final LocalTime[] times = new LocalTime[MINUTES_PER_DAY];
+
+    Decoder(byte[] data, int limit) {
+      this.data = data;
+      this.limit = limit;
+    }
+
+    int readByte() throws IOException {
+      if (pos >= limit) {
+        throw new IOException("Snapshot is truncated");
+      }
+      return data[pos++] & 0xFF;
+    }
+
+    int readFixedInt() throws IOException {
+      int value = 0;
+      for (int i = 0; i < Integer.BYTES; i++) {
+        value = (value << 8) | readByte();
+      }
+      return value;
+    }
+
+    long readFixedLong() throws IOException {
+      long value = 0;
+      for (int i = 0; i < Long.BYTES; i++) {
+        value = (value << 8) | readByte();
+      }
+      return value;
+    }
+
+    long readVarLong() throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        int b = readByte();
+        value |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IOException("Snapshot has a malformed varint");
+    }
+
+    long readSignedVarLong() throws IOException {
+      long raw = readVarLong();
+      return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    int readCount() throws IOException {
+      long value = readVarLong();
+      if (value < 0 || value > limit) {
+        throw new IOException("Snapshot has an invalid length");
+      }
+      return (int) value;
+    }
+
+    String readString() throws IOException {
+      long id = readVarLong();
+      if (id == 0) {
+        return null;
+      }
+      if (id > strings.length) {
+        throw new IOException("Snapshot refers to an unknown string");
+      }
+      return strings[(int) id - 1];
+    }
+
+    UUID readUuid() throws IOException {
+      return new UUID(readFixedLong(), readFixedLong());
+    }
+
+    LocalDate readDate() throws IOException {
+      return LocalDate.ofEpochDay(readSignedVarLong());
+    }
+
+    LocalDateTime ofEpochMinute(long minute) {
+      long day = Math.floorDiv(minute, MINUTES_PER_DAY);
+      int minuteOfDay = Math.floorMod(minute, MINUTES_PER_DAY);
+      int slot = (int) (day & (DATE_CACHE_SIZE - 1));
+      LocalDate date = dates[slot];
+      if (date == null || dateKeys[slot] != day) {
+        date = LocalDate.ofEpochDay(day);
+        dates[slot] = date;
+        dateKeys[slot] = day;
+      }
+      LocalTime time = times[minuteOfDay];
+      if (time == null) {
+        time = LocalTime.ofNanoOfDay(minuteOfDay * NANOS_PER_MINUTE);
+        times[minuteOfDay] = time;
+      }
+      return LocalDateTime.of(date, time);
+    }
+
+    LocalDateTime readDateTime(long baseMinute) throws IOException {
+      long raw = readSignedVarLong();
+      long minute = baseMinute + (raw >> 1);
+      LocalDateTime value = ofEpochMinute(minute);
+      return (raw & 1) != 0 ? value.plusNanos(readVarLong()) : value;
+    }
+
+    EventInterface readEvent() throws IOException {
+      int flags = readByte();
+      String subject = readString();
+      LocalDateTime start = readDateTime(0);
+      LocalDateTime end = readDateTime(epochMinute(start));
+      String description = readString();
+      String location = readString();
+      UUID id = readUuid();
+      UUID seriesId = (flags & IN_SERIES) != 0 ? readUuid() : null;
+      return new Event(subject, start, end, description, location, (flags & PRIVATE) != 0,
+          id, seriesId);
+    }
+
+    EditSpec readSpec() throws IOException {
+      int fields = readByte();
+      EditSpec.Builder builder = EditSpec.builder();
+      if ((fields & SUBJECT) != 0) {
+        builder.subject(readString());
+      }
+      if ((fields & START) != 0) {
+        builder.start(readDateTime(0));
+      }
+      if ((fields & END) != 0) {
+        builder.end(readDateTime(0));
+      }
+      if ((fields & DESCRIPTION) != 0) {
+        builder.description(readString());
+      }
+      if ((fields & LOCATION) != 0) {
+        builder.location(readString());
+      }
+      if ((fields & STATUS) != 0) {
+        builder.status(EventStatus.values()[readByte()]);
+      }
+      return builder.build();
+    }
+
+    EventSeries readSeries() throws IOException {
+      UUID seriesId = readUuid();
+      EventInterface template = readEvent();
+      int weekdayBits = readByte();
+      Set<DayOfWeek> weekdays = EnumSet.noneOf(DayOfWeek.class);
+      for (DayOfWeek day : DayOfWeek.values()) {
+        if ((weekdayBits & (1 << day.ordinal())) != 0) {
+          weekdays.add(day);
+        }
+      }
+      int flags = readByte();
+      LocalDate endDate = (flags & HAS_END_DATE) != 0 ? readDate() : null;
+      Integer occurrences = (flags & HAS_OCCURRENCES) != 0 ? (int) readVarLong() : null;
+      LocalDate lastDate = (flags & HAS_LAST_DATE) != 0 ? readDate() : null;
+
+      int exceptionCount = readCount();
+      Set<LocalDate> exceptionDates = new HashSet<>();
+      for (int i = 0; i < exceptionCount; i++) {
+        exceptionDates.add(readDate());
+      }
+      int overrideCount = readCount();
+      Map<LocalDate, EditSpec> overrides = new HashMap<>();
+      for (int i = 0; i < overrideCount; i++) {
+        LocalDate date = readDate();
+        overrides.put(date, readSpec());
+      }
+      int editCount = readCount();
+      List<EventSeries.RangeEdit> rangeEdits = new ArrayList<>();
+      for (int i = 0; i < editCount; i++) {
+        LocalDate fromDate = readDate();
+        rangeEdits.add(new EventSeries.RangeEdit(fromDate, readSpec()));
+      }
+      return EventSeries.restore(seriesId, template, weekdays, endDate, occurrences,
+          (flags & USES_END_DATE) != 0, lastDate, exceptionDates, overrides, rangeEdits);
+    }
+  }
+}
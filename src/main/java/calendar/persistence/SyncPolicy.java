@@ -0,0 +1,24 @@
+package calendar.persistence;
+
+/**
+ * Controls when journal records are forced to stable storage.
+ */
+public enum SyncPolicy {
+  /**
+   * Every record is written and fsynced before the mutation returns.
+   * Safest, but limited by the disk's sync latency.
+   */
+  ALWAYS,
+
+  /**
+   * Records are group-committed: written and fsynced together once a batch fills
+   * up or the sync interval elapses. A crash can lose at most the last batch.
+   */
+  BATCH,
+
+  /**
+   * Records are handed to the operating system but never explicitly fsynced
+   * (except on close). Survives a JVM crash, not a power loss.
+   */
+  NEVER
+}
@@ -1,14 +1,38 @@
 package calendar.util;
 
 import calendar.model.EventInterface;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Locale;
+import java.util.stream.Stream;
 
 /**
  * CSV export utility for Google Calendar format.
+ *
+ * <p>Rows are encoded one at a time into a reusable UTF-8 buffer that is flushed
+ * to an {@link OutputStream} (a file, or a channel via
+ * {@link java.nio.channels.Channels#newOutputStream}), so exporting a lazily
+ * produced event stream needs constant memory. Dates and times are written digit
+ * by digit instead of through a formatter, and text is encoded straight into the
+ * buffer, so a row allocates nothing beyond what the event already holds.
  */
 public final class CsvExporter {
+
+  /**
+   * The header row, including its line break.
+   */
+  public static final String HEADER = "Subject,Start Date,Start Time,End Date,End Time,"
+      + "All Day Event,Description,Location,Private\n";
+
+  private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+
   private CsvExporter() {
   }
 
@@ -19,38 +43,123 @@ public final class CsvExporter {
    * @return CSV string representation
    */
   public static String toCsv(List<EventInterface> events) {
-    StringBuilder csv = new StringBuilder();
-    csv.append("Subject,Start Date,Start Time,End Date,End Time,");
-    csv.append("All Day Event,Description,Location,Private\n");
-    DateTimeFormatter date = DateTimeFormatter.ofPattern("yyyy/MM/dd");
-    DateTimeFormatter time = DateTimeFormatter.ofPattern("h:mm a", Locale.ENGLISH);
-    for (EventInterface e : events) {
-      csv.append(escape(e.getSubject())).append(',')
-          .append(e.getStartDateTime().toLocalDate().format(date)).append(',')
-          .append(e.getStartDateTime().toLocalTime().format(time)).append(',')
-          .append(e.getEndDateTime().toLocalDate().format(date)).append(',')
-          .append(e.getEndDateTime().toLocalTime().format(time)).append(',')
-          .append(e.isAllDayEvent() ? "True" : "False").append(',')
-          .append(escape(e.getDescription().orElse(""))).append(',')
-          .append(escape(e.getLocation().orElse(""))).append(',')
-          .append(e.isPrivate() ? "True" : "False").append('\n');
+    ByteArrayOutputStream csv = new ByteArrayOutputStream();
+    try {
+      write(events.stream(), csv);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new String(csv.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes events in Google Calendar CSV format as UTF-8, one row at a time.
+   * Output is buffered internally and flushed when done; the stream is not closed.
+   *
+   * @param events the events to export, consumed in order
+   * @param out    the destination
+   * @return the number of events written
+   * @throws IOException if writing fails
+   */
+  public static long write(Stream<EventInterface> events, OutputStream out) throws IOException {
+    Utf8Output row = new Utf8Output(out);
+    row.text(HEADER);
+    long rows = 0;
+    Iterator<EventInterface> iterator = events.iterator();
+    while (iterator.hasNext()) {
+      writeRow(iterator.next(), row);
+      rows++;
+    }
+    row.flush();
+    return rows;
+  }
+
+  private static void writeRow(EventInterface e, Utf8Output out) throws IOException {
+    writeField(e.getSubject(), out);
+    out.put(',');
+    writeDate(e.getStartDateTime().toLocalDate(), out);
+    out.put(',');
+    writeTime(e.getStartDateTime().toLocalTime(), out);
+    out.put(',');
+    writeDate(e.getEndDateTime().toLocalDate(), out);
+    out.put(',');
+    writeTime(e.getEndDateTime().toLocalTime(), out);
+    out.put(',');
+    out.text(e.isAllDayEvent() ? "True" : "False");
+    out.put(',');
+    writeField(e.getDescription().orElse(null), out);
+    out.put(',');
+    writeField(e.getLocation().orElse(null), out);
+    out.put(',');
+    out.text(e.isPrivate() ? "True" : "False");
+    out.put('\n');
+  }
+
+  /**
+   * Writes a date as yyyy/MM/dd. Years outside 1-9999 fall back to the
+   * formatter, which adds the sign and extra digits they need.
+   *
+   * @param date the date
+   * @param out  the destination
+   * @throws IOException if writing fails
+   */
+  private static void writeDate(LocalDate date, Utf8Output out) throws IOException {
+    int year = date.getYear();
+    if (year < 1 || year > 9999) {
+      out.text(date.format(DATE));
+      return;
     }
-    return csv.toString();
+    out.twoDigits(year / 100);
+    out.twoDigits(year % 100);
+    out.put('/');
+    out.twoDigits(date.getMonthValue());
+    out.put('/');
+    out.twoDigits(date.getDayOfMonth());
   }
 
   /**
-   * Escapes a CSV field.
+   * Writes a time as "h:mm a", e.g. 9:05 AM or 12:30 PM.
    *
-   * @param s the string to escape
-   * @return escaped string
+   * @param time the time
+   * @param out  the destination
+   * @throws IOException if writing fails
    */
-  private static String escape(String s) {
+  private static void writeTime(LocalTime time, Utf8Output out) throws IOException {
+    int hour = time.getHour() % 12;
+    hour = (hour == 0) ? 12 : hour;
+    if (hour >= 10) {
+      out.put('1');
+    }
+    out.put((char) ('0' + hour % 10));
+    out.put(':');
+    out.twoDigits(time.getMinute());
+    out.text(time.getHour() < 12 ? " AM" : " PM");
+  }
+
+  /**
+   * Writes a CSV field, quoting it if it contains a comma, quote or line break.
+   *
+   * @param s   the field value, or null for an empty field
+   * @param out the destination
+   * @throws IOException if writing fails
+   */
+  private static void writeField(String s, Utf8Output out) throws IOException {
     if (s == null) {
-      return "";
+      return;
+    }
+    if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) {
+      out.text(s);
+      return;
     }
-    if (s.contains(",") || s.contains("\"") || s.contains("\n")) {
-      return "\"" + s.replace("\"", "\"\"") + "\"";
+    out.put('"');
+    for (int i = 0; i < s.length(); ) {
+      int codePoint = s.codePointAt(i);
+      if (codePoint == '"') {
+        out.put('"');
+      }
+      out.codePoint(codePoint);
+      i += Character.charCount(codePoint);
     }
-    return s;
+    out.put('"');
   }
 }
@@ -0,0 +1,356 @@
+package calendar.util;
+
+import calendar.model.CalendarModelInterface;
+import calendar.model.Event;
+import calendar.model.EventInterface;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Streaming import of the CSV format written by {@link CsvExporter}.
+ *
+ * <p>The file is parsed with RFC 4180 quoting (quoted fields may contain commas,
+ * doubled quotes and line breaks) from a reusable character buffer, one chunk of
+ * rows at a time, so files larger than the heap can be loaded. Each chunk is
+ * validated in parallel and then inserted in bulk; rows that duplicate an
+ * existing event are rejected individually.
+ *
+ * <p>Columns are located by their header names, so the column order may differ
+ * from the exporter's. "Subject" and "Start Date" are required. Blank start and
+ * end times make an all-day event (8:00 AM to 5:00 PM). Rows that cannot be
+ * imported are skipped and reported with their line number.
+ */
+public final class CsvImporter {
+
+  private static final int BUFFER_CHARS = 1 << 16;
+
+  private static final String SUBJECT = "subject";
+  private static final String START_DATE = "start date";
+  private static final String START_TIME = "start time";
+  private static final String END_DATE = "end date";
+  private static final String END_TIME = "end time";
+  private static final String DESCRIPTION = "description";
+  private static final String LOCATION = "location";
+  private static final String PRIVATE = "private";
+
+  private CsvImporter() {
+  }
+
+  /**
+   * Imports CSV rows into a model.
+   *
+   * @param in    the CSV text; read to the end but not closed
+   * @param model the model to add events to
+   * @return how many rows were imported and which were skipped
+   * @throws IOException if reading fails
+   * @throws IllegalArgumentException if the header lacks a required column
+   */
+  public static ImportResult importCsv(Reader in, CalendarModelInterface model)
+      throws IOException {
+    RecordReader reader = new RecordReader(in);
+    ImportResult result = new ImportResult();
+    List<String> header = reader.next();
+    if (header == null) {
+      return result;
+    }
+    Columns columns = new Columns(header);
+
+    EventBatch batch = new EventBatch(model, result);
+    List<List<String>> rows = new ArrayList<>(EventBatch.SIZE);
+    long[] lines = new long[EventBatch.SIZE];
+    List<String> row;
+    while ((row = reader.next()) != null) {
+      if (row.size() == 1 && row.get(0).isEmpty()) {
+        continue;
+      }
+      lines[rows.size()] = reader.recordLine;
+      rows.add(row);
+      if (rows.size() == EventBatch.SIZE) {
+        insertChunk(rows, lines, columns, batch, result);
+        rows.clear();
+      }
+    }
+    if (reader.unterminated) {
+      result.error(reader.recordLine, "unterminated quoted field");
+    }
+    insertChunk(rows, lines, columns, batch, result);
+    return result;
+  }
+
+  /**
+   * Validates a chunk of rows in parallel and inserts the valid ones.
+   */
+  private static void insertChunk(List<List<String>> rows, long[] lines, Columns columns,
+                                  EventBatch batch, ImportResult result) {
+    int count = rows.size();
+    EventInterface[] events = new EventInterface[count];
+    String[] errors = new String[count];
+    IntStream.range(0, count).parallel().forEach(i -> {
+      try {
+        events[i] = columns.toEvent(rows.get(i));
+      } catch (IllegalArgumentException | DateTimeException e) {
+        errors[i] = e.getMessage();
+      }
+    });
+
+    for (int i = 0; i < count; i++) {
+      if (events[i] == null) {
+        result.error(lines[i], errors[i]);
+      } else {
+        batch.add(events[i], lines[i]);
+      }
+    }
+    batch.flush();
+  }
+
+  /**
+   * Maps header names to column positions and turns rows into events.
+   */
+  private static final class Columns {
+    private final Map<String, Integer> index = new HashMap<>();
+
+    Columns(List<String> header) {
+      for (int i = 0; i < header.size(); i++) {
+        index.putIfAbsent(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+      }
+      for (String required : new String[] {SUBJECT, START_DATE}) {
+        if (!index.containsKey(required)) {
+          throw new IllegalArgumentException("Not a calendar CSV: missing column '"
+              + required + "'");
+        }
+      }
+    }
+
+    private String get(List<String> row, String column) {
+      Integer i = index.get(column);
+      return (i == null || i >= row.size()) ? "" : row.get(i).trim();
+    }
+
+    EventInterface toEvent(List<String> row) {
+      String subject = get(row, SUBJECT);
+      if (subject.isEmpty()) {
+        throw new IllegalArgumentException("missing subject");
+      }
+      LocalDate startDate = parseDate(get(row, START_DATE));
+      String endDateText = get(row, END_DATE);
+      LocalDate endDate = endDateText.isEmpty() ? startDate : parseDate(endDateText);
+      String startTime = get(row, START_TIME);
+      String endTime = get(row, END_TIME);
+
+      LocalDateTime start;
+      LocalDateTime end;
+      if (startTime.isEmpty() && endTime.isEmpty()) {
+        start = startDate.atTime(Event.ALL_DAY_EVENT_START_HOUR, 0);
+        end = endDate.atTime(Event.ALL_DAY_EVENT_END_HOUR, 0);
+      } else if (startTime.isEmpty() || endTime.isEmpty()) {
+        throw new IllegalArgumentException("start and end time must both be given");
+      } else {
+        start = startDate.atTime(parseTime(startTime));
+        end = endDate.atTime(parseTime(endTime));
+      }
+
+      String description = get(row, DESCRIPTION);
+      String location = get(row, LOCATION);
+      return new Event(subject, start, end,
+          description.isEmpty() ? null : description,
+          location.isEmpty() ? null : location,
+          get(row, PRIVATE).equalsIgnoreCase("true"),
+          UUID.randomUUID(), null);
+    }
+  }
+
+  /**
+   * Parses a date written as yyyy/MM/dd or yyyy-MM-dd.
+   *
+   * @param text the date
+   * @return the date
+   * @throws IllegalArgumentException if the text is not a date
+   */
+  static LocalDate parseDate(String text) {
+    int first = indexOfSeparator(text, 0);
+    int second = (first < 0) ? -1 : indexOfSeparator(text, first + 1);
+    if (second < 0) {
+      throw new IllegalArgumentException("invalid date '" + text + "'");
+    }
+    try {
+      return LocalDate.of(number(text, 0, first), number(text, first + 1, second),
+          number(text, second + 1, text.length()));
+    } catch (DateTimeException e) {
+      throw new IllegalArgumentException("invalid date '" + text + "'");
+    }
+  }
+
+  private static int indexOfSeparator(String text, int from) {
+    for (int i = from; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '/' || (c == '-' && i > 0)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Parses a time written as "h:mm AM", "h:mm PM" or 24-hour "HH:mm".
+   *
+   * @param text the time
+   * @return the time
+   * @throws IllegalArgumentException if the text is not a time
+   */
+  static LocalTime parseTime(String text) {
+    int colon = text.indexOf(':');
+    if (colon < 1 || text.length() < colon + 3) {
+      throw new IllegalArgumentException("invalid time '" + text + "'");
+    }
+    int hour = number(text, 0, colon);
+    int minute = number(text, colon + 1, colon + 3);
+    String suffix = text.substring(colon + 3).trim();
+    if (suffix.equalsIgnoreCase("AM") || suffix.equalsIgnoreCase("PM")) {
+      if (hour < 1 || hour > 12) {
+        throw new IllegalArgumentException("invalid time '" + text + "'");
+      }
+      hour = hour % 12 + (suffix.equalsIgnoreCase("PM") ? 12 : 0);
+    } else if (!suffix.isEmpty()) {
+      throw new IllegalArgumentException("invalid time '" + text + "'");
+    }
+    try {
+      return LocalTime.of(hour, minute);
+    } catch (DateTimeException e) {
+      throw new IllegalArgumentException("invalid time '" + text + "'");
+    }
+  }
+
+  private static int number(String text, int from, int to) {
+    if (from >= to || to - from > 9) {
+      throw new IllegalArgumentException("invalid number in '" + text + "'");
+    }
+    int value = 0;
+    for (int i = from; i < to; i++) {
+      char c = text.charAt(i);
+      if (c < '0' || c > '9') {
+        throw new IllegalArgumentException("invalid number in '" + text + "'");
+      }
+      value = value * 10 + (c - '0');
+    }
+    return value;
+  }
+
+  /**
+   * Splits RFC 4180 CSV text into records, reading through a fixed-size buffer.
+   */
+  private static final class RecordReader {
+    private final Reader in;
+    private final char[] buf = new char[BUFFER_CHARS];
+    private final StringBuilder field = new StringBuilder();
+    private int pos;
+    private int limit;
+    private long line = 1;
+    private long recordLine;
+    private boolean unterminated;
+
+    RecordReader(Reader in) {
+      this.in = in;
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return the fields, or null at the end of the input
+     */
+    List<String> next() throws IOException {
+      if (!fill()) {
+        return null;
+      }
+      recordLine = line;
+      List<String> fields = new ArrayList<>(9);
+      field.setLength(0);
+      while (true) {
+        if (!fill()) {
+          fields.add(field.toString());
+          return fields;
+        }
+        char c = buf[pos];
+        if (c == '"' && field.length() == 0) {
+          pos++;
+          if (!readQuoted()) {
+            unterminated = true;
+            fields.add(field.toString());
+            return fields;
+          }
+          continue;
+        }
+        int start = pos;
+        while (pos < limit && (c = buf[pos]) != ',' && c != '\n' && c != '\r') {
+          pos++;
+        }
+        field.append(buf, start, pos - start);
+        if (pos == limit) {
+          continue;
+        }
+        pos++;
+        fields.add(field.toString());
+        field.setLength(0);
+        if (c == ',') {
+          continue;
+        }
+        if (c == '\r' && fill() && buf[pos] == '\n') {
+          pos++;
+        }
+        line++;
+        return fields;
+      }
+    }
+
+    /**
+     * Reads the rest of a quoted field, after its opening quote.
+     *
+     * @return false if the input ended inside the quotes
+     */
+    private boolean readQuoted() throws IOException {
+      while (fill()) {
+        int start = pos;
+        while (pos < limit && buf[pos] != '"') {
+          if (buf[pos] == '\n') {
+            line++;
+          }
+          pos++;
+        }
+        field.append(buf, start, pos - start);
+        if (pos == limit) {
+          continue;
+        }
+        pos++;
+        if (fill() && buf[pos] == '"') {
+          field.append('"');
+          pos++;
+        } else {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean fill() throws IOException {
+      while (pos == limit) {
+        int read = in.read(buf, 0, buf.length);
+        if (read < 0) {
+          return false;
+        }
+        pos = 0;
+        limit = read;
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package calendar.util;
+
+import calendar.model.CalendarModelInterface;
+import calendar.model.EventInterface;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects imported events and adds them to a model in bulk. Each full batch is
+ * inserted with a single {@link CalendarModelInterface#createEvents} call; if
+ * that fails because an event duplicates an existing one, the batch is inserted
+ * one event at a time so only the duplicates are rejected.
+ */
+final class EventBatch {
+  static final int SIZE = 8192;
+
+  private final CalendarModelInterface model;
+  private final ImportResult result;
+  private final List<EventInterface> events = new ArrayList<>(SIZE);
+  private final long[] lines = new long[SIZE];
+
+  EventBatch(CalendarModelInterface model, ImportResult result) {
+    this.model = model;
+    this.result = result;
+  }
+
+  /**
+   * Queues an event, inserting the batch when it is full.
+   *
+   * @param event the event
+   * @param line  the line it was read from, for error reports
+   */
+  void add(EventInterface event, long line) {
+    lines[events.size()] = line;
+    events.add(event);
+    if (events.size() == SIZE) {
+      flush();
+    }
+  }
+
+  /**
+   * Inserts the queued events.
+   */
+  void flush() {
+    if (events.isEmpty()) {
+      return;
+    }
+    if (model.createEvents(events)) {
+      result.addImported(events.size());
+    } else {
+      for (int i = 0; i < events.size(); i++) {
+        if (model.createEvent(events.get(i))) {
+          result.addImported(1);
+        } else {
+          result.error(lines[i], "duplicate event '" + events.get(i).getSubject() + "'");
+        }
+      }
+    }
+    events.clear();
+  }
+}
@@ -1,11 +1,33 @@
 package calendar.util;
 
+import calendar.model.CalendarModelInterface;
+import calendar.model.ChangeSet;
 import calendar.model.EventInterface;
+import calendar.model.EventSeries;
+import calendar.model.EventStreams;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.time.ZonedDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneOffsetTransitionRule;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Utility class for exporting events to iCal (RFC 5545) format.
@@ -16,10 +38,20 @@ import java.util.List;
  * - Follows RFC 5545 specification for iCalendar format
  * - Converts LocalDateTime to UTC for DTSTART/DTEND (required by spec)
  * - Generates unique UIDs for each event
- * - Includes DTSTAMP (creation timestamp)
+ * - Includes DTSTAMP (creation timestamp, taken once per export)
  * - Handles optional fields (description, location)
  * - Escapes special characters in text fields
- * - Line folding at 75 characters as per RFC 5545
+ * - Line folding at 75 octets as per RFC 5545
+ * - Streams components straight into a reusable UTF-8 buffer, so exports run in
+ *   constant memory
+ *
+ * <p>When exporting a whole model, each series is written as one recurring VEVENT
+ * with an RRULE instead of one VEVENT per occurrence. Recurring events use local
+ * times with a TZID, so the rule follows daylight saving changes, and the file
+ * carries a VTIMEZONE built from the zone's current rules. Cancelled and detached
+ * dates become EXDATEs; occurrences edited in place become RECURRENCE-ID
+ * instances. A series whose later part was edited is written as one recurring
+ * VEVENT per edited segment, all sharing the series' X-SERIES-ID.
  *
  * <p>Example output:
  *
@@ -47,8 +79,10 @@ public class IcalExporter {
    */
   private static final int RFC5545_LINE_FOLD_WIDTH = 75;
 
-  private static final DateTimeFormatter ICAL_DATETIME_FORMATTER =
-      DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+  private static final DateTimeFormatter ICAL_LOCAL_DATETIME_FORMATTER =
+      DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+  private static final String[] DAY_CODES = {"MO", "TU", "WE", "TH", "FR", "SA", "SU"};
 
   /**
    * Private constructor to prevent instantiation of utility class.
@@ -58,175 +92,537 @@ public class IcalExporter {
   }
 
   /**
-   * Exports a list of events to iCal format.
+   * Exports a list of events to iCal format, one VEVENT per event.
    *
    * @param events       the list of events to export
-   * @param calendarName the name of the calendar (used in PRODID)
+   * @param calendarName the name of the calendar
    * @param timezone     the timezone of the calendar
    * @return the iCal formatted string
    */
   public static String toIcal(List<EventInterface> events, String calendarName, ZoneId timezone) {
-    StringBuilder ical = new StringBuilder();
+    ByteArrayOutputStream ical = new ByteArrayOutputStream();
+    try {
+      IcalWriter writer = new IcalWriter(new Utf8Output(ical), timezone);
+      writer.beginCalendar(calendarName);
+      for (EventInterface event : events) {
+        writer.event(event);
+      }
+      writer.endCalendar();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new String(ical.toByteArray(), StandardCharsets.UTF_8);
+  }
 
-    ical.append("BEGIN:VCALENDAR\r\n");
-    ical.append("VERSION:2.0\r\n");
-    ical.append("PRODID:-//Calendar//EN\r\n");
-    ical.append("CALSCALE:GREGORIAN\r\n");
-    ical.append("METHOD:PUBLISH\r\n");
+  /**
+   * Streams a whole calendar model in iCal format, encoding each series as a
+   * recurrence rule. Standalone events are written in chronological order.
+   *
+   * @param model        the model to export
+   * @param calendarName the name of the calendar
+   * @param timezone     the timezone of the calendar
+   * @param out          the destination; flushed but not closed
+   * @return the number of VEVENT components written
+   * @throws IOException if writing fails
+   */
+  public static long write(CalendarModelInterface model, String calendarName, ZoneId timezone,
+                           OutputStream out) throws IOException {
+    IcalWriter writer = new IcalWriter(new Utf8Output(out), timezone);
+    List<EventSeries> seriesList = model.getAllSeries();
+    writer.beginCalendar(calendarName);
+    if (!seriesList.isEmpty()) {
+      writer.timezone();
+    }
 
-    for (EventInterface event : events) {
-      ical.append(formatEvent(event, timezone));
+    List<EventInterface> standalone = model.getStandaloneEvents();
+    standalone.sort(EventStreams.CHRONOLOGICAL);
+    for (EventInterface event : standalone) {
+      writer.event(event);
+    }
+    for (EventSeries series : seriesList) {
+      writer.series(series, series.getFirstDate(), series.getLastDate());
     }
+    writer.endCalendar();
+    return writer.components;
+  }
 
-    ical.append("END:VCALENDAR\r\n");
+  /**
+   * Streams the events of a calendar model that overlap a range of dates, like
+   * {@link #write(CalendarModelInterface, String, ZoneId, OutputStream)}. Single
+   * events are read through the model's range query, so only the slice is read;
+   * each series is written as recurrence rules clipped to the range.
+   *
+   * @param model        the model to export
+   * @param calendarName the name of the calendar
+   * @param timezone     the timezone of the calendar
+   * @param from         the first date to export (inclusive)
+   * @param to           the last date to export (inclusive)
+   * @param out          the destination; flushed but not closed
+   * @return the number of VEVENT components written
+   * @throws IOException if writing fails
+   */
+  public static long write(CalendarModelInterface model, String calendarName, ZoneId timezone,
+                           LocalDate from, LocalDate to, OutputStream out) throws IOException {
+    IcalWriter writer = new IcalWriter(new Utf8Output(out), timezone);
+    Map<UUID, EventSeries> seriesById = new HashMap<>();
+    for (EventSeries series : model.getAllSeries()) {
+      seriesById.put(series.getSeriesId(), series);
+    }
+    writer.beginCalendar(calendarName);
+    if (!seriesById.isEmpty()) {
+      writer.timezone();
+    }
 
-    return ical.toString();
+    try (Stream<EventInterface> events = model.streamEventsInRange(from.atStartOfDay(),
+        to.plusDays(1).atStartOfDay())) {
+      Iterator<EventInterface> iterator = events.iterator();
+      while (iterator.hasNext()) {
+        EventInterface event = iterator.next();
+        EventSeries series = event.getSeriesId().map(seriesById::get).orElse(null);
+        if (series == null || series.occurrenceDateOf(event.getId()) == null) {
+          writer.event(event);
+        }
+      }
+    }
+    for (EventSeries series : seriesById.values()) {
+      if (series.getLastDate() != null) {
+        writer.series(series, max(series.getFirstDate(), from), min(series.getLastDate(), to));
+      }
+    }
+    writer.endCalendar();
+    return writer.components;
   }
 
   /**
-   * Formats a single event in iCal format.
+   * Streams the changes from a change set in iCal format, for incremental sync.
+   * Changed events and series are written as in a full export, with the same
+   * UIDs, so they replace the earlier copies. Removed events and series are
+   * written as cancelled VEVENTs. The calendar carries the new token in an
+   * X-CHANGE-TOKEN property.
    *
-   * @param event    the event to format
-   * @param timezone the timezone of the calendar
-   * @return the formatted VEVENT component
+   * @param changes      the changes to export
+   * @param calendarName the name of the calendar
+   * @param timezone     the timezone of the calendar
+   * @param out          the destination; flushed but not closed
+   * @return the number of VEVENT components written
+   * @throws IOException if writing fails
    */
-  private static String formatEvent(EventInterface event, ZoneId timezone) {
-    StringBuilder vevent = new StringBuilder();
+  public static long write(ChangeSet changes, String calendarName, ZoneId timezone,
+                           OutputStream out) throws IOException {
+    IcalWriter writer = new IcalWriter(new Utf8Output(out), timezone);
+    writer.beginCalendar(calendarName);
+    writer.text("X-CHANGE-TOKEN:", Long.toString(changes.getToken()));
+    if (!changes.getChangedSeries().isEmpty()) {
+      writer.timezone();
+    }
+    for (EventInterface event : changes.getChangedEvents()) {
+      writer.event(event);
+    }
+    for (EventSeries series : changes.getChangedSeries()) {
+      writer.series(series, series.getFirstDate(), series.getLastDate());
+    }
+    for (EventInterface event : changes.getRemovedEvents()) {
+      writer.cancelled(event.getId().toString(), event);
+    }
+    for (EventSeries series : changes.getRemovedSeries()) {
+      writer.cancelled(series.getSeriesId().toString(), series.getTemplate());
+    }
+    writer.endCalendar();
+    return writer.components;
+  }
+
+  private static LocalDate max(LocalDate a, LocalDate b) {
+    return a.isAfter(b) ? a : b;
+  }
 
-    vevent.append("BEGIN:VEVENT\r\n");
+  private static LocalDate min(LocalDate a, LocalDate b) {
+    return a.isBefore(b) ? a : b;
+  }
 
-    vevent.append("UID:").append(event.getId().toString()).append("@calendar.app\r\n");
+  /**
+   * Writes the components of one export, tracking the length of the current line
+   * so long lines can be folded without building them first.
+   */
+  private static final class IcalWriter {
+    private final Utf8Output out;
+    private final ZoneId zone;
+    private final String tzid;
+    private final LocalDateTime stamp;
+    private int lineBytes;
+    private long components;
+
+    IcalWriter(Utf8Output out, ZoneId zone) {
+      this.out = out;
+      this.zone = zone;
+      this.tzid = ";TZID=" + zone.getId();
+      this.stamp = LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS);
+    }
 
-    String dtstamp = ZonedDateTime.now(ZoneId.of("UTC")).format(ICAL_DATETIME_FORMATTER);
-    vevent.append("DTSTAMP:").append(dtstamp).append("\r\n");
+    void beginCalendar(String calendarName) throws IOException {
+      line("BEGIN:VCALENDAR");
+      line("VERSION:2.0");
+      line("PRODID:-//Calendar//EN");
+      line("CALSCALE:GREGORIAN");
+      line("METHOD:PUBLISH");
+      if (calendarName != null) {
+        text("X-WR-CALNAME:", calendarName);
+      }
+      text("X-WR-TIMEZONE:", zone.getId());
+    }
+
+    void endCalendar() throws IOException {
+      line("END:VCALENDAR");
+      out.flush();
+    }
+
+    /**
+     * Writes a single event with UTC times.
+     */
+    void event(EventInterface event) throws IOException {
+      line("BEGIN:VEVENT");
+      text("UID:", event.getId() + "@calendar.app");
+      utc("DTSTAMP:", stamp);
+      utc("DTSTART:", toUtc(event.getStartDateTime()));
+      utc("DTEND:", toUtc(event.getEndDateTime()));
+      details(event);
+      if (event.getSeriesId().isPresent()) {
+        text("X-SERIES-ID:", event.getSeriesId().get().toString());
+      }
+      line("END:VEVENT");
+      components++;
+    }
+
+    /**
+     * Writes a cancelled VEVENT that withdraws an earlier event or series.
+     */
+    void cancelled(String id, EventInterface last) throws IOException {
+      line("BEGIN:VEVENT");
+      text("UID:", id + "@calendar.app");
+      utc("DTSTAMP:", stamp);
+      utc("DTSTART:", toUtc(last.getStartDateTime()));
+      text("SUMMARY:", last.getSubject());
+      line("STATUS:CANCELLED");
+      line("END:VEVENT");
+      components++;
+    }
+
+    /**
+     * Writes the dates of a series within a window as one recurring VEVENT per
+     * segment between range edits.
+     */
+    void series(EventSeries series, LocalDate first, LocalDate last) throws IOException {
+      if (series.getLastDate() == null || first.isAfter(last)) {
+        return;
+      }
+      TreeSet<LocalDate> boundaries = new TreeSet<>();
+      boundaries.add(first);
+      for (EventSeries.RangeEdit edit : series.getRangeEdits()) {
+        if (edit.getFromDate().isAfter(first) && !edit.getFromDate().isAfter(last)) {
+          boundaries.add(edit.getFromDate());
+        }
+      }
+      for (LocalDate from : boundaries) {
+        LocalDate next = boundaries.higher(from);
+        LocalDate to = (next == null) ? last : next.minusDays(1);
+        segment(series, from, to, from.equals(series.getFirstDate()));
+      }
+    }
 
-    String dtstart = convertToUtc(event.getStartDateTime(), timezone);
-    vevent.append("DTSTART:").append(dtstart).append("\r\n");
+    private void segment(EventSeries series, LocalDate from, LocalDate to, boolean first)
+        throws IOException {
+      List<LocalDate> dates = series.getOccurrenceDates(from, to);
+      EventInterface generic = null;
+      LocalDate genericDate = null;
+      for (LocalDate date : dates) {
+        if (!series.getOverrides().containsKey(date)) {
+          genericDate = date;
+          generic = series.occurrenceOn(date);
+          break;
+        }
+      }
+      if (generic == null) {
+        for (LocalDate date : dates) {
+          event(series.occurrenceOn(date));
+        }
+        return;
+      }
 
-    String dtend = convertToUtc(event.getEndDateTime(), timezone);
-    vevent.append("DTEND:").append(dtend).append("\r\n");
+      LocalDate firstRuleDate = from;
+      while (!series.isRuleDate(firstRuleDate)) {
+        firstRuleDate = firstRuleDate.plusDays(1);
+      }
+      LocalDate lastRuleDate = to;
+      while (!series.isRuleDate(lastRuleDate)) {
+        lastRuleDate = lastRuleDate.minusDays(1);
+      }
 
-    vevent.append(foldLineWithPrefix("SUMMARY:", escapeText(event.getSubject()))).append("\r\n");
+      String uid = series.getSeriesId()
+          + (first ? "" : "-" + from.toString().replace("-", "")) + "@calendar.app";
+      List<EventInterface> instances = new ArrayList<>();
+      for (LocalDate date : dates) {
+        EventInterface occurrence = series.occurrenceOn(date);
+        if (!matchesShifted(occurrence, generic, ChronoUnit.DAYS.between(genericDate, date))) {
+          instances.add(occurrence);
+        }
+      }
 
-    if (event.getDescription().isPresent()) {
-      vevent.append(foldLineWithPrefix("DESCRIPTION:", escapeText(event.getDescription().get())))
-          .append("\r\n");
+      long toFirst = ChronoUnit.DAYS.between(genericDate, firstRuleDate);
+      line("BEGIN:VEVENT");
+      text("UID:", uid);
+      utc("DTSTAMP:", stamp);
+      local("DTSTART", generic.getStartDateTime().plusDays(toFirst));
+      local("DTEND", generic.getEndDateTime().plusDays(toFirst));
+      rule(series, toUtc(LocalDateTime.of(lastRuleDate,
+          generic.getStartDateTime().toLocalTime())));
+      exceptions(series, firstRuleDate, lastRuleDate, generic, genericDate);
+      details(generic);
+      text("X-SERIES-ID:", series.getSeriesId().toString());
+      line("END:VEVENT");
+      components++;
+
+      for (EventInterface instance : instances) {
+        LocalDate date = instance.getStartDateTime().toLocalDate();
+        line("BEGIN:VEVENT");
+        text("UID:", uid);
+        local("RECURRENCE-ID", LocalDateTime.of(date, generic.getStartDateTime().toLocalTime()));
+        utc("DTSTAMP:", stamp);
+        local("DTSTART", instance.getStartDateTime());
+        local("DTEND", instance.getEndDateTime());
+        details(instance);
+        line("END:VEVENT");
+        components++;
+      }
     }
 
-    if (event.getLocation().isPresent()) {
-      vevent.append(foldLineWithPrefix("LOCATION:", escapeText(event.getLocation().get())))
-          .append("\r\n");
+    private boolean matchesShifted(EventInterface occurrence, EventInterface generic,
+                                   long days) {
+      return occurrence.getSubject().equals(generic.getSubject())
+          && occurrence.getStartDateTime().equals(generic.getStartDateTime().plusDays(days))
+          && occurrence.getEndDateTime().equals(generic.getEndDateTime().plusDays(days))
+          && occurrence.getDescription().equals(generic.getDescription())
+          && occurrence.getLocation().equals(generic.getLocation())
+          && occurrence.isPrivate() == generic.isPrivate();
     }
 
-    if (event.isPrivate()) {
-      vevent.append("CLASS:PRIVATE\r\n");
-    } else {
-      vevent.append("CLASS:PUBLIC\r\n");
+    private void rule(EventSeries series, LocalDateTime untilUtc) throws IOException {
+      begin("RRULE:FREQ=WEEKLY;BYDAY=");
+      boolean separator = false;
+      for (DayOfWeek day : DayOfWeek.values()) {
+        if (series.getWeekdays().contains(day)) {
+          if (separator) {
+            value(',');
+          }
+          value(DAY_CODES[day.ordinal()]);
+          separator = true;
+        }
+      }
+      value(";UNTIL=");
+      dateTime(untilUtc);
+      value('Z');
+      end();
     }
 
-    if (event.getSeriesId().isPresent()) {
-      vevent.append("X-SERIES-ID:").append(event.getSeriesId().get()).append("\r\n");
+    private void exceptions(EventSeries series, LocalDate from, LocalDate to,
+                            EventInterface generic, LocalDate genericDate) throws IOException {
+      boolean any = false;
+      for (LocalDate date : new TreeSet<>(series.getExceptionDates())) {
+        if (date.isBefore(from) || date.isAfter(to) || !series.isRuleDate(date)) {
+          continue;
+        }
+        if (!any) {
+          begin("EXDATE" + tzid + ":");
+          any = true;
+        } else {
+          value(',');
+        }
+        dateTime(generic.getStartDateTime()
+            .plusDays(ChronoUnit.DAYS.between(genericDate, date)));
+      }
+      if (any) {
+        end();
+      }
     }
 
-    vevent.append("END:VEVENT\r\n");
+    private void details(EventInterface event) throws IOException {
+      text("SUMMARY:", event.getSubject());
+      if (event.getDescription().isPresent()) {
+        text("DESCRIPTION:", event.getDescription().get());
+      }
+      if (event.getLocation().isPresent()) {
+        text("LOCATION:", event.getLocation().get());
+      }
+      line(event.isPrivate() ? "CLASS:PRIVATE" : "CLASS:PUBLIC");
+    }
 
-    return vevent.toString();
-  }
+    /**
+     * Writes a VTIMEZONE for the calendar's zone from its current rules. Zones
+     * without ongoing daylight saving rules get a single STANDARD component.
+     */
+    void timezone() throws IOException {
+      ZoneRules rules = zone.getRules();
+      line("BEGIN:VTIMEZONE");
+      text("TZID:", zone.getId());
+      List<ZoneOffsetTransitionRule> transitionRules = rules.getTransitionRules();
+      if (transitionRules.isEmpty()) {
+        List<ZoneOffsetTransition> transitions = rules.getTransitions();
+        ZoneOffset offset = transitions.isEmpty()
+            ? rules.getOffset(LocalDateTime.of(1970, 1, 1, 0, 0))
+            : transitions.get(transitions.size() - 1).getOffsetAfter();
+        line("BEGIN:STANDARD");
+        line("DTSTART:19700101T000000");
+        offset("TZOFFSETFROM:", offset);
+        offset("TZOFFSETTO:", offset);
+        line("END:STANDARD");
+      }
+      for (ZoneOffsetTransitionRule rule : transitionRules) {
+        String kind = rule.getOffsetAfter().getTotalSeconds()
+            > rule.getStandardOffset().getTotalSeconds() ? "DAYLIGHT" : "STANDARD";
+        line("BEGIN:" + kind);
+        begin("DTSTART:");
+        dateTime(rule.createTransition(1970).getDateTimeBefore());
+        end();
+        offset("TZOFFSETFROM:", rule.getOffsetBefore());
+        offset("TZOFFSETTO:", rule.getOffsetAfter());
+        yearlyRule(rule);
+        line("END:" + kind);
+      }
+      line("END:VTIMEZONE");
+    }
 
-  /**
-   * Converts LocalDateTime to UTC format for iCal.
-   *
-   * @param dateTime the local date-time
-   * @param timezone the timezone of the date-time
-   * @return the UTC formatted string (yyyyMMddTHHmmssZ)
-   */
-  private static String convertToUtc(LocalDateTime dateTime, ZoneId timezone) {
-    ZonedDateTime zoned = dateTime.atZone(timezone);
-    ZonedDateTime utc = zoned.withZoneSameInstant(ZoneId.of("UTC"));
-    return utc.format(ICAL_DATETIME_FORMATTER);
-  }
+    private void yearlyRule(ZoneOffsetTransitionRule rule) throws IOException {
+      int day = rule.getDayOfMonthIndicator();
+      begin("RRULE:FREQ=YEARLY;BYMONTH=" + rule.getMonth().getValue());
+      if (rule.getDayOfWeek() == null) {
+        value(";BYMONTHDAY=" + day);
+      } else if (day > 0 && (day - 1) % 7 == 0) {
+        value(";BYDAY=" + ((day - 1) / 7 + 1) + DAY_CODES[rule.getDayOfWeek().ordinal()]);
+      } else if (day == -1) {
+        value(";BYDAY=-1" + DAY_CODES[rule.getDayOfWeek().ordinal()]);
+      } else {
+        value(";BYDAY=" + DAY_CODES[rule.getDayOfWeek().ordinal()] + ";BYMONTHDAY=");
+        int low = (day > 0) ? day : day - 6;
+        for (int d = low; d <= low + 6; d++) {
+          if (d != low) {
+            value(',');
+          }
+          value(Integer.toString(d));
+        }
+      }
+      end();
+    }
 
-  /**
-   * Escapes special characters in text fields according to RFC 5545.
-   * Escapes: backslash, semicolon, comma, newline
-   *
-   * @param text the text to escape
-   * @return the escaped text
-   */
-  private static String escapeText(String text) {
-    if (text == null) {
-      return "";
+    private void offset(String name, ZoneOffset offset) throws IOException {
+      int seconds = offset.getTotalSeconds();
+      begin(name);
+      value(seconds < 0 ? '-' : '+');
+      seconds = Math.abs(seconds);
+      twoDigits(seconds / 3600);
+      twoDigits(seconds / 60 % 60);
+      if (seconds % 60 != 0) {
+        twoDigits(seconds % 60);
+      }
+      end();
     }
 
-    return text.replace("\\", "\\\\").replace(";", "\\;").replace(",", "\\,").replace("\n", "\\n")
-        .replace("\r", "");
-  }
+    private LocalDateTime toUtc(LocalDateTime dateTime) {
+      return LocalDateTime.ofEpochSecond(dateTime.atZone(zone).toEpochSecond(), 0,
+          ZoneOffset.UTC);
+    }
 
-  /**
-   * Folds long lines at RFC 5545 specified width.
-   * Continuation lines start with a space.
-   *
-   * @param text the text to fold
-   * @return the folded text (without line breaks, as they're added by caller)
-   */
-  private static String foldLine(String text) {
-    if (text.length() <= RFC5545_LINE_FOLD_WIDTH) {
-      return text;
+    private void utc(String name, LocalDateTime utc) throws IOException {
+      begin(name);
+      dateTime(utc);
+      value('Z');
+      end();
     }
 
-    StringBuilder folded = new StringBuilder();
-    int pos = 0;
+    private void local(String name, LocalDateTime local) throws IOException {
+      begin(name);
+      value(tzid);
+      value(':');
+      dateTime(local);
+      end();
+    }
 
-    while (pos < text.length()) {
-      if (pos > 0) {
-        folded.append("\r\n ");
+    private void dateTime(LocalDateTime value) throws IOException {
+      int year = value.getYear();
+      if (year < 0 || year > 9999) {
+        value(value.format(ICAL_LOCAL_DATETIME_FORMATTER));
+        return;
       }
+      twoDigits(year / 100);
+      twoDigits(year % 100);
+      twoDigits(value.getMonthValue());
+      twoDigits(value.getDayOfMonth());
+      value('T');
+      twoDigits(value.getHour());
+      twoDigits(value.getMinute());
+      twoDigits(value.getSecond());
+    }
 
-      int end = Math.min(pos + RFC5545_LINE_FOLD_WIDTH, text.length());
-      folded.append(text, pos, end);
-      pos = end;
+    /**
+     * Writes a text property, escaping its value according to RFC 5545 and
+     * folding it at 75 octets without splitting a character or an escape.
+     */
+    private void text(String name, String value) throws IOException {
+      begin(name);
+      for (int i = 0; i < value.length(); ) {
+        int codePoint = value.codePointAt(i);
+        i += Character.charCount(codePoint);
+        if (codePoint == '\\' || codePoint == ';' || codePoint == ',' || codePoint == '\n') {
+          fold(2);
+          out.put('\\');
+          out.put(codePoint == '\n' ? 'n' : (char) codePoint);
+          lineBytes += 2;
+        } else if (codePoint != '\r') {
+          int length = Utf8Output.utf8Length(codePoint);
+          fold(length);
+          out.codePoint(codePoint);
+          lineBytes += length;
+        }
+      }
+      end();
     }
 
-    return folded.toString();
-  }
+    private void line(String content) throws IOException {
+      begin(content);
+      end();
+    }
 
-  /**
-   * Folds a line with a prefix (field name) at RFC 5545 specified width.
-   * Accounts for the prefix length when folding to ensure the entire line
-   * (prefix + value) doesn't exceed 75 characters.
-   * Continuation lines start with a space (which counts toward the 75-char
-   * limit).
-   *
-   * @param prefix the field name prefix (e.g., "SUMMARY:")
-   * @param value  the field value to fold
-   * @return the folded line with prefix
-   */
-  private static String foldLineWithPrefix(String prefix, String value) {
-    int prefixLength = prefix.length();
-    int totalLineLength = prefixLength + value.length();
+    private void begin(String start) throws IOException {
+      lineBytes = 0;
+      value(start);
+    }
 
-    if (totalLineLength <= RFC5545_LINE_FOLD_WIDTH) {
-      return prefix + value;
+    private void value(String ascii) throws IOException {
+      for (int i = 0; i < ascii.length(); i++) {
+        value(ascii.charAt(i));
+      }
     }
 
-    StringBuilder folded = new StringBuilder();
-    folded.append(prefix);
+    private void value(char ascii) throws IOException {
+      fold(1);
+      out.put(ascii);
+      lineBytes++;
+    }
 
-    // Calculate how much of the value can fit on the first line
-    int maxFirstLineValueLength = RFC5545_LINE_FOLD_WIDTH - prefixLength;
-    int firstChunkEnd = Math.min(maxFirstLineValueLength, value.length());
-    folded.append(value, 0, firstChunkEnd);
-    int pos = firstChunkEnd;
+    private void twoDigits(int value) throws IOException {
+      value((char) ('0' + value / 10));
+      value((char) ('0' + value % 10));
+    }
 
-    // Continuation lines: space (1 char) + up to 74 chars of value
-    int maxContinuationLineLength = RFC5545_LINE_FOLD_WIDTH - 1;
-    while (pos < value.length()) {
-      folded.append("\r\n ");
-      int end = Math.min(pos + maxContinuationLineLength, value.length());
-      folded.append(value, pos, end);
-      pos = end;
+    private void fold(int bytes) throws IOException {
+      if (lineBytes + bytes > RFC5545_LINE_FOLD_WIDTH) {
+        out.put('\r');
+        out.put('\n');
+        out.put(' ');
+        lineBytes = 1;
+      }
     }
 
-    return folded.toString();
+    private void end() throws IOException {
+      out.put('\r');
+      out.put('\n');
+    }
   }
 }
@@ -0,0 +1,855 @@
+package calendar.util;
+
+import calendar.model.CalendarModelInterface;
+import calendar.model.EditSpec;
+import calendar.model.Event;
+import calendar.model.EventInterface;
+import calendar.model.EventSeries;
+import calendar.model.EventStatus;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Streaming import of iCalendar (RFC 5545) files, such as those written by
+ * {@link IcalExporter}.
+ *
+ * <p>The file is read in a single pass, one unfolded content line at a time.
+ * Single events are inserted in bulk as they are read, so feeds larger than the
+ * heap can be loaded; only recurring events and their RECURRENCE-ID instances are
+ * held until the end of the file, because an instance may appear before or after
+ * the event it modifies.
+ *
+ * <p>A VEVENT with an RRULE becomes an {@link EventSeries} rather than a list of
+ * events. Daily and weekly rules with an interval of 1 are supported, bounded by
+ * COUNT, by UNTIL or, like series created by command, by the 10-year cap. EXDATEs
+ * and cancelled instances become exception dates, and instances that change an
+ * occurrence on its own date become overrides. Other rules are reported as
+ * errors.
+ *
+ * <p>Times are converted into the target calendar's timezone. Time zones are
+ * resolved from their TZID, which must be a region ID such as America/New_York;
+ * times without a zone use the feed's X-WR-TIMEZONE, or the calendar's zone.
+ * When a recurring event's zone keeps daylight saving time differently from the
+ * calendar's, the occurrences whose converted time differs from the first one
+ * are stored as overrides.
+ */
+public final class IcalImporter {
+
+  private static final String[] DAY_CODES = {"MO", "TU", "WE", "TH", "FR", "SA", "SU"};
+
+  private IcalImporter() {
+  }
+
+  /**
+   * Imports the VEVENTs of an iCalendar stream into a model.
+   *
+   * @param in       the iCalendar text; read to the end but not closed
+   * @param model    the model to add events and series to
+   * @param timezone the timezone of the target calendar
+   * @return how many events and series were imported and which were skipped
+   * @throws IOException if reading fails
+   */
+  public static ImportResult importIcal(Reader in, CalendarModelInterface model,
+                                        ZoneId timezone) throws IOException {
+    return new Importer(in, model, timezone).run();
+  }
+
+  /**
+   * The state of one import.
+   */
+  private static final class Importer {
+    private final ContentLines lines;
+    private final CalendarModelInterface model;
+    private final ZoneId target;
+    private final ImportResult result = new ImportResult();
+    private final EventBatch batch;
+    private final Map<String, ZoneId> zones = new HashMap<>();
+    private final Map<String, Component> masters = new LinkedHashMap<>();
+    private final Map<String, List<Component>> instances = new HashMap<>();
+    private ZoneId floating;
+
+    Importer(Reader in, CalendarModelInterface model, ZoneId target) {
+      this.lines = new ContentLines(in);
+      this.model = model;
+      this.target = target;
+      this.floating = target;
+      this.batch = new EventBatch(model, result);
+    }
+
+    ImportResult run() throws IOException {
+      Component event = null;
+      int nested = 0;
+      String line;
+      while ((line = lines.next()) != null) {
+        Property property = Property.parse(line);
+        if (property == null) {
+          continue;
+        }
+        if (event == null) {
+          if (property.name.equals("BEGIN") && property.value.equalsIgnoreCase("VEVENT")) {
+            event = new Component(lines.lineNumber);
+          } else if (property.name.equals("X-WR-TIMEZONE")) {
+            try {
+              floating = zone(property.value.trim());
+            } catch (IllegalArgumentException e) {
+              result.error(lines.lineNumber, e.getMessage());
+            }
+          }
+        } else if (property.name.equals("BEGIN")) {
+          nested++;
+        } else if (property.name.equals("END")) {
+          if (nested > 0) {
+            nested--;
+          } else {
+            finish(event);
+            event = null;
+          }
+        } else if (nested == 0) {
+          event.add(property);
+        }
+      }
+      if (event != null) {
+        result.error(event.line, "unterminated VEVENT");
+      }
+      batch.flush();
+      finishSeries();
+      batch.flush();
+      return result;
+    }
+
+    /**
+     * Handles a complete VEVENT: single events are queued for insertion, recurring
+     * events and their instances are kept until the end of the file.
+     */
+    private void finish(Component c) {
+      try {
+        if (c.recurrenceId != null) {
+          if (c.uid == null) {
+            throw new IllegalArgumentException("RECURRENCE-ID without UID");
+          }
+          instances.computeIfAbsent(c.uid, k -> new ArrayList<>()).add(c);
+        } else if (c.isCancelled()) {
+          return;
+        } else if (c.rrule != null) {
+          String key = (c.uid != null) ? c.uid : "line " + c.line;
+          if (masters.putIfAbsent(key, c) != null) {
+            throw new IllegalArgumentException("duplicate UID '" + c.uid + "'");
+          }
+        } else {
+          batch.add(toEvent(c), c.line);
+        }
+      } catch (IllegalArgumentException | DateTimeException e) {
+        result.error(c.line, e.getMessage());
+      }
+    }
+
+    private void finishSeries() {
+      for (Map.Entry<String, Component> entry : masters.entrySet()) {
+        Component master = entry.getValue();
+        List<Component> modified = instances.remove(entry.getKey());
+        try {
+          createSeries(master, (modified == null) ? Collections.emptyList() : modified);
+        } catch (IllegalArgumentException | DateTimeException e) {
+          result.error(master.line, e.getMessage());
+        }
+      }
+      for (List<Component> orphans : instances.values()) {
+        for (Component c : orphans) {
+          addStandalone(c);
+        }
+      }
+    }
+
+    private void addStandalone(Component c) {
+      if (c.isCancelled()) {
+        return;
+      }
+      try {
+        batch.add(toEvent(c), c.line);
+      } catch (IllegalArgumentException | DateTimeException e) {
+        result.error(c.line, e.getMessage());
+      }
+    }
+
+    /**
+     * Maps a recurring VEVENT and its instances to an {@link EventSeries}.
+     * Occurrences that cannot be expressed in the series, because they move to
+     * another date in the calendar's zone, are added as single events.
+     */
+    private void createSeries(Component master, List<Component> modified) {
+      Rule rule = Rule.parse(master.rrule.value);
+      When start = when(master.required(master.dtStart, "DTSTART"));
+      EventInterface first = toEvent(master);
+      LocalDateTime templateStart = first.getStartDateTime();
+      LocalDateTime templateEnd = first.getEndDateTime();
+      if (!templateStart.toLocalDate().equals(templateEnd.toLocalDate())) {
+        throw new IllegalArgumentException("recurring event must start and end on the same day"
+            + " in " + target);
+      }
+
+      boolean allDay = start.date != null;
+      ZoneId sourceZone = allDay ? null : start.zone;
+      LocalDate sourceDate = allDay ? start.date : start.local.toLocalDate();
+      LocalTime sourceTime = allDay ? LocalTime.MIDNIGHT : start.local.toLocalTime();
+      long shift = ChronoUnit.DAYS.between(sourceDate, templateStart.toLocalDate());
+      Set<DayOfWeek> sourceDays = (rule.days != null)
+          ? rule.days : EnumSet.of(sourceDate.getDayOfWeek());
+      Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+      for (DayOfWeek day : sourceDays) {
+        days.add(day.plus(shift));
+      }
+
+      Integer count = rule.count;
+      if (rule.until != null) {
+        When until = when(new Property("UNTIL", null, rule.until), rule.until);
+        LocalDateTime last = (until.date != null)
+            ? until.date.atTime(LocalTime.MAX)
+            : (allDay ? until.local : inZone(until, sourceZone).toLocalDateTime());
+        count = 0;
+        LocalDate cap = sourceDate.plusYears(EventSeries.SERIES_MAX_YEARS);
+        for (LocalDate d = sourceDate; !d.isAfter(cap) && !d.atTime(sourceTime).isAfter(last);
+             d = d.plusDays(1)) {
+          if (sourceDays.contains(d.getDayOfWeek())) {
+            count++;
+          }
+        }
+      }
+
+      Set<LocalDate> cancelled = new HashSet<>();
+      for (Property exdate : master.exdates) {
+        for (String value : exdate.value.split(",")) {
+          cancelled.add(sourceDate(when(exdate, value), sourceZone));
+        }
+      }
+      Map<LocalDate, Component> moved = new HashMap<>();
+      for (Component instance : modified) {
+        LocalDate date = sourceDate(when(instance.recurrenceId), sourceZone);
+        if (instance.isCancelled()) {
+          cancelled.add(date);
+        } else {
+          moved.put(date, instance);
+        }
+      }
+
+      List<EventInterface> extra = new ArrayList<>();
+      if (!sourceDays.contains(sourceDate.getDayOfWeek()) && (count == null || count > 0)) {
+        if (count != null) {
+          count--;
+        }
+        Component instance = moved.remove(sourceDate);
+        if (instance != null) {
+          extra.add(toEvent(instance));
+        } else if (!cancelled.contains(sourceDate)) {
+          extra.add(toEvent(master));
+        }
+      }
+
+      UUID seriesId = UUID.randomUUID();
+      EventSeries series = null;
+      if (count == null || count > 0) {
+        EventInterface template = new Event(first.getSubject(), templateStart, templateEnd,
+            first.getDescription().orElse(null), first.getLocation().orElse(null),
+            first.isPrivate(), UUID.randomUUID(), seriesId);
+        series = new EventSeries(seriesId, template, days, null, count, false);
+      }
+
+      if (series != null && series.getLastDate() != null) {
+        Set<LocalDate> exceptions = new HashSet<>();
+        Map<LocalDate, EditSpec> overrides = new HashMap<>();
+        boolean convert = !allDay && !sourceZone.equals(target);
+        Duration length = allDay ? Duration.ZERO
+            : Duration.between(start.local.atZone(sourceZone),
+                end(master, start.local.atZone(sourceZone)));
+        for (LocalDate date : series.getOccurrenceDates()) {
+          LocalDate source = date.minusDays(shift);
+          Component instance = moved.remove(source);
+          EventInterface occurrence;
+          if (cancelled.contains(source)) {
+            exceptions.add(date);
+            continue;
+          } else if (instance != null) {
+            occurrence = toEvent(instance);
+          } else if (convert) {
+            ZonedDateTime zoned = ZonedDateTime.of(source, sourceTime, sourceZone);
+            LocalDateTime s = toTarget(zoned);
+            LocalDateTime e = toTarget(zoned.plus(length));
+            if (s.equals(date.atTime(templateStart.toLocalTime()))
+                && e.equals(date.atTime(templateEnd.toLocalTime()))) {
+              continue;
+            }
+            occurrence = first.withModifications(first.getSubject(), s, e,
+                first.getDescription().orElse(null), first.getLocation().orElse(null),
+                first.isPrivate(), null);
+          } else {
+            continue;
+          }
+
+          if (occurrence.getStartDateTime().toLocalDate().equals(date)
+              && occurrence.getEndDateTime().toLocalDate().equals(date)) {
+            overrides.put(date, EditSpec.builder()
+                .subject(occurrence.getSubject())
+                .start(occurrence.getStartDateTime())
+                .end(occurrence.getEndDateTime())
+                .description(occurrence.getDescription().orElse(null))
+                .location(occurrence.getLocation().orElse(null))
+                .status(occurrence.isPrivate() ? EventStatus.PRIVATE : EventStatus.PUBLIC)
+                .build());
+          } else {
+            exceptions.add(date);
+            extra.add(occurrence);
+          }
+        }
+        series = EventSeries.restore(seriesId, series.getTemplate(), days, null, count, false,
+            series.getLastDate(), exceptions, overrides, Collections.emptyList());
+        if (!model.createEventSeries(series)) {
+          throw new IllegalArgumentException("recurring event '" + first.getSubject()
+              + "' conflicts with existing events");
+        }
+        result.addSeries();
+      }
+
+      for (EventInterface event : extra) {
+        batch.add(event, master.line);
+      }
+      for (Component instance : moved.values()) {
+        addStandalone(instance);
+      }
+    }
+
+    /**
+     * Converts a VEVENT to a single event in the calendar's zone. All-day events
+     * run from 8:00 AM on their first day to 5:00 PM on their last.
+     */
+    private EventInterface toEvent(Component c) {
+      String subject = unescape(c.required(c.summary, "SUMMARY").value);
+      When start = when(c.required(c.dtStart, "DTSTART"));
+      LocalDateTime s;
+      LocalDateTime e;
+      if (start.date != null) {
+        LocalDate after;
+        if (c.dtEnd != null) {
+          When end = when(c.dtEnd);
+          after = (end.date != null) ? end.date : end.local.toLocalDate().plusDays(1);
+        } else if (c.duration != null) {
+          after = addDuration(start.date.atStartOfDay(ZoneOffset.UTC), c.duration.value)
+              .toLocalDate();
+        } else {
+          after = start.date.plusDays(1);
+        }
+        LocalDate last = after.isAfter(start.date) ? after.minusDays(1) : start.date;
+        s = start.date.atTime(Event.ALL_DAY_EVENT_START_HOUR, 0);
+        e = last.atTime(Event.ALL_DAY_EVENT_END_HOUR, 0);
+      } else {
+        ZonedDateTime zoned = start.local.atZone(start.zone);
+        s = toTarget(zoned);
+        e = toTarget(end(c, zoned));
+      }
+      String description = (c.description == null) ? null : unescape(c.description.value);
+      String location = (c.location == null) ? null : unescape(c.location.value);
+      return new Event(subject, s, e, description, location, c.isPrivate(),
+          UUID.randomUUID(), null);
+    }
+
+    private ZonedDateTime end(Component c, ZonedDateTime start) {
+      if (c.dtEnd != null) {
+        When end = when(c.dtEnd);
+        return (end.date != null) ? end.date.atStartOfDay(start.getZone())
+            : end.local.atZone(end.zone);
+      } else if (c.duration != null) {
+        return addDuration(start, c.duration.value);
+      }
+      return start;
+    }
+
+    private LocalDateTime toTarget(ZonedDateTime zoned) {
+      return zoned.getZone().equals(target) ? zoned.toLocalDateTime()
+          : zoned.withZoneSameInstant(target).toLocalDateTime();
+    }
+
+    private ZonedDateTime inZone(When when, ZoneId zone) {
+      return when.local.atZone(when.zone).withZoneSameInstant(zone);
+    }
+
+    /**
+     * Gets the date, in the recurring event's own zone, that a RECURRENCE-ID or
+     * EXDATE refers to.
+     */
+    private LocalDate sourceDate(When when, ZoneId sourceZone) {
+      if (when.date != null) {
+        return when.date;
+      }
+      return (sourceZone == null || when.zone.equals(sourceZone)) ? when.local.toLocalDate()
+          : inZone(when, sourceZone).toLocalDate();
+    }
+
+    private When when(Property property) {
+      return when(property, property.value);
+    }
+
+    /**
+     * Parses a DATE (yyyyMMdd) or DATE-TIME (yyyyMMdd'T'HHmmss, with a trailing Z
+     * for UTC) value.
+     */
+    private When when(Property property, String value) {
+      String v = value.trim();
+      boolean dateOnly = "DATE".equalsIgnoreCase(property.param("VALUE")) || v.length() == 8;
+      try {
+        LocalDate date = LocalDate.of(digits(v, 0, 4), digits(v, 4, 2), digits(v, 6, 2));
+        if (dateOnly) {
+          return new When(date, null, null);
+        }
+        if (v.length() < 15 || v.charAt(8) != 'T') {
+          throw new IllegalArgumentException("invalid date-time '" + v + "'");
+        }
+        LocalDateTime local = date.atTime(digits(v, 9, 2), digits(v, 11, 2), digits(v, 13, 2));
+        String tzid = property.param("TZID");
+        ZoneId zone = v.endsWith("Z") ? ZoneOffset.UTC
+            : (tzid != null) ? zone(tzid) : floating;
+        return new When(null, local, zone);
+      } catch (DateTimeException e) {
+        throw new IllegalArgumentException("invalid date-time '" + v + "'");
+      }
+    }
+
+    /**
+     * Resolves a TZID. Prefixed IDs such as /mozilla.org/20050126_1/Europe/Berlin
+     * are resolved by their trailing region ID.
+     */
+    private ZoneId zone(String tzid) {
+      ZoneId zone = zones.get(tzid);
+      if (zone != null) {
+        return zone;
+      }
+      for (int from = 0; from >= 0; from = tzid.indexOf('/', from + 1)) {
+        String candidate = (from == 0) ? tzid : tzid.substring(from + 1);
+        try {
+          zone = ZoneId.of(candidate);
+          zones.put(tzid, zone);
+          return zone;
+        } catch (DateTimeException e) {
+          continue;
+        }
+      }
+      throw new IllegalArgumentException("unknown time zone '" + tzid + "'");
+    }
+  }
+
+  /**
+   * Adds an RFC 5545 duration such as PT1H30M, P1D or P2W. Days and weeks are
+   * added as calendar days, the time part as elapsed time.
+   */
+  private static ZonedDateTime addDuration(ZonedDateTime start, String value) {
+    String v = value.trim();
+    int i = 0;
+    int sign = 1;
+    if (v.startsWith("-") || v.startsWith("+")) {
+      sign = v.startsWith("-") ? -1 : 1;
+      i++;
+    }
+    if (i >= v.length() || v.charAt(i) != 'P') {
+      throw new IllegalArgumentException("invalid duration '" + v + "'");
+    }
+    i++;
+    long days = 0;
+    long seconds = 0;
+    while (i < v.length()) {
+      if (v.charAt(i) == 'T') {
+        i++;
+        continue;
+      }
+      int j = i;
+      while (j < v.length() && Character.isDigit(v.charAt(j))) {
+        j++;
+      }
+      if (j == i || j == v.length() || j - i > 9) {
+        throw new IllegalArgumentException("invalid duration '" + v + "'");
+      }
+      long amount = Long.parseLong(v.substring(i, j));
+      switch (v.charAt(j)) {
+        case 'W':
+          days += 7 * amount;
+          break;
+        case 'D':
+          days += amount;
+          break;
+        case 'H':
+          seconds += 3600 * amount;
+          break;
+        case 'M':
+          seconds += 60 * amount;
+          break;
+        case 'S':
+          seconds += amount;
+          break;
+        default:
+          throw new IllegalArgumentException("invalid duration '" + v + "'");
+      }
+      i = j + 1;
+    }
+    return start.plusDays(sign * days).plusSeconds(sign * seconds);
+  }
+
+  private static int digits(String text, int from, int count) {
+    if (text.length() < from + count) {
+      throw new IllegalArgumentException("invalid date-time '" + text + "'");
+    }
+    int value = 0;
+    for (int i = from; i < from + count; i++) {
+      char c = text.charAt(i);
+      if (c < '0' || c > '9') {
+        throw new IllegalArgumentException("invalid date-time '" + text + "'");
+      }
+      value = value * 10 + (c - '0');
+    }
+    return value;
+  }
+
+  /**
+   * Reverses the text escaping of RFC 5545 as written by {@link IcalExporter}:
+   * {@code \n} (or {@code \N}) is a line break, and {@code \,}, {@code \;} and
+   * {@code \\} are the characters themselves.
+   */
+  static String unescape(String value) {
+    if (value.indexOf('\\') < 0) {
+      return value;
+    }
+    StringBuilder text = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\\' && i + 1 < value.length()) {
+        char next = value.charAt(++i);
+        text.append((next == 'n' || next == 'N') ? '\n' : next);
+      } else {
+        text.append(c);
+      }
+    }
+    return text.toString();
+  }
+
+  /**
+   * A DATE value, or a DATE-TIME value with the zone it is in.
+   */
+  private static final class When {
+    private final LocalDate date;
+    private final LocalDateTime local;
+    private final ZoneId zone;
+
+    When(LocalDate date, LocalDateTime local, ZoneId zone) {
+      this.date = date;
+      this.local = local;
+      this.zone = zone;
+    }
+  }
+
+  /**
+   * A supported recurrence rule: daily or weekly, every interval.
+   */
+  private static final class Rule {
+    private Set<DayOfWeek> days;
+    private Integer count;
+    private String until;
+
+    static Rule parse(String value) {
+      Rule rule = new Rule();
+      String frequency = null;
+      for (String part : value.split(";")) {
+        int eq = part.indexOf('=');
+        if (eq < 0) {
+          throw unsupported(value);
+        }
+        String key = part.substring(0, eq).trim().toUpperCase(Locale.ROOT);
+        String v = part.substring(eq + 1).trim();
+        switch (key) {
+          case "FREQ":
+            frequency = v.toUpperCase(Locale.ROOT);
+            break;
+          case "INTERVAL":
+            if (!v.equals("1")) {
+              throw unsupported(value);
+            }
+            break;
+          case "COUNT":
+            try {
+              rule.count = Integer.valueOf(v);
+            } catch (NumberFormatException e) {
+              throw unsupported(value);
+            }
+            break;
+          case "UNTIL":
+            rule.until = v;
+            break;
+          case "BYDAY":
+            rule.days = EnumSet.noneOf(DayOfWeek.class);
+            for (String code : v.split(",")) {
+              rule.days.add(day(code.trim(), value));
+            }
+            break;
+          case "WKST":
+            break;
+          default:
+            throw unsupported(value);
+        }
+      }
+      if ("DAILY".equals(frequency)) {
+        if (rule.days == null) {
+          rule.days = EnumSet.allOf(DayOfWeek.class);
+        }
+      } else if (!"WEEKLY".equals(frequency)) {
+        throw unsupported(value);
+      }
+      if (rule.count != null && rule.until != null) {
+        throw new IllegalArgumentException("RRULE cannot have both COUNT and UNTIL");
+      }
+      return rule;
+    }
+
+    private static DayOfWeek day(String code, String rule) {
+      for (int i = 0; i < DAY_CODES.length; i++) {
+        if (DAY_CODES[i].equalsIgnoreCase(code)) {
+          return DayOfWeek.of(i + 1);
+        }
+      }
+      throw unsupported(rule);
+    }
+
+    private static IllegalArgumentException unsupported(String rule) {
+      return new IllegalArgumentException("unsupported recurrence rule '" + rule + "'");
+    }
+  }
+
+  /**
+   * The properties of one VEVENT that the import uses.
+   */
+  private static final class Component {
+    private final long line;
+    private String uid;
+    private Property dtStart;
+    private Property dtEnd;
+    private Property duration;
+    private Property summary;
+    private Property description;
+    private Property location;
+    private Property classification;
+    private Property status;
+    private Property rrule;
+    private Property recurrenceId;
+    private final List<Property> exdates = new ArrayList<>(0);
+
+    Component(long line) {
+      this.line = line;
+    }
+
+    void add(Property p) {
+      switch (p.name) {
+        case "UID":
+          uid = p.value.trim();
+          break;
+        case "DTSTART":
+          dtStart = p;
+          break;
+        case "DTEND":
+          dtEnd = p;
+          break;
+        case "DURATION":
+          duration = p;
+          break;
+        case "SUMMARY":
+          summary = p;
+          break;
+        case "DESCRIPTION":
+          description = p;
+          break;
+        case "LOCATION":
+          location = p;
+          break;
+        case "CLASS":
+          classification = p;
+          break;
+        case "STATUS":
+          status = p;
+          break;
+        case "RRULE":
+          rrule = p;
+          break;
+        case "RECURRENCE-ID":
+          recurrenceId = p;
+          break;
+        case "EXDATE":
+          exdates.add(p);
+          break;
+        default:
+          break;
+      }
+    }
+
+    Property required(Property p, String name) {
+      if (p == null) {
+        throw new IllegalArgumentException("missing " + name);
+      }
+      return p;
+    }
+
+    boolean isCancelled() {
+      return status != null && status.value.trim().equalsIgnoreCase("CANCELLED");
+    }
+
+    boolean isPrivate() {
+      return classification != null
+          && (classification.value.trim().equalsIgnoreCase("PRIVATE")
+          || classification.value.trim().equalsIgnoreCase("CONFIDENTIAL"));
+    }
+  }
+
+  /**
+   * A content line split into its name, parameters and raw value.
+   */
+  private static final class Property {
+    private final String name;
+    private final Map<String, String> params;
+    private final String value;
+
+    Property(String name, Map<String, String> params, String value) {
+      this.name = name;
+      this.params = params;
+      this.value = value;
+    }
+
+    String param(String key) {
+      return (params == null) ? null : params.get(key);
+    }
+
+    /**
+     * Parses "NAME;PARAM=value;PARAM="quoted":value".
+     *
+     * @return the property, or null if the line is malformed
+     */
+    static Property parse(String line) {
+      int n = line.length();
+      int i = 0;
+      while (i < n && line.charAt(i) != ';' && line.charAt(i) != ':') {
+        i++;
+      }
+      if (i == n || i == 0) {
+        return null;
+      }
+      String name = line.substring(0, i).trim().toUpperCase(Locale.ROOT);
+      Map<String, String> params = null;
+      while (line.charAt(i) == ';') {
+        int eq = line.indexOf('=', i + 1);
+        if (eq < 0) {
+          return null;
+        }
+        String key = line.substring(i + 1, eq).trim().toUpperCase(Locale.ROOT);
+        i = eq + 1;
+        String value;
+        if (i < n && line.charAt(i) == '"') {
+          int close = line.indexOf('"', i + 1);
+          if (close < 0) {
+            return null;
+          }
+          value = line.substring(i + 1, close);
+          i = close + 1;
+        } else {
+          int start = i;
+          while (i < n && line.charAt(i) != ';' && line.charAt(i) != ':') {
+            i++;
+          }
+          value = line.substring(start, i);
+        }
+        while (i < n && line.charAt(i) != ';' && line.charAt(i) != ':') {
+          i++;
+        }
+        if (i == n) {
+          return null;
+        }
+        if (params == null) {
+          params = new HashMap<>(4);
+        }
+        params.put(key, value);
+      }
+      return new Property(name, params, line.substring(i + 1));
+    }
+  }
+
+  /**
+   * Reads unfolded content lines: a line starting with a space or tab continues
+   * the previous one.
+   */
+  private static final class ContentLines {
+    private final BufferedReader in;
+    private final StringBuilder folded = new StringBuilder();
+    private String lookahead;
+    private long lookaheadLine;
+    private long physical;
+    private long lineNumber;
+
+    ContentLines(Reader in) {
+      this.in = (in instanceof BufferedReader) ? (BufferedReader) in : new BufferedReader(in);
+    }
+
+    /**
+     * Reads the next logical line.
+     *
+     * @return the unfolded line, or null at the end of the input
+     */
+    String next() throws IOException {
+      String first = (lookahead != null) ? lookahead : read();
+      long firstLine = (lookahead != null) ? lookaheadLine : physical;
+      lookahead = null;
+      if (first == null) {
+        return null;
+      }
+      lineNumber = firstLine;
+      String next = read();
+      if (!isContinuation(next)) {
+        lookahead = next;
+        lookaheadLine = physical;
+        return first;
+      }
+      folded.setLength(0);
+      folded.append(first);
+      while (isContinuation(next)) {
+        folded.append(next, 1, next.length());
+        next = read();
+      }
+      lookahead = next;
+      lookaheadLine = physical;
+      return folded.toString();
+    }
+
+    private static boolean isContinuation(String line) {
+      return line != null && !line.isEmpty()
+          && (line.charAt(0) == ' ' || line.charAt(0) == '\t');
+    }
+
+    private String read() throws IOException {
+      String line = in.readLine();
+      if (line != null) {
+        physical++;
+      }
+      return line;
+    }
+  }
+}
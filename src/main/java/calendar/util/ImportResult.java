@@ -0,0 +1,74 @@
+package calendar.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of importing a file: how much was created and which entries were
+ * skipped.
+ */
+public final class ImportResult {
+
+  /**
+   * Maximum number of errors kept; further errors are only counted.
+   */
+  public static final int MAX_REPORTED_ERRORS = 100;
+
+  private long imported;
+  private long series;
+  private long errorCount;
+  private final List<String> errors = new ArrayList<>();
+
+  /**
+   * Gets the number of single events created.
+   *
+   * @return the number of imported events
+   */
+  public long getImported() {
+    return imported;
+  }
+
+  /**
+   * Gets the number of recurring series created.
+   *
+   * @return the number of imported series
+   */
+  public long getSeries() {
+    return series;
+  }
+
+  /**
+   * Gets the number of entries that were skipped.
+   *
+   * @return the number of rejected rows or components
+   */
+  public long getErrorCount() {
+    return errorCount;
+  }
+
+  /**
+   * Gets the first {@value #MAX_REPORTED_ERRORS} errors, in the order they were
+   * found, as "line N: reason".
+   *
+   * @return unmodifiable list of error messages
+   */
+  public List<String> getErrors() {
+    return Collections.unmodifiableList(errors);
+  }
+
+  void addImported(long count) {
+    imported += count;
+  }
+
+  void addSeries() {
+    series++;
+  }
+
+  void error(long line, String message) {
+    errorCount++;
+    if (errors.size() < MAX_REPORTED_ERRORS) {
+      errors.add("line " + line + ": " + message);
+    }
+  }
+}
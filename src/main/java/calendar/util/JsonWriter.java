@@ -0,0 +1,275 @@
+package calendar.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+/**
+ * Writes JSON straight to a stream as UTF-8. Values are encoded into a reusable
+ * byte buffer as they are written, so a document of any size is streamed without
+ * building it in memory, and writing a string, number or date-time allocates
+ * nothing.
+ *
+ * <p>The writer adds the commas between members and elements itself; callers only
+ * open and close objects and arrays, and write names and values in order. It does
+ * not check that the document is well formed.
+ */
+public final class JsonWriter {
+  private static final int MAX_DEPTH = 64;
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final Utf8Output out;
+  private final boolean[] first = new boolean[MAX_DEPTH];
+  private int depth;
+  private boolean afterName;
+
+  /**
+   * Creates a writer.
+   *
+   * @param out the stream to write to
+   */
+  public JsonWriter(OutputStream out) {
+    this.out = new Utf8Output(out);
+  }
+
+  /**
+   * Opens an object.
+   *
+   * @return this writer
+   * @throws IOException if writing fails
+   */
+  public JsonWriter beginObject() throws IOException {
+    return open('{');
+  }
+
+  /**
+   * Closes the current object.
+   *
+   * @return this writer
+   * @throws IOException if writing fails
+   */
+  public JsonWriter endObject() throws IOException {
+    return close('}');
+  }
+
+  /**
+   * Opens an array.
+   *
+   * @return this writer
+   * @throws IOException if writing fails
+   */
+  public JsonWriter beginArray() throws IOException {
+    return open('[');
+  }
+
+  /**
+   * Closes the current array.
+   *
+   * @return this writer
+   * @throws IOException if writing fails
+   */
+  public JsonWriter endArray() throws IOException {
+    return close(']');
+  }
+
+  /**
+   * Writes the name of the next member of the current object.
+   *
+   * @param name the member name
+   * @return this writer
+   * @throws IOException if writing fails
+   */
+  public JsonWriter name(String name) throws IOException {
+    separate();
+    string(name);
+    out.put(':');
+    afterName = true;
+    return this;
+  }
+
+  /**
+   * Writes a string value, or null.
+   *
+   * @param value the value
+   * @return this writer
+   * @throws IOException if writing fails
+   */
+  public JsonWriter value(String value) throws IOException {
+    if (value == null) {
+      return nullValue();
+    }
+    separate();
+    string(value);
+    return this;
+  }
+
+  /**
+   * Writes a boolean value.
+   *
+   * @param value the value
+   * @return this writer
+   * @throws IOException if writing fails
+   */
+  public JsonWriter value(boolean value) throws IOException {
+    separate();
+    out.text(value ? "true" : "false");
+    return this;
+  }
+
+  /**
+   * Writes a number.
+   *
+   * @param value the value
+   * @return this writer
+   * @throws IOException if writing fails
+   */
+  public JsonWriter value(long value) throws IOException {
+    separate();
+    if (value == Long.MIN_VALUE) {
+      out.text(Long.toString(value));
+      return this;
+    }
+    if (value < 0) {
+      out.put('-');
+      value = -value;
+    }
+    long scale = 1;
+    while (scale <= value / 10) {
+      scale *= 10;
+    }
+    for (; scale > 0; scale /= 10) {
+      out.put((char) ('0' + value / scale % 10));
+    }
+    return this;
+  }
+
+  /**
+   * Writes a date-time as a string in the application's format
+   * ({@code yyyy-MM-ddTHH:mm}), or null. Seconds are written only when present.
+   *
+   * @param value the value
+   * @return this writer
+   * @throws IOException if writing fails
+   */
+  public JsonWriter value(LocalDateTime value) throws IOException {
+    if (value == null) {
+      return nullValue();
+    }
+    int year = value.getYear();
+    if (year < 0 || year > 9999 || value.getNano() != 0) {
+      return value(value.toString());
+    }
+    separate();
+    out.put('"');
+    out.twoDigits(year / 100);
+    out.twoDigits(year % 100);
+    out.put('-');
+    out.twoDigits(value.getMonthValue());
+    out.put('-');
+    out.twoDigits(value.getDayOfMonth());
+    out.put('T');
+    out.twoDigits(value.getHour());
+    out.put(':');
+    out.twoDigits(value.getMinute());
+    if (value.getSecond() != 0) {
+      out.put(':');
+      out.twoDigits(value.getSecond());
+    }
+    out.put('"');
+    return this;
+  }
+
+  /**
+   * Writes null.
+   *
+   * @return this writer
+   * @throws IOException if writing fails
+   */
+  public JsonWriter nullValue() throws IOException {
+    separate();
+    out.text("null");
+    return this;
+  }
+
+  /**
+   * Writes out everything buffered and flushes the stream. The stream is not
+   * closed.
+   *
+   * @throws IOException if writing fails
+   */
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  private JsonWriter open(char bracket) throws IOException {
+    if (depth == MAX_DEPTH) {
+      throw new IllegalStateException("JSON nested too deeply");
+    }
+    separate();
+    out.put(bracket);
+    first[depth++] = true;
+    return this;
+  }
+
+  private JsonWriter close(char bracket) throws IOException {
+    depth--;
+    out.put(bracket);
+    return this;
+  }
+
+  /**
+   * Writes the comma before a member or element unless it is the first, or the
+   * value follows its name.
+   */
+  private void separate() throws IOException {
+    if (afterName) {
+      afterName = false;
+      return;
+    }
+    if (depth > 0) {
+      if (first[depth - 1]) {
+        first[depth - 1] = false;
+      } else {
+        out.put(',');
+      }
+    }
+  }
+
+  /**
+   * Writes a quoted string, escaping quotes, backslashes and control characters.
+   */
+  private void string(String s) throws IOException {
+    out.put('"');
+    int length = s.length();
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        out.put('\\');
+        out.put(c);
+      } else if (c == '\n') {
+        out.put('\\');
+        out.put('n');
+      } else if (c == '\r') {
+        out.put('\\');
+        out.put('r');
+      } else if (c == '\t') {
+        out.put('\\');
+        out.put('t');
+      } else if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+        out.put('\\');
+        out.put('u');
+        out.put(HEX[c >> 12]);
+        out.put(HEX[c >> 8 & 0xf]);
+        out.put(HEX[c >> 4 & 0xf]);
+        out.put(HEX[c & 0xf]);
+      } else if (c < 0x80) {
+        out.put(c);
+      } else {
+        int codePoint = s.codePointAt(i);
+        out.codePoint(codePoint);
+        i += Character.charCount(codePoint) - 1;
+      }
+    }
+    out.put('"');
+  }
+}
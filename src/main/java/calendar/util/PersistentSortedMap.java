@@ -0,0 +1,556 @@
+package calendar.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable sorted map. Adding or removing a key makes a new map that shares
+ * all but O(log n) of its nodes with the old one, so keeping every version of a
+ * changing map costs memory in proportion to the changes, and going back to an
+ * earlier version is just using the old reference.
+ *
+ * <p>The map is a treap whose priorities are derived from the keys' hash codes,
+ * so a set of keys always has the same tree shape no matter in which order the
+ * keys were added. Two versions therefore share every subtree whose keys did not
+ * change, and {@link #diff} visits only the changed entries and the paths leading
+ * to them. Keys that the comparator finds equal must have equal hash codes.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public final class PersistentSortedMap<K, V> {
+  private final Comparator<? super K> order;
+  private final Node<K, V> root;
+
+  private PersistentSortedMap(Comparator<? super K> order, Node<K, V> root) {
+    this.order = order;
+    this.root = root;
+  }
+
+  /**
+   * Makes an empty map.
+   *
+   * @param order the key order, consistent with the keys' hash codes
+   * @param <K>   the key type
+   * @param <V>   the value type
+   * @return the empty map
+   */
+  public static <K, V> PersistentSortedMap<K, V> empty(Comparator<? super K> order) {
+    if (order == null) {
+      throw new IllegalArgumentException("Key order cannot be null");
+    }
+    return new PersistentSortedMap<>(order, null);
+  }
+
+  /**
+   * Gets the number of entries.
+   *
+   * @return the size
+   */
+  public int size() {
+    return size(root);
+  }
+
+  /**
+   * Checks whether the map has no entries.
+   *
+   * @return true if it is empty
+   */
+  public boolean isEmpty() {
+    return root == null;
+  }
+
+  /**
+   * Gets the value of a key.
+   *
+   * @param key the key
+   * @return the value, or null if the key is absent
+   */
+  public V get(K key) {
+    Node<K, V> node = root;
+    while (node != null) {
+      int compared = order.compare(key, node.key);
+      if (compared == 0) {
+        return node.value;
+      }
+      node = (compared < 0) ? node.left : node.right;
+    }
+    return null;
+  }
+
+  /**
+   * Checks whether a key is present.
+   *
+   * @param key the key
+   * @return true if the map has the key
+   */
+  public boolean containsKey(K key) {
+    Node<K, V> node = root;
+    while (node != null) {
+      int compared = order.compare(key, node.key);
+      if (compared == 0) {
+        return true;
+      }
+      node = (compared < 0) ? node.left : node.right;
+    }
+    return false;
+  }
+
+  /**
+   * Makes a map with a key set to a value. An equal key already present is
+   * replaced by the given one.
+   *
+   * @param key   the key
+   * @param value the value
+   * @return the new map
+   */
+  public PersistentSortedMap<K, V> put(K key, V value) {
+    return new PersistentSortedMap<>(order, put(root, key, value, priority(key)));
+  }
+
+  /**
+   * Makes a map without a key.
+   *
+   * @param key the key
+   * @return the new map, or this map if the key is absent
+   */
+  public PersistentSortedMap<K, V> remove(K key) {
+    Node<K, V> removed = remove(root, key);
+    return (removed == root) ? this : new PersistentSortedMap<>(order, removed);
+  }
+
+  /**
+   * Makes a map with many keys set at once, as {@link #put} would set each. The
+   * new entries are built into a tree of their own, which is then joined with
+   * this map's, so k entries cost O(k log(n/k + 1)) new nodes rather than
+   * O(k log n).
+   *
+   * @param entries the keys and values; of equal keys, the last one is kept
+   * @return the new map
+   */
+  public PersistentSortedMap<K, V> putAll(Collection<? extends Map.Entry<K, V>> entries) {
+    if (entries.isEmpty()) {
+      return this;
+    }
+    List<Map.Entry<K, V>> sorted = new ArrayList<>(entries);
+    sorted.sort((a, b) -> order.compare(a.getKey(), b.getKey()));
+    List<Node<K, V>> nodes = new ArrayList<>(sorted.size());
+    for (Map.Entry<K, V> entry : sorted) {
+      Node<K, V> node = new Node<>(entry.getKey(), entry.getValue(), priority(entry.getKey()),
+          null, null);
+      int last = nodes.size() - 1;
+      if (last >= 0 && order.compare(nodes.get(last).key, node.key) == 0) {
+        nodes.set(last, node);
+      } else {
+        nodes.add(node);
+      }
+    }
+    return new PersistentSortedMap<>(order, union(order, root, build(order, nodes)));
+  }
+
+  /**
+   * Makes a map without many keys, as {@link #remove} would remove each.
+   *
+   * @param keys the keys; absent ones are ignored
+   * @return the new map
+   */
+  public PersistentSortedMap<K, V> removeAll(Collection<? extends K> keys) {
+    if (keys.isEmpty() || root == null) {
+      return this;
+    }
+    List<K> sorted = new ArrayList<>(keys);
+    sorted.sort(order);
+    List<Node<K, V>> nodes = new ArrayList<>(sorted.size());
+    for (K key : sorted) {
+      if (nodes.isEmpty() || order.compare(nodes.get(nodes.size() - 1).key, key) != 0) {
+        nodes.add(new Node<>(key, null, priority(key), null, null));
+      }
+    }
+    return new PersistentSortedMap<>(order, difference(order, root, build(order, nodes)));
+  }
+
+  /**
+   * Lists the values in key order.
+   *
+   * @return the values
+   */
+  public Iterable<V> values() {
+    return () -> new Values<>(order, root, null, null);
+  }
+
+  /**
+   * Streams the values whose keys are at least one key and less than another, in
+   * key order.
+   *
+   * @param from the least key, included
+   * @param to   the key to stop at, excluded
+   * @return the values
+   */
+  public Stream<V> valuesBetween(K from, K to) {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+        new Values<>(order, root, from, to), Spliterator.ORDERED), false);
+  }
+
+  /**
+   * Reports how one version of a map differs from another, in key order. Only
+   * the parts of the two trees that are not shared are visited.
+   *
+   * @param before   the earlier version
+   * @param after    the later version, with the same key order
+   * @param changes  receives the differences
+   * @param <K>      the key type
+   * @param <V>      the value type
+   */
+  public static <K, V> void diff(PersistentSortedMap<K, V> before,
+                                 PersistentSortedMap<K, V> after, Changes<V> changes) {
+    diff(before.order, before.root, after.root, changes);
+  }
+
+  /**
+   * Receives the differences between two versions of a map.
+   *
+   * @param <V> the value type
+   */
+  public interface Changes<V> {
+    /**
+     * Reports a key only the earlier version has.
+     *
+     * @param value its value
+     */
+    void removed(V value);
+
+    /**
+     * Reports a key only the later version has.
+     *
+     * @param value its value
+     */
+    void added(V value);
+
+    /**
+     * Reports a key whose entry was replaced.
+     *
+     * @param before the value in the earlier version
+     * @param after  the value in the later version
+     */
+    void replaced(V before, V after);
+  }
+
+  private static <K, V> void diff(Comparator<? super K> order, Node<K, V> a, Node<K, V> b,
+                                  Changes<V> changes) {
+    if (a == b) {
+      return;
+    }
+    if (b == null) {
+      forEach(a, changes::removed);
+    } else if (a == null) {
+      forEach(b, changes::added);
+    } else if (above(order, a, b)) {
+      Split<K, V> parts = split(order, b, a.key);
+      diff(order, a.left, parts.less, changes);
+      if (parts.equal == null) {
+        changes.removed(a.value);
+      } else if (parts.equal.value != a.value || parts.equal.key != a.key) {
+        changes.replaced(a.value, parts.equal.value);
+      }
+      diff(order, a.right, parts.greater, changes);
+    } else if (above(order, b, a)) {
+      Split<K, V> parts = split(order, a, b.key);
+      diff(order, parts.less, b.left, changes);
+      if (parts.equal == null) {
+        changes.added(b.value);
+      } else if (parts.equal.value != b.value || parts.equal.key != b.key) {
+        changes.replaced(parts.equal.value, b.value);
+      }
+      diff(order, parts.greater, b.right, changes);
+    } else {
+      diff(order, a.left, b.left, changes);
+      if (a.value != b.value || a.key != b.key) {
+        changes.replaced(a.value, b.value);
+      }
+      diff(order, a.right, b.right, changes);
+    }
+  }
+
+  /**
+   * Builds a treap of leaf nodes in key order: the nodes on the right spine are
+   * kept on a stack, and each node becomes the right child of the last one above
+   * it, taking the nodes it is above as its left subtree. Nodes are only made once
+   * their children are final.
+   */
+  private static <K, V> Node<K, V> build(Comparator<? super K> order, List<Node<K, V>> nodes) {
+    int count = nodes.size();
+    int[] left = new int[count];
+    int[] right = new int[count];
+    int[] spine = new int[count];
+    int depth = 0;
+    for (int i = 0; i < count; i++) {
+      right[i] = -1;
+      int below = -1;
+      while (depth > 0 && above(order, nodes.get(i), nodes.get(spine[depth - 1]))) {
+        below = spine[--depth];
+      }
+      left[i] = below;
+      if (depth > 0) {
+        right[spine[depth - 1]] = i;
+      }
+      spine[depth++] = i;
+    }
+    return (count == 0) ? null : link(nodes, left, right, spine[0]);
+  }
+
+  private static <K, V> Node<K, V> link(List<Node<K, V>> nodes, int[] left, int[] right,
+                                        int i) {
+    if (i < 0) {
+      return null;
+    }
+    return nodes.get(i).with(link(nodes, left, right, left[i]),
+        link(nodes, left, right, right[i]));
+  }
+
+  /**
+   * Joins two treaps, taking the second one's node where both have a key.
+   */
+  private static <K, V> Node<K, V> union(Comparator<? super K> order, Node<K, V> a,
+                                         Node<K, V> b) {
+    if (a == null) {
+      return b;
+    }
+    if (b == null) {
+      return a;
+    }
+    if (above(order, a, b)) {
+      Split<K, V> parts = split(order, b, a.key);
+      Node<K, V> node = (parts.equal == null) ? a : parts.equal;
+      return node.with(union(order, a.left, parts.less), union(order, a.right, parts.greater));
+    }
+    Split<K, V> parts = split(order, a, b.key);
+    return b.with(union(order, parts.less, b.left), union(order, parts.greater, b.right));
+  }
+
+  /**
+   * Removes the keys of the second treap from the first. Subtrees of the first
+   * that hold none of the keys are kept as they are.
+   */
+  private static <K, V> Node<K, V> difference(Comparator<? super K> order, Node<K, V> a,
+                                              Node<K, V> b) {
+    if (a == null || b == null) {
+      return a;
+    }
+    Split<K, V> parts = split(order, b, a.key);
+    Node<K, V> less = difference(order, a.left, parts.less);
+    Node<K, V> greater = difference(order, a.right, parts.greater);
+    if (parts.equal != null) {
+      return merge(order, less, greater);
+    }
+    return (less == a.left && greater == a.right) ? a : a.with(less, greater);
+  }
+
+  private static <K, V> void forEach(Node<K, V> node, Consumer<V> action) {
+    if (node != null) {
+      forEach(node.left, action);
+      action.accept(node.value);
+      forEach(node.right, action);
+    }
+  }
+
+  /**
+   * Checks whether one node belongs above another in the treap: it has the
+   * higher priority, or an equal priority and the lesser key.
+   */
+  private static <K, V> boolean above(Comparator<? super K> order, Node<K, V> a,
+                                      Node<K, V> b) {
+    if (a.priority != b.priority) {
+      return a.priority > b.priority;
+    }
+    return order.compare(a.key, b.key) < 0;
+  }
+
+  private Node<K, V> put(Node<K, V> node, K key, V value, int priority) {
+    if (node == null) {
+      return new Node<>(key, value, priority, null, null);
+    }
+    int compared = order.compare(key, node.key);
+    if (compared == 0) {
+      return new Node<>(key, value, node.priority, node.left, node.right);
+    }
+    if (compared < 0) {
+      Node<K, V> left = put(node.left, key, value, priority);
+      if (above(order, left, node)) {
+        return left.with(left.left, node.with(left.right, node.right));
+      }
+      return node.with(left, node.right);
+    }
+    Node<K, V> right = put(node.right, key, value, priority);
+    if (above(order, right, node)) {
+      return right.with(node.with(node.left, right.left), right.right);
+    }
+    return node.with(node.left, right);
+  }
+
+  private Node<K, V> remove(Node<K, V> node, K key) {
+    if (node == null) {
+      return null;
+    }
+    int compared = order.compare(key, node.key);
+    if (compared == 0) {
+      return merge(order, node.left, node.right);
+    }
+    if (compared < 0) {
+      Node<K, V> left = remove(node.left, key);
+      return (left == node.left) ? node : node.with(left, node.right);
+    }
+    Node<K, V> right = remove(node.right, key);
+    return (right == node.right) ? node : node.with(node.left, right);
+  }
+
+  /**
+   * Joins two treaps whose keys are all less in the first than in the second.
+   */
+  private static <K, V> Node<K, V> merge(Comparator<? super K> order, Node<K, V> less,
+                                         Node<K, V> greater) {
+    if (less == null) {
+      return greater;
+    }
+    if (greater == null) {
+      return less;
+    }
+    if (above(order, less, greater)) {
+      return less.with(less.left, merge(order, less.right, greater));
+    }
+    return greater.with(merge(order, less, greater.left), greater.right);
+  }
+
+  /**
+   * Splits a treap into the keys less than a key, the node with that key (or
+   * null), and the keys greater than it.
+   */
+  private static <K, V> Split<K, V> split(Comparator<? super K> order, Node<K, V> node,
+                                          K key) {
+    if (node == null) {
+      return new Split<>(null, null, null);
+    }
+    int compared = order.compare(key, node.key);
+    if (compared == 0) {
+      return new Split<>(node.left, node, node.right);
+    }
+    if (compared < 0) {
+      Split<K, V> parts = split(order, node.left, key);
+      parts.greater = node.with(parts.greater, node.right);
+      return parts;
+    }
+    Split<K, V> parts = split(order, node.right, key);
+    parts.less = node.with(node.left, parts.less);
+    return parts;
+  }
+
+  private static int size(Node<?, ?> node) {
+    return (node == null) ? 0 : node.size;
+  }
+
+  /**
+   * Spreads a key's hash code over all bits, so that keys with nearby hash codes
+   * get unrelated priorities.
+   */
+  private static int priority(Object key) {
+    int h = key.hashCode();
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * A tree node. Nodes never change once made, so any number of map versions can
+   * share them.
+   */
+  private static final class Node<K, V> {
+    private final K key;
+    private final V value;
+    private final int priority;
+    private final int size;
+    private final Node<K, V> left;
+    private final Node<K, V> right;
+
+    Node(K key, V value, int priority, Node<K, V> left, Node<K, V> right) {
+      this.key = key;
+      this.value = value;
+      this.priority = priority;
+      this.left = left;
+      this.right = right;
+      this.size = 1 + size(left) + size(right);
+    }
+
+    Node<K, V> with(Node<K, V> left, Node<K, V> right) {
+      return new Node<>(key, value, priority, left, right);
+    }
+  }
+
+  /**
+   * The parts of a treap split at a key.
+   */
+  private static final class Split<K, V> {
+    private Node<K, V> less;
+    private final Node<K, V> equal;
+    private Node<K, V> greater;
+
+    Split(Node<K, V> less, Node<K, V> equal, Node<K, V> greater) {
+      this.less = less;
+      this.equal = equal;
+      this.greater = greater;
+    }
+  }
+
+  /**
+   * Walks the values in key order, optionally from a least key and up to an
+   * excluded key, keeping the path to the next node on a stack.
+   */
+  private static final class Values<K, V> implements Iterator<V> {
+    private final Comparator<? super K> order;
+    private final K to;
+    private final Deque<Node<K, V>> path = new ArrayDeque<>();
+
+    Values(Comparator<? super K> order, Node<K, V> root, K from, K to) {
+      this.order = order;
+      this.to = to;
+      Node<K, V> node = root;
+      while (node != null) {
+        if (from == null || order.compare(from, node.key) <= 0) {
+          path.push(node);
+          node = node.left;
+        } else {
+          node = node.right;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !path.isEmpty() && (to == null || order.compare(path.peek().key, to) < 0);
+    }
+
+    @Override
+    public V next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Node<K, V> node = path.pop();
+      for (Node<K, V> next = node.right; next != null; next = next.left) {
+        path.push(next);
+      }
+      return node.value;
+    }
+  }
+}
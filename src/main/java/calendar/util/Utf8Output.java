@@ -0,0 +1,134 @@
+package calendar.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A reusable UTF-8 output buffer for the exporters. Text is encoded straight into
+ * a byte array that is flushed to the underlying stream when full, so writing a
+ * row or property allocates nothing.
+ */
+final class Utf8Output {
+  private static final int BUFFER_BYTES = 1 << 16;
+
+  private final OutputStream out;
+  private final byte[] buf = new byte[BUFFER_BYTES];
+  private int count;
+
+  /**
+   * Creates a buffer in front of a stream.
+   *
+   * @param out the destination
+   */
+  Utf8Output(OutputStream out) {
+    this.out = out;
+  }
+
+  /**
+   * Gets the number of bytes a code point takes in UTF-8.
+   *
+   * @param codePoint the code point
+   * @return 1 to 4
+   */
+  static int utf8Length(int codePoint) {
+    if (codePoint < 0x80) {
+      return 1;
+    } else if (codePoint < 0x800) {
+      return 2;
+    } else if (codePoint < 0x10000) {
+      return 3;
+    }
+    return 4;
+  }
+
+  /**
+   * Writes an ASCII character.
+   *
+   * @param c the character, below 0x80
+   * @throws IOException if flushing fails
+   */
+  void put(char c) throws IOException {
+    if (count == buf.length) {
+      flushBuffer();
+    }
+    buf[count++] = (byte) c;
+  }
+
+  /**
+   * Writes a number from 0 to 99 as two digits.
+   *
+   * @param value the number
+   * @throws IOException if flushing fails
+   */
+  void twoDigits(int value) throws IOException {
+    put((char) ('0' + value / 10));
+    put((char) ('0' + value % 10));
+  }
+
+  /**
+   * Writes a string.
+   *
+   * @param s the string
+   * @throws IOException if flushing fails
+   */
+  void text(String s) throws IOException {
+    int length = s.length();
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        put(c);
+      } else {
+        int codePoint = s.codePointAt(i);
+        codePoint(codePoint);
+        i += Character.charCount(codePoint) - 1;
+      }
+    }
+  }
+
+  /**
+   * Writes one code point. Unpaired surrogates are written as '?', as
+   * {@link String#getBytes} does.
+   *
+   * @param codePoint the code point
+   * @throws IOException if flushing fails
+   */
+  void codePoint(int codePoint) throws IOException {
+    if (codePoint < 0x80) {
+      put((char) codePoint);
+      return;
+    }
+    if (buf.length - count < 4) {
+      flushBuffer();
+    }
+    if (codePoint < 0x800) {
+      buf[count++] = (byte) (0xc0 | codePoint >> 6);
+    } else if (codePoint < 0x10000) {
+      if (Character.isSurrogate((char) codePoint)) {
+        buf[count++] = '?';
+        return;
+      }
+      buf[count++] = (byte) (0xe0 | codePoint >> 12);
+      buf[count++] = (byte) (0x80 | (codePoint >> 6 & 0x3f));
+    } else {
+      buf[count++] = (byte) (0xf0 | codePoint >> 18);
+      buf[count++] = (byte) (0x80 | (codePoint >> 12 & 0x3f));
+      buf[count++] = (byte) (0x80 | (codePoint >> 6 & 0x3f));
+    }
+    buf[count++] = (byte) (0x80 | (codePoint & 0x3f));
+  }
+
+  /**
+   * Writes out everything buffered and flushes the stream. The stream is not closed.
+   *
+   * @throws IOException if writing fails
+   */
+  void flush() throws IOException {
+    flushBuffer();
+    out.flush();
+  }
+
+  private void flushBuffer() throws IOException {
+    out.write(buf, 0, count);
+    count = 0;
+  }
+}
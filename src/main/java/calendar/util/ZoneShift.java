@@ -0,0 +1,139 @@
+package calendar.util;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts local date-times from one timezone to another, as
+ * {@link TimezoneUtils#convertTimezone} does, for many date-times within a known
+ * window.
+ *
+ * <p>The zone rules are read once, when the shift is made: the transitions of
+ * both zones near the window split it into segments in each of which the
+ * difference between the two zones is constant, and a conversion is then a
+ * binary search over those segments and an addition. Date-times close to a
+ * transition (in the gap or overlap of the source zone, or at the moment the
+ * target zone changes) and date-times outside the window are converted with the
+ * zone rules as before.
+ */
+public final class ZoneShift {
+  private final ZoneId from;
+  private final ZoneId to;
+  private final LocalDateTime first;
+  private final LocalDateTime last;
+  private final LocalDateTime[] transitionStarts;
+  private final LocalDateTime[] transitionEnds;
+  private final long[] seconds;
+
+  private ZoneShift(ZoneId from, ZoneId to, LocalDateTime first, LocalDateTime last,
+                    List<LocalDateTime[]> transitions) {
+    this.from = from;
+    this.to = to;
+    this.first = first;
+    this.last = last;
+    int count = transitions.size();
+    this.transitionStarts = new LocalDateTime[count];
+    this.transitionEnds = new LocalDateTime[count];
+    this.seconds = new long[count + 1];
+    for (int i = 0; i < count; i++) {
+      transitionStarts[i] = transitions.get(i)[0];
+      transitionEnds[i] = transitions.get(i)[1];
+    }
+    ZoneRules fromRules = from.getRules();
+    ZoneRules toRules = to.getRules();
+    for (int segment = 0; segment <= count; segment++) {
+      LocalDateTime sample = (segment == 0) ? first : transitionEnds[segment - 1].plusNanos(1);
+      ZoneOffset offset = fromRules.getOffset(sample);
+      seconds[segment] = toRules.getOffset(sample.toInstant(offset)).getTotalSeconds()
+          - offset.getTotalSeconds();
+    }
+  }
+
+  /**
+   * Makes a shift between two zones for the date-times in a window.
+   *
+   * @param from  the source timezone
+   * @param to    the target timezone
+   * @param first the first date-time of the window, in the source zone
+   * @param last  the last date-time of the window, in the source zone
+   * @return the shift
+   * @throws IllegalArgumentException if a zone is null or the window is empty
+   */
+  public static ZoneShift between(ZoneId from, ZoneId to, LocalDateTime first,
+                                  LocalDateTime last) {
+    if (from == null || to == null) {
+      throw new IllegalArgumentException("Timezones cannot be null");
+    }
+    if (last.isBefore(first)) {
+      throw new IllegalArgumentException("The window must not end before it starts");
+    }
+    List<LocalDateTime[]> transitions = new ArrayList<>();
+    if (!from.equals(to)) {
+      Instant start = first.atZone(from).toInstant().minusSeconds(2 * 86400);
+      Instant end = last.atZone(from).toInstant().plusSeconds(2 * 86400);
+      for (ZoneOffsetTransition t = from.getRules().nextTransition(start);
+           t != null && t.getInstant().isBefore(end);
+           t = from.getRules().nextTransition(t.getInstant())) {
+        LocalDateTime before = t.getDateTimeBefore();
+        LocalDateTime after = t.getDateTimeAfter();
+        transitions.add(before.isBefore(after) ? new LocalDateTime[] {before, after}
+            : new LocalDateTime[] {after, before});
+      }
+      for (ZoneOffsetTransition t = to.getRules().nextTransition(start);
+           t != null && t.getInstant().isBefore(end);
+           t = to.getRules().nextTransition(t.getInstant())) {
+        LocalDateTime at = LocalDateTime.ofInstant(t.getInstant(), from);
+        transitions.add(new LocalDateTime[] {at, at});
+      }
+    }
+    transitions.sort((a, b) -> a[0].compareTo(b[0]));
+    List<LocalDateTime[]> merged = new ArrayList<>();
+    for (LocalDateTime[] transition : transitions) {
+      LocalDateTime[] previous = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+      if (previous != null && !transition[0].isAfter(previous[1])) {
+        if (transition[1].isAfter(previous[1])) {
+          previous[1] = transition[1];
+        }
+      } else {
+        merged.add(transition);
+      }
+    }
+    return new ZoneShift(from, to, first, last, merged);
+  }
+
+  /**
+   * Converts a local date-time in the source zone to the same moment in the
+   * target zone.
+   *
+   * @param dateTime the date-time in the source zone
+   * @return the date-time in the target zone
+   */
+  public LocalDateTime apply(LocalDateTime dateTime) {
+    if (from.equals(to)) {
+      return dateTime;
+    }
+    if (dateTime.isBefore(first) || dateTime.isAfter(last)) {
+      return TimezoneUtils.convertTimezone(dateTime, from, to);
+    }
+    int low = 0;
+    int high = transitionStarts.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (transitionStarts[middle].isAfter(dateTime)) {
+        high = middle;
+      } else {
+        low = middle + 1;
+      }
+    }
+    if (low > 0 && !dateTime.isAfter(transitionEnds[low - 1])) {
+      return TimezoneUtils.convertTimezone(dateTime, from, to);
+    }
+    return dateTime.plusSeconds(seconds[low]);
+  }
+}
@@ -0,0 +1,213 @@
+package calendar.view;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A large in-memory buffer in front of console output, written out by a
+ * dedicated writer thread.
+ *
+ * <p>Text is appended to a char buffer. When the buffer is full it is handed to
+ * the writer thread, which writes it to the destination in one call, and appending
+ * continues into a second buffer. Writing to a {@link java.io.PrintStream} such as
+ * {@code System.out} therefore costs one synchronized write per buffer instead of
+ * one per appended fragment, and the formatting thread does not wait for the
+ * console while the writer is behind by less than a buffer.
+ *
+ * <p>Output is not written until the buffer fills, {@link #flush()} is called, or
+ * the output is closed, so this suits commands files rather than interactive
+ * sessions. Appending is meant for one thread at a time. A failure of the
+ * destination is reported by the next append, flush or close.
+ */
+public final class AsyncConsoleOutput implements Appendable, Flushable, Closeable {
+
+  /**
+   * Default size of each buffer, in chars.
+   */
+  public static final int DEFAULT_BUFFER_CHARS = 1 << 16;
+
+  private static final StringBuilder END = new StringBuilder();
+
+  private final Appendable out;
+  private final int bufferChars;
+  private final BlockingQueue<StringBuilder> full = new ArrayBlockingQueue<>(1);
+  private final BlockingQueue<StringBuilder> free = new ArrayBlockingQueue<>(2);
+  private final Thread writer;
+  private final Object progress = new Object();
+  private StringBuilder buffer;
+  private long handedOff;
+  private long written;
+  private volatile IOException failure;
+  private boolean closed;
+
+  /**
+   * Creates an output with buffers of the default size.
+   *
+   * @param out the destination
+   */
+  public AsyncConsoleOutput(Appendable out) {
+    this(out, DEFAULT_BUFFER_CHARS);
+  }
+
+  /**
+   * Creates an output.
+   *
+   * @param out         the destination
+   * @param bufferChars the size of each buffer, in chars
+   * @throws IllegalArgumentException if out is null or bufferChars is not positive
+   */
+  public AsyncConsoleOutput(Appendable out, int bufferChars) {
+    if (out == null) {
+      throw new IllegalArgumentException("Output cannot be null");
+    }
+    if (bufferChars < 1) {
+      throw new IllegalArgumentException("Buffer size must be positive");
+    }
+    this.out = out;
+    this.bufferChars = bufferChars;
+    this.buffer = new StringBuilder(bufferChars);
+    free.add(new StringBuilder(bufferChars));
+    this.writer = new Thread(this::write, "console-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  @Override
+  public Appendable append(CharSequence csq) throws IOException {
+    checkOpen();
+    buffer.append(csq);
+    return handOffIfFull();
+  }
+
+  @Override
+  public Appendable append(CharSequence csq, int start, int end) throws IOException {
+    checkOpen();
+    buffer.append(csq, start, end);
+    return handOffIfFull();
+  }
+
+  @Override
+  public Appendable append(char c) throws IOException {
+    checkOpen();
+    buffer.append(c);
+    return handOffIfFull();
+  }
+
+  /**
+   * Writes everything appended so far to the destination, and flushes the
+   * destination if it can be flushed.
+   *
+   * @throws IOException if the destination failed
+   */
+  @Override
+  public void flush() throws IOException {
+    checkOpen();
+    if (buffer.length() > 0) {
+      handOff();
+    }
+    synchronized (progress) {
+      while (written < handedOff) {
+        try {
+          progress.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while flushing console output");
+        }
+      }
+    }
+    checkFailure();
+    if (out instanceof Flushable) {
+      ((Flushable) out).flush();
+    }
+  }
+
+  /**
+   * Flushes the output and stops the writer thread. Closing again does nothing.
+   * The destination is not closed.
+   *
+   * @throws IOException if the destination failed
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    try {
+      flush();
+    } finally {
+      closed = true;
+      full.offer(END);
+    }
+  }
+
+  private Appendable handOffIfFull() throws IOException {
+    if (buffer.length() >= bufferChars) {
+      handOff();
+    }
+    return this;
+  }
+
+  /**
+   * Queues the current buffer for the writer and continues in a free one,
+   * waiting for the writer if both buffers are in use.
+   */
+  private void handOff() throws IOException {
+    try {
+      synchronized (progress) {
+        handedOff++;
+      }
+      full.put(buffer);
+      buffer = free.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while writing console output");
+    }
+    checkFailure();
+  }
+
+  /**
+   * Writes queued buffers until the output is closed. Runs on the writer thread.
+   * After a failure, buffers are discarded so appending never blocks.
+   */
+  private void write() {
+    try {
+      StringBuilder next;
+      while ((next = full.take()) != END) {
+        if (failure == null) {
+          try {
+            out.append(next);
+          } catch (IOException e) {
+            failure = e;
+          } catch (RuntimeException e) {
+            failure = new IOException(e);
+          }
+        }
+        next.setLength(0);
+        free.add(next);
+        synchronized (progress) {
+          written++;
+          progress.notifyAll();
+        }
+      }
+    } catch (InterruptedException e) {
+      // Nothing is left to write once the writer is stopped.
+    }
+  }
+
+  private void checkOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Console output is closed");
+    }
+  }
+
+  private void checkFailure() throws IOException {
+    IOException e = failure;
+    if (e != null) {
+      throw new IOException("Could not write console output", e);
+    }
+  }
+}
@@ -2,10 +2,15 @@ package calendar.view;
 
 import calendar.model.EventInterface;
 import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
 
 /**
  * Console view implementation backed by an Appendable.
+ *
+ * <p>For large outputs, such as a commands file printing many events, pass an
+ * {@link AsyncConsoleOutput} to write through a buffer on a separate thread.
  */
 public class ConsoleView implements ViewInterface {
   private final Appendable out;
@@ -37,15 +42,15 @@ public class ConsoleView implements ViewInterface {
     }
 
     for (EventInterface e : events) {
-      
-      
-      out.append("- ").append(e.getSubject()).append(" starting on ")
-          .append(formatDate(e.getStartDateTime().toLocalDate())).append(" at ")
-          .append(formatTime(e.getStartDateTime().toLocalTime())).append(", ending on ")
-          .append(formatDate(e.getEndDateTime().toLocalDate())).append(" at ")
-          .append(formatTime(e.getEndDateTime().toLocalTime()));
+      out.append("- ").append(e.getSubject()).append(" starting on ");
+      appendDate(e.getStartDateTime().toLocalDate());
+      out.append(" at ");
+      appendTime(e.getStartDateTime().toLocalTime());
+      out.append(", ending on ");
+      appendDate(e.getEndDateTime().toLocalDate());
+      out.append(" at ");
+      appendTime(e.getEndDateTime().toLocalTime());
 
-      
       if (e.getLocation().isPresent()) {
         out.append(", location: ").append(e.getLocation().get());
       }
@@ -55,22 +60,39 @@ public class ConsoleView implements ViewInterface {
   }
 
   /**
-   * Formats a date as YYYY-MM-DD.
+   * Writes a date as YYYY-MM-DD, digit by digit for four-digit years so that no
+   * string is built per event.
    *
-   * @param date the date to format
-   * @return formatted date string
+   * @param date the date to write
+   * @throws IOException if writing fails
    */
-  private String formatDate(java.time.LocalDate date) {
-    return date.toString();
+  private void appendDate(LocalDate date) throws IOException {
+    int year = date.getYear();
+    if (year < 0 || year > 9999) {
+      out.append(date.toString());
+      return;
+    }
+    appendTwoDigits(year / 100);
+    appendTwoDigits(year % 100);
+    out.append('-');
+    appendTwoDigits(date.getMonthValue());
+    out.append('-');
+    appendTwoDigits(date.getDayOfMonth());
   }
 
   /**
-   * Formats a time as HH:MM.
+   * Writes a time as HH:MM.
    *
-   * @param time the time to format
-   * @return formatted time string
+   * @param time the time to write
+   * @throws IOException if writing fails
    */
-  private String formatTime(java.time.LocalTime time) {
-    return String.format("%02d:%02d", time.getHour(), time.getMinute());
+  private void appendTime(LocalTime time) throws IOException {
+    appendTwoDigits(time.getHour());
+    out.append(':');
+    appendTwoDigits(time.getMinute());
+  }
+
+  private void appendTwoDigits(int value) throws IOException {
+    out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
   }
 }
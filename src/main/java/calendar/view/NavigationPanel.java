@@ -16,7 +16,8 @@ import javax.swing.SwingConstants;
 
 /**
  * Panel component for calendar navigation controls.
- * Handles month/week navigation, view switching, and today button.
+ * Handles month/week navigation, view switching, the today button, and undo and
+ * redo.
  */
 public class NavigationPanel extends JPanel {
   private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("MMMM yyyy");
@@ -26,6 +27,8 @@ public class NavigationPanel extends JPanel {
   private JButton prevButton;
   private JButton nextButton;
   private JButton todayButton;
+  private JButton undoButton;
+  private JButton redoButton;
   private JButton monthViewButton;
   private JButton weekViewButton;
 
@@ -122,6 +125,24 @@ public class NavigationPanel extends JPanel {
     });
     navPanel.add(todayButton);
 
+    undoButton = new JButton("Undo");
+    undoButton.setFont(new Font("SansSerif", Font.BOLD, 12));
+    undoButton.addActionListener(e -> {
+      if (features != null) {
+        features.undo();
+      }
+    });
+    navPanel.add(undoButton);
+
+    redoButton = new JButton("Redo");
+    redoButton.setFont(new Font("SansSerif", Font.BOLD, 12));
+    redoButton.addActionListener(e -> {
+      if (features != null) {
+        features.redo();
+      }
+    });
+    navPanel.add(redoButton);
+
     navPanel.add(Box.createRigidArea(new Dimension(20, 0)));
 
     
@@ -65,6 +65,10 @@ public final class UIMessages {
   public static final String ERROR_EDIT_FAILED = "Failed to edit event: %s";
   public static final String ERROR_EDIT_SERIES_FAILED = "Failed to edit series: %s";
   public static final String ERROR_EDIT_SERIES_GENERAL = "Failed to update series.";
+  public static final String ERROR_NO_UNDO_HISTORY =
+      "This calendar keeps no undo history.";
+  public static final String ERROR_NOTHING_TO_UNDO = "Nothing to undo.";
+  public static final String ERROR_NOTHING_TO_REDO = "Nothing to redo.";
 
   
 
@@ -0,0 +1,114 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import calendar.model.Event;
+import calendar.model.EventInterface;
+import calendar.view.AsyncConsoleOutput;
+import calendar.view.ConsoleView;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Test;
+
+/**
+ * Tests for AsyncConsoleOutput and the console view writing through it.
+ */
+public class AsyncConsoleOutputTest {
+
+  @Test
+  public void testWritesEverythingInOrder() throws IOException {
+    StringBuilder expected = new StringBuilder();
+    StringBuilder actual = new StringBuilder();
+    try (AsyncConsoleOutput output = new AsyncConsoleOutput(actual, 7)) {
+      for (int i = 0; i < 10_000; i++) {
+        String line = "line " + i;
+        expected.append(line).append('\n');
+        output.append(line).append('\n');
+        if (i % 1000 == 0) {
+          output.append("xx" + line + "yy", 2, line.length() + 2);
+          expected.append(line);
+        }
+      }
+    }
+    assertEquals(expected.toString(), actual.toString());
+  }
+
+  @Test
+  public void testFlushWritesBufferedText() throws IOException {
+    StringBuilder out = new StringBuilder();
+    AsyncConsoleOutput output = new AsyncConsoleOutput(out);
+    output.append("Created event");
+    assertEquals("", out.toString());
+    output.flush();
+    assertEquals("Created event", out.toString());
+    output.close();
+    output.close();
+    try {
+      output.append('x');
+      fail("Expected IOException");
+    } catch (IOException e) {
+      assertEquals("Console output is closed", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testReportsFailedWrite() throws IOException {
+    Writer failing = new Writer() {
+      @Override
+      public void write(char[] cbuf, int off, int len) throws IOException {
+        throw new IOException("disk full");
+      }
+
+      @Override
+      public void flush() {
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    AsyncConsoleOutput output = new AsyncConsoleOutput(failing, 4);
+    try {
+      for (int i = 0; i < 100; i++) {
+        output.append("text");
+      }
+      output.flush();
+      fail("Expected IOException");
+    } catch (IOException e) {
+      assertEquals("disk full", e.getCause().getMessage());
+    }
+  }
+
+  @Test
+  public void testRejectsBadArguments() {
+    try {
+      new AsyncConsoleOutput(new StringBuilder(), 0);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Buffer size must be positive", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testConsoleViewFormatsEventsThroughBuffer() throws IOException {
+    List<EventInterface> events = new ArrayList<>();
+    events.add(new Event("Standup", LocalDateTime.of(2025, 3, 4, 9, 5),
+        LocalDateTime.of(2025, 3, 4, 10, 0), null, "Room 1", false, UUID.randomUUID(), null));
+    events.add(new Event("Early", LocalDateTime.of(987, 12, 31, 0, 0),
+        LocalDateTime.of(10000, 1, 1, 23, 59), null, null, false, UUID.randomUUID(), null));
+    StringBuilder out = new StringBuilder();
+    try (AsyncConsoleOutput output = new AsyncConsoleOutput(out, 16)) {
+      new ConsoleView(output).displayEvents(events);
+    }
+    String nl = System.lineSeparator();
+    assertEquals("- Standup starting on 2025-03-04 at 09:05, ending on 2025-03-04 at 10:00,"
+        + " location: Room 1" + nl
+        + "- Early starting on 0987-12-31 at 00:00, ending on +10000-01-01 at 23:59" + nl,
+        out.toString());
+    assertTrue(out.length() > 16);
+  }
+}
@@ -358,8 +358,8 @@ public class CalendarModelCompleteTest {
       if (event.getSubject().equals("Standup")
           && !event.getStartDateTime().toLocalDate().isBefore(fromDate)) {
 
-        assertFalse("Event should not have series ID after start time edit",
-            event.getSeriesId().isPresent());
+        assertFalse("Event should not stay in the original series after start time edit",
+            event.getSeriesId().isPresent() && event.getSeriesId().get().equals(seriesId));
       }
     }
   }
@@ -1,4 +1,6 @@
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
 import calendar.model.CalendarModel;
@@ -87,4 +89,102 @@ public class CalendarModelSeriesSplitTest {
         && e.getStartDateTime().toLocalTime().getMinute() == 30).count();
     assertTrue(count >= 2);
   }
+
+  /**
+   * Editing one occurrence keeps it in the series and records a sparse override.
+   */
+  @Test
+  public void testEditSingleOccurrenceRecordsOverride() {
+    UUID seriesId = createWeeklySeries("Review", 5);
+    LocalDate date = LocalDate.of(2025, 6, 9);
+    EventInterface occurrence = model.getEventsOnDate(date).get(0);
+
+    assertTrue(model.editEvent(occurrence.getId(),
+        EditSpec.builder().location("Room 7").build()));
+
+    EventSeries series = model.findSeriesById(seriesId);
+    assertEquals(1, series.getOverrides().size());
+    assertTrue(series.getExceptionDates().isEmpty());
+    EventInterface edited = model.findEventById(occurrence.getId());
+    assertEquals("Room 7", edited.getLocation().get());
+    assertEquals(seriesId, edited.getSeriesId().get());
+    assertFalse(model.getEventsOnDate(LocalDate.of(2025, 6, 16)).get(0)
+        .getLocation().isPresent());
+  }
+
+  /**
+   * Moving an occurrence to another day detaches it and records an exception date.
+   */
+  @Test
+  public void testMoveOccurrenceDetachesIt() {
+    UUID seriesId = createWeeklySeries("Review", 5);
+    LocalDate date = LocalDate.of(2025, 6, 9);
+    EventInterface occurrence = model.getEventsOnDate(date).get(0);
+
+    assertTrue(model.editEvent(occurrence.getId(), EditSpec.builder()
+        .start(LocalDateTime.of(2025, 6, 10, 14, 0))
+        .end(LocalDateTime.of(2025, 6, 10, 15, 0))
+        .build()));
+
+    assertTrue(model.getEventsOnDate(date).isEmpty());
+    assertEquals(1, model.getEventsOnDate(LocalDate.of(2025, 6, 10)).size());
+    assertTrue(model.findSeriesById(seriesId).getExceptionDates().contains(date));
+    assertEquals(5, model.getAllEvents().size());
+    assertEquals(seriesId, model.findEventById(occurrence.getId()).getSeriesId().get());
+  }
+
+  /**
+   * Editing a tail of a series stores one range edit instead of rewriting occurrences.
+   */
+  @Test
+  public void testEditSeriesFromStoresRangeEdit() {
+    UUID seriesId = createWeeklySeries("Review", 20);
+
+    assertTrue(model.editSeriesFrom(seriesId, LocalDate.of(2025, 6, 16),
+        EditSpec.builder().subject("Retro").build()));
+
+    EventSeries series = model.findSeriesById(seriesId);
+    assertEquals(1, series.getRangeEdits().size());
+    assertTrue(series.getOverrides().isEmpty());
+    List<EventInterface> all = model.getAllEvents();
+    assertEquals(20, all.size());
+    assertEquals(2, all.stream().filter(e -> e.getSubject().equals("Review")).count());
+    assertEquals(18, all.stream().filter(e -> e.getSubject().equals("Retro")).count());
+  }
+
+  /**
+   * Changing the start time of a tail moves it into a new series and keeps
+   * earlier overrides.
+   */
+  @Test
+  public void testStartChangeSplitsIntoNewSeries() {
+    UUID seriesId = createWeeklySeries("Review", 6);
+    EventInterface later = model.getEventsOnDate(LocalDate.of(2025, 6, 30)).get(0);
+    model.editEvent(later.getId(), EditSpec.builder().description("Demo").build());
+
+    assertTrue(model.editSeriesFrom(seriesId, LocalDate.of(2025, 6, 16),
+        EditSpec.builder().start(LocalDateTime.of(2025, 6, 16, 13, 0)).build()));
+
+    assertEquals(LocalDate.of(2025, 6, 9), model.findSeriesById(seriesId).getLastDate());
+    EventInterface moved = model.getEventsOnDate(LocalDate.of(2025, 6, 30)).get(0);
+    assertEquals(13, moved.getStartDateTime().getHour());
+    assertEquals("Demo", moved.getDescription().get());
+    UUID tailId = moved.getSeriesId().get();
+    assertNotEquals(seriesId, tailId);
+    assertEquals(4, model.findSeriesById(tailId).getOccurrenceDates().size());
+    assertEquals(6, model.getAllEvents().size());
+  }
+
+  private UUID createWeeklySeries(String subject, int occurrences) {
+    EventInterface template = new Event(subject,
+        LocalDateTime.of(2025, 6, 2, 10, 0),
+        LocalDateTime.of(2025, 6, 2, 11, 0),
+        null, null, false, UUID.randomUUID(), null);
+    UUID seriesId = UUID.randomUUID();
+    Set<DayOfWeek> weekdays = new HashSet<>();
+    weekdays.add(DayOfWeek.MONDAY);
+    assertTrue(model.createEventSeries(
+        new EventSeries(seriesId, template, weekdays, null, occurrences, false)));
+    return seriesId;
+  }
 }
@@ -369,4 +369,150 @@ public class CalendarModelTest {
     assertEquals("Location should be updated", "New Loc", updated.getLocation().get());
     assertTrue("Should be private", updated.isPrivate());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testCreateEventsAddsAllOrNothing() {
+    CalendarModelInterface model = new CalendarModel();
+    LocalDateTime start = LocalDateTime.of(2025, 5, 5, 10, 0);
+    EventInterface first = new Event("A", start, start.plusHours(1), null, null, false,
+        UUID.randomUUID(), null);
+    EventInterface second = new Event("B", start, start.plusHours(1), null, null, false,
+        UUID.randomUUID(), null);
+    assertTrue(model.createEvent(second));
+
+    EventInterface third = new Event("C", start, start.plusHours(1), null, null, false,
+        UUID.randomUUID(), null);
+    assertFalse("Batch containing a duplicate should be rejected",
+        model.createEvents(java.util.Arrays.asList(first, second, third)));
+    assertEquals("Rejected batch should leave no trace", 1, model.getAllEvents().size());
+
+    assertTrue(model.createEvents(java.util.Arrays.asList(first, third)));
+    assertEquals(3, model.getAllEvents().size());
+  }
+
+  @Test
+  public void testCreateEventsRejectsDuplicateWithinBatch() {
+    CalendarModelInterface model = new CalendarModel();
+    LocalDateTime start = LocalDateTime.of(2025, 5, 5, 10, 0);
+    EventInterface event = new Event("A", start, start.plusHours(1), null, null, false,
+        UUID.randomUUID(), null);
+    EventInterface copy = new Event("A", start, start.plusHours(1), "other", null, false,
+        UUID.randomUUID(), null);
+
+    assertFalse(model.createEvents(java.util.Arrays.asList(event, copy)));
+    assertTrue(model.getAllEvents().isEmpty());
+  }
+
+  @Test
+  public void testStreamAllEventsMatchesGetAllEvents() {
+    CalendarModelInterface model = new CalendarModel();
+    UUID seriesId = UUID.randomUUID();
+    EventInterface template = new Event("Sync", LocalDateTime.of(2025, 5, 5, 10, 0),
+        LocalDateTime.of(2025, 5, 5, 11, 0), null, null, false, UUID.randomUUID(), seriesId);
+    model.createEventSeries(new EventSeries(seriesId, template,
+        java.util.EnumSet.of(java.time.DayOfWeek.MONDAY, java.time.DayOfWeek.THURSDAY),
+        null, 6, false));
+    model.createEvent(new Event("Lunch", LocalDateTime.of(2025, 5, 8, 9, 0),
+        LocalDateTime.of(2025, 5, 8, 10, 0), null, null, false, UUID.randomUUID(), null));
+    model.editEvent(model.getEventsOnDate(LocalDate.of(2025, 5, 12)).get(0).getId(),
+        EditSpec.builder().start(LocalDateTime.of(2025, 5, 13, 7, 0)).build());
+
+    assertEquals(model.getAllEvents(),
+        model.streamAllEvents().collect(java.util.stream.Collectors.toList()));
+  }
+
+  @Test
+  public void testStreamEventsInRangeMatchesFilteredEvents() {
+    CalendarModelInterface model = new CalendarModel();
+    UUID seriesId = UUID.randomUUID();
+    EventInterface template = new Event("Sync", LocalDateTime.of(2025, 5, 5, 10, 0),
+        LocalDateTime.of(2025, 5, 5, 11, 0), null, null, false, UUID.randomUUID(), seriesId);
+    model.createEventSeries(new EventSeries(seriesId, template,
+        java.util.EnumSet.of(java.time.DayOfWeek.MONDAY), null, 8, false));
+    model.createEvent(new Event("Conference", LocalDateTime.of(2025, 5, 1, 9, 0),
+        LocalDateTime.of(2025, 5, 20, 17, 0), null, null, false, UUID.randomUUID(), null));
+    for (int day = 1; day <= 60; day++) {
+      LocalDateTime start = LocalDateTime.of(2025, 4, 20, 22, 0).plusDays(day);
+      model.createEvent(new Event("Shift", start, start.plusHours(4), null, null, false,
+          UUID.randomUUID(), null));
+    }
+
+    LocalDateTime from = LocalDateTime.of(2025, 5, 19, 0, 0);
+    LocalDateTime to = LocalDateTime.of(2025, 5, 27, 0, 0);
+    List<EventInterface> expected = model.getAllEvents().stream()
+        .filter(e -> e.getStartDateTime().isBefore(to) && e.getEndDateTime().isAfter(from))
+        .collect(java.util.stream.Collectors.toList());
+    assertEquals(expected,
+        model.streamEventsInRange(from, to).collect(java.util.stream.Collectors.toList()));
+    assertEquals("Conference", expected.get(0).getSubject());
+    assertEquals("Shift", expected.get(1).getSubject());
+  }
+
+  @Test
+  public void testSeriesAtTheSameTimeAreListedInAStableOrder() {
+    LocalDateTime start = LocalDateTime.of(2025, 5, 5, 10, 0);
+    LocalDate day = start.toLocalDate();
+    for (int trial = 0; trial < 20; trial++) {
+      CalendarModelInterface model = new CalendarModel();
+      for (String subject : new String[] {"Beta", "Alpha"}) {
+        UUID seriesId = UUID.randomUUID();
+        model.createEventSeries(new EventSeries(seriesId, new Event(subject, start,
+            start.plusHours(1), null, null, false, UUID.randomUUID(), seriesId),
+            java.util.EnumSet.of(java.time.DayOfWeek.MONDAY), null, 2, false));
+      }
+      assertEquals("Alpha", model.getEventsOnDate(day).get(0).getSubject());
+      assertEquals("Alpha", model.getAllEvents().get(0).getSubject());
+      assertEquals("Alpha", model.getEventsInRange(start, start.plusHours(1)).get(0)
+          .getSubject());
+      assertEquals("Alpha", model.streamAllEvents().findFirst().get().getSubject());
+    }
+  }
+
+  @Test
+  public void testIndexedLookupsMatchAScanAfterSeriesChanges() {
+    CalendarModel model = new CalendarModel();
+    LocalDateTime start = LocalDateTime.of(2025, 5, 5, 22, 0);
+    List<UUID> seriesIds = new java.util.ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      UUID seriesId = UUID.randomUUID();
+      LocalDateTime first = start.plusDays(3 * i);
+      model.createEventSeries(new EventSeries(seriesId, new Event("S" + i, first,
+          first.plusHours(3), null, null, false, UUID.randomUUID(), seriesId),
+          java.util.EnumSet.of(first.getDayOfWeek(), first.getDayOfWeek().plus(2)),
+          null, 9, false));
+      seriesIds.add(seriesId);
+    }
+    model.beginUndoStep();
+    model.editEntireSeries(seriesIds.get(0), EditSpec.builder()
+        .start(start.plusHours(1)).end(start.plusHours(2)).build());
+    model.editSeriesFrom(seriesIds.get(1), LocalDate.of(2025, 5, 20),
+        EditSpec.builder().subject("Later").build());
+    model.endUndoStep();
+    EventInterface moved = model.getEventsOnDate(LocalDate.of(2025, 5, 14)).get(0);
+    model.editEvent(moved.getId(), EditSpec.builder()
+        .start(moved.getStartDateTime().plusDays(1)).end(moved.getEndDateTime().plusDays(1))
+        .build());
+    assertConsistent(model);
+    model.undo();
+    assertConsistent(model);
+    model.undo();
+    assertConsistent(model);
+  }
+
+  private static void assertConsistent(CalendarModel model) {
+    List<EventInterface> all = model.getAllEvents();
+    for (EventInterface event : all) {
+      assertEquals(event, model.findEventById(event.getId()));
+      assertTrue(model.isBusy(event.getStartDateTime()));
+    }
+    for (LocalDate day = LocalDate.of(2025, 5, 1); day.isBefore(LocalDate.of(2025, 7, 15));
+         day = day.plusDays(1)) {
+      LocalDate date = day;
+      assertEquals(all.stream()
+          .filter(e -> !date.isBefore(e.getStartDateTime().toLocalDate())
+              && !date.isAfter(e.getEndDateTime().toLocalDate()))
+          .collect(java.util.stream.Collectors.toList()), model.getEventsOnDate(date));
+    }
+    assertNull(model.findEventById(UUID.randomUUID()));
+  }
+}
@@ -0,0 +1,94 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import calendar.model.CalendarModel;
+import calendar.model.CalendarModelInterface;
+import calendar.model.ChangeSet;
+import calendar.model.EditSpec;
+import calendar.model.Event;
+import calendar.model.EventInterface;
+import calendar.model.EventSeries;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+/**
+ * Tests change tokens and the changes reported after them.
+ */
+public class ChangeSetTest {
+
+  @Test
+  public void testOnlyChangesAfterTokenAreReported() {
+    CalendarModelInterface model = new CalendarModel();
+    EventInterface lunch = event("Lunch", LocalDateTime.of(2025, 5, 6, 12, 0));
+    EventInterface review = event("Review", LocalDateTime.of(2025, 5, 7, 15, 0));
+    model.createEvent(lunch);
+    model.createEvent(review);
+    ChangeSet first = model.getChangesSince(0);
+    assertEquals(List.of(lunch, review), first.getChangedEvents());
+
+    model.editEvent(lunch.getId(), EditSpec.builder().subject("Team lunch").build());
+    ChangeSet second = model.getChangesSince(first.getToken());
+    assertEquals(List.of("Team lunch"), subjects(second.getAllChanged()));
+    assertTrue("An edit keeps the event's identity", second.getAllRemoved().isEmpty());
+
+    ChangeSet none = model.getChangesSince(second.getToken());
+    assertEquals(second.getToken(), none.getToken());
+    assertTrue(none.getAllChanged().isEmpty());
+  }
+
+  @Test
+  public void testSeriesEditsReportSeriesAndRemovedOccurrences() {
+    CalendarModelInterface model = new CalendarModel();
+    UUID seriesId = UUID.randomUUID();
+    EventInterface template = new Event("Standup", LocalDateTime.of(2025, 5, 5, 9, 0),
+        LocalDateTime.of(2025, 5, 5, 9, 15), null, null, false, UUID.randomUUID(), seriesId);
+    model.createEventSeries(new EventSeries(seriesId, template,
+        EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY), null, 6, false));
+    long token = model.getChangesSince(0).getToken();
+
+    EventInterface moved = model.getEventsOnDate(LocalDate.of(2025, 5, 7)).get(0);
+    model.editEvent(moved.getId(), EditSpec.builder()
+        .start(LocalDateTime.of(2025, 5, 8, 9, 0)).end(LocalDateTime.of(2025, 5, 8, 9, 15))
+        .build());
+    ChangeSet detached = model.getChangesSince(token);
+    assertEquals(1, detached.getChangedEvents().size());
+    assertEquals(moved.getId(), detached.getChangedEvents().get(0).getId());
+    assertEquals(1, detached.getChangedSeries().size());
+    assertTrue("The detached occurrence is not removed", detached.getAllRemoved().isEmpty());
+
+    token = detached.getToken();
+    assertTrue(model.editSeriesFrom(seriesId, LocalDate.of(2025, 5, 12),
+        EditSpec.builder().start(LocalDateTime.of(2025, 5, 12, 10, 0)).build()));
+    ChangeSet split = model.getChangesSince(token);
+    assertEquals(2, split.getChangedSeries().size());
+    assertEquals(List.of(LocalDateTime.of(2025, 5, 12, 9, 0),
+        LocalDateTime.of(2025, 5, 14, 9, 0), LocalDateTime.of(2025, 5, 19, 9, 0),
+        LocalDateTime.of(2025, 5, 21, 9, 0)),
+        split.getRemovedOccurrences().stream().map(EventInterface::getStartDateTime)
+            .collect(Collectors.toList()));
+    assertEquals("Both halves are reported in full", 5, split.getAllChanged().size());
+    assertEquals(model.getAllEvents(), model.getChangesSince(0).getAllChanged());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownTokenIsRejected() {
+    CalendarModelInterface model = new CalendarModel();
+    model.createEvent(event("Lunch", LocalDateTime.of(2025, 5, 6, 12, 0)));
+    model.getChangesSince(2);
+  }
+
+  private static EventInterface event(String subject, LocalDateTime start) {
+    return new Event(subject, start, start.plusHours(1), null, null, false,
+        UUID.randomUUID(), null);
+  }
+
+  private static List<String> subjects(List<EventInterface> events) {
+    return events.stream().map(EventInterface::getSubject).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,224 @@
+import static org.junit.Assert.assertEquals;
+
+import calendar.command.CommandInterface;
+import calendar.command.CommandMatcher;
+import calendar.command.CommandParser;
+import calendar.command.NoOpCommand;
+import calendar.command.matchers.CopyEventCommandMatcher;
+import calendar.command.matchers.CopyEventsOnDayCommandMatcher;
+import calendar.command.matchers.CopyEventsRangeCommandMatcher;
+import calendar.command.matchers.CreateAllDayEventCommandMatcher;
+import calendar.command.matchers.CreateAllDayEventSeriesForCommandMatcher;
+import calendar.command.matchers.CreateAllDayEventSeriesUntilCommandMatcher;
+import calendar.command.matchers.CreateCalendarCommandMatcher;
+import calendar.command.matchers.CreateEventCommandMatcher;
+import calendar.command.matchers.CreateEventSeriesFromToForCommandMatcher;
+import calendar.command.matchers.CreateEventSeriesFromToUntilCommandMatcher;
+import calendar.command.matchers.EditCalendarCommandMatcher;
+import calendar.command.matchers.EditEventCommandMatcher;
+import calendar.command.matchers.EditEventsCommandMatcher;
+import calendar.command.matchers.EditEventsWhereCommandMatcher;
+import calendar.command.matchers.EditSeriesCommandMatcher;
+import calendar.command.matchers.ExitCommandMatcher;
+import calendar.command.matchers.ExportCommandMatcher;
+import calendar.command.matchers.ImportCommandMatcher;
+import calendar.command.matchers.PrintAllEventsCommandMatcher;
+import calendar.command.matchers.PrintEventsOnCommandMatcher;
+import calendar.command.matchers.PrintEventsRangeCommandMatcher;
+import calendar.command.matchers.SaveCommandMatcher;
+import calendar.command.matchers.ShowStatusCommandMatcher;
+import calendar.command.matchers.UseCalendarCommandMatcher;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Differential tests for CommandParser: every line must parse to the same command,
+ * with the same arguments, as the regex matchers produce.
+ */
+public class CommandParserDifferentialTest {
+  private static final List<CommandMatcher> MATCHERS = Arrays.asList(
+      new ExitCommandMatcher(),
+      new CreateCalendarCommandMatcher(),
+      new EditCalendarCommandMatcher(),
+      new UseCalendarCommandMatcher(),
+      new CopyEventsRangeCommandMatcher(),
+      new CopyEventsOnDayCommandMatcher(),
+      new CopyEventCommandMatcher(),
+      new PrintAllEventsCommandMatcher(),
+      new PrintEventsOnCommandMatcher(),
+      new PrintEventsRangeCommandMatcher(),
+      new ShowStatusCommandMatcher(),
+      new EditEventCommandMatcher(),
+      new EditEventsWhereCommandMatcher(),
+      new EditEventsCommandMatcher(),
+      new EditSeriesCommandMatcher(),
+      new ExportCommandMatcher(),
+      new SaveCommandMatcher(),
+      new ImportCommandMatcher(),
+      new CreateEventSeriesFromToForCommandMatcher(),
+      new CreateEventSeriesFromToUntilCommandMatcher(),
+      new CreateAllDayEventSeriesForCommandMatcher(),
+      new CreateAllDayEventSeriesUntilCommandMatcher(),
+      new CreateAllDayEventCommandMatcher(),
+      new CreateEventCommandMatcher());
+
+  private static final String[] WORDS = {
+      "create", "event", "events", "calendar", "edit", "series", "copy", "print", "show",
+      "status", "use", "export", "cal", "save", "import", "exit", "all", "on", "from", "to",
+      "repeats", "for", "times", "until", "with", "between", "and", "where", "set", "is",
+      "--name", "--timezone",
+      "--property", "--target", "--since", "--from", "--to", "--calendars", "FROM", "On",
+      "subject", "Team", "\"Team", "Meeting\"", "\"", "'a b'", "2025-06-01",
+      "2025-06-01T10:00", "MTWRF", "3", "007", "99999999999", "1234567890123456789", "x.csv",
+      "Work,Home", "*", "a\u2028b", "\u0085", "K", "\u212Aeyword"};
+
+  private static final String[] SPACES = {" ", " ", " ", "  ", "   ", "\t", " \t ", " \n ",
+      "\r\n", "\u000B", "\f", " \r  "};
+
+  private final CommandParser parser = new CommandParser();
+
+  @Test
+  public void testEdgeCases() {
+    String[] lines = {
+        "exit", "  EXIT  ", "exit now",
+        "create event \"Meeting from A to B\" from 2025-06-01T10:00 to 2025-06-01T11:00",
+        "create event A from B to C from D to E",
+        "create event   from a to b",
+        "create event  from a to b",
+        "create event \t\n from a to b",
+        "create event \n\n\n from a to b",
+        "create event  \n  on 2025-06-01",
+        "create event a\u2028b on 2025-06-01",
+        "create event \"\" on 2025-06-01",
+        "create event \" on 2025-06-01",
+        "create event X on 2025-06-01 repeats MW for 99999999999 times",
+        "create event X on 2025-06-01 repeats MW for 12 times",
+        "create event X from a to b repeats MW until 2025-07-01",
+        "CREATE EVENT X FROM a TO b REPEATS MW FOR 2 TIMES",
+        "edit event subject A from B to C with D from E to F with G",
+        "edit event subject A from B to C with",
+        "edit events location \"Big Room\" from 2025-06-01T10:00 with \"Room 2\"",
+        "edit series subject  from   from x with y",
+        "edit events subject a\nb from x with y",
+        "edit events where subject is A set location \"Room 2\"",
+        "edit events where subject is \"set up\" set location B",
+        "edit events where on 2025-06-01 set set set",
+        "edit events where set location B from x with y",
+        "EDIT EVENTS WHERE location contains Lab  set  status private",
+        "export cal a --since 5 --calendars x",
+        "export cal out.csv --since 1234567890123456789",
+        "export cal out.csv --since 123456789012345678",
+        "export cal   --from a --to b --calendars c",
+        "export cal out.ics --calendars Work,,Home",
+        "export cal out.ics --from 2025-01-01 --to 2025-12-31 --calendars *",
+        "export cal a\u2028b",
+        "save my file.json", "save", "import a\u0085b", "import  x ",
+        "copy event   on 2025-06-01T10:00 --target B to 2025-06-02T10:00",
+        "copy events between a and b --target c to d",
+        "copy events on a --target c to d",
+        "print all events", "print events on 2025-06-01", "print events from a to b",
+        "show status on 2025-06-01T10:00", "use calendar --name Work",
+        "create calendar --name Work --timezone America/New_York",
+        "edit calendar --name Work --property name Home",
+        "\u212Axit", "frobnicate", "create", "create event"};
+    for (String line : lines) {
+      assertSame(line);
+    }
+  }
+
+  @Test
+  public void testSampleScripts() throws IOException {
+    for (String script : new String[] {"res/commands.txt", "res/invalid.txt"}) {
+      if (Files.exists(Paths.get(script))) {
+        for (String line : Files.readAllLines(Paths.get(script))) {
+          assertSame(line);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRandomLines() {
+    Random random = new Random(20251019L);
+    for (int i = 0; i < 200_000; i++) {
+      StringBuilder line = new StringBuilder();
+      String[] start = randomStart(random);
+      for (String word : start) {
+        line.append(word).append(SPACES[random.nextInt(SPACES.length)]);
+      }
+      int words = random.nextInt(10);
+      for (int w = 0; w < words; w++) {
+        line.append(WORDS[random.nextInt(WORDS.length)])
+            .append(SPACES[random.nextInt(SPACES.length)]);
+      }
+      assertSame(line.toString());
+    }
+  }
+
+  private static String[] randomStart(Random random) {
+    String[][] starts = {{"create", "event"}, {"create", "calendar"}, {"edit", "event"},
+        {"edit", "events"}, {"edit", "events", "where"}, {"edit", "series"},
+        {"edit", "calendar"}, {"copy", "event"}, {"copy", "events"}, {"print", "events"}, {"print", "all"}, {"show", "status"},
+        {"use", "calendar"}, {"export", "cal"}, {"save"}, {"import"}, {"exit"}, {}};
+    return starts[random.nextInt(starts.length)];
+  }
+
+  private void assertSame(String line) {
+    assertEquals(line, describe(() -> reference(line)), describe(() -> parser.parse(line)));
+  }
+
+  /**
+   * Parses a line with the regex matchers.
+   */
+  private static CommandInterface reference(String input) {
+    if (input == null || input.trim().isEmpty()) {
+      return new NoOpCommand();
+    }
+    for (CommandMatcher matcher : MATCHERS) {
+      CommandInterface command = matcher.tryMatch(input.trim());
+      if (command != null) {
+        return command;
+      }
+    }
+    return new NoOpCommand(input);
+  }
+
+  /**
+   * Describes a parsed command by its class and field values, or the exception
+   * parsing threw.
+   */
+  private static String describe(ParseAction action) {
+    CommandInterface command;
+    try {
+      command = action.parse();
+    } catch (RuntimeException e) {
+      return "throws " + e.getClass().getName();
+    }
+    StringBuilder description = new StringBuilder(command.getClass().getName());
+    for (Class<?> c = command.getClass(); c != Object.class; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        if (Modifier.isStatic(field.getModifiers())) {
+          continue;
+        }
+        field.setAccessible(true);
+        try {
+          description.append(' ').append(field.getName()).append('=').append(field.get(command));
+        } catch (IllegalAccessException e) {
+          throw new AssertionError(e);
+        }
+      }
+    }
+    return description.toString();
+  }
+
+  private interface ParseAction {
+    CommandInterface parse();
+  }
+}
@@ -3,7 +3,9 @@ import static org.junit.Assert.assertTrue;
 
 import calendar.command.CommandInterface;
 import calendar.command.CommandParser;
+import calendar.command.CreateAllDayEventSeriesCommand;
 import calendar.command.CreateEventCommand;
+import calendar.command.CreateEventSeriesFromToCommand;
 import calendar.command.EditEventCommand;
 import calendar.command.ExitCommand;
 import calendar.command.NoOpCommand;
@@ -189,5 +191,18 @@ public class CommandParserTest {
         parser.parse("create event TestMeeting from 2025-06-01T09:00 to 2025-06-01T10:00");
     assertNotNull(cmd);
   }
-}
 
+  @Test
+  public void testKeywordDispatchKeepsPatternSemantics() {
+    assertTrue(parser.parse("CREATE\tEvent  \"Repeats until\" from 2025-06-01T09:00"
+        + " to 2025-06-01T10:00") instanceof CreateEventCommand);
+    assertTrue(parser.parse("create event Sync from 2025-06-02T09:00 to 2025-06-02T10:00"
+        + " REPEATS MW for 3 times") instanceof CreateEventSeriesFromToCommand);
+    assertTrue(parser.parse("create event Offsite on 2025-06-02 repeats F until 2025-07-01")
+        instanceof CreateAllDayEventSeriesCommand);
+    assertTrue(parser.parse("Print All Events") instanceof PrintAllEventsCommand);
+    assertTrue(parser.parse("create events Sync from 2025-06-02T09:00 to 2025-06-02T10:00")
+        instanceof NoOpCommand);
+    assertTrue(parser.parse("printall events") instanceof NoOpCommand);
+  }
+}
@@ -0,0 +1,236 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import calendar.command.CommandParser;
+import calendar.controller.CommandServer;
+import calendar.model.CalendarManager;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for CommandServer: sessions over loopback TCP, each with its own current
+ * calendar, sharing one set of calendars.
+ */
+public class CommandServerTest {
+  private CalendarManager manager;
+  private CommandServer server;
+  private Thread serving;
+
+  /**
+   * Starts a server on a free port.
+   */
+  @Before
+  public void setUp() throws IOException {
+    manager = new CalendarManager();
+    server = new CommandServer(manager, CommandParser::new,
+        new ServerSocket(0, 50, InetAddress.getLoopbackAddress()), true);
+    serving = new Thread(() -> {
+      try {
+        server.serve();
+      } catch (IOException e) {
+        throw new AssertionError(e);
+      }
+    });
+    serving.start();
+  }
+
+  /**
+   * Stops the server.
+   */
+  @After
+  public void tearDown() throws Exception {
+    server.close();
+    serving.join(5000);
+  }
+
+  @Test
+  public void testSessionsHaveTheirOwnCurrentCalendar() throws IOException {
+    try (Client first = new Client(); Client second = new Client()) {
+      assertTrue(first.send("create calendar --name A --timezone UTC")
+          .startsWith("Calendar 'A' created"));
+      assertTrue(second.send("create calendar --name B --timezone UTC")
+          .startsWith("Calendar 'B' created"));
+      first.send("use calendar --name A");
+      second.send("use calendar --name B");
+      assertTrue(first.send("create event Alpha on 2025-06-01").contains("Alpha"));
+      assertTrue(second.send("create event Beta on 2025-06-01").contains("Beta"));
+
+      String firstDay = first.send("print events on 2025-06-01");
+      assertTrue(firstDay, firstDay.contains("Alpha") && !firstDay.contains("Beta"));
+      String secondDay = second.send("print events on 2025-06-01");
+      assertTrue(secondDay, secondDay.contains("Beta") && !secondDay.contains("Alpha"));
+      assertTrue(first.send("frobnicate").startsWith("ERROR"));
+      assertTrue(first.send("begin").contains("Transactions cannot be begun"));
+      assertNull(first.in.readLine());
+    }
+    assertNull(manager.getCurrentCalendar());
+  }
+
+  @Test
+  public void testExitEndsSession() throws IOException {
+    try (Client client = new Client()) {
+      assertEquals("", client.send("exit"));
+      assertNull(client.in.readLine());
+    }
+  }
+
+  @Test
+  public void testPreparedStatementsArePerSession() throws IOException {
+    manager.createCalendar("A", ZoneId.of("UTC"));
+    try (Client first = new Client(); Client second = new Client()) {
+      first.send("use calendar --name A");
+      second.send("use calendar --name A");
+      assertEquals("Prepared 'day' with 2 parameter(s).",
+          first.send("prepare day as create event ? on ?"));
+      assertTrue(first.send("exec day \"Big day\" 2025-06-01").contains("Big day"));
+      assertEquals("ERROR: No statement prepared as 'day'",
+          second.send("exec day Other 2025-06-01"));
+      assertEquals(1, manager.getCalendar("A").getModel().getAllEvents().size());
+    }
+  }
+
+  @Test
+  public void testPipelinedCommandsRunInOrder() throws IOException {
+    try (Client client = new Client()) {
+      client.send("create calendar --name P --timezone UTC");
+      assertEquals("Pipelining with window 4.", client.send("pipeline 4"));
+
+      StringBuilder batch = new StringBuilder("use calendar --name P\n");
+      for (int i = 1; i <= 100; i++) {
+        batch.append("create event E").append(i).append(" on 2025-06-01\n");
+      }
+      batch.append("frobnicate\n\nprint events on 2025-06-01\nexit\n")
+          .append("create event Late on 2025-06-02\n");
+      client.out.write(batch.toString());
+      client.out.flush();
+
+      assertEquals("#1", client.in.readLine());
+      assertTrue(client.readResponse().startsWith("Now using calendar"));
+      for (int i = 1; i <= 100; i++) {
+        assertEquals("#" + (i + 1), client.in.readLine());
+        assertEquals("Created all-day event: E" + i, client.readResponse());
+      }
+      assertEquals("#102", client.in.readLine());
+      assertTrue(client.readResponse().startsWith("ERROR"));
+      assertEquals("#103", client.in.readLine());
+      assertEquals(100, client.readResponse().split("\n").length);
+      assertEquals("#104", client.in.readLine());
+      assertEquals("", client.readResponse());
+      assertNull(client.in.readLine());
+    }
+    assertEquals(100, manager.getCalendar("P").getModel().getAllEvents().size());
+  }
+
+  @Test
+  public void testRejectsInvalidWindow() throws IOException {
+    try (Client client = new Client()) {
+      assertTrue(client.send("pipeline 0").startsWith("ERROR: Window must be"));
+      assertTrue(client.send("pipeline many").startsWith("ERROR: Window must be"));
+      assertTrue(client.send("create calendar --name Q --timezone UTC").startsWith("Calendar"));
+      assertEquals("Pipelining with window " + CommandServer.DEFAULT_WINDOW + ".",
+          client.send("pipeline"));
+      client.out.write("use calendar --name Q\n");
+      client.out.flush();
+      assertEquals("#1", client.in.readLine());
+      assertTrue(client.readResponse().startsWith("Now using calendar"));
+    }
+  }
+
+  @Test
+  public void testConcurrentSessions() throws Exception {
+    int sessions = 16;
+    int events = 50;
+    for (int i = 0; i < sessions; i++) {
+      manager.createCalendar("S" + i, ZoneId.of("UTC"));
+    }
+    ExecutorService clients = Executors.newFixedThreadPool(sessions);
+    try {
+      List<Future<Void>> results = new ArrayList<>();
+      for (int i = 0; i < sessions; i++) {
+        String name = "S" + i;
+        results.add(clients.submit(() -> {
+          try (Client client = new Client()) {
+            client.send("use calendar --name " + name);
+            for (int e = 0; e < events; e++) {
+              String response = client.send("create event " + name + "-E" + e + " on 2025-06-"
+                  + String.format("%02d", 1 + e % 28));
+              assertTrue(response, response.startsWith("Created"));
+              client.send("print events on 2025-06-01");
+            }
+            String copied = client.send("copy events on 2025-06-01 --target S0 to 2025-07-01");
+            assertTrue(copied, copied.startsWith("Copied 2 event(s)"));
+          }
+          return null;
+        }));
+      }
+      for (Future<Void> result : results) {
+        result.get();
+      }
+    } finally {
+      clients.shutdown();
+    }
+    for (int i = 0; i < sessions; i++) {
+      int expected = (i == 0) ? events + sessions * 2 : events;
+      assertEquals(expected, manager.getCalendar("S" + i).getModel().getAllEvents().size());
+    }
+  }
+
+  /**
+   * A client session.
+   */
+  private final class Client implements AutoCloseable {
+    private final Socket socket;
+    private final BufferedReader in;
+    private final Writer out;
+
+    Client() throws IOException {
+      socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+      in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+          StandardCharsets.UTF_8));
+      out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Sends a command and reads its response, up to the empty line ending it.
+     */
+    String send(String command) throws IOException {
+      out.write(command + "\n");
+      out.flush();
+      return readResponse();
+    }
+
+    /**
+     * Reads a response, up to the empty line ending it.
+     */
+    String readResponse() throws IOException {
+      StringBuilder response = new StringBuilder();
+      String line;
+      while ((line = in.readLine()) != null && !line.isEmpty()) {
+        response.append((response.length() == 0) ? "" : "\n").append(line);
+      }
+      return response.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+      socket.close();
+    }
+  }
+}
@@ -0,0 +1,122 @@
+import calendar.model.Event;
+import calendar.model.EventInterface;
+import calendar.view.AsyncConsoleOutput;
+import calendar.view.ConsoleView;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Throughput and latency benchmark for headless console output. Compares a
+ * {@link ConsoleView} writing straight to a {@link PrintStream}, with and without
+ * autoflush (System.out autoflushes), against one writing through an
+ * {@link AsyncConsoleOutput} in front of the same stream.
+ *
+ * <p>Usage: {@code ConsoleOutputBenchmark [events] [rounds] [file]} (defaults
+ * 100000, 5 and no file, which discards the output). Throughput is the number of
+ * event lines per second displayed through one displayEvents call, flushed at the
+ * end. Latency is how long a single displayed line takes to reach the stream when
+ * it is flushed at once, as at the end of a commands file, and is reported as p50
+ * and p99 over the same number of lines.
+ */
+public class ConsoleOutputBenchmark {
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args number of events, number of rounds and the output file
+   * @throws Exception if the output cannot be written
+   */
+  public static void main(String[] args) throws Exception {
+    int count = (args.length > 0) ? Integer.parseInt(args[0]) : 100_000;
+    int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+    String file = (args.length > 2) ? args[2] : null;
+
+    List<EventInterface> events = new ArrayList<>(count);
+    LocalDateTime start = LocalDateTime.of(2025, 1, 1, 9, 0);
+    for (int i = 0; i < count; i++) {
+      LocalDateTime at = start.plusMinutes(37L * i);
+      events.add(new Event("Event " + i, at, at.plusMinutes(30), null,
+          (i % 3 == 0) ? "Room " + (i % 10) : null, false, UUID.randomUUID(), null));
+    }
+
+    for (int round = 1; round <= rounds; round++) {
+      for (boolean autoFlush : new boolean[] {true, false}) {
+        for (boolean async : new boolean[] {false, true}) {
+          try (PrintStream stream = new PrintStream(open(file), autoFlush)) {
+            double throughput = throughput(stream, async, events);
+            long[] latencies = latencies(stream, async, events);
+            System.out.printf("round=%d autoflush=%b async=%b throughput=%.0f lines/s"
+                + " latency p50=%.1fus p99=%.1fus%n", round, autoFlush, async, throughput,
+                percentile(latencies, 50), percentile(latencies, 99));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Displays every event in one call and flushes, returning lines per second.
+   */
+  private static double throughput(PrintStream stream, boolean async,
+                                   List<EventInterface> events) throws IOException {
+    long begin = System.nanoTime();
+    if (async) {
+      try (AsyncConsoleOutput output = new AsyncConsoleOutput(stream)) {
+        new ConsoleView(output).displayEvents(events);
+      }
+    } else {
+      new ConsoleView(stream).displayEvents(events);
+    }
+    stream.flush();
+    return events.size() / ((System.nanoTime() - begin) / 1e9);
+  }
+
+  /**
+   * Displays the events one at a time, flushing after each, and returns how long
+   * each took to reach the stream, sorted.
+   */
+  private static long[] latencies(PrintStream stream, boolean async,
+                                  List<EventInterface> events) throws IOException {
+    long[] latencies = new long[events.size()];
+    AsyncConsoleOutput output = async ? new AsyncConsoleOutput(stream) : null;
+    ConsoleView view = new ConsoleView(async ? output : stream);
+    for (int i = 0; i < latencies.length; i++) {
+      long begin = System.nanoTime();
+      view.displayEvents(events.subList(i, i + 1));
+      if (async) {
+        output.flush();
+      } else {
+        stream.flush();
+      }
+      latencies[i] = System.nanoTime() - begin;
+    }
+    if (async) {
+      output.close();
+    }
+    Arrays.sort(latencies);
+    return latencies;
+  }
+
+  private static OutputStream open(String file) throws IOException {
+    if (file == null) {
+      return OutputStream.nullOutputStream();
+    }
+    return new BufferedOutputStream(new FileOutputStream(file));
+  }
+
+  private static double percentile(long[] sorted, int percent) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+    return sorted[Math.max(0, index)] / 1e3;
+  }
+}
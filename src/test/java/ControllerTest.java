@@ -92,6 +92,11 @@ public class ControllerTest {
       return true;
     }
 
+    @Override
+    public boolean createEvents(java.util.List<calendar.model.EventInterface> events) {
+      return false;
+    }
+
     @Override
     public boolean createEventSeries(calendar.model.EventSeries series) {
       return false;
@@ -129,6 +134,28 @@ public class ControllerTest {
       return java.util.Collections.emptyList();
     }
 
+    @Override
+    public java.util.stream.Stream<calendar.model.EventInterface> streamAllEvents() {
+      return getAllEvents().stream();
+    }
+
+    @Override
+    public java.util.stream.Stream<calendar.model.EventInterface> streamEventsInRange(
+        java.time.LocalDateTime startDateTime, java.time.LocalDateTime endDateTime) {
+      return getEventsInRange(startDateTime, endDateTime).stream();
+    }
+
+    @Override
+    public calendar.model.ChangeSet getChangesSince(long token) {
+      return new calendar.model.ChangeSet(0, getAllEvents(), java.util.List.of(),
+          java.util.List.of(), java.util.List.of(), java.util.List.of());
+    }
+
+    @Override
+    public long getChangeToken() {
+      return 0;
+    }
+
     @Override
     public boolean isBusy(java.time.LocalDateTime dateTime) {
       return false;
@@ -144,6 +171,27 @@ public class ControllerTest {
         java.time.LocalDateTime startDateTime, java.time.LocalDateTime endDateTime) {
       return null;
     }
+
+    @Override
+    public java.util.List<calendar.model.EventInterface> findEventsBySubjectAndStart(
+        String subject, java.time.LocalDateTime startDateTime) {
+      return new java.util.ArrayList<>();
+    }
+
+    @Override
+    public calendar.model.EventSeries findSeriesById(java.util.UUID seriesId) {
+      return null;
+    }
+
+    @Override
+    public java.util.List<calendar.model.EventSeries> getAllSeries() {
+      return new java.util.ArrayList<>();
+    }
+
+    @Override
+    public java.util.List<calendar.model.EventInterface> getStandaloneEvents() {
+      return new java.util.ArrayList<>();
+    }
   }
 
   @Test
@@ -0,0 +1,150 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import calendar.command.CommandParser;
+import calendar.command.CopyEventsRangeCommand;
+import calendar.controller.Controller;
+import calendar.model.CalendarInterface;
+import calendar.model.CalendarManager;
+import calendar.model.EventInterface;
+import calendar.util.TimezoneUtils;
+import calendar.view.ConsoleView;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests for copying ranges of events between calendars: the copies must be what
+ * converting each event on its own gives, with series kept as series.
+ */
+public class CopyEventsBatchTest {
+
+  @Test
+  public void testSeriesIsCopiedAsRule() throws IOException {
+    CalendarManager manager = calendars("America/New_York", "America/Los_Angeles",
+        "create event Standup from 2025-06-02T09:00 to 2025-06-02T09:15 repeats MTWRF"
+            + " for 20 times\n");
+    StringBuilder out = new StringBuilder();
+    copy(manager, "2025-06-04", "2025-06-12", "2025-07-01", out);
+
+    assertTrue(out.toString(), out.toString().startsWith("Copied 7 event(s)"));
+    assertEquals(1, target(manager).getModel().getAllSeries().size());
+    assertEquals(0, target(manager).getModel().getStandaloneEvents().size());
+    assertEquals(expected(manager, "2025-06-04", "2025-06-12", "2025-07-01"),
+        actual(manager));
+  }
+
+  @Test
+  public void testCopiesMatchEventByEventConversion() throws IOException {
+    CalendarManager manager = calendars("America/New_York", "Europe/London",
+        "create event Daily from 2025-03-01T08:00 to 2025-03-01T09:00 repeats MTWRFSU"
+            + " for 60 times\n"
+            + "create event Late from 2025-03-02T20:00 to 2025-03-02T21:00 repeats SU"
+            + " for 12 times\n"
+            + "create event Across from 2025-03-03T18:30 to 2025-03-03T19:30 repeats M"
+            + " for 8 times\n"
+            + "edit event subject Daily from 2025-03-05T08:00 to 2025-03-05T09:00"
+            + " with Special\n"
+            + "edit events location Daily from 2025-03-20T08:00 with \"Room 2\"\n"
+            + "create event Launch from 2025-03-09T01:30 to 2025-03-09T03:30\n"
+            + "create event Offsite on 2025-03-15\n"
+            + "create event Trip from 2025-03-28T22:00 to 2025-03-30T10:00\n");
+    StringBuilder out = new StringBuilder();
+    copy(manager, "2025-03-01", "2025-04-30", "2025-09-01", out);
+
+    assertEquals(expected(manager, "2025-03-01", "2025-04-30", "2025-09-01"),
+        actual(manager));
+    assertTrue(out.toString(), out.toString().startsWith("Copied " + actual(manager).size()
+        + " event(s)"));
+    assertTrue(target(manager).getModel().getAllSeries().size() >= 2);
+  }
+
+  @Test
+  public void testConflictsFailOneEventAtATime() throws IOException {
+    CalendarManager manager = calendars("UTC", "UTC",
+        "create event Standup from 2025-06-02T09:00 to 2025-06-02T09:15 repeats MTWRF"
+            + " for 5 times\n"
+            + "create event Review from 2025-06-03T14:00 to 2025-06-03T15:00\n"
+            + "use calendar --name Target\n"
+            + "create event Standup from 2025-06-11T09:00 to 2025-06-11T09:15\n"
+            + "create event Review from 2025-06-10T14:00 to 2025-06-10T15:00\n"
+            + "use calendar --name Source\n");
+    StringBuilder out = new StringBuilder();
+    copy(manager, "2025-06-01", "2025-06-07", "2025-06-08", out);
+
+    assertTrue(out.toString(), out.toString().startsWith("Copied 4 event(s)"));
+    assertTrue(out.toString(), out.toString().contains("(2 failed due to conflicts)"));
+    assertEquals(6, target(manager).getModel().getAllEvents().size());
+  }
+
+  private static CalendarManager calendars(String sourceZone, String targetZone,
+                                           String script) throws IOException {
+    CalendarManager manager = new CalendarManager();
+    StringBuilder out = new StringBuilder();
+    new Controller(manager, new ConsoleView(out), new CommandParser(), new StringReader(
+        "create calendar --name Source --timezone " + sourceZone + "\n"
+            + "create calendar --name Target --timezone " + targetZone + "\n"
+            + "use calendar --name Source\n" + script + "exit\n"), false).run();
+    assertTrue(out.toString(), !out.toString().contains("ERROR"));
+    return manager;
+  }
+
+  private static void copy(CalendarManager manager, String from, String to, String at,
+                           StringBuilder out) throws IOException {
+    new CopyEventsRangeCommand(from, to, "Target", at).execute(manager, new ConsoleView(out));
+  }
+
+  private static CalendarInterface target(CalendarManager manager) {
+    return manager.getCalendar("Target");
+  }
+
+  /**
+   * Converts each source event starting in the range on its own.
+   */
+  private static List<String> expected(CalendarManager manager, String from, String to,
+                                       String at) {
+    CalendarInterface source = manager.getCalendar("Source");
+    LocalDate first = LocalDate.parse(from);
+    LocalDate last = LocalDate.parse(to);
+    long days = ChronoUnit.DAYS.between(first, LocalDate.parse(at));
+    List<String> events = new ArrayList<>();
+    for (EventInterface event : source.getModel().getAllEvents()) {
+      LocalDate date = event.getStartDateTime().toLocalDate();
+      if (!date.isBefore(first) && !date.isAfter(last)) {
+        events.add(describe(event.getSubject(),
+            convert(event.getStartDateTime(), source, manager).plusDays(days),
+            convert(event.getEndDateTime(), source, manager).plusDays(days), event));
+      }
+    }
+    Collections.sort(events);
+    return events;
+  }
+
+  private static List<String> actual(CalendarManager manager) {
+    List<String> events = new ArrayList<>();
+    for (EventInterface event : target(manager).getModel().getAllEvents()) {
+      events.add(describe(event.getSubject(), event.getStartDateTime(),
+          event.getEndDateTime(), event));
+    }
+    Collections.sort(events);
+    return events;
+  }
+
+  private static LocalDateTime convert(LocalDateTime time, CalendarInterface source,
+                                       CalendarManager manager) {
+    return TimezoneUtils.convertTimezone(time, source.getTimezone(),
+        target(manager).getTimezone());
+  }
+
+  private static String describe(String subject, LocalDateTime start, LocalDateTime end,
+                                 EventInterface event) {
+    return subject + "|" + start + "|" + end + "|" + event.getDescription().orElse("")
+        + "|" + event.getLocation().orElse("") + "|" + event.isPrivate();
+  }
+}
@@ -1,3 +1,4 @@
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -66,4 +67,29 @@ public class CsvExporterTest {
     String csv2 = CsvExporter.toCsv(List.of(notAllDay));
     assertFalse(csv2.contains(",True,"));
   }
+
+  /**
+   * Ensures streamed rows format dates and times like the pattern formatters.
+   */
+  @Test
+  public void testStreamedTimesMatchFormatter() throws java.io.IOException {
+    java.time.format.DateTimeFormatter date =
+        java.time.format.DateTimeFormatter.ofPattern("yyyy/MM/dd");
+    java.time.format.DateTimeFormatter time =
+        java.time.format.DateTimeFormatter.ofPattern("h:mm a", java.util.Locale.ENGLISH);
+    java.util.List<EventInterface> events = new java.util.ArrayList<>();
+    StringBuilder expected = new StringBuilder(CsvExporter.HEADER);
+    for (int minute = 0; minute < 24 * 60; minute += 7) {
+      LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0).plusMinutes(minute * 97L);
+      LocalDateTime end = start.plusMinutes(minute + 1);
+      events.add(new Event("S", start, end, null, null, true, UUID.randomUUID(), null));
+      expected.append("S,").append(start.format(date)).append(',').append(start.format(time))
+          .append(',').append(end.format(date)).append(',').append(end.format(time))
+          .append(",False,,,True\n");
+    }
+
+    java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+    assertEquals(events.size(), CsvExporter.write(events.stream(), out));
+    assertEquals(expected.toString(), out.toString(java.nio.charset.StandardCharsets.UTF_8));
+  }
 }
@@ -0,0 +1,107 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import calendar.model.CalendarModel;
+import calendar.model.Event;
+import calendar.model.EventInterface;
+import calendar.util.CsvExporter;
+import calendar.util.CsvImporter;
+import calendar.util.ImportResult;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.Test;
+
+/**
+ * Tests for CsvImporter.
+ */
+public class CsvImporterTest {
+
+  /**
+   * Ensures exported events, including quoted fields, import back unchanged.
+   */
+  @Test
+  public void testRoundTripWithExporter() throws IOException {
+    List<EventInterface> events = new ArrayList<>();
+    events.add(new Event("A, \"B\"", LocalDateTime.of(2025, 6, 1, 0, 30),
+        LocalDateTime.of(2025, 6, 1, 12, 45), "line1\nline2", "Room, 5", true,
+        UUID.randomUUID(), null));
+    events.add(new Event("Plain", LocalDateTime.of(2025, 6, 2, 13, 0),
+        LocalDateTime.of(2025, 6, 3, 9, 0), null, null, false, UUID.randomUUID(), null));
+    for (int i = 0; i < 20000; i++) {
+      events.add(new Event("Bulk " + i, LocalDateTime.of(2026, 1, 1, 9, 0).plusHours(i),
+          LocalDateTime.of(2026, 1, 1, 10, 0).plusHours(i), null, null, false,
+          UUID.randomUUID(), null));
+    }
+
+    CalendarModel model = new CalendarModel();
+    ImportResult result = CsvImporter.importCsv(
+        new StringReader(CsvExporter.toCsv(events)), model);
+
+    assertEquals(events.size(), result.getImported());
+    assertEquals(0, result.getErrorCount());
+    assertEquals(events.size(), model.getAllEvents().size());
+    EventInterface quoted = find(model, "A, \"B\"",
+        LocalDateTime.of(2025, 6, 1, 0, 30)).get();
+    assertEquals(LocalDateTime.of(2025, 6, 1, 12, 45), quoted.getEndDateTime());
+    assertEquals("line1\nline2", quoted.getDescription().get());
+    assertEquals("Room, 5", quoted.getLocation().get());
+    assertTrue(quoted.isPrivate());
+    EventInterface plain = find(model, "Plain",
+        LocalDateTime.of(2025, 6, 2, 13, 0)).get();
+    assertFalse(plain.getDescription().isPresent());
+    assertFalse(plain.isPrivate());
+  }
+
+  /**
+   * Ensures bad rows and duplicates are skipped with their line numbers while the
+   * rest are imported.
+   */
+  @Test
+  public void testRowErrorsAreReported() throws IOException {
+    CalendarModel model = new CalendarModel();
+    model.createEvent(new Event("Existing", LocalDateTime.of(2025, 6, 1, 9, 0),
+        LocalDateTime.of(2025, 6, 1, 10, 0), null, null, false, UUID.randomUUID(), null));
+    String csv = "Start Date,Subject,Start Time,End Time\r\n"
+        + "2025/06/01,Good,9:00 AM,10:00 AM\r\n"
+        + "2025/13/01,Bad date,9:00 AM,10:00 AM\r\n"
+        + "\r\n"
+        + "2025/06/01,Backwards,10:00 AM,9:00 AM\r\n"
+        + "2025/06/01,Existing,9:00 AM,10:00 AM\r\n"
+        + "2025/06/02,All day,,\r\n"
+        + "2025-06-03,Iso,14:00,15:30";
+
+    ImportResult result = CsvImporter.importCsv(new StringReader(csv), model);
+
+    assertEquals(3, result.getImported());
+    assertEquals(3, result.getErrorCount());
+    assertTrue(result.getErrors().get(0).startsWith("line 3: invalid date"));
+    assertTrue(result.getErrors().get(1).startsWith("line 5: End time"));
+    assertTrue(result.getErrors().get(2).startsWith("line 6: duplicate event"));
+    EventInterface allDay = find(model, "All day",
+        LocalDateTime.of(2025, 6, 2, 8, 0)).get();
+    assertTrue(allDay.isAllDayEvent());
+    assertTrue(find(model, "Iso",
+        LocalDateTime.of(2025, 6, 3, 14, 0)).isPresent());
+  }
+
+  /**
+   * Ensures a header without the required columns is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingRequiredColumn() throws IOException {
+    CsvImporter.importCsv(new StringReader("Name,Date\nx,2025/01/01\n"), new CalendarModel());
+  }
+
+  private static Optional<EventInterface> find(CalendarModel model, String subject,
+                                               LocalDateTime start) {
+    return model.getAllEvents().stream()
+        .filter(e -> e.getSubject().equals(subject) && e.getStartDateTime().equals(start))
+        .findFirst();
+  }
+}
@@ -0,0 +1,124 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import calendar.command.CommandParser;
+import calendar.controller.Controller;
+import calendar.model.CalendarManager;
+import calendar.model.CalendarModel;
+import calendar.model.EditSpec;
+import calendar.model.Event;
+import calendar.model.EventInterface;
+import calendar.model.EventSeries;
+import calendar.view.ConsoleView;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Test;
+
+/**
+ * Tests for editing many events at once: the model's batch edit and the
+ * {@code edit events where} command.
+ */
+public class EditEventsWhereTest {
+  private static final LocalDateTime NINE = LocalDateTime.of(2025, 6, 2, 9, 0);
+
+  @Test
+  public void testBatchEditsStandaloneEventsAndOccurrences() {
+    CalendarModel model = new CalendarModel();
+    UUID seriesId = UUID.randomUUID();
+    model.createEventSeries(new EventSeries(seriesId, event("Sync", NINE, seriesId),
+        EnumSet.of(DayOfWeek.MONDAY), null, 4, false));
+    model.createEvent(event("Review", NINE.plusHours(2), null));
+    model.createEvent(event("Review", NINE.plusDays(1), null));
+
+    List<EventInterface> all = model.getAllEvents();
+    assertTrue(model.editEvents(all, EditSpec.builder().location("Lab").build()));
+    for (EventInterface event : model.getAllEvents()) {
+      assertEquals("Lab", event.getLocation().orElse(null));
+    }
+    assertEquals(1, model.getAllSeries().size());
+    assertEquals(6, model.getAllEvents().size());
+
+    List<EventInterface> syncs = model.getEventsInRange(NINE, NINE.plusWeeks(1));
+    assertTrue(model.editEvents(syncs, EditSpec.builder().subject("Planning").build()));
+    assertEquals(1, model.findEventsBySubjectAndStart("Planning", NINE).size());
+    assertEquals(1, model.findEventsBySubjectAndStart("Planning", NINE.plusHours(2)).size());
+    assertEquals(1, model.findEventsBySubjectAndStart("Sync", NINE.plusWeeks(1)).size());
+  }
+
+  @Test
+  public void testBatchEditIsAllOrNothing() {
+    CalendarModel model = new CalendarModel();
+    EventInterface first = event("Review", NINE, null);
+    EventInterface second = event("Retro", NINE, null);
+    model.createEvent(first);
+    model.createEvent(second);
+    model.createEvent(event("Demo", NINE, null));
+
+    assertFalse(model.editEvents(List.of(first, second),
+        EditSpec.builder().subject("Same").build()));
+    assertFalse(model.editEvents(List.of(first),
+        EditSpec.builder().subject("Demo").build()));
+    assertEquals(1, model.findEventsBySubjectAndStart("Review", NINE).size());
+    assertTrue(model.findEventsBySubjectAndStart("Same", NINE).isEmpty());
+
+    assertTrue(model.editEvents(List.of(first, second),
+        EditSpec.builder().start(NINE.plusHours(1)).build()));
+    assertEquals(2, model.getEventsInRange(NINE.plusHours(1), NINE.plusHours(2)).size());
+  }
+
+  @Test
+  public void testCommandEditsMatchingEvents() throws IOException {
+    String events = "create event Review from 2025-06-02T09:00 to 2025-06-02T10:00\n"
+        + "create event \"Team review\" from 2025-06-02T13:00 to 2025-06-02T14:00\n"
+        + "create event Review from 2025-06-03T09:00 to 2025-06-03T10:00\n"
+        + "create event Lunch from 2025-06-02T12:00 to 2025-06-02T13:00\n";
+
+    String out = run(events + "edit events where subject contains eview and on 2025-06-02"
+        + " set location \"Room 4\"\nprint events on 2025-06-02\nprint events on 2025-06-03\n");
+    assertTrue(out.contains("Edited 2 event(s)"));
+    assertEquals(2, count(out, "Room 4"));
+
+    out = run(events + "edit events where subject is Review and start is 2025-06-03T09:00"
+        + " set status private\n");
+    assertTrue(out.contains("Edited 1 event(s)"));
+
+    out = run(events + "edit events where location is Nowhere set subject X\n");
+    assertTrue(out.endsWith("No events match: location is Nowhere" + System.lineSeparator()));
+
+    out = run(events + "edit events where subject is Review set start 2025-06-02T09:00\n");
+    assertTrue(out.endsWith("Failed to edit: would create duplicate event"
+        + System.lineSeparator()));
+
+    out = run(events + "edit events where subject Review set location X\n");
+    assertTrue(out.endsWith("Failed to edit events: Invalid condition in: subject Review"
+        + System.lineSeparator()));
+  }
+
+  private static int count(String text, String part) {
+    int count = 0;
+    for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1)) {
+      count++;
+    }
+    return count;
+  }
+
+  private static EventInterface event(String subject, LocalDateTime start, UUID seriesId) {
+    return new Event(subject, start, start.plusHours(1), null, null, false,
+        UUID.randomUUID(), seriesId);
+  }
+
+  private static String run(String commands) throws IOException {
+    StringBuilder out = new StringBuilder();
+    new Controller(new CalendarManager(), new ConsoleView(out), new CommandParser(),
+        new StringReader("create calendar --name Work --timezone UTC\n"
+            + "use calendar --name Work\n" + commands + "exit\n"), false).run();
+    return out.toString();
+  }
+}
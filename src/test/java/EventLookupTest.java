@@ -0,0 +1,161 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import calendar.command.CommandParser;
+import calendar.controller.Controller;
+import calendar.model.CalendarManager;
+import calendar.model.CalendarModel;
+import calendar.model.EditSpec;
+import calendar.model.Event;
+import calendar.model.EventInterface;
+import calendar.model.EventSeries;
+import calendar.persistence.MappedCalendarModel;
+import calendar.view.ConsoleView;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Test;
+
+/**
+ * Tests for finding events by subject and start time, and for the commands that
+ * name their event that way.
+ */
+public class EventLookupTest {
+  private static final LocalDateTime NINE = LocalDateTime.of(2025, 6, 2, 9, 0);
+
+  @Test
+  public void testStoredEventsAreIndexedAsTheyChange() {
+    CalendarModel model = new CalendarModel();
+    EventInterface hour = event("Review", NINE, 1, null);
+    model.createEvent(hour);
+    model.createEvent(event("Review", NINE, 2, null));
+    model.createEvent(event("Other", NINE, 1, null));
+
+    List<EventInterface> found = model.findEventsBySubjectAndStart(" Review ", NINE);
+    assertEquals(2, found.size());
+    assertEquals(NINE.plusHours(1), found.get(0).getEndDateTime());
+    assertEquals(NINE.plusHours(2), found.get(1).getEndDateTime());
+
+    assertTrue(model.editEvent(hour.getId(), EditSpec.builder().subject("Moved").build()));
+    assertEquals(1, model.findEventsBySubjectAndStart("Review", NINE).size());
+    assertEquals(hour.getId(), model.findEventsBySubjectAndStart("Moved", NINE).get(0).getId());
+    assertTrue(model.findEventsBySubjectAndStart("Review", NINE.plusMinutes(1)).isEmpty());
+  }
+
+  @Test
+  public void testLargeBucketsGrowAndShrinkInPlace() {
+    CalendarModel model = new CalendarModel();
+    List<EventInterface> created = new ArrayList<>();
+    for (int i = 1; i <= 2000; i++) {
+      EventInterface event = new Event("Shift", NINE, NINE.plusMinutes(i), null, null, false,
+          UUID.randomUUID(), null);
+      assertTrue(model.createEvent(event));
+      created.add(event);
+    }
+    assertEquals(2000, model.findEventsBySubjectAndStart("Shift", NINE).size());
+
+    assertTrue(model.editEvents(created.subList(0, 1500),
+        EditSpec.builder().subject("Moved").build()));
+    List<EventInterface> rest = model.findEventsBySubjectAndStart("Shift", NINE);
+    assertEquals(500, rest.size());
+    assertEquals(NINE.plusMinutes(1501), rest.get(0).getEndDateTime());
+    assertEquals(1500, model.findEventsBySubjectAndStart("Moved", NINE).size());
+
+    assertTrue(model.editEvents(rest, EditSpec.builder().subject("Moved").build()));
+    assertTrue(model.findEventsBySubjectAndStart("Shift", NINE).isEmpty());
+    assertEquals(2000, model.findEventsBySubjectAndStart("Moved", NINE).size());
+  }
+
+  @Test
+  public void testSeriesOccurrencesAreFoundUnderEverySubject() {
+    CalendarModel model = new CalendarModel();
+    UUID seriesId = UUID.randomUUID();
+    model.createEventSeries(new EventSeries(seriesId, event("Sync", NINE, 1, seriesId),
+        EnumSet.of(DayOfWeek.MONDAY), null, 6, false));
+    LocalDateTime third = NINE.plusWeeks(2);
+    UUID thirdId = model.findEventsBySubjectAndStart("Sync", third).get(0).getId();
+    assertTrue(model.editEvent(thirdId, EditSpec.builder().subject("Planning").build()));
+    assertTrue(model.editSeriesFrom(seriesId, LocalDate.of(2025, 6, 30),
+        EditSpec.builder().subject("Sync v2").build()));
+
+    assertEquals(1, model.findEventsBySubjectAndStart("Sync", NINE.plusWeeks(1)).size());
+    assertTrue(model.findEventsBySubjectAndStart("Sync", third).isEmpty());
+    assertEquals(thirdId, model.findEventsBySubjectAndStart("Planning", third).get(0).getId());
+    assertTrue(model.findEventsBySubjectAndStart("Sync", NINE.plusWeeks(4)).isEmpty());
+    assertEquals(1, model.findEventsBySubjectAndStart("Sync v2", NINE.plusWeeks(4)).size());
+    assertTrue(model.findEventsBySubjectAndStart("Sync", NINE.plusDays(1)).isEmpty());
+
+    assertTrue(model.editSeriesFrom(seriesId, NINE.toLocalDate(),
+        EditSpec.builder().start(NINE.plusHours(1)).build()));
+    assertTrue(model.findEventsBySubjectAndStart("Sync", NINE).isEmpty());
+    assertEquals(1, model.findEventsBySubjectAndStart("Sync", NINE.plusHours(1)).size());
+  }
+
+  @Test
+  public void testMappedModelFindsStoredAndDeltaEvents() throws IOException {
+    Path file = Files.createTempFile("calendar", ".store");
+    Files.delete(file);
+    try {
+      EventInterface stored = event("Audit", NINE, 1, null);
+      try (MappedCalendarModel store = MappedCalendarModel.open(file)) {
+        store.createEvent(stored);
+        store.createEvent(event("Audit", NINE.plusDays(1), 1, null));
+      }
+      try (MappedCalendarModel store = MappedCalendarModel.open(file)) {
+        assertEquals(stored.getId(),
+            store.findEventsBySubjectAndStart("Audit", NINE).get(0).getId());
+        store.createEvent(event("Audit", NINE, 3, null));
+        assertEquals(2, store.findEventsBySubjectAndStart("Audit", NINE).size());
+        assertTrue(store.editEvent(stored.getId(),
+            EditSpec.builder().start(NINE.plusMinutes(30)).build()));
+        List<EventInterface> found = store.findEventsBySubjectAndStart("Audit", NINE);
+        assertEquals(1, found.size());
+        assertEquals(NINE.plusHours(3), found.get(0).getEndDateTime());
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  public void testCommandsRejectAmbiguousEvents() throws IOException {
+    String twoReviews = "create event Review from 2025-06-02T09:00 to 2025-06-02T10:00\n"
+        + "create event Review from 2025-06-02T09:00 to 2025-06-02T11:00\n";
+    String ambiguous = "ERROR: 2 events named Review start at 2025-06-02T09:00;"
+        + " use 'edit event' with an end time to pick one" + System.lineSeparator();
+    assertTrue(run(twoReviews + "edit events location Review from 2025-06-02T09:00 with Lab\n")
+        .endsWith(ambiguous));
+    assertTrue(run(twoReviews + "edit series location Review from 2025-06-02T09:00 with Lab\n")
+        .endsWith(ambiguous));
+    assertTrue(run(twoReviews
+        + "copy event Review on 2025-06-02T09:00 --target Work to 2025-06-09T09:00\n")
+        .endsWith("Error: 2 events named 'Review' start on 2025-06-02T09:00 in calendar"
+            + " 'Work'; cannot tell which one to copy." + System.lineSeparator()));
+    assertTrue(run(twoReviews
+        + "edit event subject Review from 2025-06-02T09:00 to 2025-06-02T11:00 with Retro\n"
+        + "edit events location Review from 2025-06-02T09:00 with Lab\n")
+        .endsWith("Events edited successfully" + System.lineSeparator()));
+  }
+
+  private static EventInterface event(String subject, LocalDateTime start, int hours,
+                                      UUID seriesId) {
+    return new Event(subject, start, start.plusHours(hours), null, null, false,
+        UUID.randomUUID(), seriesId);
+  }
+
+  private static String run(String commands) throws IOException {
+    StringBuilder out = new StringBuilder();
+    new Controller(new CalendarManager(), new ConsoleView(out), new CommandParser(),
+        new StringReader("create calendar --name Work --timezone UTC\n"
+            + "use calendar --name Work\n" + commands + "exit\n"), false).run();
+    return out.toString();
+  }
+}
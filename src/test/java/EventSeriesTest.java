@@ -4,6 +4,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import calendar.model.EditSpec;
 import calendar.model.Event;
 import calendar.model.EventInterface;
 import calendar.model.EventSeries;
@@ -133,4 +134,69 @@ public class EventSeriesTest {
     assertNull(series.getOccurrences());
     assertTrue(series.usesEndDate());
   }
+
+  @Test
+  public void testOccurrenceDatesAndIds() {
+    EventInterface template = new Event("Standup",
+        LocalDateTime.of(2025, 6, 2, 9, 0),
+        LocalDateTime.of(2025, 6, 2, 9, 30),
+        null, null, false, UUID.randomUUID(), null);
+    Set<DayOfWeek> weekdays = new HashSet<>();
+    weekdays.add(DayOfWeek.MONDAY);
+    weekdays.add(DayOfWeek.WEDNESDAY);
+
+    EventSeries series = new EventSeries(UUID.randomUUID(), template, weekdays, null, 4, false);
+
+    assertEquals(LocalDate.of(2025, 6, 11), series.getLastDate());
+    assertEquals(4, series.getOccurrenceDates().size());
+    LocalDate date = LocalDate.of(2025, 6, 4);
+    assertEquals(date, series.occurrenceDateOf(series.occurrenceId(date)));
+    assertNull(series.occurrenceDateOf(UUID.randomUUID()));
+  }
+
+  @Test
+  public void testExceptionDateCancelsOccurrence() {
+    EventInterface template = new Event("Standup",
+        LocalDateTime.of(2025, 6, 2, 9, 0),
+        LocalDateTime.of(2025, 6, 2, 9, 30),
+        null, null, false, UUID.randomUUID(), null);
+    Set<DayOfWeek> weekdays = new HashSet<>();
+    weekdays.add(DayOfWeek.MONDAY);
+    EventSeries series = new EventSeries(UUID.randomUUID(), template, weekdays, null, 3, false);
+
+    LocalDate cancelled = LocalDate.of(2025, 6, 9);
+    EventSeries modified = series.withExceptionDate(cancelled);
+
+    assertTrue(series.occursOn(cancelled));
+    assertFalse(modified.occursOn(cancelled));
+    assertTrue(modified.isRuleDate(cancelled));
+    assertEquals(2, modified.getOccurrenceDates().size());
+    assertNull(modified.occurrenceDateOf(modified.occurrenceId(cancelled)));
+    assertEquals(Integer.valueOf(3), modified.getOccurrences());
+  }
+
+  @Test
+  public void testSplitCarriesOverridesToTail() {
+    EventInterface template = new Event("Standup",
+        LocalDateTime.of(2025, 6, 2, 9, 0),
+        LocalDateTime.of(2025, 6, 2, 9, 30),
+        null, null, false, UUID.randomUUID(), null);
+    Set<DayOfWeek> weekdays = new HashSet<>();
+    weekdays.add(DayOfWeek.MONDAY);
+    UUID seriesId = UUID.randomUUID();
+    EventSeries series = new EventSeries(seriesId, template, weekdays, null, 4, false)
+        .withOverride(LocalDate.of(2025, 6, 16), EditSpec.builder().location("Room 2").build());
+
+    UUID tailId = UUID.randomUUID();
+    EventSeries head = series.before(LocalDate.of(2025, 6, 10));
+    EventSeries tail = series.from(LocalDate.of(2025, 6, 10), tailId);
+
+    assertEquals(LocalDate.of(2025, 6, 9), head.getLastDate());
+    assertTrue(head.getOverrides().isEmpty());
+    assertEquals(tailId, tail.getSeriesId());
+    assertEquals(LocalDate.of(2025, 6, 16), tail.getFirstDate());
+    assertEquals(LocalDate.of(2025, 6, 23), tail.getLastDate());
+    assertTrue(tail.getOverrides().containsKey(LocalDate.of(2025, 6, 16)));
+    assertNull(series.before(LocalDate.of(2025, 6, 2)));
+  }
 }
@@ -0,0 +1,164 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import calendar.command.ExportCommand;
+import calendar.command.matchers.ExportCommandMatcher;
+import calendar.model.CalendarManager;
+import calendar.model.Event;
+import calendar.view.ConsoleView;
+import calendar.view.ViewInterface;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests date-range, multi-calendar, incremental and compressed exports.
+ */
+public class ExportCommandRangeTest {
+  private CalendarManager manager;
+  private ViewInterface view;
+  private ByteArrayOutputStream output;
+  private Path dir;
+
+  /**
+   * Creates two calendars with events in March and April.
+   */
+  @Before
+  public void setUp() throws IOException {
+    manager = new CalendarManager();
+    manager.createCalendar("Work", ZoneId.of("America/New_York"));
+    manager.createCalendar("Home", ZoneId.of("Europe/London"));
+    manager.setCurrentCalendar("Work");
+    add("Work", "Planning", LocalDateTime.of(2025, 3, 3, 9, 0));
+    add("Work", "Retro", LocalDateTime.of(2025, 4, 7, 9, 0));
+    add("Home", "Dentist", LocalDateTime.of(2025, 3, 4, 15, 0));
+    add("Home", "Party", LocalDateTime.of(2025, 4, 12, 19, 0));
+
+    output = new ByteArrayOutputStream();
+    view = new ConsoleView(new PrintStream(output));
+    dir = Files.createTempDirectory(Paths.get("").toAbsolutePath(), "export-test");
+  }
+
+  /**
+   * Removes the exported files.
+   */
+  @After
+  public void tearDown() throws IOException {
+    try (java.util.stream.Stream<Path> files = Files.list(dir)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(dir);
+  }
+
+  @Test
+  public void testRangeExportKeepsOnlyOverlappingEvents() throws IOException {
+    Path file = dir.resolve("march.csv");
+    assertTrue(new ExportCommandMatcher()
+        .tryMatch("export cal " + file + " --from 2025-03-01 --to 2025-03-31")
+        .execute(manager, view));
+
+    String csv = Files.readString(file);
+    assertTrue(csv.contains("Planning"));
+    assertFalse(csv.contains("Retro"));
+    assertFalse("Only the current calendar is exported", csv.contains("Dentist"));
+
+    assertFalse(new ExportCommand(file.toString(), "2025-03-31", "2025-03-01", null)
+        .execute(manager, view));
+    assertTrue(output.toString().contains("end date is before start date"));
+  }
+
+  @Test
+  public void testMultiCalendarExports() throws IOException {
+    assertFalse(new ExportCommandMatcher()
+        .tryMatch("export cal " + dir.resolve("all.csv") + " --calendars Work,Gym")
+        .execute(manager, view));
+    assertTrue(output.toString().contains("Calendar not found: Gym"));
+
+    assertTrue(new ExportCommandMatcher()
+        .tryMatch("export cal " + dir.resolve("all.csv") + " --from 2025-04-01 --to 2025-04-30"
+            + " --calendars Work,Home")
+        .execute(manager, view));
+    assertTrue(Files.readString(dir.resolve("all-Work.csv")).contains("Retro"));
+    String home = Files.readString(dir.resolve("all-Home.csv"));
+    assertTrue(home.contains("Party"));
+    assertFalse(home.contains("Dentist"));
+
+    Path ics = dir.resolve("all.ics");
+    assertTrue(new ExportCommand(ics.toString(), null, null, List.of("*"))
+        .execute(manager, view));
+    String text = new String(Files.readAllBytes(ics), StandardCharsets.UTF_8);
+    assertEquals(2, text.split("BEGIN:VCALENDAR", -1).length - 1);
+    assertTrue(text.contains("X-WR-CALNAME:Work"));
+    assertTrue(text.contains("X-WR-CALNAME:Home"));
+    assertTrue(text.contains("Dentist") && text.contains("Retro"));
+    try (java.util.stream.Stream<Path> files = Files.list(dir)) {
+      assertEquals("Part files are removed", 3, files.count());
+    }
+  }
+
+  @Test
+  public void testIncrementalExportSinceToken() throws IOException {
+    Path csv = dir.resolve("sync.csv");
+    assertTrue(new ExportCommandMatcher().tryMatch("export cal " + csv + " --since 0")
+        .execute(manager, view));
+    String token = output.toString().replaceAll("(?s).*Change token: (\\d+).*", "$1");
+    assertTrue(Files.readString(csv).contains("Retro"));
+
+    add("Work", "Kickoff", LocalDateTime.of(2025, 5, 5, 9, 0));
+    manager.getCalendar("Work").getModel().editEvent(manager.getCalendar("Work").getModel()
+        .getEventsOnDate(java.time.LocalDate.of(2025, 3, 3)).get(0).getId(),
+        calendar.model.EditSpec.builder().start(LocalDateTime.of(2025, 3, 4, 9, 0))
+            .end(LocalDateTime.of(2025, 3, 4, 10, 0)).build());
+    output.reset();
+    assertTrue(new ExportCommandMatcher().tryMatch("export cal " + csv + " --since " + token)
+        .execute(manager, view));
+    String changed = Files.readString(csv);
+    assertTrue(changed.contains("Kickoff") && changed.contains("Planning"));
+    assertFalse(changed.contains("Retro"));
+    assertTrue(output.toString().contains("Exported 2 changed and 0 removed event(s)"));
+
+    Path ics = dir.resolve("sync.ics");
+    assertTrue(new ExportCommand(ics.toString(), 0).execute(manager, view));
+    assertTrue(Files.readString(ics).contains("X-CHANGE-TOKEN:"));
+    assertFalse(new ExportCommand(ics.toString(), 999).execute(manager, view));
+    assertTrue(output.toString().contains("Unknown change token: 999"));
+  }
+
+  @Test
+  public void testCompressedExportsRoundTrip() throws IOException {
+    Path csv = dir.resolve("work.csv.gz");
+    assertTrue(new ExportCommand(csv.toString()).execute(manager, view));
+    try (java.io.InputStream in = new java.util.zip.GZIPInputStream(Files.newInputStream(csv))) {
+      String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+      assertTrue(text.startsWith("Subject,") && text.contains("Retro"));
+    }
+
+    Path ics = dir.resolve("all.ics.gz");
+    assertTrue(new ExportCommand(ics.toString(), null, null, List.of("*"))
+        .execute(manager, view));
+    manager.createCalendar("Copy", ZoneId.of("UTC"));
+    manager.setCurrentCalendar("Copy");
+    assertTrue(new calendar.command.ImportCommand(ics.toString()).execute(manager, view));
+    assertEquals("Both gzip members are read", 4,
+        manager.getCalendar("Copy").getModel().getAllEvents().size());
+  }
+
+  private void add(String calendar, String subject, LocalDateTime start) {
+    manager.getCalendar(calendar).getModel().createEvent(new Event(subject, start,
+        start.plusHours(1), null, null, false, UUID.randomUUID(), null));
+  }
+}
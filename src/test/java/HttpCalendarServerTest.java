@@ -0,0 +1,243 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import calendar.command.CommandParser;
+import calendar.controller.Controller;
+import calendar.controller.HttpCalendarServer;
+import calendar.model.CalendarManager;
+import calendar.model.CalendarModelInterface;
+import calendar.model.EventInterface;
+import calendar.util.JsonWriter;
+import calendar.view.ConsoleView;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for HttpCalendarServer and the JSON writer behind it.
+ */
+public class HttpCalendarServerTest {
+  private CalendarManager manager;
+  private HttpCalendarServer server;
+  private HttpClient client;
+  private String base;
+
+  /**
+   * Starts a server on a free port with one calendar.
+   */
+  @Before
+  public void setUp() throws IOException {
+    manager = new CalendarManager();
+    manager.createCalendar("Work", ZoneId.of("America/New_York"));
+    server = new HttpCalendarServer(manager,
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 4, true);
+    server.start();
+    client = HttpClient.newHttpClient();
+    base = "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+        + server.getPort() + "/calendars";
+  }
+
+  /**
+   * Stops the server.
+   */
+  @After
+  public void tearDown() {
+    server.close();
+  }
+
+  @Test
+  public void testCreateAndQueryEvents() throws Exception {
+    HttpResponse<String> created = send("POST", "/Work/events",
+        "{\"subject\": \"Review \\\"Q3\\\"\", \"start\": \"2025-06-02T10:00\","
+            + " \"end\": \"2025-06-02T11:30\", \"location\": null, \"status\": \"private\"}");
+    assertEquals(created.body(), 201, created.statusCode());
+    EventInterface event = model().getAllEvents().get(0);
+    assertEquals("Review \"Q3\"", event.getSubject());
+    assertTrue(event.isPrivate());
+    assertEquals("/calendars/Work/events/" + event.getId(),
+        created.headers().firstValue("Location").get());
+
+    String json = "{\"id\":\"" + event.getId() + "\",\"subject\":\"Review \\\"Q3\\\"\","
+        + "\"start\":\"2025-06-02T10:00\",\"end\":\"2025-06-02T11:30\",\"allDay\":false,"
+        + "\"description\":null,\"location\":null,\"status\":\"private\",\"seriesId\":null}";
+    assertEquals(json, created.body());
+    assertEquals("[" + json + "]", send("GET", "/Work/events?date=2025-06-02", null).body());
+    assertEquals("[" + json + "]",
+        send("GET", "/Work/events?from=2025-06-02T11:00&to=2025-06-03T00:00", null).body());
+    assertEquals("[]", send("GET", "/Work/events?date=2025-06-03", null).body());
+    assertEquals(json, send("GET", "/Work/events/" + event.getId(), null).body());
+    assertEquals("{\"busy\":true}", send("GET", "/Work/busy?at=2025-06-02T10:15", null).body());
+    assertEquals("[{\"name\":\"Work\",\"timezone\":\"America/New_York\"}]",
+        send("GET", "", null).body());
+  }
+
+  @Test
+  public void testConditionalGet() throws Exception {
+    HttpResponse<String> first = send("GET", "/Work/events?date=2025-06-02", null);
+    String etag = first.headers().firstValue("ETag").get();
+
+    HttpResponse<String> unchanged = client.send(request("GET", "/Work/events?date=2025-06-02",
+        null).header("If-None-Match", etag).build(), HttpResponse.BodyHandlers.ofString());
+    assertEquals(304, unchanged.statusCode());
+    assertEquals("", unchanged.body());
+
+    HttpResponse<String> created = send("POST", "/Work/events",
+        "{\"subject\":\"Sync\",\"start\":\"2025-06-05T09:00\",\"end\":\"2025-06-05T09:30\"}");
+    String newEtag = created.headers().firstValue("ETag").get();
+    assertNotEquals(etag, newEtag);
+
+    HttpResponse<String> changed = client.send(request("GET", "/Work/events?date=2025-06-02",
+        null).header("If-None-Match", etag).build(), HttpResponse.BodyHandlers.ofString());
+    assertEquals(200, changed.statusCode());
+    assertEquals(newEtag, changed.headers().firstValue("ETag").get());
+  }
+
+  @Test
+  public void testConnectionStaysOpenAfterNotModified() throws Exception {
+    String etag = send("GET", "/Work/events", null).headers().firstValue("ETag").get();
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+      Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII);
+      BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+          StandardCharsets.US_ASCII));
+      out.write("GET /calendars/Work/events HTTP/1.1\r\nHost: test\r\nIf-None-Match: "
+          + etag + "\r\n\r\n");
+      out.flush();
+      assertEquals("HTTP/1.1 304 Not Modified", in.readLine());
+      while (!in.readLine().isEmpty()) {
+        // Skip the headers.
+      }
+      out.write("GET /calendars/Work/busy?at=2025-06-02T10:00 HTTP/1.1\r\nHost: test\r\n\r\n");
+      out.flush();
+      assertEquals("HTTP/1.1 200 OK", in.readLine());
+    }
+  }
+
+  @Test
+  public void testEditSeriesByScope() throws Exception {
+    new Controller(manager.withCurrentCalendar(manager.getCalendar("Work")),
+        new ConsoleView(new StringBuilder()), new CommandParser(), new StringReader(
+            "create event Standup from 2025-06-02T09:00 to 2025-06-02T09:15 repeats MTWRF"
+                + " for 5 times\nexit\n"), false).run();
+    List<EventInterface> week = model().getEventsInRange(LocalDateTime.of(2025, 6, 2, 0, 0),
+        LocalDateTime.of(2025, 6, 7, 0, 0));
+    assertEquals(5, week.size());
+
+    assertEquals(204, send("PATCH", "/Work/events/" + week.get(2).getId() + "?scope=following",
+        "{\"location\":\"Room 2\"}").statusCode());
+    assertEquals(204, send("PATCH", "/Work/events/" + week.get(0).getId(),
+        "{\"subject\":\"Kickoff\"}").statusCode());
+    assertEquals("Kickoff", model().getEventsOnDate(LocalDate.of(2025, 6, 2)).get(0)
+        .getSubject());
+    assertEquals("Standup", model().getEventsOnDate(LocalDate.of(2025, 6, 3)).get(0)
+        .getSubject());
+    assertTrue(model().getEventsOnDate(LocalDate.of(2025, 6, 3)).get(0).getLocation()
+        .isEmpty());
+    assertEquals("Room 2", model().getEventsOnDate(LocalDate.of(2025, 6, 6)).get(0)
+        .getLocation().get());
+  }
+
+  @Test
+  public void testErrors() throws Exception {
+    HttpResponse<String> missing = send("GET", "/Home/events", null);
+    assertEquals(404, missing.statusCode());
+    assertEquals("{\"error\":\"Calendar not found: Home\"}", missing.body());
+    assertEquals(400, send("GET", "/Work/events?date=June", null).statusCode());
+    assertEquals(400, send("GET", "/Work/events?from=2025-06-02T10:00", null).statusCode());
+    assertEquals(400, send("POST", "/Work/events", "{\"subject\":\"x\"").statusCode());
+    assertEquals(400, send("POST", "/Work/events",
+        "{\"subject\":\"x\",\"start\":\"2025-06-02T10:00\"}").statusCode());
+    assertEquals(404, send("GET", "/Work/events/not-an-id", null).statusCode());
+    assertEquals(405, send("DELETE", "/Work/events", null).statusCode());
+
+    String body = "{\"subject\":\"Sync\",\"start\":\"2025-06-05T09:00\","
+        + "\"end\":\"2025-06-05T09:30\"}";
+    assertEquals(201, send("POST", "/Work/events", body).statusCode());
+    assertEquals(409, send("POST", "/Work/events", body).statusCode());
+    assertEquals(1, model().getAllEvents().size());
+
+    assertEquals(400, send("POST", "", "{\"name\":\"Home\",\"timezone\":\"Mars/Base\"}")
+        .statusCode());
+    assertEquals(201, send("POST", "", "{\"name\":\"Home\",\"timezone\":\"UTC\"}")
+        .statusCode());
+    assertEquals(409, send("POST", "", "{\"name\":\"Home\",\"timezone\":\"UTC\"}")
+        .statusCode());
+    assertEquals(200, send("GET", "/Home/events", null).statusCode());
+  }
+
+  @Test
+  public void testCalendarsAreFoundWhileOthersAreCreated() throws Exception {
+    List<CompletableFuture<HttpResponse<String>>> creates = new ArrayList<>();
+    List<CompletableFuture<HttpResponse<String>>> reads = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      creates.add(client.sendAsync(request("POST", "",
+          "{\"name\":\"C" + i + "\",\"timezone\":\"UTC\"}").build(),
+          HttpResponse.BodyHandlers.ofString()));
+      reads.add(client.sendAsync(request("GET", "/Work/events", null).build(),
+          HttpResponse.BodyHandlers.ofString()));
+    }
+    for (CompletableFuture<HttpResponse<String>> create : creates) {
+      assertEquals(201, create.get().statusCode());
+    }
+    for (CompletableFuture<HttpResponse<String>> read : reads) {
+      assertEquals(200, read.get().statusCode());
+    }
+    for (int i = 0; i < 100; i++) {
+      assertEquals(200, send("GET", "/C" + i + "/events", null).statusCode());
+    }
+  }
+
+  @Test
+  public void testJsonWriterEscapesAndSeparates() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    JsonWriter json = new JsonWriter(bytes);
+    json.beginObject()
+        .name("text").value("tab\there \"quoted\" back\\slash \u0001 caf\u00e9 \ud83d\ude00")
+        .name("numbers").beginArray().value(0).value(-42).value(Long.MAX_VALUE).endArray()
+        .name("when").value(LocalDateTime.of(2025, 1, 2, 3, 4))
+        .name("empty").beginObject().endObject()
+        .name("none").nullValue()
+        .endObject()
+        .flush();
+    assertEquals("{\"text\":\"tab\\there \\\"quoted\\\" back\\\\slash \\u0001 caf\u00e9 "
+        + "\ud83d\ude00\",\"numbers\":[0,-42,9223372036854775807],"
+        + "\"when\":\"2025-01-02T03:04\",\"empty\":{},\"none\":null}",
+        bytes.toString(StandardCharsets.UTF_8));
+  }
+
+  private CalendarModelInterface model() {
+    return manager.getCalendar("Work").getModel();
+  }
+
+  private HttpRequest.Builder request(String method, String path, String body) {
+    return HttpRequest.newBuilder(URI.create(base + path)).method(method,
+        (body == null) ? HttpRequest.BodyPublishers.noBody()
+            : HttpRequest.BodyPublishers.ofString(body));
+  }
+
+  private HttpResponse<String> send(String method, String path, String body) throws Exception {
+    return client.send(request(method, path, body).build(),
+        HttpResponse.BodyHandlers.ofString());
+  }
+}
@@ -0,0 +1,141 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Benchmark harness for HTTP mode. Runs many clients at once against a running
+ * server and reports requests per second and latency percentiles.
+ *
+ * <p>Usage: {@code HttpLoadGenerator [port] [clients] [requests-per-client]}
+ * (defaults 8080, 64 and 2000). All clients work in one new calendar. Each client
+ * sends, in turn: a day query, the same query again with the ETag it got (answered
+ * with 304 unless the calendar changed in between), a busy check, and a range
+ * query, replaced every tenth round by an event creation. The number of 304
+ * answers is reported too.
+ */
+public class HttpLoadGenerator {
+
+  /**
+   * Runs the load.
+   *
+   * @param args port, number of clients and requests per client
+   * @throws Exception if the run is interrupted
+   */
+  public static void main(String[] args) throws Exception {
+    int port = (args.length > 0) ? Integer.parseInt(args[0]) : 8080;
+    int clients = (args.length > 1) ? Integer.parseInt(args[1]) : 64;
+    int requests = (args.length > 2) ? Integer.parseInt(args[2]) : 2000;
+    String calendar = "Load-" + Long.toString(System.currentTimeMillis(), 36);
+    String base = "http://127.0.0.1:" + port + "/calendars/" + calendar;
+    HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    HttpResponse<String> created = http.send(HttpRequest.newBuilder(
+        URI.create("http://127.0.0.1:" + port + "/calendars"))
+        .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"" + calendar
+            + "\",\"timezone\":\"UTC\"}")).build(), HttpResponse.BodyHandlers.ofString());
+    if (created.statusCode() != 201) {
+      throw new IllegalStateException("Could not create calendar: " + created.body());
+    }
+
+    long[][] latencies = new long[clients][requests];
+    int[] notModified = new int[clients];
+    Throwable[] failures = new Throwable[clients];
+    CountDownLatch start = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(clients);
+    for (int i = 0; i < clients; i++) {
+      int client = i;
+      Thread thread = new Thread(() -> {
+        try {
+          start.await();
+          notModified[client] = runClient(http, base, client, latencies[client]);
+        } catch (Exception | Error e) {
+          failures[client] = e;
+        } finally {
+          done.countDown();
+        }
+      }, "http-load-" + i);
+      thread.start();
+    }
+
+    long begin = System.nanoTime();
+    start.countDown();
+    done.await();
+    long elapsed = System.nanoTime() - begin;
+
+    for (Throwable failure : failures) {
+      if (failure != null) {
+        System.err.println("A client failed: " + failure);
+        break;
+      }
+    }
+    long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream)
+        .filter(latency -> latency > 0).sorted().toArray();
+    System.out.printf("clients=%d requests=%d notModified=%d elapsed=%.2fs%n", clients,
+        all.length, Arrays.stream(notModified).sum(), elapsed / 1e9);
+    System.out.printf("throughput=%.0f requests/s%n", all.length / (elapsed / 1e9));
+    System.out.printf("latency p50=%.2fms p99=%.2fms max=%.2fms%n", percentile(all, 50),
+        percentile(all, 99), (all.length == 0) ? 0 : all[all.length - 1] / 1e6);
+  }
+
+  /**
+   * Sends one client's requests.
+   *
+   * @return the number of 304 answers
+   */
+  private static int runClient(HttpClient http, String base, int client, long[] latencies)
+      throws Exception {
+    int notModified = 0;
+    String etag = null;
+    for (int i = 0; i < latencies.length; i++) {
+      String date = String.format("2025-%02d-%02d", 1 + i / 4 % 12, 1 + i / 4 % 28);
+      HttpRequest.Builder request;
+      switch (i % 4) {
+        case 0:
+          request = HttpRequest.newBuilder(URI.create(base + "/events?date=" + date));
+          break;
+        case 1:
+          request = HttpRequest.newBuilder(URI.create(base + "/events?date=" + date));
+          if (etag != null) {
+            request.header("If-None-Match", etag);
+          }
+          break;
+        case 2:
+          request = HttpRequest.newBuilder(URI.create(base + "/busy?at=" + date + "T09:30"));
+          break;
+        default:
+          if (i % 40 != 3) {
+            request = HttpRequest.newBuilder(URI.create(base + "/events?from=" + date
+                + "T00:00&to=" + date + "T23:59"));
+            break;
+          }
+          request = HttpRequest.newBuilder(URI.create(base + "/events"))
+              .header("Content-Type", "application/json")
+              .POST(HttpRequest.BodyPublishers.ofString("{\"subject\":\"Load " + client + "-"
+                  + i + "\",\"start\":\"" + date + "T09:00\",\"end\":\"" + date + "T10:00\"}"));
+          break;
+      }
+      long sent = System.nanoTime();
+      HttpResponse<byte[]> response = http.send(request.build(),
+          HttpResponse.BodyHandlers.ofByteArray());
+      latencies[i] = System.nanoTime() - sent;
+      if (response.statusCode() == 304) {
+        notModified++;
+      } else if (response.statusCode() >= 400) {
+        throw new IllegalStateException(response.statusCode() + ": "
+            + new String(response.body()));
+      }
+      etag = response.headers().firstValue("ETag").orElse(etag);
+    }
+    return notModified;
+  }
+
+  private static double percentile(long[] sorted, int percent) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+    return sorted[Math.max(0, index)] / 1e6;
+  }
+}
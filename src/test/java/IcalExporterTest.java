@@ -0,0 +1,102 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import calendar.model.CalendarModel;
+import calendar.model.CalendarModelInterface;
+import calendar.model.EditSpec;
+import calendar.model.Event;
+import calendar.model.EventInterface;
+import calendar.model.EventSeries;
+import calendar.util.IcalExporter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Test;
+
+/**
+ * Tests for IcalExporter, including the recurrence-rule encoding of series.
+ */
+public class IcalExporterTest {
+
+  @Test
+  public void testSeriesIsWrittenAsRecurrenceRule() throws IOException {
+    CalendarModelInterface model = new CalendarModel();
+    UUID seriesId = UUID.randomUUID();
+    EventInterface template = new Event("Standup", LocalDateTime.of(2025, 3, 3, 9, 0),
+        LocalDateTime.of(2025, 3, 3, 9, 15), null, null, false, UUID.randomUUID(), seriesId);
+    model.createEventSeries(new EventSeries(seriesId, template,
+        EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY), LocalDate.of(2025, 3, 26), null,
+        true));
+    model.editEvent(model.getEventsOnDate(LocalDate.of(2025, 3, 5)).get(0).getId(),
+        EditSpec.builder().location("Room 2").build());
+    model.editEvent(model.getEventsOnDate(LocalDate.of(2025, 3, 10)).get(0).getId(),
+        EditSpec.builder().start(LocalDateTime.of(2025, 3, 11, 9, 0)).build());
+
+    String ical = export(model, ZoneId.of("America/New_York"));
+    List<String> lines = Arrays.asList(ical.split("\r\n"));
+
+    assertTrue(lines.contains("RRULE:FREQ=WEEKLY;BYDAY=MO,WE;UNTIL=20250326T130000Z"));
+    assertTrue(lines.contains("DTSTART;TZID=America/New_York:20250303T090000"));
+    assertTrue(lines.contains("EXDATE;TZID=America/New_York:20250310T090000"));
+    assertTrue(lines.contains("RECURRENCE-ID;TZID=America/New_York:20250305T090000"));
+    assertTrue(lines.contains("LOCATION:Room 2"));
+    assertTrue("Detached occurrence is exported on its own",
+        lines.contains("DTSTART:20250311T130000Z"));
+    assertEquals(3, count(lines, "BEGIN:VEVENT"));
+    assertTrue(lines.contains("RRULE:FREQ=YEARLY;BYMONTH=3;BYDAY=2SU"));
+    assertTrue(lines.contains("RRULE:FREQ=YEARLY;BYMONTH=11;BYDAY=1SU"));
+  }
+
+  @Test
+  public void testEditedTailOfSeriesGetsItsOwnRule() throws IOException {
+    CalendarModelInterface model = new CalendarModel();
+    UUID seriesId = UUID.randomUUID();
+    EventInterface template = new Event("Class", LocalDateTime.of(2025, 1, 6, 18, 0),
+        LocalDateTime.of(2025, 1, 6, 19, 0), null, null, false, UUID.randomUUID(), seriesId);
+    model.createEventSeries(new EventSeries(seriesId, template, EnumSet.of(DayOfWeek.MONDAY),
+        null, 6, false));
+    model.editSeriesFrom(seriesId, LocalDate.of(2025, 1, 27),
+        EditSpec.builder().location("Gym").build());
+
+    List<String> lines = Arrays.asList(export(model, ZoneId.of("UTC")).split("\r\n"));
+    assertEquals(2, count(lines, "BEGIN:VEVENT"));
+    assertEquals(2, count(lines, "X-SERIES-ID:" + seriesId));
+    assertTrue(lines.contains("RRULE:FREQ=WEEKLY;BYDAY=MO;UNTIL=20250120T180000Z"));
+    assertTrue(lines.contains("RRULE:FREQ=WEEKLY;BYDAY=MO;UNTIL=20250210T180000Z"));
+  }
+
+  @Test
+  public void testLongTextIsEscapedAndFoldedByOctets() {
+    String subject = "Caf\u00e9, r\u00e9sum\u00e9; notes\n" + "\u00e9".repeat(60);
+    EventInterface event = new Event(subject, LocalDateTime.of(2025, 6, 1, 10, 0),
+        LocalDateTime.of(2025, 6, 1, 11, 0), null, null, true, UUID.randomUUID(), null);
+    String ical = IcalExporter.toIcal(List.of(event), "Work", ZoneId.of("UTC"));
+
+    for (String line : ical.split("\r\n")) {
+      assertTrue(line.getBytes(StandardCharsets.UTF_8).length <= 75);
+      assertFalse(line.contains("\ufffd"));
+    }
+    String unfolded = ical.replace("\r\n ", "");
+    assertTrue(unfolded.contains("SUMMARY:Caf\u00e9\\, r\u00e9sum\u00e9\\; notes\\n\u00e9\u00e9"));
+    assertTrue(unfolded.contains("CLASS:PRIVATE"));
+  }
+
+  private String export(CalendarModelInterface model, ZoneId zone) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    IcalExporter.write(model, "Work", zone, out);
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  private long count(List<String> lines, String line) {
+    return lines.stream().filter(line::equals).count();
+  }
+}
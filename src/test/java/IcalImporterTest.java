@@ -0,0 +1,149 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import calendar.model.CalendarModel;
+import calendar.model.CalendarModelInterface;
+import calendar.model.EditSpec;
+import calendar.model.Event;
+import calendar.model.EventInterface;
+import calendar.model.EventSeries;
+import calendar.util.IcalExporter;
+import calendar.util.IcalImporter;
+import calendar.util.ImportResult;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+/**
+ * Tests for IcalImporter, including the mapping of recurrence rules to series.
+ */
+public class IcalImporterTest {
+
+  private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+  @Test
+  public void testRoundTripWithExporter() throws IOException {
+    CalendarModelInterface model = new CalendarModel();
+    model.createEvent(new Event("Review, \"final\"; part 2", LocalDateTime.of(2025, 3, 4, 13, 0),
+        LocalDateTime.of(2025, 3, 4, 14, 30), "Line one\nLine two \\ caf\u00e9",
+        "Room 1", true, UUID.randomUUID(), null));
+    UUID seriesId = UUID.randomUUID();
+    EventInterface template = new Event("Standup", LocalDateTime.of(2025, 3, 3, 9, 0),
+        LocalDateTime.of(2025, 3, 3, 9, 15), null, null, false, UUID.randomUUID(), seriesId);
+    model.createEventSeries(new EventSeries(seriesId, template,
+        EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY), null, 10, false));
+    model.editEvent(model.getEventsOnDate(LocalDate.of(2025, 3, 5)).get(0).getId(),
+        EditSpec.builder().location("Room 2").build());
+    model.editEvent(model.getEventsOnDate(LocalDate.of(2025, 3, 10)).get(0).getId(),
+        EditSpec.builder().start(LocalDateTime.of(2025, 3, 11, 9, 0)).build());
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    IcalExporter.write(model, "Work", NEW_YORK, out);
+    CalendarModelInterface imported = new CalendarModel();
+    ImportResult result = IcalImporter.importIcal(
+        new StringReader(out.toString(StandardCharsets.UTF_8)), imported, NEW_YORK);
+
+    assertEquals(0, result.getErrorCount());
+    assertEquals(1, result.getSeries());
+    assertEquals(describe(model), describe(imported));
+  }
+
+  @Test
+  public void testTimesAreConvertedToCalendarZone() throws IOException {
+    String ics = "BEGIN:VCALENDAR\r\n"
+        + "BEGIN:VEVENT\r\n"
+        + "UID:weekly@example.com\r\n"
+        + "DTSTART;TZID=America/New_York:20250303T090000\r\n"
+        + "DTEND;TZID=America/New_York:20250303T100000\r\n"
+        + "RRULE:FREQ=WEEKLY;BYDAY=MO,WE;COUNT=6\r\n"
+        + "EXDATE;TZID=America/New_York:20250312T090000\r\n"
+        + "SUMMARY:Sync with a very long title that is folded onto a second line by th\r\n"
+        + " e exporter\r\n"
+        + "BEGIN:VALARM\r\n"
+        + "TRIGGER:-PT15M\r\n"
+        + "END:VALARM\r\n"
+        + "END:VEVENT\r\n"
+        + "BEGIN:VEVENT\r\n"
+        + "UID:single@example.com\r\n"
+        + "DTSTART:20250601T230000Z\r\n"
+        + "DURATION:PT2H\r\n"
+        + "SUMMARY:Late call\r\n"
+        + "CLASS:PRIVATE\r\n"
+        + "END:VEVENT\r\n"
+        + "END:VCALENDAR\r\n";
+    CalendarModelInterface model = new CalendarModel();
+    ImportResult result = IcalImporter.importIcal(new StringReader(ics), model,
+        ZoneId.of("Europe/London"));
+
+    assertEquals(0, result.getErrorCount());
+    assertEquals(1, result.getSeries());
+    assertEquals(1, result.getImported());
+    List<String> starts = model.getAllEvents().stream()
+        .map(e -> e.getStartDateTime().toString()).collect(Collectors.toList());
+    assertEquals(List.of("2025-03-03T14:00", "2025-03-05T14:00", "2025-03-10T13:00",
+        "2025-03-17T13:00", "2025-03-19T13:00", "2025-06-02T00:00"), starts);
+    EventInterface late = model.getAllEvents().get(5);
+    assertEquals(LocalDateTime.of(2025, 6, 2, 2, 0), late.getEndDateTime());
+    assertTrue(late.isPrivate());
+    assertEquals("Sync with a very long title that is folded onto a second line by the exporter",
+        model.getAllEvents().get(0).getSubject());
+  }
+
+  @Test
+  public void testUnsupportedEventsAreReported() throws IOException {
+    String ics = "BEGIN:VCALENDAR\n"
+        + "X-WR-TIMEZONE:America/New_York\n"
+        + "BEGIN:VEVENT\n"
+        + "UID:monthly\n"
+        + "DTSTART:20250301T090000\n"
+        + "DTEND:20250301T100000\n"
+        + "RRULE:FREQ=MONTHLY;BYMONTHDAY=1\n"
+        + "SUMMARY:Monthly\n"
+        + "END:VEVENT\n"
+        + "BEGIN:VEVENT\n"
+        + "SUMMARY:No start\n"
+        + "END:VEVENT\n"
+        + "BEGIN:VEVENT\n"
+        + "DTSTART;VALUE=DATE:20250310\n"
+        + "DTEND;VALUE=DATE:20250312\n"
+        + "SUMMARY:Offsite\n"
+        + "END:VEVENT\n"
+        + "BEGIN:VEVENT\n"
+        + "DTSTART:20250320T090000\n"
+        + "DTEND:20250320T093000\n"
+        + "SUMMARY:Floating\n"
+        + "END:VEVENT\n"
+        + "END:VCALENDAR\n";
+    CalendarModelInterface model = new CalendarModel();
+    ImportResult result = IcalImporter.importIcal(new StringReader(ics), model,
+        ZoneId.of("America/Chicago"));
+
+    assertEquals(2, result.getImported());
+    assertEquals(2, result.getErrorCount());
+    assertEquals("line 10: missing DTSTART", result.getErrors().get(0));
+    assertTrue(result.getErrors().get(1).startsWith("line 3: unsupported recurrence rule"));
+    EventInterface offsite = model.getAllEvents().get(0);
+    assertEquals(LocalDateTime.of(2025, 3, 10, 8, 0), offsite.getStartDateTime());
+    assertEquals(LocalDateTime.of(2025, 3, 11, 17, 0), offsite.getEndDateTime());
+    assertEquals(LocalDateTime.of(2025, 3, 20, 8, 0),
+        model.getAllEvents().get(1).getStartDateTime());
+  }
+
+  private static List<String> describe(CalendarModelInterface model) {
+    return model.getAllEvents().stream()
+        .map(e -> e.getSubject() + "|" + e.getStartDateTime() + "|" + e.getEndDateTime() + "|"
+            + e.getDescription().orElse(null) + "|" + e.getLocation().orElse(null) + "|"
+            + e.isPrivate())
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,179 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import calendar.model.CalendarInterface;
+import calendar.model.CalendarManager;
+import calendar.model.EditSpec;
+import calendar.model.Event;
+import calendar.model.EventInterface;
+import calendar.model.EventSeries;
+import calendar.persistence.Journal;
+import calendar.persistence.SyncPolicy;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the write-ahead journal: recording, replay and torn-tail recovery.
+ */
+public class JournalTest {
+  private Path file;
+
+  /**
+   * Creates a fresh journal file.
+   */
+  @Before
+  public void setUp() throws IOException {
+    file = Files.createTempFile("calendar", ".wal");
+    Files.delete(file);
+  }
+
+  /**
+   * Removes the journal file.
+   */
+  @After
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Test
+  public void testReplayRebuildsCalendarsAndEvents() throws IOException {
+    try (Journal journal = Journal.open(file, SyncPolicy.ALWAYS)) {
+      CalendarManager manager = new CalendarManager(journal.calendarFactory());
+      manager.createCalendar("Work", ZoneId.of("America/New_York"));
+      manager.createCalendar("Home", ZoneId.of("Europe/Paris"));
+      manager.editCalendarName("Home", "Personal");
+      CalendarInterface work = manager.getCalendar("Work");
+      UUID id = UUID.randomUUID();
+      work.getModel().createEvent(new Event("Standup", LocalDateTime.of(2025, 5, 5, 9, 0),
+          LocalDateTime.of(2025, 5, 5, 9, 30), null, null, false, id, null));
+      work.getModel().editEvent(id, EditSpec.builder().location("Room 1").build());
+    }
+
+    CalendarManager recovered = recover();
+    assertNull(recovered.getCalendar("Home"));
+    assertNotNull(recovered.getCalendar("Personal"));
+    List<EventInterface> events = recovered.getCalendar("Work").getModel().getAllEvents();
+    assertEquals(1, events.size());
+    assertEquals("Room 1", events.get(0).getLocation().orElse(null));
+  }
+
+  @Test
+  public void testReplayReproducesSeriesSplits() throws IOException {
+    UUID splitId;
+    try (Journal journal = Journal.open(file, SyncPolicy.BATCH)) {
+      CalendarManager manager = new CalendarManager(journal.calendarFactory());
+      manager.createCalendar("Work", ZoneId.of("UTC"));
+      CalendarInterface work = manager.getCalendar("Work");
+      UUID seriesId = UUID.randomUUID();
+      EventInterface template = new Event("Sync", LocalDateTime.of(2025, 5, 5, 10, 0),
+          LocalDateTime.of(2025, 5, 5, 11, 0), null, null, false, UUID.randomUUID(), seriesId);
+      work.getModel().createEventSeries(new EventSeries(seriesId, template,
+          EnumSet.of(DayOfWeek.MONDAY), null, 6, false));
+      work.getModel().editSeriesFrom(seriesId, LocalDate.of(2025, 5, 19),
+          EditSpec.builder().start(LocalDateTime.of(2025, 5, 19, 14, 0)).build());
+      splitId = work.getModel().getEventsOnDate(LocalDate.of(2025, 5, 26)).get(0)
+          .getSeriesId().get();
+    }
+
+    CalendarInterface work = recover().getCalendar("Work");
+    EventInterface moved = work.getModel().getEventsOnDate(LocalDate.of(2025, 5, 26)).get(0);
+    assertEquals(14, moved.getStartDateTime().getHour());
+    assertEquals(splitId, moved.getSeriesId().get());
+    assertEquals(6, work.getModel().getAllEvents().size());
+  }
+
+  @Test
+  public void testReplayReproducesBatchEdits() throws IOException {
+    try (Journal journal = Journal.open(file, SyncPolicy.BATCH)) {
+      CalendarManager manager = new CalendarManager(journal.calendarFactory());
+      manager.createCalendar("Work", ZoneId.of("UTC"));
+      CalendarInterface work = manager.getCalendar("Work");
+      UUID seriesId = UUID.randomUUID();
+      work.getModel().createEventSeries(new EventSeries(seriesId, new Event("Sync",
+          LocalDateTime.of(2025, 5, 5, 10, 0), LocalDateTime.of(2025, 5, 5, 11, 0), null, null,
+          false, UUID.randomUUID(), seriesId), EnumSet.of(DayOfWeek.MONDAY), null, 3, false));
+      work.getModel().createEvent(new Event("Call", LocalDateTime.of(2025, 5, 6, 10, 0),
+          LocalDateTime.of(2025, 5, 6, 11, 0), null, null, false, UUID.randomUUID(), null));
+      assertTrue(work.getModel().editEvents(work.getModel().getAllEvents(),
+          EditSpec.builder().location("Lab").build()));
+    }
+
+    List<EventInterface> events = recover().getCalendar("Work").getModel().getAllEvents();
+    assertEquals(4, events.size());
+    for (EventInterface event : events) {
+      assertEquals("Lab", event.getLocation().orElse(null));
+    }
+  }
+
+  @Test
+  public void testTimezoneChangeIsReplayedOnce() throws IOException {
+    try (Journal journal = Journal.open(file, SyncPolicy.NEVER)) {
+      CalendarManager manager = new CalendarManager(journal.calendarFactory());
+      manager.createCalendar("Work", ZoneId.of("America/New_York"));
+      manager.getCalendar("Work").getModel().createEvent(new Event("Call",
+          LocalDateTime.of(2025, 1, 6, 10, 0), LocalDateTime.of(2025, 1, 6, 11, 0),
+          null, null, false, UUID.randomUUID(), null));
+      manager.editCalendarTimezone("Work", ZoneId.of("Europe/Paris"));
+    }
+
+    CalendarInterface work = recover().getCalendar("Work");
+    assertEquals(ZoneId.of("Europe/Paris"), work.getTimezone());
+    assertEquals(16, work.getModel().getAllEvents().get(0).getStartDateTime().getHour());
+  }
+
+  @Test
+  public void testTornTailIsTruncated() throws IOException {
+    try (Journal journal = Journal.open(file, SyncPolicy.ALWAYS)) {
+      CalendarManager manager = new CalendarManager(journal.calendarFactory());
+      manager.createCalendar("Work", ZoneId.of("UTC"));
+      manager.createCalendar("Home", ZoneId.of("UTC"));
+    }
+    long intact = Files.size(file);
+    try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+      raf.seek(intact - 1);
+      raf.write(0x5A);
+      raf.write(new byte[] {0, 0, 0, 40, 1, 2});
+    }
+
+    CalendarManager recovered = recover();
+    assertNotNull(recovered.getCalendar("Work"));
+    assertNull("Corrupt record must not be replayed", recovered.getCalendar("Home"));
+    assertTrue(Files.size(file) < intact);
+  }
+
+  @Test
+  public void testRejectedMutationIsNotJournaled() throws IOException {
+    try (Journal journal = Journal.open(file, SyncPolicy.ALWAYS)) {
+      CalendarManager manager = new CalendarManager(journal.calendarFactory());
+      manager.createCalendar("Work", ZoneId.of("UTC"));
+      manager.createCalendar("work", ZoneId.of("UTC"));
+      manager.getCalendar("Work").getModel().editEvent(UUID.randomUUID(),
+          EditSpec.builder().subject("Nothing").build());
+    }
+    try (Journal journal = Journal.open(file, SyncPolicy.ALWAYS)) {
+      assertEquals(1, journal.replay(new CalendarManager(journal.calendarFactory())));
+    }
+  }
+
+  private CalendarManager recover() throws IOException {
+    try (Journal journal = Journal.open(file, SyncPolicy.ALWAYS)) {
+      CalendarManager manager = new CalendarManager(journal.calendarFactory());
+      journal.replay(manager);
+      return manager;
+    }
+  }
+}
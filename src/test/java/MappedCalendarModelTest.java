@@ -0,0 +1,142 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import calendar.model.CalendarModel;
+import calendar.model.EditSpec;
+import calendar.model.Event;
+import calendar.model.EventInterface;
+import calendar.model.EventSeries;
+import calendar.persistence.MappedCalendarModel;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the memory-mapped event store.
+ */
+public class MappedCalendarModelTest {
+  private Path file;
+
+  /**
+   * Creates a fresh store file name.
+   */
+  @Before
+  public void setUp() throws IOException {
+    file = Files.createTempFile("calendar", ".store");
+    Files.delete(file);
+  }
+
+  /**
+   * Removes the store file.
+   */
+  @After
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Test
+  public void testQueriesMatchHeapModelAfterReopen() throws IOException {
+    CalendarModel heap = new CalendarModel();
+    try (MappedCalendarModel store = MappedCalendarModel.open(file)) {
+      for (int day = 1; day <= 200; day++) {
+        EventInterface event = event("Shift " + (day % 7), LocalDateTime.of(2025, 1, 1, 22, 0)
+            .plusDays(day), 4 + day % 3);
+        assertTrue(store.createEvent(event));
+        heap.createEvent(event);
+      }
+    }
+
+    try (MappedCalendarModel store = MappedCalendarModel.open(file)) {
+      assertEquals(200, store.getStoredEventCount());
+      assertEquals(heap.getAllEvents(), store.getAllEvents());
+      LocalDate date = LocalDate.of(2025, 3, 10);
+      assertEquals(heap.getEventsOnDate(date), store.getEventsOnDate(date));
+      LocalDateTime from = LocalDateTime.of(2025, 4, 2, 1, 0);
+      assertEquals(heap.getEventsInRange(from, from.plusDays(5)),
+          store.getEventsInRange(from, from.plusDays(5)));
+      assertEquals(heap.getEventsInRange(from, from.plusDays(5)),
+          store.streamEventsInRange(from, from.plusDays(5)).collect(Collectors.toList()));
+      assertTrue(store.isBusy(LocalDateTime.of(2025, 2, 1, 1, 0)));
+      assertFalse(store.isBusy(LocalDateTime.of(2025, 2, 1, 12, 0)));
+      assertFalse("Stored events count as duplicates",
+          store.createEvent(heap.getAllEvents().get(17)));
+    }
+  }
+
+  @Test
+  public void testEditingStoredEventPromotesItToDelta() throws IOException {
+    EventInterface first = event("Audit", LocalDateTime.of(2025, 6, 2, 9, 0), 1);
+    EventInterface second = event("Audit", LocalDateTime.of(2025, 6, 3, 9, 0), 1);
+    try (MappedCalendarModel store = MappedCalendarModel.open(file)) {
+      store.createEvent(first);
+      store.createEvent(second);
+    }
+
+    try (MappedCalendarModel store = MappedCalendarModel.open(file)) {
+      assertFalse("Edit onto another stored event is a duplicate", store.editEvent(first.getId(),
+          EditSpec.builder().start(second.getStartDateTime()).build()));
+      assertTrue(store.editEvent(first.getId(), EditSpec.builder().location("Vault").build()));
+      assertEquals("Vault", store.findEventById(first.getId()).getLocation().orElse(null));
+      assertEquals(2, store.getAllEvents().size());
+    }
+
+    try (MappedCalendarModel store = MappedCalendarModel.open(file)) {
+      assertEquals(2, store.getStoredEventCount());
+      assertEquals("Vault", store.findEventByProperties("Audit", first.getStartDateTime(),
+          first.getEndDateTime()).getLocation().orElse(null));
+    }
+  }
+
+  @Test
+  public void testSeriesEditReachesDetachedStoredOccurrences() throws IOException {
+    UUID seriesId = UUID.randomUUID();
+    try (MappedCalendarModel store = MappedCalendarModel.open(file)) {
+      EventInterface template = new Event("Sync", LocalDateTime.of(2025, 5, 5, 10, 0),
+          LocalDateTime.of(2025, 5, 5, 11, 0), null, null, false, UUID.randomUUID(), seriesId);
+      assertTrue(store.createEventSeries(new EventSeries(seriesId, template,
+          EnumSet.of(DayOfWeek.MONDAY), null, 4, false)));
+      EventInterface moved = store.getEventsOnDate(LocalDate.of(2025, 5, 12)).get(0);
+      assertTrue(store.editEvent(moved.getId(),
+          EditSpec.builder().start(LocalDateTime.of(2025, 5, 13, 10, 0)).build()));
+    }
+
+    try (MappedCalendarModel store = MappedCalendarModel.open(file)) {
+      assertEquals(1, store.getStoredEventCount());
+      assertNotNull(store.findSeriesById(seriesId));
+      assertTrue(store.editEntireSeries(seriesId, EditSpec.builder().subject("Retro").build()));
+      assertEquals("Retro",
+          store.getEventsOnDate(LocalDate.of(2025, 5, 13)).get(0).getSubject());
+      assertNull(store.findEventByProperties("Sync", LocalDateTime.of(2025, 5, 13, 10, 0),
+          LocalDateTime.of(2025, 5, 13, 11, 0)));
+      assertEquals(4, store.getAllEvents().size());
+    }
+  }
+
+  @Test
+  public void testDeltaIsMergedAfterThreshold() throws IOException {
+    try (MappedCalendarModel store = MappedCalendarModel.open(file, 3)) {
+      for (int i = 0; i < 7; i++) {
+        store.createEvent(event("Entry", LocalDateTime.of(2025, 8, 1, 8, 0).plusHours(i), 1));
+      }
+      assertEquals(6, store.getStoredEventCount());
+      assertEquals(7, store.getAllEvents().size());
+    }
+  }
+
+  private EventInterface event(String subject, LocalDateTime start, int hours) {
+    return new Event(subject, start, start.plusHours(hours), null, null, false,
+        UUID.randomUUID(), null);
+  }
+}
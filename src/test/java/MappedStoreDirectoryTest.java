@@ -0,0 +1,134 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import calendar.model.CalendarInterface;
+import calendar.model.CalendarManager;
+import calendar.model.Event;
+import calendar.model.EventInterface;
+import calendar.persistence.MappedCalendarModel;
+import calendar.persistence.MappedStoreDirectory;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for directories of memory-mapped calendar stores.
+ */
+public class MappedStoreDirectoryTest {
+  private Path directory;
+
+  /**
+   * Creates a fresh directory name.
+   */
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("calendars");
+    Files.delete(directory);
+  }
+
+  /**
+   * Removes the directory.
+   */
+  @After
+  public void tearDown() throws IOException {
+    if (!Files.exists(directory)) {
+      return;
+    }
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  @Test
+  public void testCalendarsAndEventsSurviveReopen() throws IOException {
+    MappedStoreDirectory store = MappedStoreDirectory.open(directory);
+    CalendarManager manager = new CalendarManager(store.calendarFactory());
+    assertEquals(0, store.load(manager));
+    manager.createCalendar("Work", ZoneId.of("America/New_York"));
+    manager.createCalendar("Home\tand away", ZoneId.of("Europe/Paris"));
+    CalendarInterface work = manager.getCalendar("Work");
+    assertTrue(work.getModel() instanceof MappedCalendarModel);
+    work.getModel().createEvent(event("Standup", LocalDateTime.of(2025, 3, 4, 9, 0)));
+    manager.getCalendar("Home\tand away").getModel()
+        .createEvent(event("Dinner", LocalDateTime.of(2025, 3, 4, 19, 0)));
+    assertTrue(manager.editCalendarName("Work", "Office"));
+    assertTrue(manager.editCalendarTimezone("Office", ZoneId.of("America/Chicago")));
+    store.close();
+
+    MappedStoreDirectory reopened = MappedStoreDirectory.open(directory);
+    CalendarManager restored = new CalendarManager(reopened.calendarFactory());
+    assertEquals(2, reopened.load(restored));
+    assertNull(restored.getCalendar("Work"));
+    CalendarInterface office = restored.getCalendar("Office");
+    assertEquals(ZoneId.of("America/Chicago"), office.getTimezone());
+    List<EventInterface> events = office.getModel().getEventsOnDate(LocalDate.of(2025, 3, 4));
+    assertEquals(1, events.size());
+    assertEquals("Standup", events.get(0).getSubject());
+    assertEquals(LocalDateTime.of(2025, 3, 4, 8, 0), events.get(0).getStartDateTime());
+    assertEquals(1, restored.getCalendar("Home\tand away").getModel().getAllEvents().size());
+    reopened.close();
+  }
+
+  @Test
+  public void testNewCalendarsDoNotReuseStoreFiles() throws IOException {
+    MappedStoreDirectory store = MappedStoreDirectory.open(directory);
+    CalendarManager manager = new CalendarManager(store.calendarFactory());
+    manager.createCalendar("A", ZoneId.of("UTC"));
+    manager.getCalendar("A").getModel()
+        .createEvent(event("Kept", LocalDateTime.of(2025, 1, 1, 9, 0)));
+    store.close();
+
+    MappedStoreDirectory reopened = MappedStoreDirectory.open(directory);
+    CalendarManager restored = new CalendarManager(reopened.calendarFactory());
+    reopened.load(restored);
+    assertTrue(restored.createCalendar("B", ZoneId.of("UTC")));
+    assertTrue(restored.getCalendar("B").getModel().getAllEvents().isEmpty());
+    assertEquals(1, restored.getCalendar("A").getModel().getAllEvents().size());
+    reopened.close();
+  }
+
+  @Test(expected = IOException.class)
+  public void testMalformedManifestIsRejected() throws IOException {
+    Files.createDirectories(directory);
+    Files.write(directory.resolve(MappedStoreDirectory.MANIFEST),
+        "calendar-0.store\tNot/AZone\tWork\n".getBytes(StandardCharsets.UTF_8));
+    MappedStoreDirectory.open(directory);
+  }
+
+  @Test
+  public void testUnloadedCalendarsStayInTheManifest() throws IOException {
+    MappedStoreDirectory store = MappedStoreDirectory.open(directory);
+    CalendarManager manager = new CalendarManager(store.calendarFactory());
+    manager.createCalendar("Work", ZoneId.of("UTC"));
+    store.close();
+
+    MappedStoreDirectory.open(directory).close();
+
+    MappedStoreDirectory reopened = MappedStoreDirectory.open(directory);
+    CalendarManager restored = new CalendarManager(reopened.calendarFactory());
+    assertEquals(1, reopened.load(restored));
+    assertFalse(restored.createCalendar("Work", ZoneId.of("UTC")));
+    reopened.close();
+  }
+
+  private static EventInterface event(String subject, LocalDateTime start) {
+    return new Event(subject, start, start.plusMinutes(15), null, null, false,
+        UUID.randomUUID(), null);
+  }
+}
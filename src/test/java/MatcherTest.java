@@ -17,6 +17,7 @@ import calendar.command.matchers.CreateEventSeriesFromToUntilCommandMatcher;
 import calendar.command.matchers.EditCalendarCommandMatcher;
 import calendar.command.matchers.EditEventCommandMatcher;
 import calendar.command.matchers.EditEventsCommandMatcher;
+import calendar.command.matchers.EditEventsWhereCommandMatcher;
 import calendar.command.matchers.EditSeriesCommandMatcher;
 import calendar.command.matchers.ExitCommandMatcher;
 import calendar.command.matchers.ExportCommandMatcher;
@@ -190,6 +191,18 @@ public class MatcherTest {
     assertNull("Should return null for invalid input", noMatch);
   }
 
+  @Test
+  public void testEditEventsWhereCommandMatcher() {
+    EditEventsWhereCommandMatcher matcher = new EditEventsWhereCommandMatcher();
+
+    CommandInterface cmd = matcher.tryMatch(
+        "edit events where subject is Standup and on 2025-06-01 set location \"Room A\"");
+    assertNotNull("Should return non-null command", cmd);
+
+    CommandInterface noMatch = matcher.tryMatch("edit events where subject is Standup");
+    assertNull("Should return null without set", noMatch);
+  }
+
   @Test
   public void testEditSeriesCommandMatcher() {
     EditSeriesCommandMatcher matcher = new EditSeriesCommandMatcher();
@@ -0,0 +1,58 @@
+import calendar.command.CommandInterface;
+import calendar.command.CommandParser;
+import calendar.command.NoOpCommand;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Parse throughput benchmark. Repeats the lines of a commands file up to a number
+ * of lines and times parsing them with one parser, in several rounds so the later
+ * rounds show warm throughput.
+ *
+ * <p>Usage: {@code ParserBenchmark [commands-file] [lines] [rounds]} (defaults
+ * res/commands.txt, 1000000 and 5). Each round reports its elapsed time and lines
+ * per second, and how many lines were not recognized as a command.
+ */
+public class ParserBenchmark {
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args commands file, number of lines and number of rounds
+   * @throws Exception if the commands file cannot be read
+   */
+  public static void main(String[] args) throws Exception {
+    String file = (args.length > 0) ? args[0] : "res/commands.txt";
+    int lines = (args.length > 1) ? Integer.parseInt(args[1]) : 1_000_000;
+    int rounds = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+
+    List<String> mix = Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8).stream()
+        .filter(line -> !line.trim().isEmpty()).collect(Collectors.toList());
+    if (mix.isEmpty()) {
+      throw new IllegalArgumentException("No commands in " + file);
+    }
+    String[] input = new String[lines];
+    for (int i = 0; i < lines; i++) {
+      input[i] = mix.get(i % mix.size());
+    }
+
+    CommandParser parser = new CommandParser();
+    for (int round = 1; round <= rounds; round++) {
+      int unrecognized = 0;
+      long begin = System.nanoTime();
+      for (String line : input) {
+        CommandInterface command = parser.parse(line);
+        if (command instanceof NoOpCommand) {
+          unrecognized++;
+        }
+      }
+      long elapsed = System.nanoTime() - begin;
+      System.out.printf("round=%d lines=%d elapsed=%.2fs throughput=%.0f lines/s"
+          + " unrecognized=%d%n", round, lines, elapsed / 1e9, lines / (elapsed / 1e9),
+          unrecognized);
+    }
+  }
+}
@@ -0,0 +1,190 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import calendar.util.PersistentSortedMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+/**
+ * Tests for PersistentSortedMap: every version must match a TreeMap given the
+ * same changes, and diffs must report exactly what differs.
+ */
+public class PersistentSortedMapTest {
+
+  @Test
+  public void testMatchesTreeMapAndKeepsOldVersions() {
+    Random random = new Random(7);
+    PersistentSortedMap<Integer, String> map = PersistentSortedMap.empty(Comparator.naturalOrder());
+    TreeMap<Integer, String> expected = new TreeMap<>();
+    List<PersistentSortedMap<Integer, String>> versions = new ArrayList<>();
+    List<TreeMap<Integer, String>> snapshots = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      int key = random.nextInt(500);
+      if (random.nextInt(3) == 0) {
+        map = map.remove(key);
+        expected.remove(key);
+      } else {
+        map = map.put(key, "v" + i);
+        expected.put(key, "v" + i);
+      }
+      if (i % 250 == 0) {
+        versions.add(map);
+        snapshots.add(new TreeMap<>(expected));
+      }
+    }
+    for (int v = 0; v < versions.size(); v++) {
+      assertMatches(snapshots.get(v), versions.get(v));
+    }
+    int from = 100;
+    int to = 300;
+    assertEquals(new ArrayList<>(expected.subMap(from, to).values()),
+        map.valuesBetween(from, to).collect(Collectors.toList()));
+    assertTrue(map.valuesBetween(to, from).collect(Collectors.toList()).isEmpty());
+    assertFalse(map.containsKey(-1));
+    assertNull(map.get(-1));
+    assertTrue(map.remove(-1) == map);
+  }
+
+  @Test
+  public void testDiffReportsOnlyChangedEntries() {
+    Random random = new Random(11);
+    PersistentSortedMap<Integer, String> before =
+        PersistentSortedMap.empty(Comparator.naturalOrder());
+    for (int i = 0; i < 2000; i++) {
+      before = before.put(random.nextInt(4000), "v" + i);
+    }
+    PersistentSortedMap<Integer, String> after = before;
+    for (int i = 0; i < 50; i++) {
+      int key = random.nextInt(4000);
+      after = (i % 2 == 0) ? after.remove(key) : after.put(key, "w" + i);
+    }
+
+    TreeMap<Integer, String> old = toTreeMap(before);
+    TreeMap<Integer, String> changed = toTreeMap(after);
+    List<String> expected = new ArrayList<>();
+    for (Integer key : union(old, changed)) {
+      String a = old.get(key);
+      String b = changed.get(key);
+      if (b == null) {
+        expected.add("-" + a);
+      } else if (a == null) {
+        expected.add("+" + b);
+      } else if (!a.equals(b)) {
+        expected.add(a + ">" + b);
+      }
+    }
+    assertEquals(expected, diff(before, after));
+    assertTrue(diff(after, after).isEmpty());
+  }
+
+  @Test
+  public void testMapsWithTheSameEntriesHaveNoDiff() {
+    Integer[] keys = new Integer[300];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = 1000 + i;
+    }
+    PersistentSortedMap<Integer, String> up = PersistentSortedMap.empty(Comparator.naturalOrder());
+    PersistentSortedMap<Integer, String> down =
+        PersistentSortedMap.empty(Comparator.naturalOrder());
+    for (int i = 0; i < keys.length; i++) {
+      up = up.put(keys[i], "x");
+      down = down.put(keys[keys.length - 1 - i], "x");
+    }
+    assertTrue(diff(up, down).isEmpty());
+    assertEquals(List.of("+y"), diff(up, down.put(0, "y")));
+    assertEquals(List.of("-x"), diff(up, down.remove(keys[150])));
+  }
+
+  @Test
+  public void testBulkChangesMatchSingleChanges() {
+    Random random = new Random(13);
+    PersistentSortedMap<Integer, String> map = PersistentSortedMap.empty(Comparator.naturalOrder());
+    PersistentSortedMap<Integer, String> single = map;
+    TreeMap<Integer, String> expected = new TreeMap<>();
+    for (int round = 0; round < 40; round++) {
+      PersistentSortedMap<Integer, String> before = map;
+      TreeMap<Integer, String> old = new TreeMap<>(expected);
+      List<Integer> removed = new ArrayList<>();
+      for (int i = random.nextInt(200); i > 0; i--) {
+        int key = random.nextInt(3000);
+        removed.add(key);
+        single = single.remove(key);
+        expected.remove(key);
+      }
+      map = map.removeAll(removed);
+      List<Map.Entry<Integer, String>> added = new ArrayList<>();
+      for (int i = random.nextInt(400); i > 0; i--) {
+        int key = random.nextInt(3000);
+        added.add(Map.entry(key, "r" + round + "." + i));
+        expected.put(key, "r" + round + "." + i);
+      }
+      for (Map.Entry<Integer, String> entry : added) {
+        single = single.put(entry.getKey(), entry.getValue());
+      }
+      map = map.putAll(added);
+      assertMatches(expected, map);
+      assertMatches(old, before);
+    }
+    assertTrue(diff(single, map).isEmpty());
+    assertEquals(List.of("+z"), diff(map, map.putAll(List.of(Map.entry(-1, "z")))));
+    assertMatches(expected, map.removeAll(List.of(-1, -2)));
+  }
+
+  private static void assertMatches(TreeMap<Integer, String> expected,
+                                    PersistentSortedMap<Integer, String> map) {
+    assertEquals(expected.size(), map.size());
+    assertEquals(expected.isEmpty(), map.isEmpty());
+    List<String> values = new ArrayList<>();
+    map.values().forEach(values::add);
+    assertEquals(new ArrayList<>(expected.values()), values);
+    for (Map.Entry<Integer, String> entry : expected.entrySet()) {
+      assertEquals(entry.getValue(), map.get(entry.getKey()));
+    }
+  }
+
+  private static TreeMap<Integer, String> toTreeMap(PersistentSortedMap<Integer, String> map) {
+    TreeMap<Integer, String> result = new TreeMap<>();
+    for (int key = 0; key < 4000; key++) {
+      if (map.containsKey(key)) {
+        result.put(key, map.get(key));
+      }
+    }
+    return result;
+  }
+
+  private static List<Integer> union(TreeMap<Integer, String> a, TreeMap<Integer, String> b) {
+    TreeMap<Integer, String> both = new TreeMap<>(a);
+    both.putAll(b);
+    return new ArrayList<>(both.keySet());
+  }
+
+  private static List<String> diff(PersistentSortedMap<Integer, String> before,
+                                   PersistentSortedMap<Integer, String> after) {
+    List<String> changes = new ArrayList<>();
+    PersistentSortedMap.diff(before, after, new PersistentSortedMap.Changes<String>() {
+      @Override
+      public void removed(String value) {
+        changes.add("-" + value);
+      }
+
+      @Override
+      public void added(String value) {
+        changes.add("+" + value);
+      }
+
+      @Override
+      public void replaced(String before, String after) {
+        changes.add(before + ">" + after);
+      }
+    });
+    return changes;
+  }
+}
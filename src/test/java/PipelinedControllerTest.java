@@ -0,0 +1,242 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import calendar.command.CommandParser;
+import calendar.controller.Controller;
+import calendar.controller.PipelinedController;
+import calendar.model.CalendarManager;
+import calendar.view.ConsoleView;
+import java.io.IOException;
+import java.io.StringReader;
+import org.junit.Test;
+
+/**
+ * Tests for PipelinedController: its output must match the sequential headless
+ * controller line for line.
+ */
+public class PipelinedControllerTest {
+
+  @Test
+  public void testMatchesSequentialRun() throws IOException {
+    String script = "create calendar --name Work --timezone America/New_York\n"
+        + "use calendar --name Work\n"
+        + "create event \"Team Meeting\" from 2025-06-15T14:00 to 2025-06-15T15:30\n"
+        + "create event Standup from 2025-06-01T09:00 to 2025-06-01T09:15 "
+        + "repeats MTWRF for 10 times\n"
+        + "\n   \n"
+        + "frobnicate\n"
+        + "create event Broken from 2025-06-01 to later\n"
+        + "create event \"Team Meeting\" from 2025-06-15T14:00 to 2025-06-15T15:30\n"
+        + "print events on 2025-06-03\n"
+        + "print all events\n"
+        + "exit\n";
+    assertSameOutput(script);
+  }
+
+  @Test
+  public void testLargeScriptMatchesSequentialRun() throws IOException {
+    StringBuilder script = new StringBuilder(
+        "create calendar --name Work --timezone UTC\r\nuse calendar --name Work\r\n");
+    String[] separators = {"\n", "\r\n", "\r", "\u2028", "\u0085", "\n\n"};
+    for (int i = 0; i < 5000; i++) {
+      int day = 1 + i % 28;
+      String date = String.format("2025-%02d-%02d", 1 + i % 12, day);
+      switch (i % 5) {
+        case 0:
+          script.append("create event E").append(i).append(" on ").append(date);
+          break;
+        case 1:
+          script.append("create event E").append(i % 7).append(" on ").append(date);
+          break;
+        case 2:
+          script.append("print events on ").append(date);
+          break;
+        case 3:
+          script.append("not a command ").append(i);
+          break;
+        default:
+          script.append("create event X on ").append(date).append(" repeats MW for ")
+              .append((i % 10 == 4) ? "99999999999" : "2").append(" times");
+          break;
+      }
+      script.append(separators[i % separators.length]);
+    }
+    script.append("exit");
+    assertSameOutput(script.toString());
+  }
+
+  @Test
+  public void testParallelCalendarsMatchSequentialRun() throws IOException {
+    StringBuilder script = new StringBuilder();
+    for (int c = 0; c < 4; c++) {
+      script.append("create calendar --name C").append(c).append(" --timezone UTC\n");
+    }
+    script.append("frobnicate\n");
+    for (int i = 0; i < 3000; i++) {
+      if (i % 40 == 0) {
+        script.append("use calendar --name C").append((i / 40) % 4).append('\n');
+      }
+      String date = date(i);
+      switch (i % 8) {
+        case 0:
+          script.append("create event E").append(i).append(" on ").append(date);
+          break;
+        case 1:
+          // Distinct start times: series occurrences that start together print in no
+          // fixed order, in any run.
+          script.append("create event S").append(i).append(" from ").append(date)
+              .append(String.format("T%02d:%02d to ", i / 480, i / 8 % 60)).append(date)
+              .append("T23:59 repeats MWF for 3 times");
+          break;
+        case 2:
+          script.append("print events on ").append(date);
+          break;
+        case 3:
+          script.append("create event \"Meeting ").append(i).append("\" from ").append(date)
+              .append("T09:00 to ").append(date).append("T10:00");
+          break;
+        case 4:
+          script.append("create event X on ").append(date).append(" repeats MW for ")
+              .append("99999999999 times");
+          break;
+        case 5:
+          script.append((i % 400 == 5)
+              ? "copy events on " + date(i - 5) + " --target C0 to 2026-01-01"
+              : "show status on " + date + "T10:00");
+          break;
+        case 6:
+          script.append((i % 1000 == 6)
+              ? "edit calendar --name C3 --property name C3" : "nonsense " + i);
+          break;
+        default:
+          script.append((i % 80 == 7) ? "print all events" : "print events on " + date);
+          break;
+      }
+      script.append('\n');
+    }
+    script.append("exit\n");
+    String output = assertSameOutput(script.toString());
+    assertTrue(output.contains("Created event: Meeting 2995"));
+    assertTrue(output.contains("Copied"));
+  }
+
+  @Test
+  public void testCommandStoppingOneCalendarStopsRunInOrder() throws IOException {
+    StringBuilder script = new StringBuilder(
+        "create calendar --name A --timezone UTC\ncreate calendar --name B --timezone UTC\n");
+    for (int i = 0; i < 200; i++) {
+      script.append("use calendar --name B\ncreate event B").append(i)
+          .append(" on 2025-03-01\n");
+    }
+    script.append("use calendar --name A\ncreate event Twice on 2025-03-01\n")
+        .append("create event Twice on 2025-03-01\n");
+    for (int i = 0; i < 200; i++) {
+      script.append("use calendar --name B\nprint events on 2025-03-01\n");
+    }
+    script.append("exit\n");
+    assertSameOutput(script.toString());
+    assertSameOutput("create calendar --name A --timezone UTC\nuse calendar --name A\n"
+        + "create event E on 2025-03-01\nuse calendar --name Missing\n"
+        + "print all events\nexit\n");
+  }
+
+  @Test
+  public void testNothingAfterAStopChangesCalendars() throws IOException {
+    StringBuilder script = new StringBuilder(
+        "create calendar --name A --timezone UTC\ncreate calendar --name B --timezone UTC\n"
+            + "use calendar --name A\n");
+    for (int i = 0; i < 50; i++) {
+      script.append("create event A").append(i).append(" on 2025-03-01\n");
+    }
+    script.append("create event A0 on 2025-03-01\n");
+    for (int i = 0; i < 50; i++) {
+      script.append("use calendar --name B\ncreate event B").append(i)
+          .append(" on 2025-03-01\n");
+    }
+    script.append("exit\n");
+    for (int executors = 2; executors <= 4; executors += 2) {
+      CalendarManager manager = new CalendarManager();
+      new PipelinedController(manager, new ConsoleView(new StringBuilder()),
+          new CommandParser(), new StringReader(script.toString()), 2, executors).run();
+      assertEquals(50, manager.getCalendar("A").getModel().getAllEvents().size());
+      assertTrue(manager.getCalendar("B").getModel().getAllEvents().isEmpty());
+      assertEquals("A", manager.getCurrentCalendar().getName());
+    }
+  }
+
+  @Test
+  public void testUndoInTransactionMatchesSequentialRun() throws IOException {
+    StringBuilder script = new StringBuilder(
+        "create calendar --name A --timezone UTC\ncreate calendar --name B --timezone UTC\n"
+            + "begin\n");
+    for (int i = 0; i < 20; i++) {
+      String calendar = (i % 2 == 0) ? "A" : "B";
+      script.append("use calendar --name ").append(calendar).append("\ncreate event E")
+          .append(i).append(" on 2025-03-01\n").append((i % 3 == 0) ? "undo\n" : "redo\n");
+    }
+    script.append("commit\nuse calendar --name A\nundo\nuse calendar --name B\nundo\n")
+        .append("print events on 2025-03-01\nexit\n");
+    String output = assertSameOutput(script.toString());
+    assertTrue(output.contains("Cannot undo while a transaction is open"));
+  }
+
+  @Test
+  public void testStopsAtExit() throws IOException {
+    CalendarManager manager = new CalendarManager();
+    StringBuilder out = new StringBuilder();
+    new PipelinedController(manager, new ConsoleView(out), new CommandParser(),
+        new StringReader("create calendar --name A --timezone UTC\nexit\n"
+            + "create calendar --name B --timezone UTC\n"), 2).run();
+    assertNull(manager.getCalendar("B"));
+    assertTrue(out.toString().startsWith("Calendar 'A' created"));
+  }
+
+  @Test
+  public void testMissingExitIsReported() throws IOException {
+    assertSameOutput("create calendar --name A --timezone UTC");
+    assertSameOutput("");
+  }
+
+  @Test
+  public void testRejectsNoParserThreads() {
+    try {
+      new PipelinedController(new CalendarManager(), new ConsoleView(new StringBuilder()),
+          new CommandParser(), new StringReader("exit"), 0);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      assertEquals("At least one parser thread is required", e.getMessage());
+    }
+    try {
+      new PipelinedController(new CalendarManager(), new ConsoleView(new StringBuilder()),
+          new CommandParser(), new StringReader("exit"), 1, 0);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      assertEquals("At least one executor thread is required", e.getMessage());
+    }
+  }
+
+  private static String date(int i) {
+    return String.format("2025-%02d-%02d", 1 + i % 12, 1 + i % 28);
+  }
+
+  private static String assertSameOutput(String script) throws IOException {
+    StringBuilder expected = new StringBuilder();
+    new Controller(new CalendarManager(), new ConsoleView(expected), new CommandParser(),
+        new StringReader(script), false).run();
+    for (int threads = 1; threads <= 3; threads++) {
+      StringBuilder actual = new StringBuilder();
+      new PipelinedController(new CalendarManager(), new ConsoleView(actual),
+          new CommandParser(), new StringReader(script), threads).run();
+      assertEquals(expected.toString(), actual.toString());
+    }
+    for (int executors = 2; executors <= 4; executors += 2) {
+      StringBuilder actual = new StringBuilder();
+      new PipelinedController(new CalendarManager(), new ConsoleView(actual),
+          new CommandParser(), new StringReader(script), 2, executors).run();
+      assertEquals(expected.toString(), actual.toString());
+    }
+    return expected.toString();
+  }
+}
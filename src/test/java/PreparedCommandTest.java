@@ -0,0 +1,168 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import calendar.command.CommandInterface;
+import calendar.command.CommandParser;
+import calendar.command.CreateAllDayEventCommand;
+import calendar.command.ExecPreparedCommand;
+import calendar.command.PrepareCommand;
+import calendar.controller.Controller;
+import calendar.controller.PipelinedController;
+import calendar.exceptions.InvalidCommandException;
+import calendar.model.CalendarManager;
+import calendar.view.ConsoleView;
+import java.io.IOException;
+import java.io.StringReader;
+import org.junit.Test;
+
+/**
+ * Tests for prepared commands: {@code prepare name as template} and
+ * {@code exec name values...}.
+ */
+public class PreparedCommandTest {
+  private static final String HEADER = "create calendar --name Work --timezone UTC\n"
+      + "use calendar --name Work\n";
+
+  @Test
+  public void testExecMatchesPlainCommands() throws IOException {
+    String plain = run(HEADER
+        + "create event \"Team sync\" from 2025-06-02T10:00 to 2025-06-02T11:00\n"
+        + "create event \"Trip from home\" from 2025-06-03T10:00 to 2025-06-03T11:00\n"
+        + "create event Standup from 2025-06-02T09:00 to 2025-06-02T09:15 repeats MWF"
+        + " for 4 times\n"
+        + "create event Retro on 2025-06-06\n"
+        + "print events from 2025-06-01T00:00 to 2025-06-30T00:00\nexit\n");
+    String prepared = run(HEADER
+        + "prepare ins as create event ? from ? to ?\n"
+        + "prepare rep as create event ? from ? to ? repeats ? for ? times\n"
+        + "prepare day as create event ? on ?\n"
+        + "prepare range as print events from ? to ?\n"
+        + "exec ins \"Team sync\" 2025-06-02T10:00 2025-06-02T11:00\n"
+        + "exec ins \"Trip from home\" 2025-06-03T10:00 2025-06-03T11:00\n"
+        + "exec rep Standup 2025-06-02T09:00 2025-06-02T09:15 MWF 4\n"
+        + "exec day Retro 2025-06-06\n"
+        + "exec range 2025-06-01T00:00 2025-06-30T00:00\nexit\n");
+    assertTrue(prepared, prepared.contains("Prepared 'rep' with 5 parameter(s)."));
+    assertEquals(plain, prepared.replaceAll("Prepared '[a-z]+' with \\d parameter\\(s\\)\\.\\R",
+        ""));
+  }
+
+  @Test
+  public void testQuotedValuesAreWholeArguments() throws IOException {
+    CalendarManager manager = new CalendarManager();
+    run(manager, HEADER + "prepare ins as create event ? from ? to ?\n"
+        + "exec ins \"Say \\\"hi\\\" from back\\\\slash\" 2025-06-02T10:00 2025-06-02T11:00\n"
+        + "exit\n");
+    assertEquals("Say \"hi\" from back\\slash",
+        manager.getCalendar("Work").getModel().getAllEvents().get(0).getSubject());
+
+    CommandParser parser = prepared("prepare ins as create event ? from ? to ?");
+    assertError(parser, "exec ins \"open 2025-06-02T10:00 2025-06-02T11:00",
+        "Unterminated quote");
+    assertError(parser, "exec ins \"a\"b 2025-06-02T10:00 2025-06-02T11:00",
+        "Expected a space after a quoted value");
+  }
+
+  @Test
+  public void testValuesAreChecked() throws IOException {
+    CommandParser parser = prepared("prepare rep as create event ? on ? repeats ? for ? times");
+    assertError(parser, "exec rep Gym 2025-06-02 MW", "Expected 4 parameter(s)");
+    assertError(parser, "exec rep Gym 2025-06-02 MW four", "must be a number");
+    assertError(parser, "exec rep Gym 2025-06-02 \"M W\" 4", "must be one word");
+    assertError(parser, "exec rep \"\" 2025-06-02 MW 4", "cannot be empty");
+    try {
+      parser.parse("exec missing a b").execute(new CalendarManager(),
+          new ConsoleView(new StringBuilder()));
+      fail("Expected InvalidCommandException");
+    } catch (InvalidCommandException e) {
+      assertEquals("No statement prepared as 'missing'", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testTemplatesAreChecked() throws IOException {
+    CommandParser parser = new CommandParser();
+    assertError(parser, "prepare bad as create event ? from", "Invalid command template");
+    assertError(parser, "prepare bad as create event Team ? on ?",
+        "A ? must stand for a whole argument");
+    assertError(parser, "prepare bad as exec ins a b", "Cannot prepare a exec command");
+
+    String output = run(new CalendarManager(), parser, "prepare ins as create event ? on ?\n"
+        + "prepare ins as create event ? on ?\nprepare ins as print events on ?\nexit\n");
+    assertTrue(output, output.endsWith("ERROR: 'ins' is already prepared as: "
+        + "create event ? on ?" + System.lineSeparator()));
+  }
+
+  @Test
+  public void testExecBeforePrepareIsBoundWhenRun() throws IOException {
+    CommandParser parser = new CommandParser();
+    CommandInterface early = parser.parse("exec day Early 2025-06-02");
+    assertTrue(early instanceof ExecPreparedCommand);
+    assertTrue(parser.parse("prepare day as create event ? on ?") instanceof PrepareCommand);
+    assertTrue(parser.parse("exec day Late 2025-06-02") instanceof ExecPreparedCommand);
+
+    CalendarManager manager = new CalendarManager();
+    run(manager, parser, HEADER + "prepare day as create event ? on ?\nexit\n");
+    assertTrue(parser.parse("exec day Late 2025-06-02") instanceof CreateAllDayEventCommand);
+    early.execute(manager, new ConsoleView(new StringBuilder()));
+    assertEquals(1, manager.getCalendar("Work").getModel().getAllEvents().size());
+  }
+
+  @Test
+  public void testPipelinedMatchesSequentialRun() throws IOException {
+    StringBuilder script = new StringBuilder(HEADER)
+        .append("exec ins Early 2025-01-01T09:00 2025-01-01T10:00\n")
+        .append("prepare ins as create event ? from ? to ?\n");
+    for (int i = 0; i < 2000; i++) {
+      String date = String.format("2025-%02d-%02d", 1 + i % 12, 1 + i % 28);
+      script.append((i % 10 == 9) ? "print events on " + date
+          : "exec ins \"Event " + i + "\" " + date + "T09:00 " + date + "T10:00").append('\n');
+    }
+    script.append("exit\n");
+    String expected = run(script.toString());
+    assertTrue(expected.startsWith("Calendar 'Work' created"));
+    assertTrue(expected.contains("ERROR: No statement prepared as 'ins'"));
+    for (int threads = 1; threads <= 3; threads++) {
+      StringBuilder actual = new StringBuilder();
+      new PipelinedController(new CalendarManager(), new ConsoleView(actual),
+          new CommandParser(), new StringReader(script.toString()), threads).run();
+      assertEquals(expected, actual.toString());
+    }
+    StringBuilder actual = new StringBuilder();
+    new PipelinedController(new CalendarManager(), new ConsoleView(actual),
+        new CommandParser(), new StringReader(script.toString()), 2, 4).run();
+    assertEquals(expected, actual.toString());
+  }
+
+  private static String run(String script) throws IOException {
+    return run(new CalendarManager(), script);
+  }
+
+  private static String run(CalendarManager manager, String script) throws IOException {
+    return run(manager, new CommandParser(), script);
+  }
+
+  private static String run(CalendarManager manager, CommandParser parser, String script)
+      throws IOException {
+    StringBuilder out = new StringBuilder();
+    new Controller(manager, new ConsoleView(out), parser, new StringReader(script), false)
+        .run();
+    return out.toString();
+  }
+
+  private static CommandParser prepared(String line) throws IOException {
+    CommandParser parser = new CommandParser();
+    parser.parse(line).execute(new CalendarManager(), new ConsoleView(new StringBuilder()));
+    return parser;
+  }
+
+  private static void assertError(CommandParser parser, String line, String message) {
+    try {
+      parser.parse(line);
+      fail("Expected InvalidCommandException for: " + line);
+    } catch (InvalidCommandException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains(message));
+    }
+  }
+}
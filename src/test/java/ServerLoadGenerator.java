@@ -0,0 +1,200 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Load generator for server mode. Opens many sessions at once against a running
+ * server, each working in its own calendar, and reports commands per second and
+ * latency percentiles.
+ *
+ * <p>Usage: {@code ServerLoadGenerator [port] [sessions] [commands-per-session]
+ * [window]} (defaults 7070, 1000, 200 and 0). Each session first creates and
+ * selects its calendar, then sends timed commands: creating events, printing a
+ * day and checking busy status in turn. A command's latency runs from sending its
+ * line to reading the empty line that ends its response.
+ *
+ * <p>With a window of 0 each session waits for every response before sending the
+ * next command. Otherwise sessions pipeline: they keep up to {@code window}
+ * commands in flight, sending more in batches once half have been answered.
+ */
+public class ServerLoadGenerator {
+
+  /**
+   * Runs the load.
+   *
+   * @param args port, number of sessions and commands per session
+   * @throws Exception if a session fails
+   */
+  public static void main(String[] args) throws Exception {
+    int port = (args.length > 0) ? Integer.parseInt(args[0]) : 7070;
+    int sessions = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+    int commands = (args.length > 2) ? Integer.parseInt(args[2]) : 200;
+    int window = (args.length > 3) ? Integer.parseInt(args[3]) : 0;
+    String run = Long.toString(System.currentTimeMillis(), 36);
+
+    long[][] latencies = new long[sessions][commands];
+    Throwable[] failures = new Throwable[sessions];
+    CountDownLatch ready = new CountDownLatch(sessions);
+    CountDownLatch start = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(sessions);
+    for (int i = 0; i < sessions; i++) {
+      int session = i;
+      Thread thread = new Thread(null, () -> {
+        try {
+          runSession(port, "Load-" + run + "-" + session, window, latencies[session], ready,
+              start);
+        } catch (Exception | Error e) {
+          failures[session] = e;
+          ready.countDown();
+        } finally {
+          done.countDown();
+        }
+      }, "load-session-" + i, 256 * 1024);
+      thread.start();
+    }
+
+    ready.await();
+    long begin = System.nanoTime();
+    start.countDown();
+    done.await();
+    long elapsed = System.nanoTime() - begin;
+
+    int failed = 0;
+    for (Throwable failure : failures) {
+      if (failure != null) {
+        failed++;
+      }
+    }
+    if (failed > 0) {
+      System.err.println(failed + " session(s) failed, first: " + Arrays.stream(failures)
+          .filter(f -> f != null).findFirst().get());
+    }
+
+    long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream)
+        .filter(latency -> latency > 0).sorted().toArray();
+    System.out.printf("sessions=%d window=%d commands=%d elapsed=%.2fs%n", sessions, window,
+        all.length, elapsed / 1e9);
+    System.out.printf("throughput=%.0f commands/s%n", all.length / (elapsed / 1e9));
+    System.out.printf("latency p50=%.2fms p99=%.2fms max=%.2fms%n", percentile(all, 50),
+        percentile(all, 99), (all.length == 0) ? 0 : all[all.length - 1] / 1e6);
+  }
+
+  /**
+   * Runs one session: sets up its calendar, waits for every session to be ready,
+   * then sends the timed commands.
+   */
+  private static void runSession(int port, String calendar, int window, long[] latencies,
+                                 CountDownLatch ready, CountDownLatch start)
+      throws IOException, InterruptedException {
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+         BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+             StandardCharsets.UTF_8));
+         Writer out = new OutputStreamWriter(socket.getOutputStream(),
+             StandardCharsets.UTF_8)) {
+      socket.setTcpNoDelay(true);
+      send(in, out, "create calendar --name " + calendar + " --timezone UTC");
+      send(in, out, "use calendar --name " + calendar);
+      if (window > 0) {
+        send(in, out, "pipeline " + window);
+      }
+      ready.countDown();
+      start.await();
+
+      if (window == 0) {
+        for (int i = 0; i < latencies.length; i++) {
+          long sent = System.nanoTime();
+          send(in, out, command(i));
+          latencies[i] = System.nanoTime() - sent;
+        }
+      } else {
+        pipeline(in, out, window, latencies);
+      }
+      out.write("exit\n");
+      out.flush();
+    }
+  }
+
+  /**
+   * Sends the timed commands of a pipelined session, keeping up to the window in
+   * flight.
+   */
+  private static void pipeline(BufferedReader in, Writer out, int window, long[] latencies)
+      throws IOException {
+    long[] sentAt = new long[latencies.length];
+    int sent = 0;
+    int received = 0;
+    while (received < latencies.length) {
+      if (sent - received <= window / 2) {
+        for (; sent < latencies.length && sent - received < window; sent++) {
+          out.write(command(sent));
+          out.write('\n');
+          sentAt[sent] = System.nanoTime();
+        }
+        out.flush();
+      }
+      String tag = in.readLine();
+      if (tag == null || !tag.equals("#" + (received + 1))) {
+        throw new IOException("Expected response #" + (received + 1) + ", got: " + tag);
+      }
+      readResponse(in, command(received));
+      latencies[received] = System.nanoTime() - sentAt[received];
+      received++;
+    }
+  }
+
+  /**
+   * Makes the i-th timed command of a session.
+   */
+  private static String command(int i) {
+    String date = String.format("2025-%02d-%02d", 1 + i % 12, 1 + i % 28);
+    switch (i % 3) {
+      case 0:
+        return "create event \"Load " + i + "\" from " + date + "T09:00 to " + date
+            + "T10:00";
+      case 1:
+        return "print events on " + date;
+      default:
+        return "show status on " + date + "T09:30";
+    }
+  }
+
+  /**
+   * Sends a command and reads its response.
+   */
+  private static void send(BufferedReader in, Writer out, String command) throws IOException {
+    out.write(command);
+    out.write('\n');
+    out.flush();
+    readResponse(in, command);
+  }
+
+  /**
+   * Reads a response, up to the empty line ending it.
+   */
+  private static void readResponse(BufferedReader in, String command) throws IOException {
+    String line;
+    while ((line = in.readLine()) != null && !line.isEmpty()) {
+      if (line.startsWith("ERROR")) {
+        throw new IOException(command + ": " + line);
+      }
+    }
+    if (line == null) {
+      throw new IOException("Server closed the session after: " + command);
+    }
+  }
+
+  private static double percentile(long[] sorted, int percent) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+    return sorted[Math.max(0, index)] / 1e6;
+  }
+}
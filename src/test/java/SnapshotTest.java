@@ -0,0 +1,148 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import calendar.command.CommandParser;
+import calendar.model.CalendarManager;
+import calendar.model.CalendarModelInterface;
+import calendar.model.EditSpec;
+import calendar.model.Event;
+import calendar.model.EventInterface;
+import calendar.model.EventSeries;
+import calendar.persistence.Journal;
+import calendar.persistence.Snapshot;
+import calendar.persistence.SyncPolicy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.EnumSet;
+import java.util.UUID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for binary snapshots and journal checkpoints.
+ */
+public class SnapshotTest {
+  private Path snapshot;
+  private Path journalFile;
+
+  /**
+   * Creates fresh file names.
+   */
+  @Before
+  public void setUp() throws IOException {
+    snapshot = Files.createTempFile("calendar", ".snap");
+    journalFile = Files.createTempFile("calendar", ".wal");
+    Files.delete(snapshot);
+    Files.delete(journalFile);
+  }
+
+  /**
+   * Removes the files.
+   */
+  @After
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(snapshot);
+    Files.deleteIfExists(journalFile);
+  }
+
+  @Test
+  public void testRoundTripKeepsEventsAndSeriesRules() throws IOException {
+    CalendarManager manager = new CalendarManager();
+    manager.createCalendar("Work", ZoneId.of("America/New_York"));
+    CalendarModelInterface model = manager.getCalendar("Work").getModel();
+    model.createEvent(new Event("Review", LocalDateTime.of(2025, 3, 4, 9, 15, 30),
+        LocalDateTime.of(2025, 3, 5, 10, 0), "Quarterly", "Room 4", true,
+        UUID.randomUUID(), null));
+    UUID seriesId = createWeeklySeries(model);
+    model.editEvent(model.getEventsOnDate(LocalDate.of(2025, 5, 12)).get(0).getId(),
+        EditSpec.builder().location("Offsite").build());
+    model.editSeriesFrom(seriesId, LocalDate.of(2025, 5, 19),
+        EditSpec.builder().start(LocalDateTime.of(2025, 5, 19, 14, 0)).build());
+
+    Snapshot.save(manager, snapshot);
+    CalendarManager loaded = new CalendarManager();
+    assertEquals(1, Snapshot.load(snapshot, loaded));
+
+    CalendarModelInterface loadedModel = loaded.getCalendar("Work").getModel();
+    assertEquals(ZoneId.of("America/New_York"), loaded.getCalendar("Work").getTimezone());
+    assertEquals(model.getAllEvents(), loadedModel.getAllEvents());
+    assertEquals(2, loadedModel.getAllSeries().size());
+    assertEquals("Offsite", loadedModel.getEventsOnDate(LocalDate.of(2025, 5, 12)).get(0)
+        .getLocation().orElse(null));
+    EventInterface review = loadedModel.getEventsOnDate(LocalDate.of(2025, 3, 4)).get(0);
+    assertEquals(30, review.getStartDateTime().getSecond());
+    assertTrue(review.isPrivate());
+    assertEquals("Quarterly", review.getDescription().orElse(null));
+  }
+
+  @Test
+  public void testSaveCommandWritesSnapshot() throws IOException {
+    CalendarManager manager = new CalendarManager();
+    manager.createCalendar("Work", ZoneId.of("UTC"));
+    Path relative = Paths.get("").toAbsolutePath().relativize(
+        Paths.get("snapshot-test.snap").toAbsolutePath());
+    try {
+      TestView view = new TestView();
+      assertTrue(new CommandParser().parse("save " + relative).execute(manager, view));
+      CalendarManager loaded = new CalendarManager();
+      Snapshot.load(relative, loaded);
+      assertTrue(loaded.getCalendar("Work") != null);
+    } finally {
+      Files.deleteIfExists(relative);
+    }
+  }
+
+  @Test
+  public void testCheckpointEmptiesJournal() throws IOException {
+    try (Journal journal = Journal.open(journalFile, SyncPolicy.ALWAYS)) {
+      CalendarManager manager = new CalendarManager(journal.calendarFactory());
+      journal.recover(manager, snapshot, 3);
+      manager.createCalendar("Work", ZoneId.of("UTC"));
+      CalendarModelInterface model = manager.getCalendar("Work").getModel();
+      for (int i = 1; i <= 4; i++) {
+        model.createEvent(new Event("E" + i, LocalDateTime.of(2025, 1, i, 9, 0),
+            LocalDateTime.of(2025, 1, i, 10, 0), null, null, false, UUID.randomUUID(), null));
+      }
+    }
+    assertTrue(Files.exists(snapshot));
+
+    try (Journal journal = Journal.open(journalFile, SyncPolicy.ALWAYS)) {
+      CalendarManager manager = new CalendarManager(journal.calendarFactory());
+      assertEquals("Only the records after the checkpoint are replayed", 2,
+          journal.recover(manager, snapshot, 100));
+      assertEquals(4, manager.getCalendar("Work").getModel().getAllEvents().size());
+    }
+  }
+
+  @Test
+  public void testSnapshotSavedMidJournalSkipsCoveredRecords() throws IOException {
+    try (Journal journal = Journal.open(journalFile, SyncPolicy.BATCH)) {
+      CalendarManager manager = new CalendarManager(journal.calendarFactory());
+      manager.createCalendar("Work", ZoneId.of("UTC"));
+      Snapshot.save(manager, snapshot);
+      manager.createCalendar("Home", ZoneId.of("UTC"));
+    }
+
+    try (Journal journal = Journal.open(journalFile, SyncPolicy.BATCH)) {
+      CalendarManager manager = new CalendarManager(journal.calendarFactory());
+      assertEquals(1, journal.recover(manager, snapshot, 100));
+      assertEquals(2, manager.getAllCalendars().size());
+    }
+  }
+
+  private UUID createWeeklySeries(CalendarModelInterface model) {
+    UUID seriesId = UUID.randomUUID();
+    EventInterface template = new Event("Sync", LocalDateTime.of(2025, 5, 5, 10, 0),
+        LocalDateTime.of(2025, 5, 5, 11, 0), null, null, false, UUID.randomUUID(), seriesId);
+    model.createEventSeries(new EventSeries(seriesId, template,
+        EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY), null, 8, false));
+    return seriesId;
+  }
+}
@@ -0,0 +1,397 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import calendar.command.CommandParser;
+import calendar.controller.Controller;
+import calendar.controller.PipelinedController;
+import calendar.model.CalendarInterface;
+import calendar.model.CalendarManager;
+import calendar.model.CalendarModelInterface;
+import calendar.model.EditSpec;
+import calendar.model.Event;
+import calendar.model.EventInterface;
+import calendar.model.EventSeries;
+import calendar.model.Transaction;
+import calendar.persistence.Journal;
+import calendar.persistence.SyncPolicy;
+import calendar.view.ConsoleView;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+/**
+ * Tests for transactions: changes inside one are seen through the manager, and are
+ * made to the calendars only at commit.
+ */
+public class TransactionTest {
+  private static final ZoneId UTC = ZoneId.of("UTC");
+  private static final String[] SUBJECTS = {"Sync", "Review", "Lunch"};
+
+  @Test
+  public void testRollbackLeavesCalendarsUnchanged() {
+    CalendarManager manager = new CalendarManager();
+    manager.createCalendar("Work", UTC);
+    manager.setCurrentCalendar("Work");
+    CalendarInterface work = manager.getCalendar("Work");
+    UUID id = UUID.randomUUID();
+    work.getModel().createEvent(event("Standup", 9, id, null));
+
+    Transaction transaction = manager.beginTransaction();
+    CalendarModelInterface view = manager.getCurrentCalendar().getModel();
+    assertTrue(view.createEvent(event("Review", 11, UUID.randomUUID(), null)));
+    assertTrue(view.editEvent(id, EditSpec.builder().location("Room 1").build()));
+    assertTrue(manager.createCalendar("Home", UTC));
+    assertTrue(manager.editCalendarName("Work", "Office"));
+    assertEquals(2, view.getAllEvents().size());
+    assertEquals("Room 1", view.findEventById(id).getLocation().orElse(null));
+    assertEquals(1, work.getModel().getAllEvents().size());
+    assertFalse(work.getModel().getAllEvents().get(0).getLocation().isPresent());
+    assertEquals(4, transaction.getChangeCount());
+
+    transaction.rollback();
+    assertFalse(transaction.isOpen());
+    assertNull(manager.getTransaction());
+    assertTrue(work == manager.getCalendar("Work"));
+    assertTrue(work == manager.getCurrentCalendar());
+    assertNull(manager.getCalendar("Home"));
+    assertNull(manager.getCalendar("Office"));
+    assertEquals("Work", work.getName());
+    assertEquals(1, work.getModel().getAllEvents().size());
+    assertFalse(work.getModel().getAllEvents().get(0).getLocation().isPresent());
+  }
+
+  @Test
+  public void testCommitMakesTheChanges() {
+    CalendarManager manager = new CalendarManager();
+    manager.createCalendar("Work", UTC);
+    CalendarInterface work = manager.getCalendar("Work");
+    UUID id = UUID.randomUUID();
+    work.getModel().createEvent(event("Standup", 9, id, null));
+
+    try (Transaction transaction = manager.beginTransaction()) {
+      manager.createCalendar("Home", ZoneId.of("Europe/Paris"));
+      manager.setCurrentCalendar("Home");
+      manager.getCurrentCalendar().getModel().createEvent(event("Gym", 18, UUID.randomUUID(),
+          null));
+      manager.editCalendarName("Home", "Personal");
+      manager.editCalendarTimezone("Work", ZoneId.of("America/New_York"));
+      manager.getCalendar("Work").getModel().editEvent(id,
+          EditSpec.builder().subject("Daily").build());
+      transaction.commit();
+    }
+
+    assertNull(manager.getTransaction());
+    assertTrue(work == manager.getCalendar("Work"));
+    assertEquals(ZoneId.of("America/New_York"), work.getTimezone());
+    EventInterface daily = work.getModel().findEventById(id);
+    assertEquals("Daily", daily.getSubject());
+    assertEquals(5, daily.getStartDateTime().getHour());
+    CalendarInterface personal = manager.getCalendar("Personal");
+    assertNotNull(personal);
+    assertTrue(personal == manager.getCurrentCalendar());
+    assertEquals(1, personal.getModel().getAllEvents().size());
+    assertNull(manager.getCalendar("Home"));
+  }
+
+  @Test
+  public void testCommitConflictingWithOutsideChangeCommitsNothing() {
+    CalendarManager manager = new CalendarManager();
+    manager.createCalendar("Work", UTC);
+    CalendarInterface work = manager.getCalendar("Work");
+    UUID id = UUID.randomUUID();
+    work.getModel().createEvent(event("Standup", 9, id, null));
+
+    Transaction transaction = manager.beginTransaction();
+    manager.createCalendar("Home", UTC);
+    manager.editCalendarName("Work", "Office");
+    CalendarModelInterface view = manager.getCalendar("Office").getModel();
+    assertTrue(view.editEvent(id, EditSpec.builder().location("Room 1").build()));
+    assertTrue(view.createEvent(event("Review", 11, UUID.randomUUID(), null)));
+    assertTrue(work.getModel().createEvent(event("Review", 11, UUID.randomUUID(), null)));
+    List<EventInterface> before = work.getModel().getAllEvents();
+
+    try {
+      transaction.commit();
+      fail("Expected IllegalStateException");
+    } catch (IllegalStateException e) {
+      assertEquals("Calendars were changed outside the transaction; nothing was committed",
+          e.getMessage());
+    }
+    assertFalse(transaction.isOpen());
+    assertNull(manager.getTransaction());
+    assertNull(manager.getCalendar("Home"));
+    assertNull(manager.getCalendar("Office"));
+    assertTrue(work == manager.getCalendar("Work"));
+    assertEquals("Work", work.getName());
+    assertEquals(before, work.getModel().getAllEvents());
+    assertFalse(work.getModel().findEventById(id).getLocation().isPresent());
+  }
+
+  @Test
+  public void testClosingOpenTransactionRollsBack() {
+    CalendarManager manager = new CalendarManager();
+    try (Transaction transaction = manager.beginTransaction()) {
+      manager.createCalendar("Work", UTC);
+      assertNotNull(manager.getCalendar("Work"));
+    }
+    assertNull(manager.getCalendar("Work"));
+
+    Transaction transaction = manager.beginTransaction();
+    try {
+      manager.beginTransaction();
+      fail("Expected IllegalStateException");
+    } catch (IllegalStateException e) {
+      assertEquals("A transaction is already open", e.getMessage());
+    }
+    transaction.commit();
+    try {
+      transaction.rollback();
+      fail("Expected IllegalStateException");
+    } catch (IllegalStateException e) {
+      assertEquals("Transaction has already ended", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testOverlayMatchesModelChangedDirectly() {
+    Random random = new Random(41);
+    for (int round = 0; round < 20; round++) {
+      CalendarManager direct = new CalendarManager();
+      CalendarManager transactional = new CalendarManager();
+      direct.createCalendar("Work", UTC);
+      transactional.createCalendar("Work", UTC);
+      CalendarModelInterface expected = direct.getCalendar("Work").getModel();
+      CalendarModelInterface committed = transactional.getCalendar("Work").getModel();
+      for (int i = 0; i < 60; i++) {
+        applyRandomChange(random, expected, committed);
+      }
+
+      Transaction transaction = transactional.beginTransaction();
+      CalendarModelInterface actual = transactional.getCalendar("Work").getModel();
+      for (int i = 0; i < 60; i++) {
+        applyRandomChange(random, expected, actual);
+        LocalDate date = LocalDate.of(2025, 6, 1 + random.nextInt(28));
+        assertEquals(describe(expected.getEventsOnDate(date)),
+            describe(actual.getEventsOnDate(date)));
+        LocalDateTime time = date.atTime(random.nextInt(24), 0);
+        assertEquals(expected.isBusy(time), actual.isBusy(time));
+        assertEquals(describe(expected.getEventsInRange(time, time.plusDays(3))),
+            describe(actual.getEventsInRange(time, time.plusDays(3))));
+      }
+      String before = describe(committed.getAllEvents());
+      assertEquals(describe(expected.getAllEvents()), describe(actual.getAllEvents()));
+      assertEquals(describe(expected.getAllEvents()),
+          describe(actual.streamAllEvents().collect(Collectors.toList())));
+      assertEquals(expected.getAllSeries().size(), actual.getAllSeries().size());
+
+      if (round % 2 == 0) {
+        transaction.rollback();
+        assertEquals(before, describe(committed.getAllEvents()));
+      } else {
+        transaction.commit();
+        assertEquals(describe(expected.getAllEvents()), describe(committed.getAllEvents()));
+      }
+    }
+  }
+
+  @Test
+  public void testJournalRecordsOnlyCommittedChanges() throws IOException {
+    Path file = Files.createTempFile("calendar", ".wal");
+    Files.delete(file);
+    try {
+      try (Journal journal = Journal.open(file, SyncPolicy.NEVER)) {
+        CalendarManager manager = new CalendarManager(journal.calendarFactory());
+        manager.createCalendar("Work", UTC);
+        try (Transaction transaction = manager.beginTransaction()) {
+          manager.getCalendar("Work").getModel().createEvent(event("Dropped", 9,
+              UUID.randomUUID(), null));
+          manager.createCalendar("Scratch", UTC);
+        }
+        try (Transaction transaction = manager.beginTransaction()) {
+          manager.getCalendar("Work").getModel().createEvent(event("Kept", 10,
+              UUID.randomUUID(), null));
+          manager.createCalendar("Home", UTC);
+          manager.getCalendar("Home").getModel().createEvent(event("Gym", 18,
+              UUID.randomUUID(), null));
+          transaction.commit();
+        }
+      }
+
+      CalendarManager recovered = new CalendarManager();
+      try (Journal journal = Journal.open(file, SyncPolicy.NEVER)) {
+        journal.replay(recovered);
+      }
+      assertNull(recovered.getCalendar("Scratch"));
+      List<EventInterface> work = recovered.getCalendar("Work").getModel().getAllEvents();
+      assertEquals(1, work.size());
+      assertEquals("Kept", work.get(0).getSubject());
+      assertEquals(1, recovered.getCalendar("Home").getModel().getAllEvents().size());
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  public void testFailedCommandsFileRollsBack() throws IOException {
+    String script = "create calendar --name Work --timezone UTC\n"
+        + "use calendar --name Work\n"
+        + "create event Kept on 2025-06-01\n"
+        + "begin\n"
+        + "create event A on 2025-06-02\n"
+        + "create event B on 2025-06-03\n"
+        + "create event A on 2025-06-02\n"
+        + "create event C on 2025-06-04\n"
+        + "commit\n"
+        + "exit\n";
+    for (int executors = 1; executors <= 2; executors++) {
+      CalendarManager manager = new CalendarManager();
+      StringBuilder out = new StringBuilder();
+      new PipelinedController(manager, new ConsoleView(out), new CommandParser(),
+          new StringReader(script), 1, executors).run();
+      assertTrue(out.toString(), out.toString().contains("Transaction started."));
+      assertTrue(out.toString(),
+          out.toString().contains("Transaction was not committed; 2 change(s) rolled back"));
+      assertNull(manager.getTransaction());
+      List<EventInterface> events = manager.getCalendar("Work").getModel().getAllEvents();
+      assertEquals(1, events.size());
+      assertEquals("Kept", events.get(0).getSubject());
+    }
+  }
+
+  @Test
+  public void testCommandsCommitAndRollBack() throws IOException {
+    CalendarManager manager = new CalendarManager();
+    StringBuilder out = new StringBuilder();
+    new Controller(manager, new ConsoleView(out), new CommandParser(), new StringReader(
+        "create calendar --name Work --timezone UTC\nuse calendar --name Work\n"
+            + "BEGIN\ncreate event A on 2025-06-02\nprint events on 2025-06-02\nrollback\n"
+            + "begin\ncreate calendar --name Home --timezone UTC\n"
+            + "create event B on 2025-06-03 repeats MW for 4 times\ncommit\n"
+            + "commit\nexit\n"), false).run();
+    String output = out.toString();
+    assertTrue(output, output.contains("A"));
+    assertTrue(output, output.contains("Transaction rolled back: 1 change(s) discarded."));
+    assertTrue(output, output.contains("Transaction committed: 2 change(s)."));
+    assertTrue(output, output.contains("No transaction is open."));
+    assertNotNull(manager.getCalendar("Home"));
+    List<EventInterface> events = manager.getCalendar("Work").getModel().getAllEvents();
+    assertEquals(4, events.size());
+    assertEquals("B", events.get(0).getSubject());
+  }
+
+  /**
+   * Makes the same random change to two models, checking they agree on its result.
+   */
+  private static void applyRandomChange(Random random, CalendarModelInterface expected,
+                                        CalendarModelInterface actual) {
+    String subject = SUBJECTS[random.nextInt(SUBJECTS.length)];
+    int hour = 8 + random.nextInt(10);
+    int day = 1 + random.nextInt(28);
+    List<EventInterface> events = expected.getAllEvents();
+    List<EventSeries> series = expected.getAllSeries();
+    series.sort((a, b) -> a.getSeriesId().compareTo(b.getSeriesId()));
+    switch (random.nextInt(6)) {
+      case 0: {
+        EventInterface event = new Event(subject, LocalDateTime.of(2025, 6, day, hour, 0),
+            LocalDateTime.of(2025, 6, day, hour + 1, 0), null, null, false, UUID.randomUUID(),
+            null);
+        assertEquals(expected.createEvent(event), actual.createEvent(event));
+        break;
+      }
+      case 1: {
+        List<EventInterface> batch = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+          batch.add(event(subject, 6 + random.nextInt(3) * 6, UUID.randomUUID(), null,
+              1 + random.nextInt(28)));
+        }
+        assertEquals(expected.createEvents(batch), actual.createEvents(batch));
+        break;
+      }
+      case 2: {
+        UUID seriesId = UUID.randomUUID();
+        EventInterface template = new Event(subject, LocalDateTime.of(2025, 6, day, hour, 30),
+            LocalDateTime.of(2025, 6, day, hour + 1, 0), null, null, false, UUID.randomUUID(),
+            seriesId);
+        EventSeries created = new EventSeries(seriesId, template,
+            EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.THURSDAY), null, 4, false);
+        assertEquals(expected.createEventSeries(created), actual.createEventSeries(created));
+        break;
+      }
+      case 3:
+      case 4: {
+        if (events.isEmpty()) {
+          break;
+        }
+        UUID id = events.get(random.nextInt(events.size())).getId();
+        EditSpec spec = randomEdit(random, hour);
+        assertEquals(expected.editEvent(id, spec), actual.editEvent(id, spec));
+        break;
+      }
+      default: {
+        if (series.isEmpty()) {
+          break;
+        }
+        UUID seriesId = series.get(random.nextInt(series.size())).getSeriesId();
+        EditSpec spec = randomEdit(random, hour);
+        if (random.nextBoolean()) {
+          assertEquals(expected.editEntireSeries(seriesId, spec),
+              actual.editEntireSeries(seriesId, spec));
+        } else {
+          LocalDate from = LocalDate.of(2025, 6, day);
+          assertEquals(expected.editSeriesFrom(seriesId, from, spec),
+              actual.editSeriesFrom(seriesId, from, spec));
+        }
+        break;
+      }
+    }
+  }
+
+  private static EditSpec randomEdit(Random random, int hour) {
+    switch (random.nextInt(3)) {
+      case 0:
+        return EditSpec.builder().subject(SUBJECTS[random.nextInt(SUBJECTS.length)]).build();
+      case 1:
+        return EditSpec.builder().location("Room " + random.nextInt(3)).build();
+      default:
+        return EditSpec.builder().start(LocalDateTime.of(2025, 6, 1 + random.nextInt(28),
+            hour, 0)).build();
+    }
+  }
+
+  private static EventInterface event(String subject, int hour, UUID id, UUID seriesId) {
+    return event(subject, hour, id, seriesId, 2);
+  }
+
+  private static EventInterface event(String subject, int hour, UUID id, UUID seriesId,
+                                      int day) {
+    return new Event(subject, LocalDateTime.of(2025, 6, day, hour, 0),
+        LocalDateTime.of(2025, 6, day, hour + 1, 0), null, null, false, id, seriesId);
+  }
+
+  /**
+   * Describes events in an order that does not depend on how a model stores them.
+   */
+  private static String describe(List<EventInterface> events) {
+    return events.stream()
+        .map(e -> e.getStartDateTime() + " " + e.getEndDateTime() + " " + e.getSubject() + " "
+            + e.getLocation().orElse("") + " " + e.getId() + " " + e.getSeriesId().orElse(null))
+        .sorted()
+        .collect(Collectors.joining("\n"));
+  }
+}
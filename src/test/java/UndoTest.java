@@ -0,0 +1,151 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import calendar.command.CommandParser;
+import calendar.controller.Controller;
+import calendar.model.CalendarManager;
+import calendar.model.CalendarModel;
+import calendar.model.ChangeSet;
+import calendar.model.EditSpec;
+import calendar.model.Event;
+import calendar.model.EventInterface;
+import calendar.model.EventSeries;
+import calendar.view.ConsoleView;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Test;
+
+/**
+ * Tests for undoing and redoing changes to a calendar, through the model and
+ * through commands.
+ */
+public class UndoTest {
+  private static final LocalDateTime NINE = LocalDateTime.of(2025, 6, 2, 9, 0);
+
+  @Test
+  public void testSeriesEditIsUndoneAndRedone() {
+    CalendarModel model = new CalendarModel();
+    UUID seriesId = UUID.randomUUID();
+    model.beginUndoStep();
+    model.createEventSeries(new EventSeries(seriesId, event("Standup", NINE, seriesId),
+        EnumSet.allOf(DayOfWeek.class), null, 500, false));
+    model.endUndoStep();
+    LocalDateTime last = NINE.plusDays(499);
+
+    model.beginUndoStep();
+    assertTrue(model.editEntireSeries(seriesId, EditSpec.builder().subject("Sync").build()));
+    model.endUndoStep();
+    assertEquals(1, model.findEventsBySubjectAndStart("Sync", last).size());
+
+    assertTrue(model.undo());
+    assertEquals(500, model.getAllEvents().size());
+    assertEquals("Standup", model.getEventsOnDate(last.toLocalDate()).get(0).getSubject());
+    assertEquals(1, model.findEventsBySubjectAndStart("Standup", last).size());
+    assertTrue(model.findEventsBySubjectAndStart("Sync", last).isEmpty());
+
+    assertTrue(model.redo());
+    assertEquals("Sync", model.getEventsOnDate(last.toLocalDate()).get(0).getSubject());
+    assertTrue(model.findEventsBySubjectAndStart("Standup", last).isEmpty());
+    assertFalse(model.redo());
+
+    assertTrue(model.undo());
+    assertTrue(model.undo());
+    assertTrue(model.getAllEvents().isEmpty());
+    assertTrue(model.getAllSeries().isEmpty());
+    assertFalse(model.undo());
+  }
+
+  @Test
+  public void testUndoIsReportedAsChanges() {
+    CalendarModel model = new CalendarModel();
+    EventInterface review = event("Review", NINE, null);
+    model.createEvent(review);
+    model.beginUndoStep();
+    model.editEvent(review.getId(), EditSpec.builder().location("Lab").build());
+    model.createEvent(event("Lunch", NINE.plusHours(3), null));
+    model.endUndoStep();
+    long token = model.getChangeToken();
+
+    assertTrue(model.undo());
+    ChangeSet changes = model.getChangesSince(token);
+    assertEquals(1, changes.getChangedEvents().size());
+    assertFalse(changes.getChangedEvents().get(0).getLocation().isPresent());
+    assertEquals(1, changes.getRemovedEvents().size());
+    assertEquals("Lunch", changes.getRemovedEvents().get(0).getSubject());
+  }
+
+  @Test
+  public void testNewChangeDropsRedoAndFailedChangeIsNoStep() {
+    CalendarModel model = new CalendarModel();
+    EventInterface review = event("Review", NINE, null);
+    model.beginUndoStep();
+    model.createEvent(review);
+    model.endUndoStep();
+    assertTrue(model.undo());
+
+    model.beginUndoStep();
+    model.createEvent(event("Lunch", NINE.plusHours(3), null));
+    model.endUndoStep();
+    assertFalse(model.redo());
+
+    model.beginUndoStep();
+    assertFalse(model.createEvents(List.of(event("Late", NINE.plusHours(8), null),
+        event("Lunch", NINE.plusHours(3), null))));
+    model.endUndoStep();
+    assertTrue(model.findEventsBySubjectAndStart("Late", NINE.plusHours(8)).isEmpty());
+    assertTrue(model.undo());
+    assertTrue(model.getAllEvents().isEmpty());
+    assertFalse(model.undo());
+  }
+
+  @Test
+  public void testCommandsUndoAndRedo() throws IOException {
+    String create = "create event Review from 2025-06-02T09:00 to 2025-06-02T10:00\n"
+        + "edit event location Review from 2025-06-02T09:00 to 2025-06-02T10:00 with Lab\n";
+    String out = run(create + "undo\nprint events on 2025-06-02\n");
+    assertTrue(out.contains("Undid the last change to calendar 'Work'."));
+    assertTrue(out.contains("Review"));
+    assertFalse(out.contains("Lab"));
+
+    out = run(create + "undo\nredo\nprint events on 2025-06-02\n");
+    assertTrue(out.contains("Redid the last change to calendar 'Work'."));
+    assertTrue(out.contains("Lab"));
+
+    out = run("undo\nredo\n");
+    assertTrue(out.contains("Nothing to undo in calendar 'Work'."));
+    assertTrue(out.contains("Nothing to redo in calendar 'Work'."));
+  }
+
+  @Test
+  public void testCommittedTransactionIsOneStep() throws IOException {
+    String out = run("begin\n"
+        + "create event Review from 2025-06-02T09:00 to 2025-06-02T10:00\n"
+        + "create event Lunch from 2025-06-02T12:00 to 2025-06-02T13:00\n"
+        + "commit\nundo\nprint events on 2025-06-02\n");
+    assertTrue(out.endsWith("Undid the last change to calendar 'Work'." + System.lineSeparator()
+        + "No events found." + System.lineSeparator()));
+
+    out = run("begin\nundo\n");
+    assertTrue(out.contains("Cannot undo while a transaction is open"));
+  }
+
+  private static EventInterface event(String subject, LocalDateTime start, UUID seriesId) {
+    return new Event(subject, start, start.plusHours(1), null, null, false,
+        UUID.randomUUID(), seriesId);
+  }
+
+  private static String run(String commands) throws IOException {
+    StringBuilder out = new StringBuilder();
+    new Controller(new CalendarManager(), new ConsoleView(out), new CommandParser(),
+        new StringReader("create calendar --name Work --timezone UTC\n"
+            + "use calendar --name Work\n" + commands + "exit\n"), false).run();
+    return out.toString();
+  }
+}
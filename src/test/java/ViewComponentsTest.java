@@ -355,6 +355,14 @@ public class ViewComponentsTest {
     public void navigateToToday() {
     }
 
+    @Override
+    public void undo() {
+    }
+
+    @Override
+    public void redo() {
+    }
+
     @Override
     public void selectDay(LocalDate date) {
     }
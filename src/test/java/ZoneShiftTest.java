@@ -0,0 +1,57 @@
+import static org.junit.Assert.assertEquals;
+
+import calendar.util.TimezoneUtils;
+import calendar.util.ZoneShift;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import org.junit.Test;
+
+/**
+ * Tests for ZoneShift: every conversion must match TimezoneUtils.convertTimezone.
+ */
+public class ZoneShiftTest {
+
+  @Test
+  public void testMatchesZoneRulesThroughTransitions() {
+    String[][] pairs = {
+        {"America/New_York", "America/Los_Angeles"},
+        {"America/New_York", "Europe/London"},
+        {"Europe/London", "Australia/Sydney"},
+        {"Australia/Lord_Howe", "Asia/Kolkata"},
+        {"UTC", "America/Sao_Paulo"},
+        {"Asia/Tokyo", "UTC"},
+        {"Europe/Paris", "Europe/Paris"},
+    };
+    LocalDateTime first = LocalDateTime.of(2024, 12, 30, 0, 0);
+    LocalDateTime last = LocalDateTime.of(2026, 1, 2, 0, 0);
+    for (String[] pair : pairs) {
+      ZoneId from = ZoneId.of(pair[0]);
+      ZoneId to = ZoneId.of(pair[1]);
+      ZoneShift shift = ZoneShift.between(from, to, first, last);
+      for (LocalDateTime t = first.minusDays(3); t.isBefore(last.plusDays(3));
+           t = t.plusMinutes(15)) {
+        assertEquals(pair[0] + " -> " + pair[1] + " at " + t,
+            TimezoneUtils.convertTimezone(t, from, to), shift.apply(t));
+      }
+    }
+  }
+
+  @Test
+  public void testOddTimesAroundTransition() {
+    ZoneId from = ZoneId.of("America/New_York");
+    ZoneId to = ZoneId.of("Europe/Berlin");
+    ZoneShift shift = ZoneShift.between(from, to, LocalDateTime.of(2025, 3, 1, 0, 0),
+        LocalDateTime.of(2025, 4, 1, 0, 0));
+    LocalDateTime start = LocalDateTime.of(2025, 3, 9, 0, 0);
+    for (int second = 0; second < 4 * 3600; second += 7) {
+      LocalDateTime t = start.plusSeconds(second);
+      assertEquals(TimezoneUtils.convertTimezone(t, from, to), shift.apply(t));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectsEmptyWindow() {
+    ZoneShift.between(ZoneId.of("UTC"), ZoneId.of("UTC"), LocalDateTime.of(2025, 1, 2, 0, 0),
+        LocalDateTime.of(2025, 1, 1, 0, 0));
+  }
+}